@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.physics.quantities.ObjectForce
+import be.angelcorp.celest.potential.{GravitationalPotential, PointMassPotential}
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * A single contribution to the acceleration of a point mass, evaluated on its primitive Cartesian state vector
+ * { x, y, z, &#7819;, &#7823;, &#380;, ... }.
+ * <p>
+ * Implementations add their acceleration to the accumulated acceleration of all the models, and should not allocate
+ * any memory. When the model is used in an [[be.angelcorp.celest.stateIntegrator.EnsemblePropagator]], it must also
+ * be thread-safe.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+trait AccelerationModel {
+
+  /**
+   * Add the acceleration of this model to the accumulated acceleration.
+   *
+   * @param t0   Reference epoch of the integration.
+   * @param t    Time of the state since the reference epoch [s].
+   * @param y    Cartesian state vector at t [m, m/s].
+   * @param yDot Derivatives of the state vector, the acceleration is added to the elements at the indices 3 to 5 [m/s²].
+   */
+  def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double])
+
+}
+
+object AccelerationModel {
+
+  /**
+   * A constant acceleration.
+   *
+   * @param acceleration Acceleration vector [m/s²].
+   */
+  def constant(acceleration: Vec3): AccelerationPartials = new AccelerationPartials {
+    private val ax = acceleration.x
+    private val ay = acceleration.y
+    private val az = acceleration.z
+
+    override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      yDot(3) += ax
+      yDot(4) += ay
+      yDot(5) += az
+    }
+
+    override def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double]) {
+      accumulate(t0, t, y, yDot)
+    }
+
+    override def toString = s"ConstantAcceleration($ax, $ay, $az)"
+  }
+
+  /**
+   * The acceleration of a force on a body, a = F / m. The force and the mass of the body are read on each evaluation,
+   * so later changes to the force or the body are taken into account. The force does not depend on the state vector,
+   * so its partial derivatives are zero.
+   *
+   * @param force Force acting on the body.
+   */
+  def force(force: ObjectForce): AccelerationPartials = new AccelerationPartials {
+    override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val f = force.getForce
+      val mass = force.getObject.mass
+      yDot(3) += f.x / mass
+      yDot(4) += f.y / mass
+      yDot(5) += f.z / mass
+    }
+
+    override def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double]) {
+      accumulate(t0, t, y, yDot)
+    }
+
+    override def toString = s"ObjectForce(${force.getForce})"
+  }
+
+  /**
+   * The acceleration of a point mass at the origin of the frame of the state vector.
+   *
+   * @param μ Gravitational parameter of the point mass [m³/s²].
+   */
+  def pointMass(μ: Double): AccelerationPartials = new AccelerationPartials {
+    override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val r2 = y(0) * y(0) + y(1) * y(1) + y(2) * y(2)
+      val f = -μ / (r2 * math.sqrt(r2))
+      yDot(3) += f * y(0)
+      yDot(4) += f * y(1)
+      yDot(5) += f * y(2)
+    }
+
+    override def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double]) {
+      accumulate(t0, t, y, yDot)
+      val gradient = gradients.get()
+      PointMassPotential.gradient(μ, y(0), y(1), y(2), gradient)
+      addPositionPartials(gradient, partials)
+    }
+
+    override def toString = s"PointMass($μ)"
+  }
+
+  /**
+   * The acceleration of a gravitational potential, centered at the origin of the frame of the state vector. When the
+   * potential has an analytic gravity gradient, the model supplies it as the partial derivatives of the acceleration;
+   * otherwise it is a plain [[be.angelcorp.celest.eom.forcesmodel.AccelerationModel]], which is differentiated
+   * numerically by the [[be.angelcorp.celest.eom.forcesmodel.VariationalEquations]].
+   *
+   * @param potential Gravitational potential, expressed in the frame of the state vector.
+   */
+  def potential(potential: GravitationalPotential): AccelerationModel =
+    if (potential.analyticGradient)
+      new PotentialAcceleration(potential) with AccelerationPartials {
+        override def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double]) {
+          accumulate(t0, t, y, yDot)
+          val point = workspace.get()._1
+          val gradient = gradients.get()
+          potential.gradient(point, gradient)
+          addPositionPartials(gradient, partials)
+        }
+      }
+    else
+      new PotentialAcceleration(potential)
+
+  /** The acceleration of a gravitational potential, see [[AccelerationModel#potential]]. */
+  private class PotentialAcceleration(potential: GravitationalPotential) extends AccelerationModel {
+    /** Scratch point and acceleration, one set per thread. */
+    protected val workspace = new ThreadLocal[(Vec3, Vec3)] {
+      override def initialValue() = (Vec3.zero, Vec3.zero)
+    }
+
+    override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val buffers = workspace.get()
+      val point = buffers._1
+      val acceleration = buffers._2
+      point.x = y(0)
+      point.y = y(1)
+      point.z = y(2)
+      potential(point, acceleration)
+      yDot(3) += acceleration.x
+      yDot(4) += acceleration.y
+      yDot(5) += acceleration.z
+    }
+
+    override def toString = potential.toString
+  }
+
+  /** Scratch gravity gradient, one per thread. */
+  private[forcesmodel] val gradients = new ThreadLocal[Array[Double]] {
+    override def initialValue() = new Array[Double](9)
+  }
+
+  /**
+   * Add a 3 x 3 matrix of partial derivatives with respect to the position, to the 3 x 6 partial derivatives with
+   * respect to the state vector.
+   *
+   * @param gradient Partial derivatives of the acceleration with respect to the position, row by row.
+   * @param partials Partial derivatives of the acceleration with respect to the state vector, row by row.
+   */
+  private[forcesmodel] def addPositionPartials(gradient: Array[Double], partials: Array[Double]) {
+    var i = 0
+    while (i < 3) {
+      partials(6 * i) += gradient(3 * i)
+      partials(6 * i + 1) += gradient(3 * i + 1)
+      partials(6 * i + 2) += gradient(3 * i + 2)
+      i += 1
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * An [[be.angelcorp.celest.eom.forcesmodel.AccelerationModel]] that also supplies the (analytic) partial derivatives
+ * of its acceleration with respect to the Cartesian state vector. These are used by the
+ * [[be.angelcorp.celest.eom.forcesmodel.VariationalEquations]] to propagate the state transition matrix; models that
+ * do not implement this trait are differentiated numerically instead.
+ *
+ * @author Simon Billemont
+ */
+trait AccelerationPartials extends AccelerationModel {
+
+  /**
+   * Add the acceleration of this model to the accumulated acceleration, and its partial derivatives to the accumulated
+   * partial derivatives. The partial derivatives are stored row by row, in a 3 x 6 matrix:
+   * $$ P_{6i+j} = \frac{\partial a_i}{\partial y_j} $$
+   *
+   * @param t0       Reference epoch of the integration.
+   * @param t        Time of the state since the reference epoch [s].
+   * @param y        Cartesian state vector at t [m, m/s].
+   * @param yDot     Derivatives of the state vector, the acceleration is added to the elements at the indices 3 to 5 [m/s²].
+   * @param partials Partial derivatives of the acceleration with respect to the state vector [1/s², 1/s].
+   */
+  def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double])
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.ephemeris.jplEphemeris._
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * The positions of a set of solar system bodies relative to a central body, shared by all the force models that
+ * require them.
+ * <p>
+ * The positions are computed from a JPL ephemeris, in a single pass for all the bodies, the first time they are
+ * requested for a specific time. All the following requests for the same time (for example by the third body
+ * perturbations of each body, and the solar radiation pressure in the same derivative evaluation) reuse these
+ * positions. The positions are kept per thread, so a single instance can be shared by all the threads of an
+ * [[be.angelcorp.celest.stateIntegrator.EnsemblePropagator]].
+ * </p>
+ * <p>
+ * The positions are expressed in the (ICRS) axes of the ephemeris, so the state vector of the propagated body must be
+ * expressed in a frame with the same axes, centered on the central body (for example the GCRF for the Earth).
+ * </p>
+ *
+ * @param ephemeris Ephemeris from which the positions are computed.
+ * @param center    Central body, the origin of the positions.
+ * @param bodies    Bodies of which the positions are computed.
+ *
+ * @author Simon Billemont
+ */
+class BodyPositions[F <: ReferenceSystem](val ephemeris: JplEphemeris[F], val center: JDEBody, val bodies: IndexedSeq[JDEBody]) {
+  require(!bodies.contains(center), s"The central body $center cannot be one of the bodies")
+
+  /** Last evaluated time and the positions of the bodies at that time, one set per thread. */
+  private class Cache {
+    var t0: Epoch = null
+    var t: Double = Double.NaN
+    val positions = new Array[Double](3 * bodies.size)
+  }
+
+  private val cache = new ThreadLocal[Cache] {
+    override def initialValue() = new Cache
+  }
+
+  /**
+   * Index of a body in the packed positions.
+   *
+   * @param body Body to find.
+   * @return Index of the body in bodies.
+   */
+  def index(body: JDEBody) = {
+    val i = bodies.indexOf(body)
+    require(i >= 0, s"The position of $body is not available")
+    i
+  }
+
+  /**
+   * Gravitational parameter of a body, as given by the ephemeris.
+   *
+   * @param body Body of which to find the gravitational parameter.
+   * @return The gravitational parameter of the body [m³/s²].
+   */
+  def μ(body: JDEBody) = ephemeris.body(body).μ
+
+  /**
+   * The packed positions of all the bodies relative to the central body, { x_0, y_0, z_0, x_1, y_1, z_1, ... } in the
+   * order of bodies. The returned array is reused for later requests on the same thread, and must not be modified.
+   *
+   * @param t0 Reference epoch.
+   * @param t  Time since the reference epoch [s].
+   * @return The positions of the bodies at t [m].
+   */
+  def positions(t0: Epoch, t: Double): Array[Double] = {
+    val current = cache.get()
+    if (current.t != t || (current.t0 ne t0)) {
+      val epoch = t0.addS(t)
+      val origin = ephemeris.interpolateState(epoch, center).position
+      var i = 0
+      while (i < bodies.size) {
+        val body = bodies(i)
+        val p = if (center == Earth() && body == Moon())
+          ephemeris.interpolateState(epoch, MoonGEO()).position
+        else
+          ephemeris.interpolateState(epoch, body).position - origin
+        current.positions(3 * i) = p.x
+        current.positions(3 * i + 1) = p.y
+        current.positions(3 * i + 2) = p.z
+        i += 1
+      }
+      current.t0 = t0
+      current.t = t
+    }
+    current.positions
+  }
+
+}
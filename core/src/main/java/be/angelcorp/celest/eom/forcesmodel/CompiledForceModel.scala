@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+import be.angelcorp.celest.stateIntegrator.CartesianStateEquations
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * The equations of motion of a point mass, as the sum of a fixed set of [[be.angelcorp.celest.eom.forcesmodel.AccelerationModel]]s.
+ * <p>
+ * The models are frozen into an array when the force model is compiled, and all of them accumulate their acceleration
+ * directly in the derivatives of the state vector. When profiling is enabled, the number of evaluations and the
+ * cumulative evaluation time of each model are recorded, see [[be.angelcorp.celest.eom.forcesmodel.CompiledForceModel#profile]].
+ * Profiling adds two calls to System.nanoTime for each model evaluation, so it should be disabled for production runs.
+ * </p>
+ *
+ * @param models    Contributions to the acceleration of the point mass.
+ * @param profiling Record the number of evaluations and the evaluation time of each model.
+ *
+ * @author Simon Billemont
+ */
+class CompiledForceModel(models: Array[AccelerationModel], val profiling: Boolean) extends CartesianStateEquations {
+
+  /**
+   * Compile a force model without profiling.
+   *
+   * @param models Contributions to the acceleration of the point mass.
+   */
+  def this(models: AccelerationModel*) = this(models.toArray, false)
+
+  private val compiled = models.clone()
+  private val calls = new AtomicLongArray(compiled.length)
+  private val nanos = new AtomicLongArray(compiled.length)
+
+  /** All the acceleration models, in order of evaluation. */
+  def accelerations: IndexedSeq[AccelerationModel] = compiled.toIndexedSeq
+
+  override def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    yDot(3) = 0.0
+    yDot(4) = 0.0
+    yDot(5) = 0.0
+    var i = 0
+    if (profiling) {
+      while (i < compiled.length) {
+        val start = System.nanoTime()
+        compiled(i).accumulate(t0, t, y, yDot)
+        nanos.addAndGet(i, System.nanoTime() - start)
+        calls.incrementAndGet(i)
+        i += 1
+      }
+    } else {
+      while (i < compiled.length) {
+        compiled(i).accumulate(t0, t, y, yDot)
+        i += 1
+      }
+    }
+  }
+
+  /**
+   * The profile of each acceleration model, recorded since the creation of the force model or the last reset. When
+   * profiling is disabled, all the counters remain zero.
+   *
+   * @return The number of evaluations and the cumulative evaluation time of each model.
+   */
+  def profile: IndexedSeq[ForceProfile] =
+    for (i <- compiled.indices) yield ForceProfile(compiled(i).toString, calls.get(i), nanos.get(i))
+
+  /** Reset all the profiling counters. */
+  def resetProfile() {
+    for (i <- compiled.indices) {
+      calls.set(i, 0)
+      nanos.set(i, 0)
+    }
+  }
+
+  /**
+   * Format the profile as a table, with the most expensive models first.
+   *
+   * @return A human readable profiling report.
+   */
+  def report = {
+    val entries = profile.sortBy(-_.nanos)
+    val total = math.max(entries.map(_.nanos).sum, 1L)
+    val lines = for (entry <- entries) yield
+      f"${entry.name}%-48s ${entry.calls}%12d ${entry.nanos / 1E6}%12.3f ${entry.meanNanos}%10.1f ${100.0 * entry.nanos / total}%6.1f%%"
+    (f"${"Model"}%-48s ${"Calls"}%12s ${"Total [ms]"}%12s ${"Mean [ns]"}%10s ${"Share"}%7s" +: lines).mkString("\n")
+  }
+
+  override def toString = s"CompiledForceModel(${compiled.mkString(", ")})"
+
+}
+
+/**
+ * Profile of a single acceleration model in a [[be.angelcorp.celest.eom.forcesmodel.CompiledForceModel]].
+ *
+ * @param name  Name of the acceleration model.
+ * @param calls Number of evaluations of the model.
+ * @param nanos Cumulative evaluation time of the model [ns].
+ */
+case class ForceProfile(name: String, calls: Long, nanos: Long) {
+
+  /** Mean evaluation time of the model [ns]. */
+  def meanNanos = if (calls == 0) 0.0 else nanos.toDouble / calls
+
+}
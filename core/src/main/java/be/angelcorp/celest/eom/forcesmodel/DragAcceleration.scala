@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.ephemeris.jplEphemeris.Sun
+import be.angelcorp.celest.physics.atmosphere.{HarrisPriesterAtmosphere, RotatingAtmosphere}
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * The atmospheric drag on a body, in a co-rotating atmosphere:
+ * <p>
+ * $$ \ddot{\vec{r}} = -\frac{1}{2} \frac{C_D A}{m} \rho |\vec{v}_r| \vec{v}_r \qquad \vec{v}_r = \vec{v} - \vec{\omega} \times \vec{r} $$
+ * </p>
+ * <p>
+ * This is the allocation free counterpart of [[be.angelcorp.celest.eom.forcesmodel.AtmosphericDrag]]; the state vector
+ * must be expressed in an inertial frame centered on the body of the atmosphere, with its z axis along the rotation
+ * axis of that body. The same remarks on the drag coefficient apply.
+ * </p>
+ *
+ * @param atmosphere Atmosphere creating the drag.
+ * @param cd         Drag coefficient [-].
+ * @param area       Drag cross-sectional area [m²].
+ * @param mass       Mass of the body [kg].
+ *
+ * @author Simon Billemont
+ */
+class DragAcceleration(val atmosphere: RotatingAtmosphere, val cd: Double, val area: Double, val mass: Double)
+  extends AccelerationModel {
+
+  private val ω = atmosphere.ω
+  private val k = -0.5 * cd * area / mass
+
+  /**
+   * Density of the atmosphere at the position of the body.
+   *
+   * @param t0 Reference epoch of the integration.
+   * @param t  Time of the state since the reference epoch [s].
+   * @param y  Cartesian state vector at t [m, m/s].
+   * @return The atmospheric density [kg/m³].
+   */
+  protected def density(t0: Epoch, t: Double, y: Array[Double]) = atmosphere.density(y(0), y(1), y(2))
+
+  override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    val ρ = density(t0, t, y)
+    if (ρ > 0) {
+      val vx = y(3) + ω * y(1)
+      val vy = y(4) - ω * y(0)
+      val vz = y(5)
+      val f = k * ρ * math.sqrt(vx * vx + vy * vy + vz * vz)
+      yDot(3) += f * vx
+      yDot(4) += f * vy
+      yDot(5) += f * vz
+    }
+  }
+
+  override def toString = s"DragAcceleration(${atmosphere.getClass.getSimpleName})"
+
+}
+
+object DragAcceleration {
+
+  /**
+   * The drag in a Harris-Priester atmosphere, with the apex of the diurnal bulge following the actual direction of the
+   * Sun.
+   *
+   * @param atmosphere Atmosphere creating the drag.
+   * @param positions  Shared positions, relative to the body of the atmosphere, that include the Sun.
+   * @param cd         Drag coefficient [-].
+   * @param area       Drag cross-sectional area [m²].
+   * @param mass       Mass of the body [kg].
+   */
+  def harrisPriester(atmosphere: HarrisPriesterAtmosphere, positions: BodyPositions[_],
+                     cd: Double, area: Double, mass: Double): DragAcceleration = new DragAcceleration(atmosphere, cd, area, mass) {
+    private val sun = 3 * positions.index(Sun())
+
+    override protected def density(t0: Epoch, t: Double, y: Array[Double]) = {
+      val s = positions.positions(t0, t)
+      atmosphere.density(y(0), y(1), y(2), s(sun), s(sun + 1), s(sun + 2))
+    }
+  }
+
+}
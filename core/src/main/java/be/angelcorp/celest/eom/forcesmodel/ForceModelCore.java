@@ -81,12 +81,35 @@ public class ForceModelCore implements IStateEquation<PosVel<?>, ICartesianDeriv
 
     @Override
     public ICartesianDerivative calculateDerivatives(Epoch t, PosVel<?> y) {
-        Vec3 a = Vec3$.MODULE$.zero();
+        // Sum the components of a = F / m directly, without an intermediate vector per force
+        double ax = 0, ay = 0, az = 0;
         for (ObjectForce f : getForcesList()) {
-            Vec3 dA = f.toAcceleration();
-            a = a.$plus(dA);
+            Vec3 force = f.getForce();
+            double mass = f.getObject().mass();
+            ax += force.x() / mass;
+            ay += force.y() / mass;
+            az += force.z() / mass;
         }
-        return new CartesianDerivative(y.velocity(), a);
+        return new CartesianDerivative(y.velocity(), Vec3$.MODULE$.apply(ax, ay, az));
+    }
+
+    /**
+     * Freeze the list of forces that currently act on the body into a {@link CompiledForceModel}, which evaluates the
+     * accelerations directly on a primitive state vector. Forces added to or removed from this force model later do not
+     * affect the compiled model, but the compiled model reads the value of each force (and the mass of its object) on
+     * every evaluation, like {@link #calculateDerivatives}. The forces do not depend on the state vector, so they supply
+     * their (zero) partial derivatives to the {@link VariationalEquations} without any finite differences.
+     *
+     * @param profiling Record the number of evaluations and the evaluation time of each force.
+     * @return The compiled force model.
+     */
+    public CompiledForceModel compile(boolean profiling) {
+        List<ObjectForce> forces = getForcesList();
+        AccelerationModel[] models = new AccelerationModel[forces.size()];
+        int i = 0;
+        for (ObjectForce f : forces)
+            models[i++] = AccelerationModel$.MODULE$.force(f);
+        return new CompiledForceModel(models, profiling);
     }
 
     @Override
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.constants.SolarConstants
+
+/**
+ * A model of the shadow cast by an (occulting) spherical body, that determines which fraction of the solar disk is
+ * visible from a point.
+ * <p>
+ * All the positions are expressed relative to the same origin, in the same axes.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+trait ShadowFunction {
+
+  /**
+   * Compute the fraction of the Sun that is visible from a point.
+   *
+   * @param rx X coordinate of the point [m].
+   * @param ry Y coordinate of the point [m].
+   * @param rz Z coordinate of the point [m].
+   * @param sx X coordinate of the Sun [m].
+   * @param sy Y coordinate of the Sun [m].
+   * @param sz Z coordinate of the Sun [m].
+   * @param ox X coordinate of the occulting body [m].
+   * @param oy Y coordinate of the occulting body [m].
+   * @param oz Z coordinate of the occulting body [m].
+   * @param R  Radius of the occulting body [m].
+   * @return The visible fraction of the Sun, 0 in the umbra, 1 in full sunlight [-].
+   */
+  def apply(rx: Double, ry: Double, rz: Double,
+            sx: Double, sy: Double, sz: Double,
+            ox: Double, oy: Double, oz: Double, R: Double): Double
+
+}
+
+object ShadowFunction {
+
+  /**
+   * A cylindrical shadow; the Sun is treated as a point at infinity, and the shadow of the occulting body is a cylinder
+   * with the radius of the body, pointing away from the Sun. There is no penumbra, the visible fraction is either 0
+   * or 1.
+   */
+  val cylindrical: ShadowFunction = new ShadowFunction {
+    override def apply(rx: Double, ry: Double, rz: Double,
+                       sx: Double, sy: Double, sz: Double,
+                       ox: Double, oy: Double, oz: Double, R: Double) = {
+      val dx = rx - ox
+      val dy = ry - oy
+      val dz = rz - oz
+      val ux = sx - ox
+      val uy = sy - oy
+      val uz = sz - oz
+      val projection = dx * ux + dy * uy + dz * uz
+      if (projection >= 0)
+        1.0
+      else {
+        // Squared distance of the point to the axis of the shadow
+        val perpendicular2 = dx * dx + dy * dy + dz * dz - projection * projection / (ux * ux + uy * uy + uz * uz)
+        if (perpendicular2 < R * R) 0.0 else 1.0
+      }
+    }
+
+    override def toString = "cylindrical"
+  }
+
+  /** A conical shadow cast by the mean solar disk. */
+  val conical: ShadowFunction = new ConicalShadow(SolarConstants.radiusMean)
+
+}
+
+/**
+ * A conical shadow, with an umbra and penumbra; the visible fraction of the Sun is determined from the overlap of
+ * the apparent disks of the Sun (radius a) and the occulting body (radius b), at an apparent separation c:
+ * <ul>
+ * <li>c &ge; a + b: full sunlight</li>
+ * <li>c &lt; b - a: umbra, the Sun is fully occulted</li>
+ * <li>c &lt; a - b: antumbra, the occulting body transits the solar disk</li>
+ * <li>otherwise: penumbra, the disks partially overlap</li>
+ * </ul>
+ * <p>
+ * The test for full sunlight, which holds for nearly all the evaluations, is done on the cosines of the angles and
+ * requires no trigonometric functions.
+ * </p>
+ * <p>
+ * The work in this class is mainly based on:
+ * </p>
+ * <ul>
+ * <li>Oliver Montenbruck and Eberhard Gill, <b>"Satellite Orbits: Models, Methods and Applications"</b>, Springer,
+ * 2000, section 3.4.2</li>
+ * </ul>
+ *
+ * @param sunRadius Radius of the solar disk [m].
+ *
+ * @author Simon Billemont
+ */
+class ConicalShadow(val sunRadius: Double) extends ShadowFunction {
+
+  override def apply(rx: Double, ry: Double, rz: Double,
+                     sx: Double, sy: Double, sz: Double,
+                     ox: Double, oy: Double, oz: Double, R: Double): Double = {
+    // Directions from the point to the Sun and to the occulting body
+    val ux = sx - rx
+    val uy = sy - ry
+    val uz = sz - rz
+    val vx = ox - rx
+    val vy = oy - ry
+    val vz = oz - rz
+    val u = math.sqrt(ux * ux + uy * uy + uz * uz)
+    val v = math.sqrt(vx * vx + vy * vy + vz * vz)
+    if (v <= R)
+      return 0.0
+
+    val sinA = sunRadius / u
+    val sinB = R / v
+    val cosA = math.sqrt(1 - sinA * sinA)
+    val cosB = math.sqrt(1 - sinB * sinB)
+    val cosC = (ux * vx + uy * vy + uz * vz) / (u * v)
+    // cos c <= cos(a + b)
+    if (cosC <= cosA * cosB - sinA * sinB)
+      return 1.0
+
+    val a = math.asin(sinA)
+    val b = math.asin(sinB)
+    val c = math.acos(math.max(-1.0, math.min(1.0, cosC)))
+    if (c <= b - a)
+      0.0
+    else if (c <= a - b)
+      1.0 - (b * b) / (a * a)
+    else {
+      val x = (c * c + a * a - b * b) / (2 * c)
+      val y = math.sqrt(math.max(0.0, a * a - x * x))
+      val overlap = a * a * math.acos(math.max(-1.0, math.min(1.0, x / a))) +
+        b * b * math.acos(math.max(-1.0, math.min(1.0, (c - x) / b))) - c * y
+      1.0 - overlap / (math.Pi * a * a)
+    }
+  }
+
+  override def toString = s"conical($sunRadius)"
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.constants.EarthConstants
+import be.angelcorp.celest.ephemeris.jplEphemeris.{Earth, JDEBody, Moon, Sun}
+import be.angelcorp.celest.physics.Units
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * The acceleration of a body due to the solar radiation pressure, for a cannonball model:
+ * <p>
+ * $$ \ddot{\vec{r}} = \nu P_{\odot} C_R \frac{A}{m} \frac{AU^2}{|\vec{r} - \vec{s}|^2} \frac{\vec{r} - \vec{s}}{|\vec{r} - \vec{s}|} $$
+ * </p>
+ * <p>
+ * where &nu; is the visible fraction of the Sun. It is the product of the shadow function of each occulting body, so
+ * simultaneous eclipses by multiple bodies are treated as independent.
+ * </p>
+ * <p>
+ * The positions of the Sun and the occulting bodies are taken from the shared
+ * [[be.angelcorp.celest.eom.forcesmodel.BodyPositions]], so combined with the third body perturbations no additional
+ * ephemeris evaluations are required. The central body of these positions may itself be an occulting body, at the
+ * origin.
+ * </p>
+ * <p>
+ * This is the allocation free counterpart of [[be.angelcorp.celest.eom.forcesmodel.SolarRadiationPressure]].
+ * </p>
+ *
+ * @param positions Shared positions, relative to the central body, that include the Sun and the occulting bodies.
+ * @param cr        Reflectivity coefficient [-].
+ * @param area      Cross-sectional area exposed to the Sun [m²].
+ * @param mass      Mass of the body [kg].
+ * @param shadow    Model of the shadow cast by each occulting body.
+ * @param occulters Occulting bodies and their radius [m].
+ *
+ * @author Simon Billemont
+ */
+class SolarRadiationPressureAcceleration(val positions: BodyPositions[_], val cr: Double, val area: Double, val mass: Double,
+                                         val shadow: ShadowFunction, val occulters: IndexedSeq[(JDEBody, Double)])
+  extends AccelerationModel {
+
+  private val k = SolarRadiationPressureAcceleration.pressure * Units.AU * Units.AU * cr * area / mass
+  private val sun = 3 * positions.index(Sun())
+  /** Index of each occulting body in the packed positions, or -1 for the central body. */
+  private val occulterIndex = occulters.map(o => if (o._1 == positions.center) -1 else 3 * positions.index(o._1)).toArray
+  private val occulterRadius = occulters.map(_._2).toArray
+
+  /**
+   * Compute the visible fraction of the Sun from a point.
+   *
+   * @param t0 Reference epoch.
+   * @param t  Time since the reference epoch [s].
+   * @param y  State vector, of which the first three components are the position of the point [m].
+   * @return The visible fraction of the Sun, 0 in the umbra, 1 in full sunlight [-].
+   */
+  def illumination(t0: Epoch, t: Double, y: Array[Double]): Double =
+    illumination(positions.positions(t0, t), y(0), y(1), y(2))
+
+  private def illumination(s: Array[Double], rx: Double, ry: Double, rz: Double) = {
+    val sx = s(sun)
+    val sy = s(sun + 1)
+    val sz = s(sun + 2)
+    var ν = 1.0
+    var i = 0
+    while (i < occulterIndex.length && ν > 0) {
+      val j = occulterIndex(i)
+      ν *= (if (j < 0)
+        shadow(rx, ry, rz, sx, sy, sz, 0, 0, 0, occulterRadius(i))
+      else
+        shadow(rx, ry, rz, sx, sy, sz, s(j), s(j + 1), s(j + 2), occulterRadius(i)))
+      i += 1
+    }
+    ν
+  }
+
+  override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    val s = positions.positions(t0, t)
+    val rx = y(0)
+    val ry = y(1)
+    val rz = y(2)
+    val ν = illumination(s, rx, ry, rz)
+    if (ν > 0) {
+      val dx = rx - s(sun)
+      val dy = ry - s(sun + 1)
+      val dz = rz - s(sun + 2)
+      val d2 = dx * dx + dy * dy + dz * dz
+      val f = ν * k / (d2 * math.sqrt(d2))
+      yDot(3) += f * dx
+      yDot(4) += f * dy
+      yDot(5) += f * dz
+    }
+  }
+
+  override def toString = s"SolarRadiationPressureAcceleration($shadow, ${occulters.map(_._1).mkString(", ")})"
+
+}
+
+object SolarRadiationPressureAcceleration {
+
+  /** Solar radiation pressure at a distance of 1 AU from the Sun [N/m²]. */
+  val pressure = 4.56E-6
+
+  /** Mean radius of the Moon [m]. */
+  val moonRadius = 1737.4E3
+
+  /**
+   * The solar radiation pressure on a body orbiting the Earth, with eclipses by both the Earth and the Moon.
+   *
+   * @param positions Shared positions, relative to the Earth, that include the Sun and the Moon.
+   * @param cr        Reflectivity coefficient [-].
+   * @param area      Cross-sectional area exposed to the Sun [m²].
+   * @param mass      Mass of the body [kg].
+   * @param shadow    Model of the shadow cast by the Earth and the Moon.
+   */
+  def earthMoon(positions: BodyPositions[_], cr: Double, area: Double, mass: Double,
+                shadow: ShadowFunction = ShadowFunction.conical) = {
+    require(positions.center == Earth(), "Expected positions relative to the Earth")
+    new SolarRadiationPressureAcceleration(positions, cr, area, mass, shadow,
+      IndexedSeq(Earth() -> EarthConstants.radiusEquatorial, Moon() -> moonRadius))
+  }
+
+}
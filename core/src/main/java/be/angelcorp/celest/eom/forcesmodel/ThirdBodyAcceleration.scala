@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.ephemeris.jplEphemeris.JDEBody
+import be.angelcorp.celest.potential.PointMassPotential
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * The perturbing acceleration of a third body, on a body orbiting the central body of the
+ * [[be.angelcorp.celest.eom.forcesmodel.BodyPositions]]:
+ * <p>
+ * $$ \ddot{\vec{r}} = \mu \left( \frac{\vec{s} - \vec{r}}{|\vec{s} - \vec{r}|^3} - \frac{\vec{s}}{|\vec{s}|^3} \right) $$
+ * </p>
+ * <p>
+ * When the third body is far away (|r| &lt;&lt; |s|), both terms are nearly equal and evaluating this difference
+ * directly loses most of its significant digits. Instead, the equivalent formulation of Battin is used:
+ * $$ \ddot{\vec{r}} = -\frac{\mu}{|\vec{r} - \vec{s}|^3} \left( \vec{r} + F(q) \vec{s} \right) \qquad
+ * q = \frac{\vec{r} \cdot (\vec{r} - 2 \vec{s})}{\vec{s} \cdot \vec{s}} \qquad
+ * F(q) = q \frac{3 + 3q + q^2}{1 + (1 + q)^{3/2}} $$
+ * </p>
+ * <p>
+ * The work in this class is mainly based on:
+ * </p>
+ * <ul>
+ * <li>Richard H. Battin, <b>"An Introduction to the Mathematics and Methods of Astrodynamics"</b>, AIAA, 1999,
+ * section 8.4</li>
+ * </ul>
+ * <p>
+ * The partial derivatives of the acceleration are the gravity gradient of the third body, at the position relative to
+ * that body. The positions of the third body are independent of the state of the propagated body.
+ * </p>
+ *
+ * @param positions Shared positions of the perturbing bodies.
+ * @param body      Perturbing body.
+ * @param μ         Gravitational parameter of the perturbing body [m³/s²].
+ *
+ * @author Simon Billemont
+ */
+class ThirdBodyAcceleration(val positions: BodyPositions[_], val body: JDEBody, val μ: Double) extends AccelerationPartials {
+
+  /**
+   * Create the perturbation of a third body, using the gravitational parameter given by the ephemeris.
+   *
+   * @param positions Shared positions of the perturbing bodies.
+   * @param body      Perturbing body.
+   */
+  def this(positions: BodyPositions[_], body: JDEBody) = this(positions, body, positions.μ(body))
+
+  private val k = 3 * positions.index(body)
+
+  override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    val s = positions.positions(t0, t)
+    val sx = s(k)
+    val sy = s(k + 1)
+    val sz = s(k + 2)
+    val rx = y(0)
+    val ry = y(1)
+    val rz = y(2)
+
+    val dx = rx - sx
+    val dy = ry - sy
+    val dz = rz - sz
+    val d2 = dx * dx + dy * dy + dz * dz
+    val q = (rx * (rx - 2 * sx) + ry * (ry - 2 * sy) + rz * (rz - 2 * sz)) / (sx * sx + sy * sy + sz * sz)
+    val F = q * (3 + 3 * q + q * q) / (1 + math.pow(1 + q, 1.5))
+    val f = -μ / (d2 * math.sqrt(d2))
+
+    yDot(3) += f * (rx + F * sx)
+    yDot(4) += f * (ry + F * sy)
+    yDot(5) += f * (rz + F * sz)
+  }
+
+  override def accumulatePartials(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double], partials: Array[Double]) {
+    accumulate(t0, t, y, yDot)
+    val s = positions.positions(t0, t)
+    val gradient = AccelerationModel.gradients.get()
+    PointMassPotential.gradient(μ, y(0) - s(k), y(1) - s(k + 1), y(2) - s(k + 2), gradient)
+    AccelerationModel.addPositionPartials(gradient, partials)
+  }
+
+  override def toString = s"ThirdBodyAcceleration($body)"
+
+}
+
+object ThirdBodyAcceleration {
+
+  /**
+   * Create the perturbations of all the bodies in the shared positions.
+   *
+   * @param positions Shared positions of the perturbing bodies.
+   * @return The perturbation of each body, using the gravitational parameters given by the ephemeris.
+   */
+  def all(positions: BodyPositions[_]): IndexedSeq[AccelerationModel] =
+    positions.bodies.map(body => new ThirdBodyAcceleration(positions, body))
+
+}
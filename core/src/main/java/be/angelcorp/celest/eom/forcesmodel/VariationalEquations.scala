@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.stateIntegrator.StateEquations
+import be.angelcorp.celest.time.Epoch
+import org.apache.commons.math3.linear.{MatrixUtils, RealMatrix}
+
+/**
+ * The equations of motion of a point mass, extended with the variational equations of its 6 x 6 state transition
+ * matrix &Phi;(t, t<sub>0</sub>) = &part;y(t) / &part;y(t<sub>0</sub>):
+ * <p>
+ * $$ \dot{\Phi} = \begin{bmatrix} 0 & I \\ \frac{\partial \vec{a}}{\partial \vec{r}} & \frac{\partial \vec{a}}{\partial \vec{v}} \end{bmatrix} \Phi $$
+ * </p>
+ * <p>
+ * The state vector has 42 elements; the Cartesian state { x, y, z, &#7819;, &#7823;, &#380; }, followed by the state
+ * transition matrix, row by row. Use [[be.angelcorp.celest.eom.forcesmodel.VariationalEquations#initialState]] to
+ * create the initial state, and [[be.angelcorp.celest.eom.forcesmodel.VariationalEquations#transitionMatrix]] to
+ * extract the matrix after the propagation, for example with a [[be.angelcorp.celest.stateIntegrator.StatePropagator]].
+ * A single propagation then replaces the (at least) seven propagations that are needed to compute the matrix with
+ * finite differences.
+ * </p>
+ * <p>
+ * The partial derivatives of the acceleration are supplied analytically by all the models that implement
+ * [[be.angelcorp.celest.eom.forcesmodel.AccelerationPartials]]. The partial derivatives of the other models are
+ * computed with central differences of only that model, which requires 12 additional evaluations of the model. The
+ * models are evaluated directly, so these evaluations are not recorded in the profile of the force model.
+ * </p>
+ *
+ * @param model        Force model of the point mass.
+ * @param positionStep Step in the position, for the finite differences of models without analytic partials [m].
+ * @param velocityStep Step in the velocity, for the finite differences of models without analytic partials [m/s].
+ *
+ * @author Simon Billemont
+ */
+class VariationalEquations(val model: CompiledForceModel, val positionStep: Double = 1.0, val velocityStep: Double = 1E-3)
+  extends StateEquations {
+
+  private val models = model.accelerations.toArray
+  private val analytic: Array[AccelerationPartials] = models.map {
+    case partials: AccelerationPartials => partials
+    case _ => null
+  }
+
+  /** Acceleration models of which the partial derivatives are computed with finite differences. */
+  def numerical: IndexedSeq[AccelerationModel] = models.filterNot(_.isInstanceOf[AccelerationPartials]).toIndexedSeq
+
+  /** Scratch buffers for the partial derivatives and finite differences, one set per thread. */
+  private class Workspace {
+    val partials = new Array[Double](18)
+    val state = new Array[Double](6)
+    val forward = new Array[Double](6)
+    val backward = new Array[Double](6)
+  }
+
+  private val workspace = new ThreadLocal[Workspace] {
+    override def initialValue() = new Workspace
+  }
+
+  override def dimension = 42
+
+  override def derivatives(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    val buffers = workspace.get()
+    val partials = buffers.partials
+    java.util.Arrays.fill(partials, 0.0)
+
+    yDot(0) = y(3)
+    yDot(1) = y(4)
+    yDot(2) = y(5)
+    yDot(3) = 0.0
+    yDot(4) = 0.0
+    yDot(5) = 0.0
+    var m = 0
+    while (m < models.length) {
+      if (analytic(m) != null) {
+        analytic(m).accumulatePartials(t0, t, y, yDot, partials)
+      } else {
+        models(m).accumulate(t0, t, y, yDot)
+        difference(models(m), t0, t, y, buffers)
+      }
+      m += 1
+    }
+
+    // d(Phi)/dt, the upper rows are the lower rows of Phi, the lower rows are the partials times Phi
+    var k = 0
+    while (k < 18) {
+      yDot(6 + k) = y(24 + k)
+      k += 1
+    }
+    var i = 0
+    while (i < 3) {
+      k = 0
+      while (k < 6) {
+        var sum = 0.0
+        var j = 0
+        while (j < 6) {
+          sum += partials(6 * i + j) * y(6 + 6 * j + k)
+          j += 1
+        }
+        yDot(24 + 6 * i + k) = sum
+        k += 1
+      }
+      i += 1
+    }
+  }
+
+  /** Add the partial derivatives of a single model, computed with central differences. */
+  private def difference(model: AccelerationModel, t0: Epoch, t: Double, y: Array[Double], buffers: Workspace) {
+    val state = buffers.state
+    val forward = buffers.forward
+    val backward = buffers.backward
+    val partials = buffers.partials
+    System.arraycopy(y, 0, state, 0, 6)
+    var j = 0
+    while (j < 6) {
+      val h = if (j < 3) positionStep else velocityStep
+      state(j) = y(j) + h
+      forward(3) = 0.0
+      forward(4) = 0.0
+      forward(5) = 0.0
+      model.accumulate(t0, t, state, forward)
+      state(j) = y(j) - h
+      backward(3) = 0.0
+      backward(4) = 0.0
+      backward(5) = 0.0
+      model.accumulate(t0, t, state, backward)
+      state(j) = y(j)
+
+      partials(j) += (forward(3) - backward(3)) / (2 * h)
+      partials(6 + j) += (forward(4) - backward(4)) / (2 * h)
+      partials(12 + j) += (forward(5) - backward(5)) / (2 * h)
+      j += 1
+    }
+  }
+
+  override def toString = s"VariationalEquations($model)"
+
+}
+
+object VariationalEquations {
+
+  /**
+   * Create the initial state of the variational equations; the Cartesian state, with the identity matrix as the
+   * state transition matrix.
+   *
+   * @param y0 Initial Cartesian state vector [m, m/s].
+   * @return The initial 42 element state vector.
+   */
+  def initialState(y0: Array[Double]): Array[Double] = {
+    val y = new Array[Double](42)
+    System.arraycopy(y0, 0, y, 0, 6)
+    for (i <- 0 until 6)
+      y(6 + 7 * i) = 1.0
+    y
+  }
+
+  /**
+   * Extract the state transition matrix from the state of the variational equations.
+   *
+   * @param y State vector of the variational equations.
+   * @return The 6 x 6 state transition matrix.
+   */
+  def transitionMatrix(y: Array[Double]): RealMatrix = {
+    val matrix = MatrixUtils.createRealMatrix(6, 6)
+    for (i <- 0 until 6; j <- 0 until 6)
+      matrix.setEntry(i, j, y(6 + 6 * i + j))
+    matrix
+  }
+
+}
@@ -1,6 +1,6 @@
 package be.angelcorp.celest.ephemeris.jplEphemeris
 
-import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.math.geometry.{PosVelArray, Vec3}
 import be.angelcorp.celest.time.{TimeRange, Epoch}
 import be.angelcorp.celest.state.PosVel
 import be.angelcorp.celest.universe.Universe
@@ -89,6 +89,23 @@ trait JplEphemeris[F <: ReferenceSystem] {
       new PosVel(Vec3(p) * 1000.0, Vec3(v) * 1000.0, frame)
     }
 
+  /**
+   * Compute the position and velocity vectors of a planetary body at a number of epochs, see
+   * [[be.angelcorp.celest.ephemeris.jplEphemeris.JplEphemeris#interpolateState]].
+   *
+   * @param epochs Epochs for which the states are desired.
+   * @param body   Solar system body for which the states are desired.
+   * @return State of the body at each epoch, in the order of the epochs.
+   */
+  def interpolateStates(epochs: Seq[Epoch], body: JDEBody): PosVelArray = {
+    val states = new PosVelArray(epochs.size)
+    for ((epoch, i) <- epochs.zipWithIndex) {
+      val state = interpolateState(epoch, body)
+      states.update(i, state.position, state.velocity)
+    }
+    states
+  }
+
   /**
    * Compute the Chebeyshev polynomials and interpolate them to the specified epoch.
    *
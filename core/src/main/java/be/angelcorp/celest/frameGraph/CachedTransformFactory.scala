@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.Callable
+
+import be.angelcorp.celest.time.Epoch
+import com.google.common.cache.{Cache, CacheBuilder, CacheStats}
+
+/**
+ * A [[be.angelcorp.celest.frameGraph.ReferenceFrameTransformFactory]] that shares the transforms it produced with all
+ * its callers.
+ * <p>
+ * The transforms of the wrapped factory are kept in a concurrent, bounded cache keyed on the exact epoch. When many
+ * callers request a transform at the same epoch (for example all the satellites of an ensemble that is propagated in
+ * lock-step), the transform is computed only once; concurrent requests for the same epoch wait for the first
+ * computation to complete. When the cache is full, the least recently used transforms are evicted.
+ * </p>
+ * <p>
+ * Caching is enabled per factory, by wrapping either a single transform before attaching it to the frame graph, or
+ * the complete factory of a path obtained from the graph:
+ * </p>
+ * <pre>
+ * val gcrsToItrs = CachedTransformFactory(graph.getTransformFactory(gcrs, itrs).get, 4096)
+ * </pre>
+ * <p>
+ * Note: epochs are compared using their equals method, so the same instant expressed in another time standard is a
+ * different cache entry.
+ * </p>
+ *
+ * @param factory   Factory producing the actual transforms.
+ * @param capacity  Maximum number of transforms kept in the cache.
+ * @param inverseOf The cached factory of which this factory is the inverse, or null. When set, the transforms are
+ *                  computed by inverting the transforms of inverseOf rather than by the factory.
+ *
+ * @author Simon Billemont
+ */
+class CachedTransformFactory[F0 <: ReferenceSystem, F1 <: ReferenceSystem] private
+(val factory: ReferenceFrameTransformFactory[F0, F1], val capacity: Long, inverseOf: CachedTransformFactory[F1, F0])
+  extends BasicReferenceFrameTransformFactory[F0, F1] with TransformAccuracy {
+
+  /**
+   * Create a factory that caches the transforms of another factory.
+   *
+   * @param factory  Factory producing the actual transforms.
+   * @param capacity Maximum number of transforms kept in the cache.
+   */
+  def this(factory: ReferenceFrameTransformFactory[F0, F1], capacity: Long) = this(factory, capacity, null)
+
+  private val cache: Cache[Epoch, ReferenceFrameTransform[F0, F1]] =
+    CacheBuilder.newBuilder().maximumSize(capacity).recordStats().build[Epoch, ReferenceFrameTransform[F0, F1]]()
+
+  /**
+   * The cost of the wrapped factory. It does not depend on the content of the cache, so wrapping a factory does not
+   * change the routes selected in the frame graph.
+   */
+  def cost(epoch: Epoch) = factory.cost(epoch)
+
+  def error(epoch: Epoch) = TransformAccuracy.of(factory, epoch)
+
+  def transform(epoch: Epoch): ReferenceFrameTransform[F0, F1] =
+    cache.get(epoch, new Callable[ReferenceFrameTransform[F0, F1]] {
+      def call() =
+        if (inverseOf != null) inverseOf.transform(epoch).inverse else factory.transform(epoch)
+    })
+
+  /**
+   * The inverse factory, with its own cache of the same capacity. Its transforms are the inverse of the (cached)
+   * transforms of this factory, so the wrapped factory is evaluated only once per epoch for both directions.
+   */
+  lazy val inverse: CachedTransformFactory[F1, F0] =
+    if (inverseOf != null) inverseOf else new CachedTransformFactory(factory.inverse, capacity, this)
+
+  def fromFrame: F0 = factory.fromFrame
+
+  def toFrame: F1 = factory.toFrame
+
+  /**
+   * Statistics of the cache; the number of hits, misses, evictions, ...
+   *
+   * @return A snapshot of the cache statistics.
+   */
+  def statistics: CacheStats = cache.stats()
+
+  /** Number of transforms currently in the cache. */
+  def size: Long = cache.size()
+
+  /** Remove all the transforms from the cache. */
+  def clear() {
+    cache.invalidateAll()
+  }
+
+  override def toString = s"Cached($factory)"
+
+}
+
+object CachedTransformFactory {
+
+  /**
+   * Create a factory that caches the transforms of another factory.
+   *
+   * @param factory  Factory producing the actual transforms.
+   * @param capacity Maximum number of transforms kept in the cache.
+   * @return A caching wrapper around the factory.
+   */
+  def apply[F0 <: ReferenceSystem, F1 <: ReferenceSystem](factory: ReferenceFrameTransformFactory[F0, F1], capacity: Long = 1024) =
+    new CachedTransformFactory[F0, F1](factory, capacity)
+
+}
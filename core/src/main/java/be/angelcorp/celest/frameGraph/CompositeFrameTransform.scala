@@ -79,4 +79,41 @@ class CompositeFrameTransform[F0 <: ReferenceSystem, F1 <: ReferenceSystem, F2 <
     transform1.transformVector( vector0 )
   }
 
+  override def transformPos(position: Vec3, result: Vec3): Unit = {
+    transform0.transformPos(position, result)
+    transform1.transformPos(result, result)
+  }
+
+  override def transformPosVel(position: Vec3, velocity: Vec3, resultPosition: Vec3, resultVelocity: Vec3): Unit = {
+    transform0.transformPosVel(position, velocity, resultPosition, resultVelocity)
+    transform1.transformPosVel(resultPosition, resultVelocity, resultPosition, resultVelocity)
+  }
+
+  override def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3,
+                                  resultPosition: Vec3, resultVelocity: Vec3, resultAcceleration: Vec3): Unit = {
+    transform0.transformPosVelAcc(position, velocity, acceleration, resultPosition, resultVelocity, resultAcceleration)
+    transform1.transformPosVelAcc(resultPosition, resultVelocity, resultAcceleration, resultPosition, resultVelocity, resultAcceleration)
+  }
+
+  override def transformPos(positions: Array[Double], result: Array[Double]): Unit = {
+    transform0.transformPos(positions, result)
+    transform1.transformPos(result, result)
+  }
+
+  override def transformPosVel(positions: Array[Double], velocities: Array[Double],
+                               resultPosition: Array[Double], resultVelocity: Array[Double]): Unit = {
+    transform0.transformPosVel(positions, velocities, resultPosition, resultVelocity)
+    transform1.transformPosVel(resultPosition, resultVelocity, resultPosition, resultVelocity)
+  }
+
+  override def transformPosVelAcc(positions: Array[Double], velocities: Array[Double], accelerations: Array[Double],
+                                  resultPosition: Array[Double], resultVelocity: Array[Double], resultAcceleration: Array[Double]): Unit = {
+    transform0.transformPosVelAcc(positions, velocities, accelerations, resultPosition, resultVelocity, resultAcceleration)
+    transform1.transformPosVelAcc(resultPosition, resultVelocity, resultAcceleration, resultPosition, resultVelocity, resultAcceleration)
+  }
+
+  /** Inverts the two transforms of this composite, rather than computing new transforms at the same epoch. */
+  override def inverse: ReferenceFrameTransform[F2, F0] =
+    new CompositeFrameTransform[F2, F1, F0](factory.inverse, epoch, transform1.inverse, transform0.inverse)
+
 }
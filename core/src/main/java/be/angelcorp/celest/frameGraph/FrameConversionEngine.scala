@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.{ForkJoinPool, RecursiveAction}
+
+import be.angelcorp.celest.math.geometry.{PosVelArray, Vec3}
+import be.angelcorp.celest.state.{Orbit, PosVel}
+import be.angelcorp.celest.time.Epoch
+import be.angelcorp.celest.trajectory.{DiscreteTrajectory, Trajectory}
+
+import scala.collection.JavaConverters._
+
+/**
+ * Converts a complete time series of states from one reference frame to another.
+ * <p>
+ * The transformation path through the frame graph is resolved only once (it is given as a single
+ * [[be.angelcorp.celest.frameGraph.ReferenceFrameTransformFactory]]). For each unique epoch in the series a single
+ * [[be.angelcorp.celest.frameGraph.ReferenceFrameTransform]] is created, and these are computed in parallel on a
+ * fork-join pool. All the samples that share the same epoch reuse that transform, and are converted together with a
+ * single call to its packed array overload.
+ * </p>
+ *
+ * @param factory   Factory producing the transforms from F0 to F1.
+ * @param pool      Fork-join pool on which the per-epoch transforms are evaluated.
+ * @param threshold Maximum number of unique epochs that are processed sequentially within a single fork-join task.
+ *
+ * @tparam F0 Frame of the input states.
+ * @tparam F1 Frame of the output states.
+ * @author Simon Billemont
+ */
+class FrameConversionEngine[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val factory: ReferenceFrameTransformFactory[F0, F1],
+                                                                           val pool: ForkJoinPool = ForkJoinPool.commonPool(),
+                                                                           val threshold: Int = 16) {
+
+  /**
+   * Convert the packed positions and velocities of a time series to frame F1.
+   * <p>
+   * The vectors are stored consecutively in the arrays; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`, where sample i is
+   * valid on `epochs(i)`. The input arrays are not modified.
+   * </p>
+   *
+   * @param epochs     Epoch of each sample.
+   * @param positions  Packed positions in frame F0 [m].
+   * @param velocities Packed velocities in frame F0 [m/s].
+   * @return The same time series, expressed in frame F1.
+   */
+  def convert(epochs: Array[Epoch], positions: Array[Double], velocities: Array[Double]): StateSeries[F1] = {
+    require(positions.length == 3 * epochs.length, "Expected 3 position components for each epoch")
+    require(velocities.length == 3 * epochs.length, "Expected 3 velocity components for each epoch")
+
+    // Group all the samples by their epoch
+    val groups = new java.util.LinkedHashMap[Epoch, SampleIndices]()
+    var i = 0
+    while (i < epochs.length) {
+      var group = groups.get(epochs(i))
+      if (group == null) {
+        group = new SampleIndices
+        groups.put(epochs(i), group)
+      }
+      group += i
+      i += 1
+    }
+
+    val uniqueEpochs = groups.keySet().asScala.toArray
+    val samples = groups.values().asScala.toArray
+    val resultPositions = new Array[Double](positions.length)
+    val resultVelocities = new Array[Double](velocities.length)
+
+    pool.invoke(new ConversionTask(uniqueEpochs, samples, 0, uniqueEpochs.length,
+      positions, velocities, resultPositions, resultVelocities))
+
+    new StateSeries(epochs.clone(), resultPositions, resultVelocities, factory.toFrame)
+  }
+
+  /**
+   * Convert all the states in a [[be.angelcorp.celest.trajectory.DiscreteTrajectory]] to frame F1.
+   *
+   * @param trajectory Trajectory to convert.
+   * @return All the states of the trajectory, in chronological order and expressed in frame F1.
+   */
+  def convert(trajectory: DiscreteTrajectory[F0]): StateSeries[F1] = {
+    val states = trajectory.states.entrySet().asScala.toArray
+    val epochs = states.map(_.getKey)
+    val (positions, velocities) = pack(states.map(_.getValue))
+    convert(epochs, positions, velocities)
+  }
+
+  /**
+   * Sample a [[be.angelcorp.celest.trajectory.Trajectory]] on the given epochs and convert the samples to frame F1.
+   *
+   * @param trajectory Trajectory to sample.
+   * @param epochs     Epochs at which to sample the trajectory.
+   * @return The sampled states, expressed in frame F1.
+   */
+  def convert(trajectory: Trajectory[F0], epochs: Seq[Epoch]): StateSeries[F1] = {
+    val (positions, velocities) = pack(epochs.map(trajectory(_)))
+    convert(epochs.toArray, positions, velocities)
+  }
+
+  /** Pack a sequence of orbits into position and velocity arrays. */
+  private def pack(orbits: Seq[Orbit[F0]]) = {
+    val positions = new Array[Double](3 * orbits.length)
+    val velocities = new Array[Double](3 * orbits.length)
+    for ((orbit, i) <- orbits.zipWithIndex) {
+      val pv = orbit.toPosVel
+      positions(3 * i) = pv.position.x
+      positions(3 * i + 1) = pv.position.y
+      positions(3 * i + 2) = pv.position.z
+      velocities(3 * i) = pv.velocity.x
+      velocities(3 * i + 1) = pv.velocity.y
+      velocities(3 * i + 2) = pv.velocity.z
+    }
+    (positions, velocities)
+  }
+
+  /**
+   * Fork-join task that creates the transform for each epoch in the range [start, end[ and applies it to all the
+   * samples at that epoch.
+   */
+  private class ConversionTask(epochs: Array[Epoch], samples: Array[SampleIndices], start: Int, end: Int,
+                               positions: Array[Double], velocities: Array[Double],
+                               resultPositions: Array[Double], resultVelocities: Array[Double]) extends RecursiveAction {
+
+    override def compute() {
+      if (end - start <= threshold) {
+        var i = start
+        while (i < end) {
+          val transform = factory.transform(epochs(i))
+          val indices = samples(i)
+          // Gather the samples of this epoch, transform them in a single packed call and scatter the result
+          val p = new Array[Double](3 * indices.size)
+          val v = new Array[Double](3 * indices.size)
+          var j = 0
+          while (j < indices.size) {
+            System.arraycopy(positions, 3 * indices(j), p, 3 * j, 3)
+            System.arraycopy(velocities, 3 * indices(j), v, 3 * j, 3)
+            j += 1
+          }
+          transform.transformPosVel(p, v, p, v)
+          j = 0
+          while (j < indices.size) {
+            System.arraycopy(p, 3 * j, resultPositions, 3 * indices(j), 3)
+            System.arraycopy(v, 3 * j, resultVelocities, 3 * indices(j), 3)
+            j += 1
+          }
+          i += 1
+        }
+      } else {
+        val middle = (start + end) >>> 1
+        java.util.concurrent.ForkJoinTask.invokeAll(
+          new ConversionTask(epochs, samples, start, middle, positions, velocities, resultPositions, resultVelocities),
+          new ConversionTask(epochs, samples, middle, end, positions, velocities, resultPositions, resultVelocities)
+        )
+      }
+    }
+
+  }
+
+  /** Minimal growable array of primitive sample indices. */
+  private class SampleIndices {
+    private var data = new Array[Int](1)
+    var size = 0
+
+    def +=(value: Int) {
+      if (size == data.length)
+        data = java.util.Arrays.copyOf(data, 2 * size)
+      data(size) = value
+      size += 1
+    }
+
+    def apply(index: Int) = data(index)
+  }
+
+}
+
+object FrameConversionEngine {
+
+  /**
+   * Resolve the transformation path between two frames in a frame graph, and create a conversion engine for it.
+   *
+   * @param graph Frame graph in which to search the transformation path.
+   * @param from  Frame of the input states.
+   * @param to    Frame of the output states.
+   * @return A conversion engine from `from` to `to`, or None if no path exists between the two frames.
+   */
+  def apply[F0 <: ReferenceSystem, F1 <: ReferenceSystem](graph: ReferenceFrameGraph, from: F0, to: F1): Option[FrameConversionEngine[F0, F1]] =
+    graph.getTransformFactory(from, to).map(factory => new FrameConversionEngine(factory))
+
+}
+
+/**
+ * A time series of Cartesian states, stored in primitive arrays.
+ * <p>
+ * The vectors are stored consecutively in the arrays; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`, where sample i is
+ * valid on `epochs(i)`.
+ * </p>
+ *
+ * @param epochs     Epoch of each sample.
+ * @param positions  Packed positions [m].
+ * @param velocities Packed velocities [m/s].
+ * @param frame      Frame in which the states are expressed.
+ *
+ * @tparam F Frame in which the states are expressed.
+ * @author Simon Billemont
+ */
+class StateSeries[F <: ReferenceSystem](val epochs: Array[Epoch], val positions: Array[Double], val velocities: Array[Double], val frame: F) {
+
+  /** Number of samples in the series. */
+  def size = epochs.length
+
+  /** Position of sample i [m]. */
+  def position(i: Int) = Vec3(positions(3 * i), positions(3 * i + 1), positions(3 * i + 2))
+
+  /** Velocity of sample i [m/s]. */
+  def velocity(i: Int) = Vec3(velocities(3 * i), velocities(3 * i + 1), velocities(3 * i + 2))
+
+  /** State of sample i. */
+  def apply(i: Int) = new PosVel(position(i), velocity(i), frame)
+
+  /** The samples as a [[be.angelcorp.celest.math.geometry.PosVelArray]], sharing the arrays of this series. */
+  def states = PosVelArray.wrap(positions, velocities)
+
+  /** Store the samples in a new [[be.angelcorp.celest.trajectory.DiscreteTrajectory]]. */
+  def toDiscreteTrajectory = {
+    val trajectory = new DiscreteTrajectory[F]()
+    for (i <- 0 until size)
+      trajectory.states.put(epochs(i), apply(i))
+    trajectory
+  }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+import be.angelcorp.celest.time.Epoch
+import org.jgrapht.WeightedGraph
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+ * Immutable state of a [[be.angelcorp.celest.frameGraph.ReferenceFrameGraphImpl]]; all the frames, and the
+ * transforms between them.
+ * <p>
+ * A snapshot is never modified after it is created. Attaching a frame or a transform creates a new snapshot, so a
+ * snapshot can be queried by any number of threads without synchronization.
+ * </p>
+ * <p>
+ * The routing table of each origin frame (the shortest path tree to all other frames) is computed the first time a
+ * path from that frame is requested, and then reused for the lifetime of the snapshot. Similarly, the composite
+ * transform factories of the resolved paths are memoized.
+ * </p>
+ * <p>
+ * Multiple transforms can connect the same two frames (for example an exact and a truncated model). The default
+ * routing uses the first attached transform, while a [[be.angelcorp.celest.frameGraph.RoutingPolicy]] selects between
+ * them based on their cost and accuracy at a specific epoch.
+ * </p>
+ *
+ * @param frames     All the frames in the graph, in the order they were attached.
+ * @param transforms All the transforms in the graph, in the order they were attached.
+ * @param sources    Index of the origin frame of each transform.
+ * @param targets    Index of the destination frame of each transform.
+ * @param weights    Weight of each transform when searching the shortest path.
+ *
+ * @author Simon Billemont
+ */
+class FrameGraphSnapshot private(val frames: Vector[ReferenceSystem],
+                                 val transforms: Vector[ReferenceFrameTransformFactory[_, _]],
+                                 sources: Vector[Int], targets: Vector[Int], weights: Vector[Double]) {
+
+  /** Index of each frame in frames. */
+  private val index: Map[ReferenceSystem, Int] = frames.zipWithIndex.toMap
+
+  /** Indices of the transforms originating from each frame. */
+  private val outgoing: Array[Array[Int]] = {
+    val builders = Array.fill(frames.size)(Array.newBuilder[Int])
+    for (e <- transforms.indices)
+      builders(sources(e)) += e
+    builders.map(_.result())
+  }
+
+  /** Lazily computed routing table of each origin frame; the last transform on the shortest path to each frame. */
+  private val routes = new AtomicReferenceArray[Array[Int]](frames.size)
+
+  /** Composite transform factories of the already resolved paths. */
+  private[frameGraph] val factories = new ConcurrentHashMap[(ReferenceSystem, ReferenceSystem), ReferenceFrameTransformFactory[_, _]]()
+
+  /** Check if a frame is part of this snapshot. */
+  def contains(frame: ReferenceSystem) = index.contains(frame)
+
+  /**
+   * Create a new snapshot that includes an additional frame.
+   *
+   * @param frame Frame to add.
+   * @return A snapshot with the frame, or this snapshot if the frame was already present.
+   */
+  def withFrame(frame: ReferenceSystem): FrameGraphSnapshot =
+    if (contains(frame)) this
+    else new FrameGraphSnapshot(frames :+ frame, transforms, sources, targets, weights)
+
+  /**
+   * Create a new snapshot that includes an additional transform between two of its frames. The same transform
+   * instance can be attached only once.
+   *
+   * @param from      Origin frame of the transform.
+   * @param to        Destination frame of the transform.
+   * @param transform Factory of the transform.
+   * @param weight    Weight of the transform when searching the shortest path.
+   * @return A snapshot with the transform, or this snapshot if the transform could not be added.
+   */
+  def withTransform(from: ReferenceSystem, to: ReferenceSystem, transform: ReferenceFrameTransformFactory[_, _], weight: Double = 1.0): FrameGraphSnapshot =
+    (index.get(from), index.get(to)) match {
+      case (Some(i), Some(j)) if !transforms.exists(_ eq transform) =>
+        new FrameGraphSnapshot(frames, transforms :+ transform, sources :+ i, targets :+ j, weights :+ weight)
+      case _ => this
+    }
+
+  /**
+   * All the transforms that originate from or lead to a frame.
+   *
+   * @param frame Frame to find the transforms of.
+   * @return All the connected transforms, or an empty sequence if the frame is not part of this snapshot.
+   */
+  def transformsOf(frame: ReferenceSystem): Seq[ReferenceFrameTransformFactory[_, _]] = index.get(frame) match {
+    case Some(i) => transforms.indices.filter(e => sources(e) == i || targets(e) == i).map(transforms)
+    case None => Nil
+  }
+
+  /**
+   * Find the shortest path between two frames.
+   *
+   * @param from Origin of the path.
+   * @param to   Destination of the path.
+   * @return All the transforms (in sequence) that lead from the origin to the destination, or None if either frame
+   *         is not part of the snapshot or no path exists.
+   */
+  def path(from: ReferenceSystem, to: ReferenceSystem): Option[Seq[ReferenceFrameTransformFactory[_, _]]] =
+    for (i <- index.get(from); j <- index.get(to); path <- route(i, j)) yield path
+
+  /**
+   * Find the best path between two frames according to a routing policy.
+   *
+   * @param from   Origin of the path.
+   * @param to     Destination of the path.
+   * @param epoch  Epoch at which the cost and accuracy of the transforms are evaluated.
+   * @param policy Policy that selects the path.
+   * @return All the transforms (in sequence) that lead from the origin to the destination, or None if either frame
+   *         is not part of the snapshot or no path satisfies the policy.
+   */
+  def path(from: ReferenceSystem, to: ReferenceSystem, epoch: Epoch, policy: RoutingPolicy): Option[Seq[ReferenceFrameTransformFactory[_, _]]] =
+    for (i <- index.get(from); j <- index.get(to); path <- route(i, j, epoch, policy)) yield path
+
+  private def route(from: Int, to: Int): Option[Seq[ReferenceFrameTransformFactory[_, _]]] = {
+    val last = routingTable(from)
+    if (from != to && last(to) < 0) None
+    else {
+      var path = List[ReferenceFrameTransformFactory[_, _]]()
+      var frame = to
+      while (frame != from) {
+        path = transforms(last(frame)) :: path
+        frame = sources(last(frame))
+      }
+      Some(path)
+    }
+  }
+
+  /** The routing table of a specific origin frame, computing it when required. */
+  private def routingTable(from: Int) = {
+    var table = routes.get(from)
+    if (table == null) {
+      // Concurrent readers may compute the same table, but the result is identical
+      table = dijkstra(from)
+      routes.set(from, table)
+    }
+    table
+  }
+
+  /**
+   * Search the route with the smallest total weight and an acceptable total error.
+   * <p>
+   * Since the error constrains the route, the shortest path tree is not sufficient. Instead all the partial routes
+   * that are not dominated by another partial route to the same frame (one with a smaller or equal weight, cost and
+   * error) are expanded in order of increasing weight, so the first route that reaches the destination is the best.
+   * </p>
+   */
+  private def route(from: Int, to: Int, epoch: Epoch, policy: RoutingPolicy): Option[Seq[ReferenceFrameTransformFactory[_, _]]] = {
+    import FrameGraphSnapshot.Route
+    val cost = transforms.map(_.cost(epoch)).toArray
+    val error = transforms.map(t => TransformAccuracy.of(t, epoch)).toArray
+
+    val labels = Array.fill(frames.size)(List[Route]())
+    val queue = mutable.PriorityQueue[Route]()(Route.ordering)
+    val start = new Route(from, 0.0, 0.0, 0.0, -1, null)
+    labels(from) = List(start)
+    queue += start
+
+    var result: Route = null
+    while (result == null && queue.nonEmpty) {
+      val route = queue.dequeue()
+      if (route.frame == to)
+        result = route
+      else for (e <- outgoing(route.frame)) {
+        val next = new Route(targets(e), route.weight + policy.weight(cost(e), error(e)),
+          route.cost + cost(e), route.error + error(e), e, route)
+        if (next.error <= policy.maxError && !labels(next.frame).exists(_ dominates next)) {
+          labels(next.frame) = next :: labels(next.frame).filterNot(next dominates _)
+          queue += next
+        }
+      }
+    }
+
+    Option(result).map(r => {
+      var path = List[ReferenceFrameTransformFactory[_, _]]()
+      var route = r
+      while (route.transform >= 0) {
+        path = transforms(route.transform) :: path
+        route = route.previous
+      }
+      path
+    })
+  }
+
+  /** Compute the last transform on the shortest path from the origin to each frame (-1 when unreachable). */
+  private def dijkstra(from: Int) = {
+    val n = frames.size
+    val distance = Array.fill(n)(Double.PositiveInfinity)
+    val last = Array.fill(n)(-1)
+    val visited = new Array[Boolean](n)
+    distance(from) = 0.0
+
+    var remaining = n
+    while (remaining > 0) {
+      // Closest frame that is not yet visited
+      var frame = -1
+      var i = 0
+      while (i < n) {
+        if (!visited(i) && distance(i) < Double.PositiveInfinity && (frame < 0 || distance(i) < distance(frame)))
+          frame = i
+        i += 1
+      }
+      if (frame < 0) remaining = 0
+      else {
+        visited(frame) = true
+        remaining -= 1
+        for (e <- outgoing(frame)) {
+          val d = distance(frame) + weights(e)
+          if (d < distance(targets(e))) {
+            distance(targets(e)) = d
+            last(targets(e)) = e
+          }
+        }
+      }
+    }
+    last
+  }
+
+}
+
+object FrameGraphSnapshot {
+
+  /**
+   * A partial route through the graph, used while searching a route according to a
+   * [[be.angelcorp.celest.frameGraph.RoutingPolicy]].
+   *
+   * @param frame     Index of the frame reached by the route.
+   * @param weight    Total weight of the route according to the policy.
+   * @param cost      Total cost of the route.
+   * @param error     Total error of the route [rad].
+   * @param transform Index of the last transform on the route, -1 for the empty route.
+   * @param previous  Route without its last transform.
+   */
+  private class Route(val frame: Int, val weight: Double, val cost: Double, val error: Double,
+                      val transform: Int, val previous: Route) {
+
+    /** Check if this route is at least as good as another route in all respects. */
+    def dominates(other: Route) = weight <= other.weight && cost <= other.cost && error <= other.error
+
+  }
+
+  private object Route {
+    /** Orders the routes so that the route with the smallest weight (and then cost) is dequeued first. */
+    val ordering: Ordering[Route] = Ordering.by((r: Route) => (r.weight, r.cost)).reverse
+  }
+
+  /** A snapshot without any frames or transforms. */
+  val empty = new FrameGraphSnapshot(Vector(), Vector(), Vector(), Vector(), Vector())
+
+  /**
+   * Create a snapshot with the frames and transforms of a JGraphT graph.
+   *
+   * @param graph Graph with the frames as vertices and the transform factories as edges.
+   * @return A snapshot of the graph.
+   */
+  def apply(graph: WeightedGraph[ReferenceSystem, ReferenceFrameTransformFactory[_, _]]): FrameGraphSnapshot = {
+    val frames = graph.vertexSet().asScala.toVector
+    val index = frames.zipWithIndex.toMap
+    val transforms = graph.edgeSet().asScala.toVector
+    new FrameGraphSnapshot(frames, transforms,
+      transforms.map(t => index(graph.getEdgeSource(t))),
+      transforms.map(t => index(graph.getEdgeTarget(t))),
+      transforms.map(t => graph.getEdgeWeight(t)))
+  }
+
+}
@@ -122,6 +122,19 @@ trait ReferenceFrameGraph {
    */
   def getTransform[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T, epoch: Epoch): Option[ReferenceFrameTransform[F, T]]
 
+  /**
+   * Find a transformation between two known ReferenceFrames, using the route through the graph selected by a
+   * routing policy, based on the cost and accuracy of the transforms at the given epoch.
+   *
+   * @param from   Origin reference frame.
+   * @param to     Destination reference frame.
+   * @param epoch  The epoch at which the ReferenceFrameTransform must be valid.
+   * @param policy Policy selecting the route when multiple transformation chains are possible.
+   * @return An ReferenceFrameTransform describing the transformation between the two provided reference frameGraph,
+   *         or None when no route satisfies the policy.
+   */
+  def getTransform[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T, epoch: Epoch, policy: RoutingPolicy): Option[ReferenceFrameTransform[F, T]]
+
   /**
    * Find a factory capable of generating transformations between two ReferenceFrames. The source and destination
    * ReferenceFrame are identified using a predicate, where the the first frame to match the predicate is used as
@@ -148,4 +161,18 @@ trait ReferenceFrameGraph {
    */
   def getTransformFactory[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T): Option[ReferenceFrameTransformFactory[F, T]]
 
+  /**
+   * Find a factory capable of producing transformations between two known ReferenceFrames, using the route through
+   * the graph selected by a routing policy. The cost and accuracy of the transforms are evaluated at the given epoch,
+   * so the factory is only guaranteed to be the best choice near that epoch.
+   *
+   * @param from   Origin reference frame.
+   * @param to     Destination reference frame.
+   * @param epoch  Epoch at which the cost and accuracy of the transforms are evaluated.
+   * @param policy Policy selecting the route when multiple transformation chains are possible.
+   * @return A ReferenceFrameTransformFactory capable of producing transformations between the two provided reference
+   *         frameGraph, or None when no route satisfies the policy.
+   */
+  def getTransformFactory[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T, epoch: Epoch, policy: RoutingPolicy): Option[ReferenceFrameTransformFactory[F, T]]
+
 }
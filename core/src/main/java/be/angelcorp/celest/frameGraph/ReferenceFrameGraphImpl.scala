@@ -15,10 +15,10 @@
  */
 package be.angelcorp.celest.frameGraph
 
-import scala.collection.JavaConverters._
+import java.util.concurrent.atomic.AtomicReference
+
 import org.jgrapht.WeightedGraph
 import org.slf4j.LoggerFactory
-import org.jgrapht.alg.DijkstraShortestPath
 import be.angelcorp.celest.time.Epoch
 import org.jgrapht.graph.DefaultDirectedWeightedGraph
 
@@ -26,42 +26,63 @@ import org.jgrapht.graph.DefaultDirectedWeightedGraph
 /**
  * Implementation of the ReferenceFrameGraph. This is the graph that contains all the reference
  * frameGraph, and the possible transforms between them.
+ * <p>
+ * The graph is stored as an immutable [[be.angelcorp.celest.frameGraph.FrameGraphSnapshot]]. Attaching a frame or a
+ * transform publishes a new snapshot (copy-on-write), so queries never lock and always operate on a consistent
+ * graph, even when frames are attached concurrently by other threads.
+ * </p>
  *
- * @param graph This is the JGraphT that actually describes the ReferenceFrames and there connections
+ * @param initial Initial content of the graph.
  *
  * @author Simon Billemont
  */
-class ReferenceFrameGraphImpl(graph: WeightedGraph[ReferenceSystem, ReferenceFrameTransformFactory[_, _]]) extends ReferenceFrameGraph {
+class ReferenceFrameGraphImpl(initial: FrameGraphSnapshot) extends ReferenceFrameGraph {
+
+  /**
+   * Create a frame graph with the content of a JGraphT graph.
+   *
+   * @param graph This is the JGraphT that actually describes the ReferenceFrames and there connections
+   */
+  def this(graph: WeightedGraph[ReferenceSystem, ReferenceFrameTransformFactory[_, _]]) =
+    this(FrameGraphSnapshot(graph))
 
   val logger = LoggerFactory.getLogger(getClass)
 
-  def attachFrame(frame: ReferenceSystem) {
-    graph.addVertex(frame)
+  /** The currently published state of the graph. */
+  private val current = new AtomicReference(initial)
+
+  /** The current (immutable) state of the graph. */
+  def snapshot = current.get()
+
+  /** Atomically replace the current snapshot by an updated version of it. */
+  private def update(f: FrameGraphSnapshot => FrameGraphSnapshot) {
+    var done = false
+    while (!done) {
+      val previous = current.get()
+      val next = f(previous)
+      done = (next eq previous) || current.compareAndSet(previous, next)
+    }
   }
 
+  def attachFrame(frame: ReferenceSystem) {
+    update(_.withFrame(frame))
+  }
 
   def attachTransform[F1 <: ReferenceSystem, F2 <: ReferenceSystem](frame1: F1, frame2: F2, transform: ReferenceFrameTransformFactory[F1, F2]) {
-    if (!graph.containsVertex(frame1))
+    val graph = snapshot
+    if (!graph.contains(frame1))
       logger.debug("Tried to add transform between frame {} and {}, but frame {} does not exist in the graph", Array[Object](frame1, frame2, frame1))
-    else if (!graph.containsVertex(frame2))
+    else if (!graph.contains(frame2))
       logger.debug("Tried to add transform between frame {} and {}, but frame {} does not exist in the graph", Array[Object](frame1, frame2, frame2))
     else
-      graph.addEdge(frame1, frame2, transform)
+      update(_.withTransform(frame1, frame2, transform))
   }
 
   /**
-   * Find the path between two ReferenceFrame instance that should be in the graph.
-   *
-   * @param from  Origin of path.
-   * @param to    Destination of the path.
-   * @return A path describing all the nodes to visit (in sequence) that lead from the origin to the destination.
+   * Find the first frame in a snapshot that matches a predicate.
    */
-  private def findPath(from: ReferenceSystem, to: ReferenceSystem): Option[Seq[ReferenceFrameTransformFactory[_, _]]] = {
-    val alg = new DijkstraShortestPath(graph, from, to)
-    val path = alg.getPathEdgeList
-    if (path == null) None else Some(path.asScala)
-
-  }
+  private def findReferenceFrame(graph: FrameGraphSnapshot, frame_predicate: (ReferenceSystem) => Boolean) =
+    graph.frames.find(frame_predicate)
 
   /**
    * Find the path between two ReferenceFrame instance that should be in the graph.
@@ -75,90 +96,33 @@ class ReferenceFrameGraphImpl(graph: WeightedGraph[ReferenceSystem, ReferenceFra
    *         destination.
    */
   def findPath(from: ReferenceSystem => Boolean, to: ReferenceSystem => Boolean): Option[Seq[ReferenceFrameTransformFactory[_, _]]] = {
-    val all_frames = graph.vertexSet()
-
-    var to_instance: ReferenceSystem = null
-    var from_instance: ReferenceSystem = null
-    var from_found: Boolean = false
-    var to_found: Boolean = false
-    for (frame <- all_frames.asScala) {
-      if (!from_found && from(frame)) {
-        from_instance = frame
-        from_found = true
-      }
-      if (!to_found && to(frame)) {
-        to_instance = frame
-        to_found = true
-      }
-      // TODO, break early?
-      //      if (from_found && to_found)
-      //        break
-    }
-
-    if (from == null || to == null)
-      None
-    else
-      findPath(from_instance, to_instance)
+    val graph = snapshot
+    for (from_instance <- findReferenceFrame(graph, from);
+         to_instance <- findReferenceFrame(graph, to);
+         path <- graph.path(from_instance, to_instance)) yield path
   }
 
   def findReferenceFrame(frame_predicate: (ReferenceSystem) => Boolean): Option[ReferenceSystem] =
-    graph.vertexSet().asScala.find(frame_predicate)
-
-  def findReferenceFrameTransforms(frame: ReferenceSystem): Iterable[ReferenceFrameTransformFactory[_, _]] = {
-    new Iterable[ReferenceFrameTransformFactory[_, _]] {
-      def iterator = new Iterator[ReferenceFrameTransformFactory[_, _]] {
-
-        /** Flag indicating that no more elements can be retrieved */
-        var hasNext = false
-
-        /** The next element returned by Iterator#next() */
-        private var nextItem: ReferenceFrameTransformFactory[_, _] = null
-        /** Iterator to iterator over the remaining transforms possibly connected to the given frame */
-        val transforms = graph.edgeSet().iterator()
-
-        // Upon construction, retrieve the next element
-        retrieveNext()
-
-        override def next() = {
-          val tmp = nextItem
-          retrieveNext()
-          tmp
-        }
-
-        private def retrieveNext() {
-          import scala.util.control.Breaks._
-
-          hasNext = false
-          breakable {
-            while (transforms.hasNext) {
-              val transform = transforms.next()
-              if (graph.getEdgeSource(transform) == frame || graph.getEdgeTarget(transform) == frame) {
-                nextItem = transform
-                hasNext = true
-                break()
-              }
-            }
-          }
-        }
-      }
+    findReferenceFrame(snapshot, frame_predicate)
 
-    }
+  def findReferenceFrameTransforms(frame: ReferenceSystem): Iterable[ReferenceFrameTransformFactory[_, _]] =
+    snapshot.transformsOf(frame)
 
-  }
-
-  def findReferenceFrameTransforms(frame_predicate: (ReferenceSystem) => Boolean): Iterable[ReferenceFrameTransformFactory[_, _]] =
-  // Locate the frame matching the predicate
-    findReferenceFrame(frame_predicate) match {
+  def findReferenceFrameTransforms(frame_predicate: (ReferenceSystem) => Boolean): Iterable[ReferenceFrameTransformFactory[_, _]] = {
+    val graph = snapshot
+    // Locate the frame matching the predicate
+    findReferenceFrame(graph, frame_predicate) match {
       case Some(frame) =>
         // Else return all the connected IReferenceFrameTransformFactories
-        findReferenceFrameTransforms(frame)
+        graph.transformsOf(frame)
       case _ =>
         // If no frame was found, return an empty iterator
         Iterable()
     }
+  }
 
   def getReferenceFrames: Iterable[ReferenceSystem] =
-    graph.vertexSet().asScala
+    snapshot.frames
 
   def getTransform(from: (ReferenceSystem) => Boolean, to: (ReferenceSystem) => Boolean, epoch: Epoch): Option[ReferenceFrameTransform[_, _]] = {
     // Get the respective factory for the given input
@@ -174,20 +138,40 @@ class ReferenceFrameGraphImpl(graph: WeightedGraph[ReferenceSystem, ReferenceFra
     factory.map(_.transform(epoch))
   }
 
-  def getTransformFactory(from: (ReferenceSystem) => Boolean, to: (ReferenceSystem) => Boolean): Option[ReferenceFrameTransformFactory[_, _]] = {
-    // Find the path between the two first matching frameGraph
-    val path = findPath(from, to)
+  def getTransform[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T, epoch: Epoch, policy: RoutingPolicy): Option[ReferenceFrameTransform[F, T]] =
+    getTransformFactory(from, to, epoch, policy).map(_.transform(epoch))
 
-    // Create the respective factory from the path
-    path.flatMap(p => pathToTransformFactory(p).asInstanceOf[Option[ReferenceFrameTransformFactory[_, _]]])
+  def getTransformFactory(from: (ReferenceSystem) => Boolean, to: (ReferenceSystem) => Boolean): Option[ReferenceFrameTransformFactory[_, _]] = {
+    val graph = snapshot
+    // Find the two first matching frameGraph
+    for (from_instance <- findReferenceFrame(graph, from);
+         to_instance <- findReferenceFrame(graph, to);
+         factory <- getTransformFactory(graph, from_instance, to_instance)) yield factory
   }
 
-  def getTransformFactory[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T): Option[ReferenceFrameTransformFactory[F, T]] = {
-    // Find the path between the two first matching frameGraph
-    val path = findPath(from, to)
+  def getTransformFactory[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T): Option[ReferenceFrameTransformFactory[F, T]] =
+    getTransformFactory(snapshot, from, to).asInstanceOf[Option[ReferenceFrameTransformFactory[F, T]]]
+
+  def getTransformFactory[F <: ReferenceSystem, T <: ReferenceSystem](from: F, to: T, epoch: Epoch, policy: RoutingPolicy): Option[ReferenceFrameTransformFactory[F, T]] = {
+    // The selected route depends on the epoch, so these factories are not memoized
+    val factory = snapshot.path(from, to, epoch, policy).flatMap(p => pathToTransformFactory(p))
+    factory.asInstanceOf[Option[ReferenceFrameTransformFactory[F, T]]]
+  }
 
-    // Create the respective factory from the path
-    path.flatMap(p => pathToTransformFactory(p).asInstanceOf[Some[ReferenceFrameTransformFactory[F, T]]])
+  /**
+   * Find the factory between two frames in a snapshot, reusing the factory when the same path was resolved before.
+   */
+  private def getTransformFactory(graph: FrameGraphSnapshot, from: ReferenceSystem, to: ReferenceSystem): Option[ReferenceFrameTransformFactory[_, _]] = {
+    val key = (from, to)
+    val cached = graph.factories.get(key)
+    if (cached != null)
+      Some(cached)
+    else {
+      // Find the path between the two frameGraph, and create the respective factory from the path
+      val factory = graph.path(from, to).flatMap(p => pathToTransformFactory(p))
+      factory.foreach(f => graph.factories.putIfAbsent(key, f))
+      factory
+    }
   }
 
   /**
@@ -198,7 +182,7 @@ class ReferenceFrameGraphImpl(graph: WeightedGraph[ReferenceSystem, ReferenceFra
    * @return An ReferenceFrameTransformFactory to convert a state in the origin frame to the destination frame.
    */
   private def pathToTransformFactory(path: Seq[ReferenceFrameTransformFactory[_, _]]) = {
-    if (path != null) {
+    if (path != null && path.nonEmpty) {
       // TODO: Get rid of the type system forcing of asInstanceOf
       val factory = path.reduceLeft((factory, thisFactory) => {
         type F0 = ReferenceSystem
@@ -222,7 +206,7 @@ object ReferenceFrameGraphImpl {
    */
   def exactFrame(frame: ReferenceSystem) = (fr: ReferenceSystem) => fr.equals(frame)
 
-  def apply() = new ReferenceFrameGraphImpl(graph)
+  def apply() = new ReferenceFrameGraphImpl(FrameGraphSnapshot.empty)
 
   def graph = new DefaultDirectedWeightedGraph[ReferenceSystem, ReferenceFrameTransformFactory[_, _]](classOf[ReferenceFrameTransformFactory[_, _]])
 
@@ -136,4 +136,92 @@ trait ReferenceFrameTransform[F0 <: ReferenceSystem, F1 <: ReferenceSystem] {
    */
   def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3): (Vec3, Vec3, Vec3)
 
+  /**
+   * Transform only the position of a body into a new ReferenceFrame, without allocating new vectors.
+   * <p>
+   * The result vector may be the same instance as the input vector, in which case the position is transformed in
+   * place.
+   * </p>
+   *
+   * @param position Position before transform (in frame F0) [m].
+   * @param result   Vector in which the position in the new ReferenceFrame (frame F1) is stored [m].
+   */
+  def transformPos(position: Vec3, result: Vec3): Unit
+
+  /**
+   * Transform the position and velocity of a body into a new ReferenceFrame, without allocating new vectors.
+   * <p>
+   * The result vectors may be the same instances as the input vectors, in which case the state is transformed in
+   * place.
+   * </p>
+   *
+   * @param position       Position before transform (in frame F0) [m].
+   * @param velocity       Velocity before transform (in frame F0) [m/s].
+   * @param resultPosition Vector in which the position in the new ReferenceFrame (frame F1) is stored [m].
+   * @param resultVelocity Vector in which the velocity in the new ReferenceFrame (frame F1) is stored [m/s].
+   */
+  def transformPosVel(position: Vec3, velocity: Vec3, resultPosition: Vec3, resultVelocity: Vec3): Unit
+
+  /**
+   * Transform the position, velocity and acceleration of a body into a new ReferenceFrame, without allocating new
+   * vectors.
+   * <p>
+   * The result vectors may be the same instances as the input vectors, in which case the state is transformed in
+   * place.
+   * </p>
+   *
+   * @param position           Position before transform (in frame F0) [m].
+   * @param velocity           Velocity before transform (in frame F0) [m/s].
+   * @param acceleration       Acceleration before transform (in frame F0) [m/s²].
+   * @param resultPosition     Vector in which the position in the new ReferenceFrame (frame F1) is stored [m].
+   * @param resultVelocity     Vector in which the velocity in the new ReferenceFrame (frame F1) is stored [m/s].
+   * @param resultAcceleration Vector in which the acceleration in the new ReferenceFrame (frame F1) is stored [m/s²].
+   */
+  def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3,
+                         resultPosition: Vec3, resultVelocity: Vec3, resultAcceleration: Vec3): Unit
+
+  /**
+   * Transform a packed set of positions into the new ReferenceFrame.
+   * <p>
+   * The vectors are stored consecutively in the arrays; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`. The result array may
+   * be the same array as the input array, in which case the positions are transformed in place.
+   * </p>
+   *
+   * @param positions Packed positions before transform (in frame F0) [m].
+   * @param result    Array in which the packed positions in the new ReferenceFrame (frame F1) are stored [m].
+   */
+  def transformPos(positions: Array[Double], result: Array[Double]): Unit
+
+  /**
+   * Transform a packed set of positions and velocities into the new ReferenceFrame.
+   * <p>
+   * The vectors are stored consecutively in the arrays; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`. The result arrays may
+   * be the same arrays as the input arrays, in which case the states are transformed in place.
+   * </p>
+   *
+   * @param positions      Packed positions before transform (in frame F0) [m].
+   * @param velocities     Packed velocities before transform (in frame F0) [m/s].
+   * @param resultPosition Array in which the packed positions in the new ReferenceFrame (frame F1) are stored [m].
+   * @param resultVelocity Array in which the packed velocities in the new ReferenceFrame (frame F1) are stored [m/s].
+   */
+  def transformPosVel(positions: Array[Double], velocities: Array[Double],
+                      resultPosition: Array[Double], resultVelocity: Array[Double]): Unit
+
+  /**
+   * Transform a packed set of positions, velocities and accelerations into the new ReferenceFrame.
+   * <p>
+   * The vectors are stored consecutively in the arrays; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`. The result arrays may
+   * be the same arrays as the input arrays, in which case the states are transformed in place.
+   * </p>
+   *
+   * @param positions          Packed positions before transform (in frame F0) [m].
+   * @param velocities         Packed velocities before transform (in frame F0) [m/s].
+   * @param accelerations      Packed accelerations before transform (in frame F0) [m/s²].
+   * @param resultPosition     Array in which the packed positions in the new ReferenceFrame (frame F1) are stored [m].
+   * @param resultVelocity     Array in which the packed velocities in the new ReferenceFrame (frame F1) are stored [m/s].
+   * @param resultAcceleration Array in which the packed accelerations in the new ReferenceFrame (frame F1) are stored [m/s²].
+   */
+  def transformPosVelAcc(positions: Array[Double], velocities: Array[Double], accelerations: Array[Double],
+                         resultPosition: Array[Double], resultVelocity: Array[Double], resultAcceleration: Array[Double]): Unit
+
 }
\ No newline at end of file
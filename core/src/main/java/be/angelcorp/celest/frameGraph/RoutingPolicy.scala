@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.frameGraph
+
+/**
+ * Policy that selects a route through the [[be.angelcorp.celest.frameGraph.ReferenceFrameGraph]] when multiple
+ * chains of transforms lead from one frame to another.
+ * <p>
+ * Each transform on a route is characterized by its cost (see
+ * [[be.angelcorp.celest.frameGraph.ReferenceFrameTransformFactory#cost]]) and its error (see
+ * [[be.angelcorp.celest.frameGraph.TransformAccuracy]]) at the requested epoch. Both are summed along the route, so
+ * the error of a route is a conservative upper bound. The policy selects the route with the smallest total weight of
+ * all the routes with an error below its maximum error; ties are broken by the smallest cost.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+sealed abstract class RoutingPolicy {
+
+  /** Largest acceptable error of a route [rad]. */
+  def maxError: Double = Double.PositiveInfinity
+
+  /**
+   * Weight of a single transform on a route, the route with the smallest total weight is selected.
+   *
+   * @param cost  Cost of the transform.
+   * @param error Error of the transform [rad].
+   * @return Weight of the transform (non-negative).
+   */
+  def weight(cost: Double, error: Double): Double
+
+}
+
+object RoutingPolicy {
+
+  /** Route with the fewest transforms, regardless of cost and accuracy (the default routing of the frame graph). */
+  case object FewestTransforms extends RoutingPolicy {
+    def weight(cost: Double, error: Double) = 1.0
+  }
+
+  /** Route with the lowest total cost. */
+  case object Fastest extends RoutingPolicy {
+    def weight(cost: Double, error: Double) = cost
+  }
+
+  /** Route with the smallest total error, the cheapest route is used when multiple routes are equally accurate. */
+  case object MostAccurate extends RoutingPolicy {
+    def weight(cost: Double, error: Double) = error
+  }
+
+  /**
+   * Route with the lowest total cost, of all the routes with a total error below a given threshold.
+   *
+   * @param maxError Largest acceptable error of a route [rad].
+   */
+  case class FastestWithin(override val maxError: Double) extends RoutingPolicy {
+    def weight(cost: Double, error: Double) = cost
+  }
+
+}
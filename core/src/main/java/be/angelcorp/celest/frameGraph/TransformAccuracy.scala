@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.frameGraph
+
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * A [[be.angelcorp.celest.frameGraph.ReferenceFrameTransformFactory]] that knows how accurate its transforms are.
+ * <p>
+ * The accuracy is expressed as the (upper bound of the) orientation error of the destination frame, as realized by
+ * the transform, with respect to the reference model. Factories that do not implement this trait are considered to
+ * be exact.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+trait TransformAccuracy {
+
+  /**
+   * Estimate of the error of the transforms produced at a specific epoch. Like
+   * [[be.angelcorp.celest.frameGraph.ReferenceFrameTransformFactory#cost]], this is used when searching a route
+   * through the frame graph, so this method must be <b>fast</b>.
+   *
+   * @param epoch Epoch at which to construct and apply a potential transform.
+   * @return Upper bound of the orientation error of the transform [rad].
+   */
+  def error(epoch: Epoch): Double
+
+}
+
+object TransformAccuracy {
+
+  /**
+   * Accuracy of any transform factory.
+   *
+   * @param factory Factory of which to get the accuracy.
+   * @param epoch   Epoch at which to construct and apply a potential transform.
+   * @return The accuracy of the factory, or 0 for factories that do not report an accuracy [rad].
+   */
+  def of(factory: ReferenceFrameTransformFactory[_, _], epoch: Epoch): Double = factory match {
+    case f: TransformAccuracy => f.error(epoch)
+    case _ => 0.0
+  }
+
+}
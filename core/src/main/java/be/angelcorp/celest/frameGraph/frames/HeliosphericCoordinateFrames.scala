@@ -280,7 +280,7 @@ class HeliosphericCoordinateFrames(implicit universe: Universe) {
     val εD = obliquityTrue(date)
     val ε0D = obliquityMean(date)
     // See N(GEI_D, GEI_T), equation 7 of [1]
-    Mat3.rotateX(-εD) dot Mat3.rotateZ(-longitudinalNutation(date)) dot Mat3.rotateX(ε0D)
+    Mat3.rotateXZX(-εD, -longitudinalNutation(date), ε0D)
   }, null, null)
 
   /**
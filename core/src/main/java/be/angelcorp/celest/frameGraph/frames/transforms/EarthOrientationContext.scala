@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph.frames.transforms
+
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.time.{Epoch, Epochs}
+import be.angelcorp.celest.universe.Universe
+
+/**
+ * Memoizes the expensive quantities shared between the Earth orientation transformations at a single epoch.
+ * <p>
+ * The transformations in a single ITRS &lt;=&gt; GCRS chain (precession, nutation, Earth rotation, ...) all require
+ * the same intermediate quantities (time since J2000, fundamental arguments, nutation angles, CIP coordinates,
+ * ...). Each of these quantities is computed at most once per context, the first time it is requested.
+ * </p>
+ * <p>
+ * Contexts are not thread-safe, use [[be.angelcorp.celest.frameGraph.frames.transforms.EarthOrientationContext#apply]]
+ * to obtain the context for the current thread and epoch.
+ * </p>
+ *
+ * @param epoch Epoch at which all quantities are evaluated.
+ *
+ * @author Simon Billemont
+ */
+class EarthOrientationContext(val epoch: Epoch)(implicit val universe: Universe) {
+
+  /** Julian centuries TT from the J2000.0 epoch. */
+  lazy val t = epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525.0
+
+  /** Fundamental luni-solar arguments (l, l', F, D, Ω) [rad], see [[IAU2000NutationEntry.fundamentalArguments]]. */
+  lazy val fundamentalArguments = IAU2000NutationEntry.fundamentalArguments(t)
+
+  /** Fundamental planetary arguments [rad], see [[IAU2000NutationEntry.planetaryArguments]]. */
+  lazy val planetaryArguments = IAU2000NutationEntry.planetaryArguments(t)
+
+  /** Mean obliquity of the ecliptic [arcseconds], see [[IAU2000Nutation.ε_]]. */
+  lazy val meanObliquity = IAU2000Nutation.ε_(t)
+
+  /** Precession in longitude [arcseconds], see [[IAU2006Precession.ψA]]. */
+  lazy val ψA = IAU2006Precession.ψA(t)
+
+  /** Precession obliquity [arcseconds], see [[IAU2006Precession.ωA]]. */
+  lazy val ωA = IAU2006Precession.ωA(t)
+
+  /** Precession of the ecliptic along the equator [arcseconds], see [[IAU2006Precession.χA]]. */
+  lazy val χA = IAU2006Precession.χA(t)
+
+  /** Earth rotation angle [rad], see [[EarthRotation.θ_ERA]]. */
+  lazy val era = EarthRotation.θ_ERA(epoch)
+
+  /** Nutation model for which the nutation angles are currently memoized. */
+  private var nutationModel: IAU2000Nutation[_, _] = null
+  /** Memoized nutation angles (Δψ, Δε) [arcseconds] of nutationModel. */
+  private var nutation: (Double, Double) = null
+
+  /**
+   * Nutation angles in longitude (Δψ) and obliquity (Δε) according to a specific nutation model.
+   *
+   * @param model Nutation model to evaluate.
+   * @return The nutation parameters longitude (Δψ) and obliquity (Δε) [arcseconds]
+   */
+  def nutationParameters(model: IAU2000Nutation[_, _]): (Double, Double) = {
+    if (model ne nutationModel) {
+      nutation = model.nutationParameters(t, fundamentalArguments, planetaryArguments)
+      nutationModel = model
+    }
+    nutation
+  }
+
+  /** CIP series for which the CIP coordinates are currently memoized. */
+  private var cipSeries: IAU2006CIPSeries = null
+  /** Memoized CIP coordinates and CIO locator (X, Y, s) [rad] of cipSeries. */
+  private var cip: (Double, Double, Double) = null
+
+  /**
+   * Coordinates of the CIP in the GCRS and the CIO locator according to a specific series.
+   *
+   * @param series CIP series to evaluate.
+   * @return The CIP coordinates X, Y and the CIO locator s [rad].
+   */
+  def cipCoordinates(series: IAU2006CIPSeries): (Double, Double, Double) = {
+    if (series ne cipSeries) {
+      val arguments = new Array[Double](IAU2000NutationSeries.argumentCount)
+      IAU2000NutationSeries.arguments(fundamentalArguments, planetaryArguments, arguments)
+      cip = series.evaluate(t, arguments)
+      cipSeries = series
+    }
+    cip
+  }
+
+}
+
+object EarthOrientationContext {
+
+  /** The most recently used context of each thread. */
+  private val current = new ThreadLocal[EarthOrientationContext]
+
+  /**
+   * Get the [[be.angelcorp.celest.frameGraph.frames.transforms.EarthOrientationContext]] for the given epoch. When
+   * the same thread requested a context for the same epoch last, the same context is returned so that all the
+   * quantities computed previously for that epoch are reused.
+   *
+   * @param epoch Epoch at which the context must be valid.
+   * @return A context for the given epoch.
+   */
+  def apply(epoch: Epoch)(implicit universe: Universe): EarthOrientationContext = {
+    val context = current.get()
+    if (context != null && (context.universe eq universe) && ((context.epoch eq epoch) || context.epoch.equals(epoch)))
+      context
+    else {
+      val newContext = new EarthOrientationContext(epoch)
+      current.set(newContext)
+      newContext
+    }
+  }
+
+}
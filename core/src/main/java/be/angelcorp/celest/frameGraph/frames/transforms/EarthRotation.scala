@@ -20,7 +20,7 @@ import be.angelcorp.celest.math.geometry.{Vec3, Mat3}
 import be.angelcorp.celest.math.rotation.RotationMatrix._
 import be.angelcorp.celest.frameGraph._
 import be.angelcorp.celest.physics.Units._
-import be.angelcorp.celest.time.{Epochs, Epoch}
+import be.angelcorp.celest.time.Epoch
 import be.angelcorp.celest.universe.Universe
 import be.angelcorp.celest.frameGraph.transformations.{TransformationParameters, KinematicTransformationFactory}
 import be.angelcorp.celest.time.timeStandard.TimeStandards._
@@ -76,7 +76,8 @@ object EarthRotation {
  *                    3) G. H. Kaplan, <b>"The IAU Resolutions on Astronomical Reference Systems, Time Scales, and Earth Rotation Models"</b>, 2005, U.S. Naval Observatory Circular No. 179, [online] http://arxiv.org/abs/astro-ph/0602086
  */
 class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
-(val fromFrame: F0, val toFrame: F1, val nutation: IAU2000Nutation[_, _], val lodProvider: ExcessLengthOfDay)(implicit universe: Universe) extends KinematicTransformationFactory[F0, F1] {
+(val fromFrame: F0, val toFrame: F1, val nutation: IAU2000Nutation[_, _], val lodProvider: ExcessLengthOfDay)(implicit universe: Universe)
+  extends KinematicTransformationFactory[F0, F1] with TransformAccuracy {
 
   /**
    * The equation of the equinoxes, used to account for the motion of the equinox due to nutation (the difference
@@ -85,11 +86,32 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    * @param t Julian centuries since the J2000 epoch in TT (or TDB).
    * @return The difference between apparent and mean sidereal time [rad]
    */
-  def equationOfEquinoxes(t: Double) = {
-    val (fa_l, fa_l2, fa_F, fa_D, fa_Ω) = IAU2000NutationEntry.fundamentalArguments(t)
+  def equationOfEquinoxes(t: Double): Double =
+    equationOfEquinoxes(t, IAU2000NutationEntry.fundamentalArguments(t), IAU2000Nutation.ε_(t), nutation.nutationParameters(t)._1)
 
-    val ε = arcSeconds(IAU2000Nutation.ε_(t))
-    val (dψ2000, dε2000) = nutation.nutationParameters(t)
+  /**
+   * The equation of the equinoxes, using the quantities already computed for an epoch in its
+   * [[be.angelcorp.celest.frameGraph.frames.transforms.EarthOrientationContext]].
+   *
+   * @param context Earth orientation context of the epoch at which to evaluate the equation of the equinoxes.
+   * @return The difference between apparent and mean sidereal time [rad]
+   */
+  def equationOfEquinoxes(context: EarthOrientationContext): Double =
+    equationOfEquinoxes(context.t, context.fundamentalArguments, context.meanObliquity, context.nutationParameters(nutation)._1)
+
+  /**
+   * The equation of the equinoxes from precomputed quantities.
+   *
+   * @param t           Julian centuries since the J2000 epoch in TT (or TDB).
+   * @param fundamental The fundamental arguments at t, see [[IAU2000NutationEntry.fundamentalArguments]] [rad].
+   * @param ε_          The mean obliquity of the ecliptic at t [arcseconds].
+   * @param dψ2000      The nutation in longitude at t [arcseconds].
+   * @return The difference between apparent and mean sidereal time [rad]
+   */
+  private def equationOfEquinoxes(t: Double, fundamental: (Double, Double, Double, Double, Double), ε_ : Double, dψ2000: Double): Double = {
+    val (fa_l, fa_l2, fa_F, fa_D, fa_Ω) = fundamental
+
+    val ε = arcSeconds(ε_)
 
     // See [3] equation 2.14.
     // This should be accurate enough. The IERS 2010 Conventions [2] document also lists a more accurate/longer series for improved accuracy.
@@ -106,6 +128,10 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
 
   def cost(epoch: Epoch): Double = 100.0
 
+  /** The error of the nutation in longitude propagates into the equation of the equinoxes. */
+  def error(epoch: Epoch): Double =
+    arcSeconds(nutation.errorBudget.maxLongitude * cos(arcSeconds(IAU2000Nutation.ε_(0.0))))
+
   /**
    * Computes the rotation matrix and its first angular velocity due to the earth rotation (greenwich apparent sidereal time, GAST).
    *
@@ -129,7 +155,7 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    * @return The Greenwich Mean Sidereal Time (GMST) angle [rad].
    */
   def θ_GMST2000(epoch: Epoch): Double =
-    θ_GMST2000(epoch, epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525)
+    θ_GMST2000(EarthOrientationContext(epoch))
 
 
   /**
@@ -137,12 +163,12 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    *
    * Based on reference [2] eqn 5.32.
    *
-   * @param epoch The respective epoch to compute GMST angle at.
-   * @param t The julian centuries TT from the J2000.0 epoch of the given epoch.
+   * @param context Earth orientation context of the epoch to compute GMST angle at.
    * @return The Greenwich Mean Sidereal Time (GMST) angle [rad].
    */
-  private def θ_GMST2000(epoch: Epoch, t: Double): Double = {
-    val era = EarthRotation.θ_ERA(epoch)
+  private def θ_GMST2000(context: EarthOrientationContext): Double = {
+    val t = context.t
+    val era = context.era
     val temp = arcSeconds(
       0.014506 + 4612.156534 * t + 1.3915817 * pow(t, 2) - 0.00000044 * pow(t, 3) - 0.000029956 * pow(t, 4) - 0.0000000368 * pow(t, 5)
     ) % (2 * Pi)
@@ -156,11 +182,11 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    * @return The Greenwich apparent sidereal time [rad].
    */
   def θ_GAST2000(epoch: Epoch) = {
-    // Julian centuries TT from the J2000.0 epoch
-    val t = epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525
+    // Quantities shared with the other Earth orientation transforms at this epoch
+    val context = EarthOrientationContext(epoch)
 
     /** Greenwich apparent sidereal time (GAST) [rad], see reference [3] eqn 2.13 */
-    θ_GMST2000(epoch, t) + equationOfEquinoxes(t)
+    θ_GMST2000(context) + equationOfEquinoxes(context)
   }
 
   def calculateParameters(epoch: Epoch) = {
@@ -169,3 +195,35 @@ class EarthRotationGAST[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
   }
 
 }
+
+/**
+ * The transformation factory to transform from CIRS (celestial intermediate reference system) to TIRS (terrestrial
+ * intermediate reference system).
+ * <p>
+ * This is the CIO based equivalent of [[be.angelcorp.celest.frameGraph.frames.transforms.EarthRotationGAST]]; a
+ * rotation over the Earth rotation angle (ERA) between the CIO and the TIO, and the earth angular velocity around its
+ * z-axis (based on the provided excess length of day).
+ * </p>
+ *
+ * @param lodProvider Provider for the length of day (required for the Earth rotation speed derivative)
+ *
+ *                    =References=
+ *                    1) D. Vallado et al. ,<b>"Implementation Issues Surrounding the New IAU Reference Systems for Astrodynamics"</b>, 16th AAS/AIAA Space Flight Mechanics Conference, Florida, January 2006<br/>
+ *                    2) G. Petit, B. Luzum (eds.).,<b>"IERS Conventions (2010)"</b>, IERS Technical Note 36, Frankfurt am Main: Verlag des Bundesamts für Kartographie und Geodäsie, 2010. 179 pp., ISBN 3-89888-989-6<br/>
+ */
+class EarthRotationERA[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
+(val fromFrame: F0, val toFrame: F1, val lodProvider: ExcessLengthOfDay)(implicit universe: Universe) extends KinematicTransformationFactory[F0, F1] {
+
+  def cost(epoch: Epoch): Double = 100.0
+
+  def calculateParameters(epoch: Epoch) = {
+    // Rotation rate [rad], see reference [1] eqn 11
+    val ω = 7.292115146706979E-5 * (1 - lodProvider.lod(epoch) / 86400.0)
+
+    // Earth rotation angle, see reference [2] eqn 5.5
+    val era = EarthOrientationContext(epoch).era
+
+    new TransformationParameters(epoch, Vec3.zero, Vec3.zero, Vec3.zero, Mat3.rotateZ(era), Vec3(0, 0, -ω), Vec3.zero)
+  }
+
+}
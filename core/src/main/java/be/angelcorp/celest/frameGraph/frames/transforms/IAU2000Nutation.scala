@@ -20,11 +20,10 @@ import be.angelcorp.celest.math.geometry.Mat3
 
 import scala.math._
 import be.angelcorp.celest.physics.Units._
-import be.angelcorp.celest.frameGraph.ReferenceSystem
-import be.angelcorp.celest.time.{Epochs, Epoch}
+import be.angelcorp.celest.frameGraph.{ReferenceSystem, TransformAccuracy}
+import be.angelcorp.celest.time.Epoch
 import be.angelcorp.celest.universe.Universe
 import be.angelcorp.celest.frameGraph.transformations.ConstantRotationTransformFactory
-import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
 
 /**
  * IAU 2000 nutation theory (IAU2000A/IAU2000B), optionally with slight IAU 2006 adjustments).
@@ -37,6 +36,7 @@ import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
  *
  * @param coefficients Coefficients for the nutation in longitude and obliquity.
  * @param IAU2006Corrections True to apply the IAU2006 model corrections.
+ * @param accuracy Accuracy tier of the series, all the coefficients below the threshold of the tier are not evaluated.
  *
  *                           =References=
  *                           1) D. Vallado et al. ,<b>"Implementation Issues Surrounding the New IAU Reference Systems for Astrodynamics"</b>, 16th AAS/AIAA Space Flight Mechanics Conference, Florida, January 2006<br/>
@@ -48,23 +48,38 @@ import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
  */
 class IAU2000Nutation[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
 (val fromFrame: F0, val toFrame: F1,
- coefficients: List[IAU2000NutationEntry], IAU2006Corrections: Boolean = true)(implicit universe: Universe)
-  extends ConstantRotationTransformFactory[F0, F1] {
+ coefficients: List[IAU2000NutationEntry], IAU2006Corrections: Boolean = true,
+ val accuracy: NutationAccuracy = NutationAccuracy.Full)(implicit universe: Universe)
+  extends ConstantRotationTransformFactory[F0, F1] with TransformAccuracy {
 
-  def cost(epoch: Epoch): Double = 100.0
+  /** Error introduced by dropping the coefficients that are not required for the accuracy tier. */
+  val errorBudget = accuracy.errorBudget(coefficients)
+
+  /** Upper bound of the error of the pole orientation caused by dropping coefficients [rad]. */
+  val truncationError =
+    arcSeconds(hypot(errorBudget.maxLongitude * sin(arcSeconds(IAU2000Nutation.ε_(0.0))), errorBudget.maxObliquity))
+
+  /** Compiled form of the retained nutation coefficients, used to evaluate the series. */
+  private val series = new IAU2000NutationSeries(accuracy.truncate(coefficients))
+
+  /** The cost grows with the number of operations of the series of the accuracy tier. */
+  def cost(epoch: Epoch): Double = 100.0 + series.operations
+
+  /** The error caused by the truncation of the series. */
+  def error(epoch: Epoch): Double = truncationError
 
   def rotationMatrix(epoch: Epoch) = {
-    // Julian centuries TT from the J2000.0 epoch
-    val t = epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525.0
+    // Quantities shared with the other Earth orientation transforms at this epoch
+    val context = EarthOrientationContext(epoch)
 
     // Nutation angles according to this theory
-    val (dψ2000, dε2000) = nutationParameters(t)
+    val (dψ2000, dε2000) = context.nutationParameters(this)
 
     // The mean obliquity of the ecliptic
-    val ε_ = IAU2000Nutation.ε_(t)
+    val ε_ = context.meanObliquity
 
     // Compute the nutation matrix
-    Mat3.rotateX(arcSeconds(-(ε_ + dε2000))) dot Mat3.rotateZ(arcSeconds(-dψ2000)) dot Mat3.rotateX(arcSeconds(ε_))
+    Mat3.rotateXZX(arcSeconds(-(ε_ + dε2000)), arcSeconds(-dψ2000), arcSeconds(ε_))
   }
 
   /**
@@ -73,11 +88,8 @@ class IAU2000Nutation[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    * @param epoch Epoch at which to compute the nutation parameters.
    * @return The nutation parameters longitude (Δψ) and obliquity (Δε) [arcseconds]
    */
-  def nutationParameters(epoch: Epoch): (Double, Double) = {
-    // Julian centuries TT from the J2000.0 epoch
-    val t = epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525.0
-    nutationParameters(t)
-  }
+  def nutationParameters(epoch: Epoch): (Double, Double) =
+    EarthOrientationContext(epoch).nutationParameters(this)
 
   /**
    * Calculate the nutation (luni-solar + planetary) in longitude (Δψ), and obliquity (Δε) according to either the IAU2000A/B nutation.
@@ -85,14 +97,26 @@ class IAU2000Nutation[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
    * @param t Julian centuries since the J2000 epoch in TT (or TDB).
    * @return The nutation parameters longitude (Δψ) and obliquity (Δε) [arcseconds]
    */
-  def nutationParameters(t: Double): (Double, Double) = {
-    // Compute the fundamental arguments
+  def nutationParameters(t: Double): (Double, Double) =
+    nutationParameters(t, IAU2000NutationEntry.fundamentalArguments(t), IAU2000NutationEntry.planetaryArguments(t))
+
+  /**
+   * Calculate the nutation (luni-solar + planetary) in longitude (Δψ), and obliquity (Δε) according to either the IAU2000A/B nutation,
+   * using precomputed fundamental arguments.
+   *
+   * @param t           Julian centuries since the J2000 epoch in TT (or TDB).
+   * @param fundamental The fundamental arguments at t, see [[IAU2000NutationEntry.fundamentalArguments]] [rad].
+   * @param planetary   The planetary arguments at t, see [[IAU2000NutationEntry.planetaryArguments]] [rad].
+   * @return The nutation parameters longitude (Δψ) and obliquity (Δε) [arcseconds]
+   */
+  def nutationParameters(t: Double,
+                         fundamental: (Double, Double, Double, Double, Double),
+                         planetary: (Double, Double, Double, Double, Double, Double, Double, Double, Double)): (Double, Double) = {
+    val arguments = new Array[Double](IAU2000NutationSeries.argumentCount)
+    IAU2000NutationSeries.arguments(fundamental, planetary, arguments)
 
     /** Longitude referred to the ecliptic of date t  */
-    val (dψ, dε) = coefficients.foldLeft((0.0, 0.0))((nut, entry) => {
-      val (δΔψ, δΔε) = entry.nutationContribution(t)
-      ((nut._1 + δΔψ) % 1296000.0, (nut._2 + δΔε) % 1296000.0) // % 1296000.0 == mod 2 pi
-    })
+    val (dψ, dε) = series.evaluate(t, arguments)
 
     val (dΔψ_FCN, dΔε_FCN) = if (IAU2006Corrections) {
       /* Factor correcting for secular variation of J2. */
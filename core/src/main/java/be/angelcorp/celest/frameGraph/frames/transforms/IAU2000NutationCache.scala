@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph.frames.transforms
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileChannel.MapMode
+import java.nio.file.StandardOpenOption._
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.util.zip.CRC32
+
+import be.angelcorp.celest.universe.Universe
+import com.google.inject.name.Names
+import org.slf4j.LoggerFactory
+
+import scala.util.{Failure, Success, Try}
+
+/**
+ * Binary cache of parsed [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationEntry]] tables.
+ * <p>
+ * Parsing the textual nutation tables is slow compared to the rest of the universe setup. The parsed entries are
+ * therefore stored in a compact binary file, which is memory-mapped and read back directly on subsequent loads.
+ * </p>
+ * <p>
+ * Layout of a cache file (big endian):
+ * </p>
+ * <pre>
+ * int    magic number
+ * int    format version
+ * long   checksum of the source tables the cache was created from
+ * int    number of tables (n)
+ * int    number of doubles per entry (22)
+ * long   CRC32 of the entry counts and data
+ * int[n] number of entries in each table
+ * double[entries * 22] all the entry fields of all tables, in the order of the IAU2000NutationEntry constructor
+ * </pre>
+ * <p>
+ * A cache file is only used when the source checksum matches the checksum of the current source tables and the data
+ * is intact; otherwise the tables are parsed again and the cache is rewritten.
+ * </p>
+ * <p>
+ * The cached doubles are copied into IAU2000NutationEntry objects, since the truncation to an accuracy tier and the
+ * compilation of the series (see [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationSeries]]) work on
+ * the entries. The mapping itself is released when its buffer is garbage collected.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+object IAU2000NutationCache {
+  private val logger = LoggerFactory.getLogger(getClass)
+
+  /** Magic number identifying a nutation cache file ("NUT0"). */
+  val magic = 0x4E555430
+  /** Version of the binary layout, change when the layout or the parsers change. */
+  val version = 2
+  /** Number of doubles stored for each entry. */
+  val entrySize = 22
+  /** Size of the file header [bytes]. */
+  val headerSize = 32
+
+  /**
+   * The default directory in which the nutation caches are stored; the "cache/nutation" subdirectory of the local
+   * resource repository.
+   *
+   * @return The cache directory, or None when the universe has no local repository.
+   */
+  def directory(implicit universe: Universe): Option[Path] =
+    Try(universe.instance[Path](Names.named("local_repository"))).toOption.map(_.resolve("cache").resolve("nutation"))
+
+  /**
+   * Load the nutation entries from a cache file, or parse them from source and create the cache file.
+   *
+   * @param file     Cache file to use.
+   * @param checksum Checksum of the source tables.
+   * @param parse    Parses the entries from the source tables.
+   * @return The nutation entries.
+   */
+  def load(file: Path, checksum: Long)(parse: => List[IAU2000NutationEntry]): List[IAU2000NutationEntry] =
+    loadTables(file, checksum)(IndexedSeq(parse)).head
+
+  /**
+   * Load a set of tables of nutation entries from a cache file, or parse them from source and create the cache file.
+   *
+   * @param file     Cache file to use.
+   * @param checksum Checksum of the source tables.
+   * @param parse    Parses the tables from the source tables.
+   * @return The tables of nutation entries.
+   */
+  def loadTables(file: Path, checksum: Long)(parse: => IndexedSeq[List[IAU2000NutationEntry]]): IndexedSeq[List[IAU2000NutationEntry]] =
+    read(file, checksum) match {
+      case Some(tables) => tables
+      case None =>
+        val tables = parse
+        write(file, checksum, tables) match {
+          case Failure(e) => logger.warn(s"Could not write the nutation cache $file", e)
+          case _ =>
+        }
+        tables
+    }
+
+  /**
+   * Read the tables of nutation entries from a cache file.
+   *
+   * @param file     Cache file to read.
+   * @param checksum Expected checksum of the source tables.
+   * @return The cached tables, or None when the file does not exist, is stale or is corrupt.
+   */
+  def read(file: Path, checksum: Long): Option[IndexedSeq[List[IAU2000NutationEntry]]] = {
+    if (!Files.isRegularFile(file)) return None
+
+    Try {
+      val channel = FileChannel.open(file, READ)
+      try {
+        channel.map(MapMode.READ_ONLY, 0, channel.size())
+      } finally {
+        channel.close()
+      }
+    } match {
+      case Success(buffer) if buffer.capacity() >= headerSize =>
+        val fileMagic = buffer.getInt
+        val fileVersion = buffer.getInt
+        val fileChecksum = buffer.getLong
+        val tables = buffer.getInt
+        val fileEntrySize = buffer.getInt
+        val crc = buffer.getLong
+
+        if (fileMagic != magic || fileVersion != version || fileEntrySize != entrySize) {
+          logger.debug(s"Ignoring nutation cache $file, unsupported format")
+          None
+        } else if (fileChecksum != checksum) {
+          logger.debug(s"Ignoring nutation cache $file, the source tables have changed")
+          None
+        } else if (tables < 0 || buffer.remaining() < 4L * tables || crc != this.crc(buffer.slice())) {
+          logger.warn(s"Ignoring nutation cache $file, the cached data is corrupt")
+          None
+        } else {
+          val counts = IndexedSeq.fill(tables)(buffer.getInt)
+          if (buffer.remaining() != 8L * counts.sum * entrySize) {
+            logger.warn(s"Ignoring nutation cache $file, the cached data is corrupt")
+            None
+          } else {
+            val data = buffer.asDoubleBuffer()
+            val e = new Array[Double](entrySize)
+            Some(counts.map(count => List.fill(count) {
+              data.get(e)
+              new IAU2000NutationEntry(e(0), e(1), e(2), e(3), e(4), e(5), e(6), e(7), e(8), e(9), e(10),
+                e(11), e(12), e(13), e(14), e(15), e(16), e(17), e(18), e(19), e(20), e(21))
+            }))
+          }
+        }
+      case Success(_) =>
+        logger.warn(s"Ignoring nutation cache $file, the cached data is corrupt")
+        None
+      case Failure(e) =>
+        logger.warn(s"Could not read the nutation cache $file", e)
+        None
+    }
+  }
+
+  /**
+   * Write tables of nutation entries to a cache file. The file is first written to a temporary file, and then moved
+   * in place so that concurrent readers never see a partially written cache.
+   *
+   * @param file     Cache file to write.
+   * @param checksum Checksum of the source tables the entries were parsed from.
+   * @param tables   Tables of nutation entries to store.
+   */
+  def write(file: Path, checksum: Long, tables: Seq[List[IAU2000NutationEntry]]): Try[Path] = Try {
+    val data = ByteBuffer.allocate(4 * tables.size + 8 * entrySize * tables.map(_.size).sum)
+    for (entries <- tables)
+      data.putInt(entries.size)
+    for (entries <- tables; entry <- entries) {
+      data.putDouble(entry.ls).putDouble(entry.lst).putDouble(entry.lc).putDouble(entry.lct)
+      data.putDouble(entry.os).putDouble(entry.ost).putDouble(entry.oc).putDouble(entry.oct)
+      data.putDouble(entry.l).putDouble(entry.lp).putDouble(entry.F).putDouble(entry.D).putDouble(entry.Ω)
+      data.putDouble(entry.L_Me).putDouble(entry.L_Ve).putDouble(entry.L_E).putDouble(entry.L_Ma)
+      data.putDouble(entry.L_J).putDouble(entry.L_Sa).putDouble(entry.L_U).putDouble(entry.L_Ne).putDouble(entry.p_A)
+    }
+    data.flip()
+
+    val header = ByteBuffer.allocate(headerSize)
+    header.putInt(magic).putInt(version).putLong(checksum)
+    header.putInt(tables.size).putInt(entrySize).putLong(crc(data.duplicate()))
+    header.flip()
+
+    val directory = file.toAbsolutePath.getParent
+    Files.createDirectories(directory)
+    val temp = Files.createTempFile(directory, file.getFileName.toString, ".tmp")
+    try {
+      val channel = FileChannel.open(temp, WRITE, TRUNCATE_EXISTING)
+      try {
+        while (header.hasRemaining) channel.write(header)
+        while (data.hasRemaining) channel.write(data)
+      } finally {
+        channel.close()
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+      Files.deleteIfExists(temp)
+    }
+  }
+
+  /** CRC32 of the remaining bytes in a buffer. */
+  private def crc(buffer: ByteBuffer) = {
+    val crc = new CRC32
+    crc.update(buffer)
+    crc.getValue
+  }
+
+}
@@ -67,8 +67,17 @@ class IAU2000NutationEntry(val ls: Double = 0.0, val lst: Double = 0.0, val lc:
    * @param t Julian centuries since the J2000 epoch in TT (or TDB).
    * @return [arcseconds]
    */
-  def nutationContribution(t: Double) = {
-    val arg = argument(t)
+  def nutationContribution(t: Double): (Double, Double) =
+    nutationContribution(t, argument(t))
+
+  /**
+   * Finds the contribution to the nutation of the ecliptic in longitude (δΔψ) and obliquity (δΔε) of this sole series entry.
+   *
+   * @param t   Julian centuries since the J2000 epoch in TT (or TDB).
+   * @param arg Argument of this entry at t, see [[IAU2000NutationEntry#argument]] [rad].
+   * @return [arcseconds]
+   */
+  def nutationContribution(t: Double, arg: Double): (Double, Double) = {
     val δΔψ = (ls + lst * t) * sin(arg) + (lc + lct * t) * cos(arg)
     val δΔε = (os + ost * t) * sin(arg) + (oc + oct * t) * cos(arg)
     (δΔψ, δΔε)
@@ -80,9 +89,20 @@ class IAU2000NutationEntry(val ls: Double = 0.0, val lst: Double = 0.0, val lc:
    * @param t Julian centuries since the J2000 epoch in TT (or TDB).
    * @return Arguement for IAU2000A/B [radians]
    */
-  def argument(t: Double) = {
-    val (fa_l, fa_lp, fa_F, fa_D, fa_Ω) = IAU2000NutationEntry.fundamentalArguments(t)
-    val (lMe, lVe, lE, lMa, lJ, lSa, lU, lNe, pA) = IAU2000NutationEntry.planetaryArguments(t)
+  def argument(t: Double): Double =
+    argument(IAU2000NutationEntry.fundamentalArguments(t), IAU2000NutationEntry.planetaryArguments(t))
+
+  /**
+   * Computes the argument used in the IAU2000A/B nutation theory series expansion from precomputed arguments.
+   *
+   * @param fundamental The fundamental arguments, see [[IAU2000NutationEntry.fundamentalArguments]] [rad].
+   * @param planetary   The planetary arguments, see [[IAU2000NutationEntry.planetaryArguments]] [rad].
+   * @return Arguement for IAU2000A/B [radians]
+   */
+  def argument(fundamental: (Double, Double, Double, Double, Double),
+               planetary: (Double, Double, Double, Double, Double, Double, Double, Double, Double)): Double = {
+    val (fa_l, fa_lp, fa_F, fa_D, fa_Ω) = fundamental
+    val (lMe, lVe, lE, lMa, lJ, lSa, lU, lNe, pA) = planetary
 
     // luni-solar nutation series
     val lunisolar = l * fa_l + lp * fa_lp + F * fa_F + D * fa_D + Ω * fa_Ω
@@ -16,9 +16,17 @@
 
 package be.angelcorp.celest.frameGraph.frames.transforms
 
-import be.angelcorp.celest.resources.{ResourceDescription, Resources}
+import java.nio.ByteBuffer
+import java.nio.file.Path
+import java.util.zip.CRC32
 
+import be.angelcorp.celest.resources.{ArchiveResource, ResourceDescription, Resources, ZipResource}
+import com.google.common.cache.{CacheBuilder, CacheLoader}
+
+import scala.collection.concurrent.TrieMap
+import scala.collection.mutable
 import scala.io.Source
+import scala.util.Try
 import be.angelcorp.celest.universe.Universe
 
 object IAU2000NutationLoader {
@@ -127,20 +135,180 @@ object IAU2000NutationLoader {
     }).toList
   }
 
+  /**
+   * Parse one of the IERS 2010 tables of a CIP coordinate series (Tables 5.2a, 5.2b and 5.2d); the X and Y
+   * coordinates of the CIP and s + XY/2.
+   *
+   * The terms in the table are split in sections j = 0, 1, ..., containing the terms multiplied by t^j. The sine
+   * amplitude of each term is stored in `ls` and the cosine amplitude in `lc` of the returned entries.
+   *
+   * @param content Content of the table.
+   * @return The terms of the series for each power of t [arcseconds].
+   */
+  def parseIERS2010Series(content: Source): IndexedSeq[List[IAU2000NutationEntry]] = {
+    val sections = mutable.ArrayBuffer(mutable.ListBuffer[IAU2000NutationEntry]())
+    var section = 0
+    val sectionChange = """j\s+=\s+([0-9]*).*""".r
+
+    for (line <- content.getLines().map(_.trim)) line match {
+      case line if line.isEmpty =>
+      case sectionChange(j) =>
+        section = j.toInt
+        while (sections.size <= section) sections += mutable.ListBuffer()
+      case thisLine if thisLine.head.isDigit =>
+        val numbers = thisLine.split( """\s+""")
+        if (numbers.length >= 17) {
+          // 1E-6 to convert from μas => arcseconds
+          val n = numbers.map(_.toDouble)
+          sections(section) += new IAU2000NutationEntry(ls = n(1) * 1E-6, lc = n(2) * 1E-6,
+            l = n(3), lp = n(4), F = n(5), D = n(6), Ω = n(7),
+            L_Me = n(8), L_Ve = n(9), L_E = n(10), L_Ma = n(11), L_J = n(12), L_Sa = n(13), L_U = n(14), L_Ne = n(15), p_A = n(16))
+        }
+      case _ =>
+    }
+    sections.map(_.toList).toIndexedSeq
+  }
+
   def IERS2010(implicit universe: Universe): List[IAU2000NutationEntry] = {
     // Download the nutation in longitude coefficients (IAU 2000_R06 expression) derived from the IAU 2000A
     // lunisolar and planetary components with slight IAU 2006 adjustments (provided by N. Capitaine).
-    parseIERS2010(getZipEntrySource("org.iers.conv2010", "chapter5", "tab5.3a.txt").getOrElse(Source.fromString("")), longitudeFile = true) :::
-      parseIERS2010(getZipEntrySource("org.iers.conv2010", "chapter5", "tab5.3b.txt").getOrElse(Source.fromString("")), longitudeFile = false)
+    cached("IERS2010", "org.iers.conv2010", "chapter5", Seq("tab5.3a.txt", "tab5.3b.txt")) { sources =>
+      parseIERS2010(sources(0), longitudeFile = true) ::: parseIERS2010(sources(1), longitudeFile = false)
+    }
   }
 
+  /**
+   * The IAU 2006/2000A series for the X coordinate of the CIP in the GCRS (IERS Conventions 2010, Table 5.2a).
+   *
+   * @return The non-polynomial terms of X for each power of t [arcseconds].
+   */
+  def IERS2010_X(implicit universe: Universe): IndexedSeq[List[IAU2000NutationEntry]] =
+    cachedTables("IERS2010_X", "org.iers.conv2010", "chapter5", Seq("tab5.2a.txt"))(sources => parseIERS2010Series(sources(0)))
+
+  /**
+   * The IAU 2006/2000A series for the Y coordinate of the CIP in the GCRS (IERS Conventions 2010, Table 5.2b).
+   *
+   * @return The non-polynomial terms of Y for each power of t [arcseconds].
+   */
+  def IERS2010_Y(implicit universe: Universe): IndexedSeq[List[IAU2000NutationEntry]] =
+    cachedTables("IERS2010_Y", "org.iers.conv2010", "chapter5", Seq("tab5.2b.txt"))(sources => parseIERS2010Series(sources(0)))
+
+  /**
+   * The IAU 2006/2000A series for the CIO locator s + XY/2 (IERS Conventions 2010, Table 5.2d).
+   *
+   * @return The non-polynomial terms of s + XY/2 for each power of t [arcseconds].
+   */
+  def IERS2010_s(implicit universe: Universe): IndexedSeq[List[IAU2000NutationEntry]] =
+    cachedTables("IERS2010_s", "org.iers.conv2010", "chapter5", Seq("tab5.2d.txt"))(sources => parseIERS2010Series(sources(0)))
+
   def MHB2000_2000A(implicit universe: Universe): List[IAU2000NutationEntry] = {
-    parseMHB2000(getZipEntrySource("org.iers", "MHB2000", "iau00a_nutation_ls.tab").getOrElse(Source.fromString(""))) :::
-      parseMHB2000Planet(getZipEntrySource("org.iers", "MHB2000", "iau00a_nutation_pl.tab").getOrElse(Source.fromString("")))
+    cached("MHB2000_2000A", "org.iers", "MHB2000", Seq("iau00a_nutation_ls.tab", "iau00a_nutation_pl.tab")) { sources =>
+      parseMHB2000(sources(0)) ::: parseMHB2000Planet(sources(1))
+    }
   }
 
   def MHB2000_2000B(implicit universe: Universe): List[IAU2000NutationEntry] = {
-    parseMHB2000(getZipEntrySource("org.iers", "MHB2000", "iau00b_nutation.tab").getOrElse(Source.fromString("")))
+    cached("MHB2000_2000B", "org.iers", "MHB2000", Seq("iau00b_nutation.tab")) { sources =>
+      parseMHB2000(sources(0))
+    }
+  }
+
+  /**
+   * Load a set of nutation tables from a resource archive, using the binary
+   * [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationCache]] when it is up to date.
+   *
+   * @param name       Name of the cache file.
+   * @param groupId    Group identifier of the archive containing the tables.
+   * @param artifactId Artifact identifier of the archive containing the tables.
+   * @param filenames  Entries in the archive with the tables.
+   * @param parse      Parses the entries from the table sources (in the order of filenames).
+   * @return The parsed or cached nutation entries.
+   */
+  def cached(name: String, groupId: String, artifactId: String, filenames: Seq[String])
+            (parse: Seq[Source] => List[IAU2000NutationEntry])(implicit universe: Universe): List[IAU2000NutationEntry] =
+    cachedTables(name, groupId, artifactId, filenames)(sources => IndexedSeq(parse(sources))).head
+
+  /**
+   * Load several tables of series entries from a resource archive, using the binary
+   * [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationCache]] when it is up to date.
+   *
+   * @param name       Name of the cache file.
+   * @param groupId    Group identifier of the archive containing the tables.
+   * @param artifactId Artifact identifier of the archive containing the tables.
+   * @param filenames  Entries in the archive with the tables.
+   * @param parse      Parses the tables from the table sources (in the order of filenames).
+   * @return The parsed or cached tables.
+   */
+  def cachedTables(name: String, groupId: String, artifactId: String, filenames: Seq[String])
+                  (parse: Seq[Source] => IndexedSeq[List[IAU2000NutationEntry]])(implicit universe: Universe): IndexedSeq[List[IAU2000NutationEntry]] = {
+    val locations = resolved.get(universe)
+    val archive = locations.archive(groupId, artifactId)
+    def sources = filenames.map(filename =>
+      archive.flatMap(_.findEntry(filename)).map(_.openSource()).getOrElse(Source.fromString("")))
+
+    locations.cacheFile(name, archive, filenames) match {
+      case Some((file, sourceChecksum)) => IAU2000NutationCache.loadTables(file, sourceChecksum)(parse(sources))
+      case None => parse(sources)
+    }
+  }
+
+  /**
+   * The resolved resource archives and cache files of a single universe. Resolving these requires a lookup in the
+   * resource repositories and reading the archive directories, so it is only done for the first load of each table.
+   * The locations do not refer to the universe itself, so they do not keep the (weak) key of
+   * [[IAU2000NutationLoader#resolved]] reachable.
+   *
+   * @param directory Directory of the cache files of the universe, see [[IAU2000NutationCache#directory]].
+   */
+  private class Locations(directory: Option[Path]) {
+    private val archives = TrieMap[(String, String), Try[ArchiveResource]]()
+    private val cacheFiles = TrieMap[String, Option[(Path, Long)]]()
+
+    def archive(groupId: String, artifactId: String)(implicit universe: Universe) = archives.getOrElseUpdate((groupId, artifactId),
+      Resources.findArchive(ResourceDescription(groupId, artifactId, extension = "zip")))
+
+    def cacheFile(name: String, archive: Try[ArchiveResource], filenames: Seq[String]) = cacheFiles.getOrElseUpdate(name,
+      for (resource <- archive.toOption; dir <- directory) yield (dir.resolve(name + ".bin"), checksum(resource, filenames)))
+  }
+
+  /** Resolved locations, per universe. */
+  private val resolved = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader[Universe, Locations] {
+    override def load(universe: Universe) = new Locations(IAU2000NutationCache.directory(universe))
+  })
+
+  /**
+   * Compute a checksum of a set of entries in a resource archive. For zip archives the checksum is based on the
+   * CRC's stored in the archive directory, so the entries do not need to be decompressed.
+   *
+   * @param archive   Archive containing the entries.
+   * @param filenames Entries in the archive.
+   * @return Checksum of the entries.
+   */
+  def checksum(archive: ArchiveResource, filenames: Seq[String]): Long = {
+    val crc = new CRC32
+    for (filename <- filenames) {
+      crc.update(filename.getBytes("UTF-8"))
+      archive match {
+        case zip: ZipResource if zip.zip.getEntry(filename) != null =>
+          val entry = zip.zip.getEntry(filename)
+          crc.update(ByteBuffer.allocate(16).putLong(entry.getCrc).putLong(entry.getSize).array())
+        case _ =>
+          archive.findEntry(filename).foreach(resource => {
+            val in = resource.openStream()
+            try {
+              val buffer = new Array[Byte](8192)
+              var n = in.read(buffer)
+              while (n >= 0) {
+                crc.update(buffer, 0, n)
+                n = in.read(buffer)
+              }
+            } finally {
+              in.close()
+            }
+          })
+      }
+    }
+    crc.getValue
   }
 
   @Deprecated
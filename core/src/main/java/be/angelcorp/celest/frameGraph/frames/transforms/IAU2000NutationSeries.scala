@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph.frames.transforms
+
+import scala.math._
+
+/**
+ * Compiled form of a list of [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationEntry]]'s for fast
+ * evaluation of the IAU2000 nutation series.
+ * <p>
+ * The 14 arguments of the series (5 luni-solar and 9 planetary) are computed only once per epoch. The series
+ * amplitudes are stored in primitive arrays (one per amplitude), and the nonzero argument multipliers of all the
+ * terms in a compressed sparse form:
+ * </p>
+ * <pre>
+ * arg_i = &Sigma;_{k = termStart(i)}^{termStart(i+1) - 1} multiplier(k) * arguments( argumentIndex(k) )
+ * </pre>
+ * <p>
+ * When `recurrence` is enabled, the sine and cosine of each term argument are not computed directly. Instead the
+ * sines and cosines of all the required integer multiples of each of the 14 arguments are built once per epoch using
+ * the angle addition recurrence, and each term is assembled as a product of these (a few multiplications per term,
+ * instead of a sin/cos evaluation).
+ * </p>
+ *
+ * @param coefficients Entries of the series.
+ * @param recurrence   Build the sin/cos of the arguments using the recurrence relation instead of evaluating sin/cos
+ *                     for each term.
+ *
+ * @author Simon Billemont
+ */
+class IAU2000NutationSeries(coefficients: Seq[IAU2000NutationEntry], val recurrence: Boolean = true) {
+
+  /** Number of terms in the series. */
+  val size = coefficients.size
+
+  // Amplitudes of each term [arcseconds]
+  private val ls  = coefficients.map(_.ls).toArray
+  private val lst = coefficients.map(_.lst).toArray
+  private val lc  = coefficients.map(_.lc).toArray
+  private val lct = coefficients.map(_.lct).toArray
+  private val os  = coefficients.map(_.os).toArray
+  private val ost = coefficients.map(_.ost).toArray
+  private val oc  = coefficients.map(_.oc).toArray
+  private val oct = coefficients.map(_.oct).toArray
+
+  /** Sparse argument multipliers of each term */
+  private val sparse = new SeriesMultipliers(coefficients)
+  import sparse.{argumentIndex, multiplier, tableOffset, termStart}
+
+  /** Rough number of floating point operations of a single evaluation of the series. */
+  val operations = sparse.operations + 12 * size
+
+  /** Scratch buffers, one set per thread. */
+  private val workspace = new ThreadLocal[(Array[Double], Array[Double], Array[Double])] {
+    override def initialValue() = (new Array[Double](IAU2000NutationSeries.argumentCount), new Array[Double](sparse.tableSize), new Array[Double](sparse.tableSize))
+  }
+
+  /**
+   * Sum the complete series.
+   *
+   * @param t Julian centuries since the J2000 epoch in TT (or TDB).
+   * @return The nutation in longitude (Δψ) and obliquity (Δε) [arcseconds].
+   */
+  def evaluate(t: Double): (Double, Double) = {
+    val arguments = workspace.get()._1
+    IAU2000NutationSeries.arguments(t, arguments)
+    evaluate(t, arguments)
+  }
+
+  /**
+   * Sum the complete series using precomputed arguments.
+   *
+   * @param t         Julian centuries since the J2000 epoch in TT (or TDB).
+   * @param arguments The 14 arguments of the series at t, see [[IAU2000NutationSeries.arguments]] [rad].
+   * @return The nutation in longitude (Δψ) and obliquity (Δε) [arcseconds].
+   */
+  def evaluate(t: Double, arguments: Array[Double]): (Double, Double) =
+    if (recurrence) evaluateRecurrence(t, arguments) else evaluateDirect(t, arguments)
+
+  /** Sum the series by directly evaluating sin/cos of each term argument. */
+  private def evaluateDirect(t: Double, arguments: Array[Double]): (Double, Double) = {
+    var dψ = 0.0
+    var dε = 0.0
+    var i = 0
+    while (i < size) {
+      var arg = 0.0
+      var k = termStart(i)
+      val end = termStart(i + 1)
+      while (k < end) {
+        arg += multiplier(k) * arguments(argumentIndex(k))
+        k += 1
+      }
+      val s = sin(arg)
+      val c = cos(arg)
+      dψ += (ls(i) + lst(i) * t) * s + (lc(i) + lct(i) * t) * c
+      dε += (os(i) + ost(i) * t) * s + (oc(i) + oct(i) * t) * c
+      i += 1
+    }
+    (dψ, dε)
+  }
+
+  /** Sum the series by assembling sin/cos of each term argument from the tabulated multiples of the arguments. */
+  private def evaluateRecurrence(t: Double, arguments: Array[Double]): (Double, Double) = {
+    val (_, cosTable, sinTable) = workspace.get()
+
+    sparse.tabulate(arguments, cosTable, sinTable)
+
+    var dψ = 0.0
+    var dε = 0.0
+    var i = 0
+    while (i < size) {
+      var c = 1.0
+      var s = 0.0
+      var k = termStart(i)
+      val end = termStart(i + 1)
+      while (k < end) {
+        val index = tableOffset(argumentIndex(k)) + multiplier(k)
+        val ck = cosTable(index)
+        val sk = sinTable(index)
+        val cNew = c * ck - s * sk
+        s = s * ck + c * sk
+        c = cNew
+        k += 1
+      }
+      dψ += (ls(i) + lst(i) * t) * s + (lc(i) + lct(i) * t) * c
+      dε += (os(i) + ost(i) * t) * s + (oc(i) + oct(i) * t) * c
+      i += 1
+    }
+    (dψ, dε)
+  }
+
+}
+
+object IAU2000NutationSeries {
+
+  /** Number of arguments in the series (5 luni-solar and 9 planetary). */
+  val argumentCount = 14
+
+  /**
+   * Integer multipliers of an entry, in the order of [[IAU2000NutationSeries.arguments]].
+   *
+   * @param entry Entry to extract the multipliers from.
+   * @return The 14 argument multipliers.
+   */
+  def multipliers(entry: IAU2000NutationEntry) = Array(
+    entry.l, entry.lp, entry.F, entry.D, entry.Ω,
+    entry.L_Me, entry.L_Ve, entry.L_E, entry.L_Ma, entry.L_J, entry.L_Sa, entry.L_U, entry.L_Ne, entry.p_A
+  ).map(m => math.round(m).toInt)
+
+  /**
+   * Compute all the 14 arguments of the series;
+   * `{ l, l', F, D, Ω, L_Me, L_Ve, L_E, L_Ma, L_J, L_Sa, L_U, L_Ne, p_A }`.
+   *
+   * @param t      Julian centuries since the J2000 epoch in TT (or TDB).
+   * @param result Array in which to store the arguments [rad].
+   */
+  def arguments(t: Double, result: Array[Double]) {
+    arguments(IAU2000NutationEntry.fundamentalArguments(t), IAU2000NutationEntry.planetaryArguments(t), result)
+  }
+
+  /**
+   * Pack the precomputed fundamental and planetary arguments in the order used by the series.
+   *
+   * @param fundamental The fundamental arguments, see [[IAU2000NutationEntry.fundamentalArguments]] [rad].
+   * @param planetary   The planetary arguments, see [[IAU2000NutationEntry.planetaryArguments]] [rad].
+   * @param result      Array in which to store the arguments [rad].
+   */
+  def arguments(fundamental: (Double, Double, Double, Double, Double),
+                planetary: (Double, Double, Double, Double, Double, Double, Double, Double, Double),
+                result: Array[Double]) {
+    result(0) = fundamental._1
+    result(1) = fundamental._2
+    result(2) = fundamental._3
+    result(3) = fundamental._4
+    result(4) = fundamental._5
+    result(5) = planetary._1
+    result(6) = planetary._2
+    result(7) = planetary._3
+    result(8) = planetary._4
+    result(9) = planetary._5
+    result(10) = planetary._6
+    result(11) = planetary._7
+    result(12) = planetary._8
+    result(13) = planetary._9
+  }
+
+}
+
+/**
+ * The nonzero argument multipliers of the terms of a series in the 14 IAU2000 arguments, stored in a compressed
+ * sparse form, together with the layout of the tables with sines and cosines of all the required multiples of each
+ * argument.
+ *
+ * @param coefficients Entries of the series.
+ *
+ * @author Simon Billemont
+ */
+private[transforms] class SeriesMultipliers(coefficients: Seq[IAU2000NutationEntry]) {
+
+  /** Index of the first multiplier of each term (with an additional entry for the end of the last term). */
+  val (termStart, argumentIndex, multiplier) = {
+    val start = new Array[Int](coefficients.size + 1)
+    val index = Array.newBuilder[Int]
+    val mult = Array.newBuilder[Int]
+    var k = 0
+    for ((entry, i) <- coefficients.zipWithIndex) {
+      start(i) = k
+      for ((m, j) <- IAU2000NutationSeries.multipliers(entry).zipWithIndex if m != 0) {
+        index += j
+        mult += m
+        k += 1
+      }
+    }
+    start(coefficients.size) = k
+    (start, index.result(), mult.result())
+  }
+
+  /** Largest absolute multiplier of each of the 14 arguments. */
+  val maxMultiplier = {
+    val max = new Array[Int](IAU2000NutationSeries.argumentCount)
+    for (k <- 0 until multiplier.length)
+      max(argumentIndex(k)) = math.max(max(argumentIndex(k)), math.abs(multiplier(k)))
+    max
+  }
+
+  /** Offset of the multiple 0 of each argument in the sin/cos tables. */
+  val tableOffset = {
+    val offset = new Array[Int](IAU2000NutationSeries.argumentCount)
+    var n = 0
+    for (j <- 0 until offset.length) {
+      offset(j) = n + maxMultiplier(j)
+      n += 2 * maxMultiplier(j) + 1
+    }
+    offset
+  }
+
+  /** Total length of the sin/cos tables. */
+  val tableSize = (0 until maxMultiplier.length).map(j => 2 * maxMultiplier(j) + 1).sum
+
+  /**
+   * Rough number of floating point operations to find the sine and cosine of the arguments of all terms, including
+   * the tabulation (a sine or cosine of an argument is counted as 20 operations).
+   */
+  val operations = 6 * multiplier.length + 6 * tableSize + 40 * IAU2000NutationSeries.argumentCount
+
+  /**
+   * Tabulate cos(m * arg_j) and sin(m * arg_j) for m in [-max_j, max_j] using the angle addition recurrence.
+   *
+   * @param arguments The 14 arguments of the series [rad].
+   * @param cosTable  Table in which to store the cosines of the multiples, of length tableSize.
+   * @param sinTable  Table in which to store the sines of the multiples, of length tableSize.
+   */
+  def tabulate(arguments: Array[Double], cosTable: Array[Double], sinTable: Array[Double]) {
+    var j = 0
+    while (j < maxMultiplier.length) {
+      val o = tableOffset(j)
+      val c1 = cos(arguments(j))
+      val s1 = sin(arguments(j))
+      cosTable(o) = 1.0
+      sinTable(o) = 0.0
+      var m = 1
+      while (m <= maxMultiplier(j)) {
+        val c = cosTable(o + m - 1) * c1 - sinTable(o + m - 1) * s1
+        val s = sinTable(o + m - 1) * c1 + cosTable(o + m - 1) * s1
+        cosTable(o + m) = c
+        sinTable(o + m) = s
+        cosTable(o - m) = c
+        sinTable(o - m) = -s
+        m += 1
+      }
+      j += 1
+    }
+  }
+
+}
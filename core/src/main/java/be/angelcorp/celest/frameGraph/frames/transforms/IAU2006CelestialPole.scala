@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph.frames.transforms
+
+import be.angelcorp.celest.data.eop.PoleProvider
+import be.angelcorp.celest.frameGraph.{ReferenceSystem, TransformAccuracy}
+import be.angelcorp.celest.frameGraph.transformations.ConstantRotationTransformFactory
+import be.angelcorp.celest.math.geometry.Mat3
+import be.angelcorp.celest.physics.Units._
+import be.angelcorp.celest.time.Epoch
+import be.angelcorp.celest.universe.Universe
+
+import scala.math._
+
+/**
+ * The transformation factory from the GCRS (geocentric celestial reference system) to the CIRS (celestial
+ * intermediate reference system), the CIO based equivalent of frame bias, precession and nutation.
+ * <p>
+ * The transformation is fully defined by the coordinates X, Y of the celestial intermediate pole (CIP) in the GCRS
+ * and the CIO locator s, all evaluated using the IAU 2006/2000A series of the IERS Conventions (2010), see
+ * [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2006CIPSeries]]. The observed offsets of the CIP with respect
+ * to the model (dX, dY) are added to the modelled coordinates.
+ * </p>
+ *
+ * =References=
+ * 1) G. Petit, B. Luzum (eds.).,<b>"IERS Conventions (2010)"</b>, IERS Technical Note 36, Frankfurt am Main: Verlag des Bundesamts für Kartographie und Geodäsie, 2010. 179 pp., ISBN 3-89888-989-6<br/>
+ *
+ * @param series     Series for the CIP coordinates and CIO locator.
+ * @param cipOffsets Provider of the observed offsets of the CIP (dX, dY) [rad].
+ *
+ * @author Simon Billemont
+ */
+class IAU2006CelestialPole[F0 <: ReferenceSystem, F1 <: ReferenceSystem]
+(val fromFrame: F0, val toFrame: F1, val series: IAU2006CIPSeries, val cipOffsets: PoleProvider)(implicit universe: Universe)
+  extends ConstantRotationTransformFactory[F0, F1] with TransformAccuracy {
+
+  /** The cost grows with the number of operations of the series of the accuracy tier. */
+  def cost(epoch: Epoch): Double = 150.0 + series.operations
+
+  /** The error caused by the truncation of the series. */
+  def error(epoch: Epoch): Double = series.truncationError
+
+  def rotationMatrix(epoch: Epoch) = {
+    val (x, y, s) = xys(epoch)
+    IAU2006CelestialPole.celestialToIntermediate(x, y, s)
+  }
+
+  /**
+   * Compute the coordinates of the CIP in the GCRS, including the observed offsets, and the CIO locator.
+   *
+   * @param epoch Epoch at which to compute the coordinates.
+   * @return The CIP coordinates X, Y and the CIO locator s [rad].
+   */
+  def xys(epoch: Epoch): (Double, Double, Double) = {
+    // Quantities shared with the other Earth orientation transforms at this epoch
+    val context = EarthOrientationContext(epoch)
+    val (x, y, s) = context.cipCoordinates(series)
+    val (dx, dy) = cipOffsets.polarCoordinatesOn(epoch)
+    (x + dx, y + dy, s)
+  }
+
+}
+
+object IAU2006CelestialPole {
+
+  /**
+   * Form the GCRS to CIRS rotation matrix from the coordinates of the CIP and the CIO locator.
+   * See reference [1] eqn 5.6 and 5.10.
+   *
+   * @param x CIP X coordinate [rad].
+   * @param y CIP Y coordinate [rad].
+   * @param s CIO locator s [rad].
+   * @return The rotation matrix from the GCRS to the CIRS.
+   */
+  def celestialToIntermediate(x: Double, y: Double, s: Double): Mat3 = {
+    val r2 = x * x + y * y
+    val e = if (r2 > 0.0) atan2(y, x) else 0.0
+    val d = atan(sqrt(r2 / (1.0 - r2)))
+    Mat3.rotateZYZ(-(e + s), d, e)
+  }
+
+}
+
+/**
+ * Compiled form of the IAU 2006/2000A series for the coordinates X and Y of the CIP and the CIO locator s.
+ * <p>
+ * All three quantities are the sum of a polynomial in t and a Poisson series in the 14 IAU2000 arguments:
+ * </p>
+ * <pre>
+ * X = &Sigma;_j x_j t^j + &Sigma;_j t^j &Sigma;_i [ (a_s)_ij sin(arg_i) + (a_c)_ij cos(arg_i) ]
+ * </pre>
+ * <p>
+ * The terms of the three series are merged in one list, so that the sines and cosines of the multiples of the
+ * arguments are tabulated only once per epoch for all three quantities (see
+ * [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000NutationSeries]]).
+ * </p>
+ *
+ * @param x        Terms of X for each power of t, sine and cosine amplitudes in `ls` and `lc` [arcseconds].
+ * @param y        Terms of Y for each power of t, sine and cosine amplitudes in `ls` and `lc` [arcseconds].
+ * @param s        Terms of s + XY/2 for each power of t, sine and cosine amplitudes in `ls` and `lc` [arcseconds].
+ * @param accuracy Accuracy tier used to truncate the series.
+ *
+ * @author Simon Billemont
+ */
+class IAU2006CIPSeries(x: IndexedSeq[List[IAU2000NutationEntry]],
+                       y: IndexedSeq[List[IAU2000NutationEntry]],
+                       s: IndexedSeq[List[IAU2000NutationEntry]],
+                       val accuracy: NutationAccuracy = NutationAccuracy.Full) {
+
+  /** Highest power of t in the Poisson series, plus one. */
+  private val powers = Seq(x.size, y.size, s.size).max
+
+  /** All the terms of the three series, with the index of the (quantity, power) sum they contribute to. */
+  private val terms = (for ((quantity, q) <- Seq(x, y, s).zipWithIndex;
+                            (entries, j) <- quantity.zipWithIndex;
+                            entry <- accuracy.truncate(entries)) yield (q * powers + j, entry)).toIndexedSeq
+
+  /** Number of terms in the three series. */
+  val size = terms.size
+
+  /** Upper bound of the error in the CIP coordinates caused by the truncation of the series, over |t| &lt;= 1 [rad]. */
+  val truncationError = {
+    def dropped(quantity: IndexedSeq[List[IAU2000NutationEntry]]) =
+      quantity.flatMap(_.filterNot(accuracy.retains)).map(NutationAccuracy.amplitude).sum
+    arcSeconds(hypot(dropped(x), dropped(y)))
+  }
+
+  private val sum = terms.map(_._1).toArray
+  private val as = terms.map(_._2.ls).toArray
+  private val ac = terms.map(_._2.lc).toArray
+
+  /** Sparse argument multipliers of each term */
+  private val sparse = new SeriesMultipliers(terms.map(_._2))
+  import sparse.{argumentIndex, multiplier, tableOffset, termStart}
+
+  /** Rough number of floating point operations of a single evaluation of the series. */
+  val operations = sparse.operations + 5 * size
+
+  /** Scratch buffers, one set per thread. */
+  private val workspace = new ThreadLocal[(Array[Double], Array[Double], Array[Double], Array[Double])] {
+    override def initialValue() = (new Array[Double](IAU2000NutationSeries.argumentCount),
+      new Array[Double](sparse.tableSize), new Array[Double](sparse.tableSize), new Array[Double](3 * powers))
+  }
+
+  /**
+   * Evaluate the series.
+   *
+   * @param t Julian centuries since the J2000 epoch in TT.
+   * @return The CIP coordinates X, Y and the CIO locator s [rad].
+   */
+  def evaluate(t: Double): (Double, Double, Double) = {
+    val arguments = workspace.get()._1
+    IAU2000NutationSeries.arguments(t, arguments)
+    evaluate(t, arguments)
+  }
+
+  /**
+   * Evaluate the series using precomputed arguments.
+   *
+   * @param t         Julian centuries since the J2000 epoch in TT.
+   * @param arguments The 14 arguments of the series at t, see [[IAU2000NutationSeries.arguments]] [rad].
+   * @return The CIP coordinates X, Y and the CIO locator s [rad].
+   */
+  def evaluate(t: Double, arguments: Array[Double]): (Double, Double, Double) = {
+    val (_, cosTable, sinTable, sums) = workspace.get()
+    sparse.tabulate(arguments, cosTable, sinTable)
+    java.util.Arrays.fill(sums, 0.0)
+
+    var i = 0
+    while (i < size) {
+      var c = 1.0
+      var s = 0.0
+      var k = termStart(i)
+      val end = termStart(i + 1)
+      while (k < end) {
+        val index = tableOffset(argumentIndex(k)) + multiplier(k)
+        val ck = cosTable(index)
+        val sk = sinTable(index)
+        val cNew = c * ck - s * sk
+        s = s * ck + c * sk
+        c = cNew
+        k += 1
+      }
+      sums(sum(i)) += as(i) * s + ac(i) * c
+      i += 1
+    }
+
+    val X = arcSeconds(IAU2006CIPSeries.polynomial(IAU2006CIPSeries.xPolynomial, t) + poisson(sums, 0, t))
+    val Y = arcSeconds(IAU2006CIPSeries.polynomial(IAU2006CIPSeries.yPolynomial, t) + poisson(sums, powers, t))
+    val sXY2 = arcSeconds(IAU2006CIPSeries.polynomial(IAU2006CIPSeries.sPolynomial, t) + poisson(sums, 2 * powers, t))
+    (X, Y, sXY2 - X * Y / 2.0)
+  }
+
+  /** Sum the Poisson series of the different powers of t in the range [offset, offset + powers[. */
+  private def poisson(sums: Array[Double], offset: Int, t: Double) = {
+    var result = 0.0
+    var j = powers - 1
+    while (j >= 0) {
+      result = result * t + sums(offset + j)
+      j -= 1
+    }
+    result
+  }
+
+}
+
+object IAU2006CIPSeries {
+
+  /** Polynomial part of X, see IERS Conventions (2010) eqn 5.16 [arcseconds]. */
+  val xPolynomial = Array(-0.016617, 2004.191898, -0.4297829, -0.19861834, 0.000007578, 0.0000059285)
+
+  /** Polynomial part of Y, see IERS Conventions (2010) eqn 5.16 [arcseconds]. */
+  val yPolynomial = Array(-0.006951, -0.025896, -22.4072747, 0.00190059, 0.001112526, 0.0000001358)
+
+  /** Polynomial part of s + XY/2, see IERS Conventions (2010) Table 5.2d [arcseconds]. */
+  val sPolynomial = Array(94.0E-6, 3808.65E-6, -122.68E-6, -72574.11E-6, 27.98E-6, 15.62E-6)
+
+  /** Evaluate a polynomial with the given coefficients (in increasing powers of t) using Horner's scheme. */
+  def polynomial(coefficients: Array[Double], t: Double) = {
+    var result = 0.0
+    var j = coefficients.length - 1
+    while (j >= 0) {
+      result = result * t + coefficients(j)
+      j -= 1
+    }
+    result
+  }
+
+  /**
+   * Load the IERS 2010 series for the CIP coordinates and CIO locator.
+   *
+   * @param accuracy Accuracy tier used to truncate the series.
+   * @return The compiled series.
+   */
+  def IERS2010(accuracy: NutationAccuracy = NutationAccuracy.Full)(implicit universe: Universe) =
+    new IAU2006CIPSeries(IAU2000NutationLoader.IERS2010_X, IAU2000NutationLoader.IERS2010_Y, IAU2000NutationLoader.IERS2010_s, accuracy)
+
+}
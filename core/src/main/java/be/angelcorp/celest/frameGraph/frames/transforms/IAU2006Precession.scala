@@ -19,12 +19,11 @@ package be.angelcorp.celest.frameGraph.frames.transforms
 import be.angelcorp.celest.math.geometry.Mat3
 
 import scala.math._
-import be.angelcorp.celest.time.{Epochs, Epoch}
+import be.angelcorp.celest.time.Epoch
 import be.angelcorp.celest.universe.Universe
 import be.angelcorp.celest.frameGraph._
 import be.angelcorp.celest.physics.Units._
 import be.angelcorp.celest.frameGraph.transformations.ConstantRotationTransformFactory
-import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
 
 /**
  * IAU 2006 precession theory. Computes the precession of the ecliptic for the MOD (mean of date) to J2000 (or EME2000) reference frame. This implementation is based on [1] and [2]
@@ -45,13 +44,11 @@ class IAU2006Precession[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val fromFr
    * Finds the precession matrix at a given date according to the IAU 2006 Precession model.
    */
   def rotationMatrix(epoch: Epoch) = {
-    // Julian centuries TT from the J2000.0 epoch
-    val t = epoch.inTimeStandard(TT).relativeTo(Epochs.J2000) / 36525.0
+    // Precession angles, shared with the other Earth orientation transforms at this epoch
+    val context = EarthOrientationContext(epoch)
 
-    Mat3.rotateX(arcSeconds(-IAU2006Precession.ε0)) dot
-      Mat3.rotateZ(arcSeconds(IAU2006Precession.ψA(t))) dot
-      Mat3.rotateX(arcSeconds(IAU2006Precession.ωA(t))) dot
-      Mat3.rotateZ(arcSeconds(-IAU2006Precession.χA(t)))
+    // R_X(-ε0) . R_Z(ψA) . R_X(ωA) . R_Z(-χA)
+    Mat3.rotateXZXZ(arcSeconds(-IAU2006Precession.ε0), arcSeconds(context.ψA), arcSeconds(context.ωA), arcSeconds(-context.χA))
   }
 
   def cost(epoch: Epoch) = 100.0
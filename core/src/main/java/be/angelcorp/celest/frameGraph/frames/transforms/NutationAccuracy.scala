@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph.frames.transforms
+
+import scala.math._
+
+/**
+ * Accuracy tier of an [[be.angelcorp.celest.frameGraph.frames.transforms.IAU2000Nutation]] series. All the terms of
+ * the series with an amplitude smaller than the threshold of the tier are dropped when the series is loaded.
+ *
+ * @param threshold Terms with all amplitudes below this threshold are dropped [arcseconds].
+ *
+ * @author Simon Billemont
+ */
+sealed abstract class NutationAccuracy(val threshold: Double) {
+
+  /**
+   * Check if a series term is retained in this accuracy tier.
+   *
+   * @param entry Term of the nutation series.
+   * @return True if the term is kept in the series.
+   */
+  def retains(entry: IAU2000NutationEntry) =
+    NutationAccuracy.amplitude(entry) >= threshold
+
+  /**
+   * Drop all the terms that are not required for this accuracy tier.
+   *
+   * @param coefficients Complete nutation series.
+   * @return The truncated nutation series.
+   */
+  def truncate(coefficients: List[IAU2000NutationEntry]): List[IAU2000NutationEntry] =
+    if (threshold <= 0.0) coefficients else coefficients.filter(retains)
+
+  /**
+   * Compute the error that is introduced by truncating a series according to this tier.
+   *
+   * @param coefficients Complete nutation series.
+   * @return Error budget of the truncated series.
+   */
+  def errorBudget(coefficients: List[IAU2000NutationEntry]): NutationErrorBudget =
+    NutationErrorBudget(coefficients.filterNot(retains))
+
+}
+
+object NutationAccuracy {
+
+  /** The complete series, no terms are dropped. */
+  case object Full extends NutationAccuracy(0.0)
+
+  /** Drops all terms with an amplitude below 0.1 µas, for an accuracy at the microarcsecond level. */
+  case object Microarcsecond extends NutationAccuracy(1E-7)
+
+  /** Drops all terms with an amplitude below 10 µas, for an accuracy at the milliarcsecond level. */
+  case object Milliarcsecond extends NutationAccuracy(1E-5)
+
+  /**
+   * Drops all terms with an amplitude below a user specified threshold.
+   *
+   * @param amplitude Terms with all amplitudes below this threshold are dropped [arcseconds].
+   */
+  case class Threshold(amplitude: Double) extends NutationAccuracy(amplitude)
+
+  /**
+   * The largest amplitude of a term over a century around J2000 (|t| &lt;= 1).
+   *
+   * @param entry Term of the nutation series.
+   * @return Largest amplitude in longitude or obliquity [arcseconds].
+   */
+  def amplitude(entry: IAU2000NutationEntry) = max(
+    hypot(abs(entry.ls) + abs(entry.lst), abs(entry.lc) + abs(entry.lct)),
+    hypot(abs(entry.os) + abs(entry.ost), abs(entry.oc) + abs(entry.oct))
+  )
+
+}
+
+/**
+ * The error introduced by dropping terms from a nutation series, valid over a century around J2000 (|t| &lt;= 1).
+ *
+ * @param droppedTerms Number of terms that were dropped.
+ * @param maxLongitude Upper bound on the error in the nutation in longitude (all dropped terms in phase) [arcseconds].
+ * @param maxObliquity Upper bound on the error in the nutation in obliquity (all dropped terms in phase) [arcseconds].
+ * @param rssLongitude Root-sum-square of the dropped amplitudes in longitude, a typical error [arcseconds].
+ * @param rssObliquity Root-sum-square of the dropped amplitudes in obliquity, a typical error [arcseconds].
+ *
+ * @author Simon Billemont
+ */
+case class NutationErrorBudget(droppedTerms: Int,
+                               maxLongitude: Double, maxObliquity: Double,
+                               rssLongitude: Double, rssObliquity: Double) {
+
+  override def toString =
+    f"NutationErrorBudget($droppedTerms dropped terms, Δψ <= ${maxLongitude * 1E3}%.4f mas (rss ${rssLongitude * 1E3}%.4f mas), Δε <= ${maxObliquity * 1E3}%.4f mas (rss ${rssObliquity * 1E3}%.4f mas))"
+
+}
+
+object NutationErrorBudget {
+
+  /**
+   * Compute the error budget of a set of dropped nutation terms.
+   *
+   * @param dropped Terms that are dropped from the nutation series.
+   * @return The error budget of the dropped terms.
+   */
+  def apply(dropped: List[IAU2000NutationEntry]): NutationErrorBudget = {
+    val longitude = dropped.map(e => hypot(abs(e.ls) + abs(e.lst), abs(e.lc) + abs(e.lct)))
+    val obliquity = dropped.map(e => hypot(abs(e.os) + abs(e.ost), abs(e.oc) + abs(e.oct)))
+    NutationErrorBudget(dropped.size,
+      longitude.sum, obliquity.sum,
+      sqrt(longitude.map(pow(_, 2)).sum), sqrt(obliquity.map(pow(_, 2)).sum))
+  }
+
+}
@@ -5,6 +5,8 @@ import be.angelcorp.celest.frameGraph.transformations.ConstantRotationTransformF
 import be.angelcorp.celest.math.geometry.Mat3
 import be.angelcorp.celest.time.Epoch
 import be.angelcorp.celest.data.eop.PoleProvider
+import be.angelcorp.celest.physics.Units._
+import be.angelcorp.celest.universe.Universe
 
 /**
  * Applies a polar motion transformation.
@@ -16,16 +18,36 @@ import be.angelcorp.celest.data.eop.PoleProvider
  * 1) D. Vallado et al. ,<b>"Implementation Issues Surrounding the New IAU Reference Systems for Astrodynamics"</b>, 16th AAS/AIAA Space Flight Mechanics Conference, Florida, January 2006<br/>
  * 2) G. Petit, B. Luzum (eds.).,<b>"IERS Conventions (2010)"</b>, IERS Technical Note 36, Frankfurt am Main: Verlag des Bundesamts für Kartographie und Geodäsie, 2010. 179 pp., ISBN 3-89888-989-6<br/>
  *
+ * @param eop        Provider of the CIP coordinates in the ITRS (polar motion) [rad].
+ * @param tioLocator Include the TIO locator s' in the transformation (reference [2] eqn 5.3).
+ *
  * @author Simon Billemont
  */
-class PolarMotion[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val fromFrame: F0, val toFrame: F1, val eop: PoleProvider)
+class PolarMotion[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val fromFrame: F0, val toFrame: F1, val eop: PoleProvider,
+                                                                val tioLocator: Boolean = false)(implicit universe: Universe)
   extends ConstantRotationTransformFactory[F0, F1] {
 
   def cost(epoch: Epoch) = 0
 
   def rotationMatrix(epoch: Epoch) = {
     val (x_p, y_p) = eop.polarCoordinatesOn(epoch)
-    Mat3.rotateX(-y_p) dot Mat3.rotateY(-x_p)
+    if (tioLocator)
+      Mat3.rotateXYZ(-y_p, -x_p, PolarMotion.s_prime(EarthOrientationContext(epoch).t))
+    else
+      Mat3.rotateY(-x_p).preRotateX(-y_p)
   }
 
 }
+
+object PolarMotion {
+
+  /**
+   * The TIO locator s', positioning the terrestrial intermediate origin on the equator of the CIP.
+   * See reference [2] eqn 5.13.
+   *
+   * @param t Julian centuries since the J2000 epoch in TT.
+   * @return The TIO locator s' [rad].
+   */
+  def s_prime(t: Double) = arcSeconds(-47E-6 * t)
+
+}
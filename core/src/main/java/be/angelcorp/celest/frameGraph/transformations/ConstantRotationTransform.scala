@@ -16,7 +16,7 @@
 
 package be.angelcorp.celest.frameGraph.transformations
 
-import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
+import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
 import be.angelcorp.celest.math.geometry.{Vec3, Mat3}
 import be.angelcorp.celest.math.rotation.Rotation
 import be.angelcorp.celest.math.rotation.RotationMatrix._
@@ -58,4 +58,67 @@ class ConstantRotationTransform[F0 <: ReferenceSystem, F1 <: ReferenceSystem, T
   override def transformVector(vector: Vec3): Vec3 =
     M * vector
 
-}
\ No newline at end of file
+  def transformPos(position: Vec3, result: Vec3): Unit =
+    M.dot(position, result)
+
+  def transformPosVel(position: Vec3, velocity: Vec3, resultPosition: Vec3, resultVelocity: Vec3): Unit = {
+    M.dot(position, resultPosition)
+    M.dot(velocity, resultVelocity)
+  }
+
+  def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3,
+                         resultPosition: Vec3, resultVelocity: Vec3, resultAcceleration: Vec3): Unit = {
+    M.dot(position, resultPosition)
+    M.dot(velocity, resultVelocity)
+    M.dot(acceleration, resultAcceleration)
+  }
+
+  def transformPos(positions: Array[Double], result: Array[Double]): Unit =
+    ConstantRotationTransform.rotate(M, positions, result)
+
+  def transformPosVel(positions: Array[Double], velocities: Array[Double],
+                      resultPosition: Array[Double], resultVelocity: Array[Double]): Unit = {
+    ConstantRotationTransform.rotate(M, positions, resultPosition)
+    ConstantRotationTransform.rotate(M, velocities, resultVelocity)
+  }
+
+  def transformPosVelAcc(positions: Array[Double], velocities: Array[Double], accelerations: Array[Double],
+                         resultPosition: Array[Double], resultVelocity: Array[Double], resultAcceleration: Array[Double]): Unit = {
+    ConstantRotationTransform.rotate(M, positions, resultPosition)
+    ConstantRotationTransform.rotate(M, velocities, resultVelocity)
+    ConstantRotationTransform.rotate(M, accelerations, resultAcceleration)
+  }
+
+  /** The inverse rotation (the transpose of M), without computing a new transform at the same epoch. */
+  override def inverse: ReferenceFrameTransform[F1, F0] =
+    new ConstantRotationTransform[F1, F0, ReferenceFrameTransformFactory[F1, F0]](M.transpose, epoch, factory.inverse)
+
+}
+
+object ConstantRotationTransform {
+
+  /**
+   * Multiply each of the packed vectors `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }` with the given matrix. The result
+   * array may be the same array as the input array.
+   *
+   * @param M       Matrix to apply to each vector.
+   * @param vectors Packed input vectors.
+   * @param result  Array in which the packed rotated vectors are stored.
+   */
+  def rotate(M: Mat3, vectors: Array[Double], result: Array[Double]): Unit = {
+    val m00 = M.m00; val m01 = M.m01; val m02 = M.m02
+    val m10 = M.m10; val m11 = M.m11; val m12 = M.m12
+    val m20 = M.m20; val m21 = M.m21; val m22 = M.m22
+    var i = 0
+    while (i < vectors.length) {
+      val x = vectors(i)
+      val y = vectors(i + 1)
+      val z = vectors(i + 2)
+      result(i)     = m00 * x + m01 * y + m02 * z
+      result(i + 1) = m10 * x + m11 * y + m12 * z
+      result(i + 2) = m20 * x + m21 * y + m22 * z
+      i += 3
+    }
+  }
+
+}
@@ -1,6 +1,6 @@
 package be.angelcorp.celest.frameGraph.transformations
 
-import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransformFactory, ReferenceSystem}
+import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransformFactory, ReferenceSystem, TransformAccuracy}
 import be.angelcorp.celest.math.geometry.Mat3
 import be.angelcorp.celest.time.Epoch
 
@@ -17,9 +17,11 @@ trait ConstantRotationTransformFactory[F0 <: ReferenceSystem, F1 <: ReferenceSys
   /**
    * Factory that generates the inverse transformation from F1 => F0 by inverting the rotation matrix (= transpose)
    */
-  class InverseConstantRotationTransformFactory extends BasicReferenceFrameTransformFactory[F1, F0] {
+  class InverseConstantRotationTransformFactory extends BasicReferenceFrameTransformFactory[F1, F0] with TransformAccuracy {
     def cost(epoch: Epoch) = ConstantRotationTransformFactory.this.cost(epoch)
 
+    def error(epoch: Epoch) = TransformAccuracy.of(ConstantRotationTransformFactory.this, epoch)
+
     def transform(epoch: Epoch) =
       new ConstantRotationTransform[F1, F0, InverseConstantRotationTransformFactory](rotationMatrix(epoch).transpose, epoch, this)
 
@@ -15,7 +15,7 @@
  */
 package be.angelcorp.celest.frameGraph.transformations
 
-import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
+import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
 import be.angelcorp.celest.math.geometry.Vec3
 import be.angelcorp.celest.math.rotation.Rotation
 import be.angelcorp.celest.state.{Orbit, PosVel}
@@ -101,8 +101,9 @@ class KinematicTransformation[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val
    * </p>
    */
   override def transformPos(position: Vec3) = {
-    val p_f01 = position + parameters.translation
-    parameters.rotation.applyTo(p_f01)
+    val p_f1 = Vec3.zero
+    transformPos(position, p_f1)
+    p_f1
   }
 
   /**
@@ -127,13 +128,9 @@ class KinematicTransformation[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val
    * </p>
    */
   override def transformPosVel(position: Vec3, velocity: Vec3) = {
-    val p_f01 = position + parameters.translation
-    val p_f1 = parameters.rotation.applyTo(p_f01)
-
-    val cross = parameters.rotationRate.cross(p_f01)
-    val v_f01 = velocity + parameters.velocity + cross
-    val v_f1 = parameters.rotation.applyTo(v_f01)
-
+    val p_f1 = Vec3.zero
+    val v_f1 = Vec3.zero
+    transformPosVel(position, velocity, p_f1, v_f1)
     (p_f1, v_f1)
   }
 
@@ -163,30 +160,196 @@ class KinematicTransformation[F0 <: ReferenceSystem, F1 <: ReferenceSystem](val
    * </p>
    */
   override def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3): (Vec3, Vec3, Vec3) = {
-    val p_f01 = position + parameters.translation
-    val p_f1 = parameters.rotation.applyTo(p_f01)
+    val p_f1 = Vec3.zero
+    val v_f1 = Vec3.zero
+    val a_f1 = Vec3.zero
+    transformPosVelAcc(position, velocity, acceleration, p_f1, v_f1, a_f1)
+    (p_f1, v_f1, a_f1)
+  }
 
-    val cross = parameters.rotationRate.cross(p_f01)
-    val v_f01 = velocity + parameters.velocity + cross
-    val v_f1 = parameters.rotation.applyTo(v_f01)
+  override def transformVector(vector: Vec3): Vec3 = {
+    parameters.rotation.applyTo(vector)
+  }
 
-    // a_observed = \vec{a}
-    val observed = acceleration + parameters.acceleration
-    // a_coriolis = 2 \vec{\omega} \times \vec{v}
-    val coriolis = (parameters.rotationRate * 2).cross(velocity + parameters.velocity)
-    // a_euler = \vec{\alpha} \times \vec{r}
-    val euler = parameters.rotationAcceleration.cross(p_f01)
-    // a_centripetal = omega \times ( \vec{\omega} \times \vec{r} )
-    val centripetal = parameters.rotationRate.cross(parameters.rotationRate.cross(p_f01))
+  /** Rotation matrix equivalent of the parameter rotation, used by the bulk and result buffer transforms. */
+  private lazy val R = parameters.rotation.toMatrix.mtx
 
-    // a = R [ a_observed + a_coriolis + a_euler + a_centripetal ]
-    val a_f1 = parameters.rotation.applyTo(observed + coriolis + euler + centripetal)
+  /** Store R [x, y, z] in the result vector. */
+  private def rotate(x: Double, y: Double, z: Double, result: Vec3): Unit = {
+    val R = this.R
+    result.x = R.m00 * x + R.m01 * y + R.m02 * z
+    result.y = R.m10 * x + R.m11 * y + R.m12 * z
+    result.z = R.m20 * x + R.m21 * y + R.m22 * z
+  }
 
-    (p_f1, v_f1, a_f1)
+  /**
+   * Result buffer version of [[KinematicTransformation#transformPos(be.angelcorp.celest.math.geometry.Vec3)]], using
+   * the same equations but without creating any intermediate vectors.
+   */
+  override def transformPos(position: Vec3, result: Vec3): Unit = {
+    // r + dr
+    val t = parameters.translation
+    val px = position.x + t.x
+    val py = position.y + t.y
+    val pz = position.z + t.z
+
+    rotate(px, py, pz, result)
   }
 
-  override def transformVector(vector: Vec3): Vec3 = {
-    parameters.rotation.applyTo(vector)
+  /**
+   * Result buffer version of [[KinematicTransformation#transformPosVel(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]],
+   * using the same equations but without creating any intermediate vectors.
+   */
+  override def transformPosVel(position: Vec3, velocity: Vec3, resultPosition: Vec3, resultVelocity: Vec3): Unit = {
+    val t = parameters.translation
+    val dv = parameters.velocity
+    val w = parameters.rotationRate
+    // r + dr
+    val px = position.x + t.x
+    val py = position.y + t.y
+    val pz = position.z + t.z
+    // v + dv + w x (r + dr)
+    val vx = velocity.x + dv.x + (w.y * pz - py * w.z)
+    val vy = velocity.y + dv.y + (w.z * px - pz * w.x)
+    val vz = velocity.z + dv.z + (w.x * py - px * w.y)
+
+    rotate(px, py, pz, resultPosition)
+    rotate(vx, vy, vz, resultVelocity)
   }
 
+  /**
+   * Result buffer version of [[KinematicTransformation#transformPosVelAcc(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]],
+   * using the same equations but without creating any intermediate vectors.
+   */
+  override def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3,
+                                  resultPosition: Vec3, resultVelocity: Vec3, resultAcceleration: Vec3): Unit = {
+    val t = parameters.translation
+    val dv = parameters.velocity
+    val da = parameters.acceleration
+    val w = parameters.rotationRate
+    val α = parameters.rotationAcceleration
+    // r + dr
+    val px = position.x + t.x
+    val py = position.y + t.y
+    val pz = position.z + t.z
+    // v + dv
+    val ux = velocity.x + dv.x
+    val uy = velocity.y + dv.y
+    val uz = velocity.z + dv.z
+    // \vec{\omega} \times \vec{r}
+    val wrx = w.y * pz - py * w.z
+    val wry = w.z * px - pz * w.x
+    val wrz = w.x * py - px * w.y
+    // a_observed + a_coriolis + a_euler + a_centripetal
+    val fx = acceleration.x + da.x + 2 * (w.y * uz - uy * w.z) + (α.y * pz - py * α.z) + (w.y * wrz - wry * w.z)
+    val fy = acceleration.y + da.y + 2 * (w.z * ux - uz * w.x) + (α.z * px - pz * α.x) + (w.z * wrx - wrz * w.x)
+    val fz = acceleration.z + da.z + 2 * (w.x * uy - ux * w.y) + (α.x * py - px * α.y) + (w.x * wry - wrx * w.y)
+
+    rotate(px, py, pz, resultPosition)
+    rotate(ux + wrx, uy + wry, uz + wrz, resultVelocity)
+    rotate(fx, fy, fz, resultAcceleration)
+  }
+
+  /**
+   * Bulk version of [[KinematicTransformation#transformPos(be.angelcorp.celest.math.geometry.Vec3)]], using the same
+   * equations as the single vector version.
+   */
+  override def transformPos(positions: Array[Double], result: Array[Double]): Unit = {
+    val R = this.R
+    val tx = parameters.translation.x; val ty = parameters.translation.y; val tz = parameters.translation.z
+    var i = 0
+    while (i < positions.length) {
+      val px = positions(i)     + tx
+      val py = positions(i + 1) + ty
+      val pz = positions(i + 2) + tz
+      result(i)     = R.m00 * px + R.m01 * py + R.m02 * pz
+      result(i + 1) = R.m10 * px + R.m11 * py + R.m12 * pz
+      result(i + 2) = R.m20 * px + R.m21 * py + R.m22 * pz
+      i += 3
+    }
+  }
+
+  /**
+   * Bulk version of [[KinematicTransformation#transformPosVel(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]],
+   * using the same equations as the single vector version.
+   */
+  override def transformPosVel(positions: Array[Double], velocities: Array[Double],
+                               resultPosition: Array[Double], resultVelocity: Array[Double]): Unit = {
+    val R = this.R
+    val tx = parameters.translation.x;  val ty = parameters.translation.y;  val tz = parameters.translation.z
+    val dvx = parameters.velocity.x;    val dvy = parameters.velocity.y;    val dvz = parameters.velocity.z
+    val wx = parameters.rotationRate.x; val wy = parameters.rotationRate.y; val wz = parameters.rotationRate.z
+    var i = 0
+    while (i < positions.length) {
+      // r + dr
+      val px = positions(i)     + tx
+      val py = positions(i + 1) + ty
+      val pz = positions(i + 2) + tz
+      // v + dv + w x (r + dr)
+      val vx = velocities(i)     + dvx + (wy * pz - py * wz)
+      val vy = velocities(i + 1) + dvy + (wz * px - pz * wx)
+      val vz = velocities(i + 2) + dvz + (wx * py - px * wy)
+
+      resultPosition(i)     = R.m00 * px + R.m01 * py + R.m02 * pz
+      resultPosition(i + 1) = R.m10 * px + R.m11 * py + R.m12 * pz
+      resultPosition(i + 2) = R.m20 * px + R.m21 * py + R.m22 * pz
+      resultVelocity(i)     = R.m00 * vx + R.m01 * vy + R.m02 * vz
+      resultVelocity(i + 1) = R.m10 * vx + R.m11 * vy + R.m12 * vz
+      resultVelocity(i + 2) = R.m20 * vx + R.m21 * vy + R.m22 * vz
+      i += 3
+    }
+  }
+
+  /**
+   * Bulk version of [[KinematicTransformation#transformPosVelAcc(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]],
+   * using the same equations as the single vector version.
+   */
+  override def transformPosVelAcc(positions: Array[Double], velocities: Array[Double], accelerations: Array[Double],
+                                  resultPosition: Array[Double], resultVelocity: Array[Double], resultAcceleration: Array[Double]): Unit = {
+    val R = this.R
+    val tx = parameters.translation.x;          val ty = parameters.translation.y;          val tz = parameters.translation.z
+    val dvx = parameters.velocity.x;            val dvy = parameters.velocity.y;            val dvz = parameters.velocity.z
+    val dax = parameters.acceleration.x;        val day = parameters.acceleration.y;        val daz = parameters.acceleration.z
+    val wx = parameters.rotationRate.x;         val wy = parameters.rotationRate.y;         val wz = parameters.rotationRate.z
+    val ax = parameters.rotationAcceleration.x; val ay = parameters.rotationAcceleration.y; val az = parameters.rotationAcceleration.z
+    var i = 0
+    while (i < positions.length) {
+      // r + dr
+      val px = positions(i)     + tx
+      val py = positions(i + 1) + ty
+      val pz = positions(i + 2) + tz
+      // v + dv
+      val ux = velocities(i)     + dvx
+      val uy = velocities(i + 1) + dvy
+      val uz = velocities(i + 2) + dvz
+      // \vec{\omega} \times \vec{r}
+      val wrx = wy * pz - py * wz
+      val wry = wz * px - pz * wx
+      val wrz = wx * py - px * wy
+      // v + dv + w x (r + dr)
+      val vx = ux + wrx
+      val vy = uy + wry
+      val vz = uz + wrz
+      // a_observed + a_coriolis + a_euler + a_centripetal
+      val fx = accelerations(i)     + dax + 2 * (wy * uz - uy * wz) + (ay * pz - py * az) + (wy * wrz - wry * wz)
+      val fy = accelerations(i + 1) + day + 2 * (wz * ux - uz * wx) + (az * px - pz * ax) + (wz * wrx - wrz * wx)
+      val fz = accelerations(i + 2) + daz + 2 * (wx * uy - ux * wy) + (ax * py - px * ay) + (wx * wry - wrx * wy)
+
+      resultPosition(i)         = R.m00 * px + R.m01 * py + R.m02 * pz
+      resultPosition(i + 1)     = R.m10 * px + R.m11 * py + R.m12 * pz
+      resultPosition(i + 2)     = R.m20 * px + R.m21 * py + R.m22 * pz
+      resultVelocity(i)         = R.m00 * vx + R.m01 * vy + R.m02 * vz
+      resultVelocity(i + 1)     = R.m10 * vx + R.m11 * vy + R.m12 * vz
+      resultVelocity(i + 2)     = R.m20 * vx + R.m21 * vy + R.m22 * vz
+      resultAcceleration(i)     = R.m00 * fx + R.m01 * fy + R.m02 * fz
+      resultAcceleration(i + 1) = R.m10 * fx + R.m11 * fy + R.m12 * fz
+      resultAcceleration(i + 2) = R.m20 * fx + R.m21 * fy + R.m22 * fz
+      i += 3
+    }
+  }
+
+  /** The transform with the inverted parameters, without computing the parameters again at the same epoch. */
+  override def inverse: ReferenceFrameTransform[F1, F0] =
+    new KinematicTransformation[F1, F0](factory.inverse, epoch, parameters.inverse)
+
 }
@@ -18,6 +18,7 @@ package be.angelcorp.celest.frameGraph.transformations
 import be.angelcorp.celest.frameGraph.BasicReferenceFrameTransformFactory
 import be.angelcorp.celest.frameGraph.ReferenceFrameTransform
 import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.frameGraph.TransformAccuracy
 import be.angelcorp.celest.math.geometry.Vec3
 import be.angelcorp.celest.math.rotation.Rotation
 import be.angelcorp.celest.time.Epoch
@@ -66,43 +67,22 @@ trait KinematicTransformationFactory[F0 <: ReferenceSystem, F1 <: ReferenceSyste
  * @author Simon Billemont
  */
 class ReferenceFrameTransformInverseFactory[F0 <: ReferenceSystem, F1 <: ReferenceSystem](factory: KinematicTransformationFactory[F0, F1])
-  extends BasicReferenceFrameTransformFactory[F1, F0] {
+  extends BasicReferenceFrameTransformFactory[F1, F0] with TransformAccuracy {
 
   /** {@inheritDoc} */
   override def cost(epoch: Epoch): Double =
     factory.cost(epoch) + 198 // 3 * 22 vector operations = 3*22*3 operations roughly
 
+  /** The inverse transform is as accurate as the original transform. */
+  def error(epoch: Epoch): Double = TransformAccuracy.of(factory, epoch)
+
   /** {@inheritDoc} */
   override def transform(epoch: Epoch): ReferenceFrameTransform[F1, F0] = {
-    // Calculate the non-inverted parameters
+    // Calculate the non-inverted parameters, and invert them
     val param = factory.calculateParameters(epoch)
 
-    // Transform to inverted parameters
-
-    // r* = R (r + dr)
-    // r* - R dr = R r
-    // iR r* - dr = r
-    // iR (r* - R dr) = r
-    val inverse_translation = -param.rotation.applyTo(param.translation)
-    val inverse_orientation = param.rotation.inverse()
-
-    // v* = R [ (v + dv) + w x (r + dr) ]
-    // iR v* = (v + dv) + w x (r + dr)
-    // iR v* - dv - w x (r + dr) = v
-    // iR [ (v* - R dV) - R w x (r + dr) ] = v
-    val inverse_velocity = -param.rotation.applyTo(param.velocity)
-    val inverse_orientationRate = param.rotation.applyInverseTo(-param.rotationRate)
-
-    val inverse_accelleration = -param.rotation.applyTo(param.acceleration)
-    val inverse_orientationAcelleration = param.rotation.applyInverseTo(-param.rotationAcceleration)
-
-    // Wrap the inverted parameters in a TransformationParameters
-    val inverted_param = new TransformationParameters(epoch,
-      inverse_translation, inverse_velocity, inverse_accelleration,
-      inverse_orientation, inverse_orientationRate, inverse_orientationAcelleration)
-
     // Create the transformation
-    new KinematicTransformation(this, epoch, inverted_param)
+    new KinematicTransformation(this, epoch, param.inverse)
   }
 
   /** {@inheritDoc} */
@@ -137,4 +117,35 @@ case class TransformationParameters(epoch: Epoch,
                                     acceleration: Vec3,
                                     rotation: Rotation,
                                     rotationRate: Vec3,
-                                    rotationAcceleration: Vec3)
\ No newline at end of file
+                                    rotationAcceleration: Vec3) {
+
+  /**
+   * The parameters of the inverse transformation, from the destination frame back to the origin frame.
+   *
+   * @return The inverted transformation parameters.
+   */
+  def inverse: TransformationParameters = {
+    // r* = R (r + dr)
+    // r* - R dr = R r
+    // iR r* - dr = r
+    // iR (r* - R dr) = r
+    val inverse_translation = -rotation.applyTo(translation)
+    val inverse_orientation = rotation.inverse()
+
+    // v* = R [ (v + dv) + w x (r + dr) ]
+    // iR v* = (v + dv) + w x (r + dr)
+    // iR v* - dv - w x (r + dr) = v
+    // iR [ (v* - R dV) - R w x (r + dr) ] = v
+    val inverse_velocity = -rotation.applyTo(velocity)
+    val inverse_orientationRate = rotation.applyInverseTo(-rotationRate)
+
+    val inverse_accelleration = -rotation.applyTo(acceleration)
+    val inverse_orientationAcelleration = rotation.applyInverseTo(-rotationAcceleration)
+
+    // Wrap the inverted parameters in a TransformationParameters
+    new TransformationParameters(epoch,
+      inverse_translation, inverse_velocity, inverse_accelleration,
+      inverse_orientation, inverse_orientationRate, inverse_orientationAcelleration)
+  }
+
+}
@@ -16,7 +16,7 @@
 
 package be.angelcorp.celest.frameGraph.transformations
 
-import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
+import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransform, ReferenceFrameTransform, ReferenceFrameTransformFactory, ReferenceSystem}
 import be.angelcorp.celest.math.geometry.Vec3
 import be.angelcorp.celest.math.rotation.Rotation
 import be.angelcorp.celest.state.{PosVel, Orbit}
@@ -56,4 +56,52 @@ class TranslationTransform[F0 <: ReferenceSystem, F1 <: ReferenceSystem, T <: Re
   override def transformVector(vector: Vec3): Vec3 =
     vector
 
-}
\ No newline at end of file
+  def transformPos(position: Vec3, result: Vec3): Unit = {
+    result.x = position.x + dx.x
+    result.y = position.y + dx.y
+    result.z = position.z + dx.z
+  }
+
+  def transformPosVel(position: Vec3, velocity: Vec3, resultPosition: Vec3, resultVelocity: Vec3): Unit = {
+    transformPos(position, resultPosition)
+    resultVelocity.copyOf(velocity)
+  }
+
+  def transformPosVelAcc(position: Vec3, velocity: Vec3, acceleration: Vec3,
+                         resultPosition: Vec3, resultVelocity: Vec3, resultAcceleration: Vec3): Unit = {
+    transformPosVel(position, velocity, resultPosition, resultVelocity)
+    resultAcceleration.copyOf(acceleration)
+  }
+
+  def transformPos(positions: Array[Double], result: Array[Double]): Unit = {
+    val dx = this.dx.x
+    val dy = this.dx.y
+    val dz = this.dx.z
+    var i = 0
+    while (i < positions.length) {
+      result(i)     = positions(i)     + dx
+      result(i + 1) = positions(i + 1) + dy
+      result(i + 2) = positions(i + 2) + dz
+      i += 3
+    }
+  }
+
+  def transformPosVel(positions: Array[Double], velocities: Array[Double],
+                      resultPosition: Array[Double], resultVelocity: Array[Double]): Unit = {
+    transformPos(positions, resultPosition)
+    if (velocities ne resultVelocity)
+      System.arraycopy(velocities, 0, resultVelocity, 0, velocities.length)
+  }
+
+  def transformPosVelAcc(positions: Array[Double], velocities: Array[Double], accelerations: Array[Double],
+                         resultPosition: Array[Double], resultVelocity: Array[Double], resultAcceleration: Array[Double]): Unit = {
+    transformPosVel(positions, velocities, resultPosition, resultVelocity)
+    if (accelerations ne resultAcceleration)
+      System.arraycopy(accelerations, 0, resultAcceleration, 0, accelerations.length)
+  }
+
+  /** The inverse translation, without computing a new transform at the same epoch. */
+  override def inverse: ReferenceFrameTransform[F1, F0] =
+    new TranslationTransform[F1, F0, ReferenceFrameTransformFactory[F1, F0]](-dx, epoch, factory.inverse)
+
+}
@@ -1,6 +1,6 @@
 package be.angelcorp.celest.frameGraph.transformations
 
-import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransformFactory, ReferenceSystem}
+import be.angelcorp.celest.frameGraph.{BasicReferenceFrameTransformFactory, ReferenceSystem, TransformAccuracy}
 import be.angelcorp.celest.math.geometry.Vec3
 import be.angelcorp.celest.time.Epoch
 
@@ -17,9 +17,11 @@ trait TranslationalTransformFactory[F0 <: ReferenceSystem, F1 <: ReferenceSystem
   /**
    * Factory that generates the inverse transformation from F1 => F0 by inverting the rotation matrix (= transpose)
    */
-  class InverseTranslationalTransformFactory extends BasicReferenceFrameTransformFactory[F1, F0] {
+  class InverseTranslationalTransformFactory extends BasicReferenceFrameTransformFactory[F1, F0] with TransformAccuracy {
     def cost(epoch: Epoch) = TranslationalTransformFactory.this.cost(epoch)
 
+    def error(epoch: Epoch) = TransformAccuracy.of(TranslationalTransformFactory.this, epoch)
+
     def transform(epoch: Epoch) =
       new TranslationTransform[F1, F0, InverseTranslationalTransformFactory](-translation(epoch), epoch, this)
 
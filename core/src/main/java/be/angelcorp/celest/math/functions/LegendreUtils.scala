@@ -38,6 +38,11 @@ object LegendreUtils {
    * Computes the associated Legendre function of the first kind P<sub>l,m</sub>(x)
    *
    * <p>
+   * This function includes the Condon-Shortley phase, and is not normalized. It is intended for low degrees, see
+   * [[be.angelcorp.celest.math.functions.NormalizedLegendre]] to evaluate all the functions up to a (high) degree.
+   * </p>
+   *
+   * <p>
    * Based on NUMERICAL RECIPES IN FORTRAN 77: THE ART OF SCIENTIFIC COMPUTING (ISBN 0-521-43064-X)
    * chapter Spherical Harmonics 6.8 p 247
    * </p>
@@ -51,7 +56,7 @@ object LegendreUtils {
    */
   def associatedLegendreFunctionOfTheFirstKind(l: Int, m: Int, x: Double): Double = {
     if (m < 0) throw new IllegalArgumentException(s"Bad arguments given (m < 0) where m=$m")
-    if (m > 1) throw new IllegalArgumentException(s"Bad arguments given (m > 1) where m=$m")
+    if (m > l) throw new IllegalArgumentException(s"Bad arguments given (m > l) where m=$m and l=$l")
     if (abs(x) > 1) throw new IllegalArgumentException(s"Bad arguments given (abs(x) > 1) where x=$x")
 
     var fact: Double = 0.0
@@ -267,7 +272,8 @@ object LegendreUtils {
     associatedLegendreFunctionOfTheFirstKind(l, m, x)
 
   /**
-   * Computes the value of a Legendre polynomial P<sub>l</sub>(x)
+   * Computes the value of a Legendre polynomial P<sub>l</sub>(x), using the Bonnet recursion (without constructing
+   * the polynomial itself).
    *
    * @param l
 	 * Order of the Legendre function
@@ -275,7 +281,7 @@ object LegendreUtils {
 	 * Point of evaluations, -1 <= x <= 1
    */
   def legendrePolynomial(l: Int, x: Double): Double =
-    PolynomialsUtils.createLegendrePolynomial(l).value(x)
+    associatedLegendreFunctionOfTheFirstKind(l, 0, x)
 
   /**
    * Computes the value of a Legendre polynomial P<sub>l</sub>(x)
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.math.functions
+
+/**
+ * Evaluates all the fully normalized associated Legendre functions \( \bar{P}_{n,m}(\sin \phi) \) up to a maximum
+ * degree in a single pass, and optionally their derivatives with respect to the latitude \( \phi \).
+ * <p>
+ * The functions are normalized as is common in geodesy (without the Condon-Shortley phase):
+ * $$ \bar{P}_{n,m} = \sqrt{ (2 - \delta_{0,m}) (2n+1) \frac{(n-m)!}{(n+m)!} } P_{n,m} $$
+ * </p>
+ * <p>
+ * The values are computed using the standard forward column recursion:
+ * $$
+ * \begin{array}{rl}
+ * \bar{P}_{m,m}   = & \sqrt{ \frac{2m+1}{2m} } \cos \phi \bar{P}_{m-1,m-1} \\
+ * \bar{P}_{n,m}   = & a_{n,m} \sin \phi \bar{P}_{n-1,m} - b_{n,m} \bar{P}_{n-2,m}
+ * \end{array}
+ * $$
+ * The recursion is run on \( 10^{-280} \bar{P}_{n,m} / \cos^m \phi \) and the factor \( 10^{280} \cos^m \phi \) is
+ * only applied when storing the result, so that the sectoral terms do not underflow before the recursion is complete
+ * (Holmes and Featherstone, 2002). Terms that are too small to be represented are flushed to zero, and the recursion
+ * remains accurate beyond degree 2700 at all latitudes, including the poles.
+ * </p>
+ * <p>
+ * The derivatives are evaluated without division by \( \cos \phi \), so they are also valid at the poles:
+ * $$ \frac{d\bar{P}_{n,m}}{d\phi} = c_{n,m} \bar{P}_{n,m+1} - d_{n,m} \bar{P}_{n,m-1} $$
+ * </p>
+ * <p>
+ * All the recursion coefficients are computed once, when constructing the instance. The results are stored in
+ * caller-provided triangular arrays where the value for (n, m) is stored at [[NormalizedLegendre#index]](n, m), so no
+ * memory is allocated while evaluating. An instance has no mutable state and can be shared between threads.
+ * </p>
+ * <p>
+ * References:
+ * </p>
+ * <ul>
+ * <li>S.A. Holmes and W.E. Featherstone, <b>"A unified approach to the Clenshaw summation and the recursive
+ * computation of very high degree and order normalised associated Legendre functions"</b>, Journal of Geodesy 76,
+ * 279-299, 2002</li>
+ * </ul>
+ *
+ * @param degree Maximum degree (and order) of the functions to evaluate.
+ *
+ * @author Simon Billemont
+ */
+class NormalizedLegendre(val degree: Int) {
+  require(degree >= 0, s"Degree must be positive, but was $degree")
+
+  /** Number of elements in the triangular result arrays. */
+  val size = NormalizedLegendre.index(degree, degree) + 1
+
+  /** Sectoral recursion coefficients, sqrt((2m+1)/(2m)) (sqrt(3) for m = 1). */
+  private val sectoral = new Array[Double](degree + 1)
+  /** Column recursion coefficients a_{n,m} and b_{n,m}. */
+  private val a = new Array[Double](size)
+  private val b = new Array[Double](size)
+  /** Derivative coefficients c_{n,m} and d_{n,m}. */
+  private val c = new Array[Double](size)
+  private val d = new Array[Double](size)
+
+  for (m <- 1 to degree)
+    sectoral(m) = if (m == 1) math.sqrt(3.0) else math.sqrt((2.0 * m + 1.0) / (2.0 * m))
+
+  for (n <- 0 to degree; m <- 0 to n) {
+    val k = index(n, m)
+    val nd = n.toDouble
+    val md = m.toDouble
+    if (n > m) {
+      a(k) = math.sqrt((2 * nd - 1) * (2 * nd + 1) / ((nd - md) * (nd + md)))
+      b(k) = if (n == m + 1) 0.0 else math.sqrt((2 * nd + 1) * (nd + md - 1) * (nd - md - 1) / ((nd - md) * (nd + md) * (2 * nd - 3)))
+    }
+    c(k) = if (m == 0) math.sqrt(nd * (nd + 1) / 2) else math.sqrt((nd - md) * (nd + md + 1)) / 2
+    d(k) = if (m == 0) 0.0 else if (m == 1) math.sqrt(nd * (nd + 1) / 2) else math.sqrt((nd + md) * (nd - md + 1)) / 2
+  }
+
+  /** Index of the function of degree n and order m in the result arrays. */
+  def index(n: Int, m: Int) = NormalizedLegendre.index(n, m)
+
+  /** Create a new array that can hold the values of all the functions. */
+  def newArray = new Array[Double](size)
+
+  /**
+   * Evaluate all the functions at the given latitude.
+   *
+   * @param φ Latitude [rad].
+   * @param p Array in which the function values are stored, p(index(n, m)) = \( \bar{P}_{n,m}(\sin \phi) \).
+   */
+  def compute(φ: Double, p: Array[Double]) {
+    compute(math.sin(φ), math.cos(φ), p)
+  }
+
+  /**
+   * Evaluate all the functions at the given latitude.
+   *
+   * @param sinφ Sine of the latitude, the argument of the functions.
+   * @param cosφ Cosine of the latitude (positive).
+   * @param p    Array in which the function values are stored, p(index(n, m)) = \( \bar{P}_{n,m}(\sin \phi) \).
+   */
+  def compute(sinφ: Double, cosφ: Double, p: Array[Double]) {
+    require(p.length >= size, s"Expected an array of at least $size elements, but was ${p.length}")
+    val t = sinφ
+    // Scaled sectoral term 1E-280 P_{m,m} / cos^m
+    var pmm = NormalizedLegendre.scale
+    // 1E280 cos^m
+    var um = 1.0 / NormalizedLegendre.scale
+    var m = 0
+    while (m <= degree) {
+      if (m > 0) {
+        pmm *= sectoral(m)
+        um *= cosφ
+      }
+      var k = index(m, m)
+      p(k) = pmm * um
+
+      var p2 = 0.0
+      var p1 = pmm
+      var n = m + 1
+      while (n <= degree) {
+        k += n
+        val pn = a(k) * t * p1 - b(k) * p2
+        p(k) = pn * um
+        p2 = p1
+        p1 = pn
+        n += 1
+      }
+      m += 1
+    }
+  }
+
+  /**
+   * Evaluate all the functions and their derivatives with respect to the latitude at the given latitude.
+   *
+   * @param sinφ Sine of the latitude, the argument of the functions.
+   * @param cosφ Cosine of the latitude (positive).
+   * @param p    Array in which the function values are stored, p(index(n, m)) = \( \bar{P}_{n,m}(\sin \phi) \).
+   * @param dp   Array in which the derivatives are stored, dp(index(n, m)) = \( d\bar{P}_{n,m}(\sin \phi) / d\phi \).
+   */
+  def compute(sinφ: Double, cosφ: Double, p: Array[Double], dp: Array[Double]) {
+    require(dp.length >= size, s"Expected an array of at least $size elements, but was ${dp.length}")
+    compute(sinφ, cosφ, p)
+    var n = 0
+    while (n <= degree) {
+      var k = index(n, 0)
+      var m = 0
+      while (m <= n) {
+        val up = if (m < n) c(k) * p(k + 1) else 0.0
+        val down = if (m > 0) d(k) * p(k - 1) else 0.0
+        dp(k) = up - down
+        k += 1
+        m += 1
+      }
+      n += 1
+    }
+  }
+
+}
+
+object NormalizedLegendre {
+
+  /** Scale factor of the recursion terms, to extend their range beyond the range of a double. */
+  private val scale = 1E-280
+
+  /** Index of the function of degree n and order m in a triangular array. */
+  def index(n: Int, m: Int) = n * (n + 1) / 2 + m
+
+  /**
+   * Normalization factor between the fully normalized and the conventional associated Legendre functions (without
+   * the Condon-Shortley phase), \( \bar{P}_{n,m} = N_{n,m} P_{n,m} \).
+   *
+   * @param n Degree of the function.
+   * @param m Order of the function.
+   * @return The normalization factor \( N_{n,m} \).
+   */
+  def normalization(n: Int, m: Int) = {
+    // (n-m)!/(n+m)!
+    var ratio = 1.0
+    for (i <- n - m + 1 to n + m)
+      ratio /= i
+    math.sqrt((if (m == 0) 1.0 else 2.0) * (2 * n + 1) * ratio)
+  }
+
+}
@@ -170,6 +170,57 @@ class Mat3(var m00: Double, var m01: Double, var m02: Double,
     result.m20 = m20; result.m21 = m21; result.m22 = m22
   }
 
+  /**
+   * Rotate this matrix around the first axis, replacing it by R_X(angle) . this (see [[Mat3.rotateX]]). Only the
+   * affected rows are updated, no rotation matrix is created.
+   *
+   * @param angle Rotation angle [rad]
+   * @return This matrix.
+   */
+  def preRotateX(angle: Double): Mat3 = {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    val a10 = c * m10 + s * m20; val a11 = c * m11 + s * m21; val a12 = c * m12 + s * m22
+    val a20 = c * m20 - s * m10; val a21 = c * m21 - s * m11; val a22 = c * m22 - s * m12
+    m10 = a10; m11 = a11; m12 = a12
+    m20 = a20; m21 = a21; m22 = a22
+    this
+  }
+
+  /**
+   * Rotate this matrix around the second axis, replacing it by R_Y(angle) . this (see [[Mat3.rotateY]]). Only the
+   * affected rows are updated, no rotation matrix is created.
+   *
+   * @param angle Rotation angle [rad]
+   * @return This matrix.
+   */
+  def preRotateY(angle: Double): Mat3 = {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    val a00 = c * m00 - s * m20; val a01 = c * m01 - s * m21; val a02 = c * m02 - s * m22
+    val a20 = s * m00 + c * m20; val a21 = s * m01 + c * m21; val a22 = s * m02 + c * m22
+    m00 = a00; m01 = a01; m02 = a02
+    m20 = a20; m21 = a21; m22 = a22
+    this
+  }
+
+  /**
+   * Rotate this matrix around the third axis, replacing it by R_Z(angle) . this (see [[Mat3.rotateZ]]). Only the
+   * affected rows are updated, no rotation matrix is created.
+   *
+   * @param angle Rotation angle [rad]
+   * @return This matrix.
+   */
+  def preRotateZ(angle: Double): Mat3 = {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    val a00 = c * m00 + s * m10; val a01 = c * m01 + s * m11; val a02 = c * m02 + s * m12
+    val a10 = c * m10 - s * m00; val a11 = c * m11 - s * m01; val a12 = c * m12 - s * m02
+    m00 = a00; m01 = a01; m02 = a02
+    m10 = a10; m11 = a11; m12 = a12
+    this
+  }
+
   def determinant = {
     + m00 * (m11 * m22 - m12 * m21)
     + m01 * (m12 * m20 - m10 * m22)
@@ -384,7 +435,7 @@ object Mat3 {
    * @param angle Rotation angle [rad]
    * @return Rotation matrix around the first (X) axis.
    */
-  def rotateX(angle: Double) = {
+  def rotateX(angle: Double): Mat3 = {
     val s = math.sin(angle)
     val c = math.cos(angle)
     new Mat3( 1,  0,  0,
@@ -392,6 +443,15 @@ object Mat3 {
               0, -s,  c )
   }
 
+  /** Rotation around the first axis (see [[Mat3.rotateX(angle:Double)*]]), stored in the given matrix. */
+  def rotateX(angle: Double, result: Mat3) {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    result.m00 = 1; result.m01 =  0; result.m02 = 0
+    result.m10 = 0; result.m11 =  c; result.m12 = s
+    result.m20 = 0; result.m21 = -s; result.m22 = c
+  }
+
   /**
    * Rotation around the second axis &lt;0, 1, 0&gt;:
    * <pre>
@@ -402,7 +462,7 @@ object Mat3 {
    * @param angle Rotation angle [rad]
    * @return Rotation matrix around the second (Y) axis.
    */
-  def rotateY(angle: Double) = {
+  def rotateY(angle: Double): Mat3 = {
     val s = math.sin(angle)
     val c = math.cos(angle)
     new Mat3( c,  0, -s,
@@ -410,6 +470,15 @@ object Mat3 {
               s,  0,  c )
   }
 
+  /** Rotation around the second axis (see [[Mat3.rotateY(angle:Double)*]]), stored in the given matrix. */
+  def rotateY(angle: Double, result: Mat3) {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    result.m00 = c; result.m01 = 0; result.m02 = -s
+    result.m10 = 0; result.m11 = 1; result.m12 =  0
+    result.m20 = s; result.m21 = 0; result.m22 =  c
+  }
+
   /**
    * Rotation around the third axis &lt;0, 0, 1&gt;:
    * <pre>
@@ -420,7 +489,7 @@ object Mat3 {
    * @param angle Rotation angle [rad]
    * @return Rotation matrix around the third (Z) axis.
    */
-  def rotateZ(angle: Double) = {
+  def rotateZ(angle: Double): Mat3 = {
     val s = math.sin(angle)
     val c = math.cos(angle)
     new Mat3( c, s, 0,
@@ -428,6 +497,15 @@ object Mat3 {
               0, 0, 1 )
   }
 
+  /** Rotation around the third axis (see [[Mat3.rotateZ(angle:Double)*]]), stored in the given matrix. */
+  def rotateZ(angle: Double, result: Mat3) {
+    val s = math.sin(angle)
+    val c = math.cos(angle)
+    result.m00 =  c; result.m01 = s; result.m02 = 0
+    result.m10 = -s; result.m11 = c; result.m12 = 0
+    result.m20 =  0; result.m21 = 0; result.m22 = 1
+  }
+
   /**
    * Rotation sequence of rotateZ rotateX rotateZ:
    * <pre>
@@ -441,7 +519,7 @@ object Mat3 {
    * @param c Angle of the thrid  rotation around the Z axis [rad].
    * @return Rotation matrix of the ZXZ rotation sequence.
    */
-  def rotateZXZ(a: Double, b: Double, c: Double) = {
+  def rotateZXZ(a: Double, b: Double, c: Double): Mat3 = {
     val ca = math.cos(a); val sa = math.sin(a)
     val cb = math.cos(b); val sb = math.sin(b)
     val cc = math.cos(c); val sc = math.sin(c)
@@ -452,6 +530,101 @@ object Mat3 {
     )
   }
 
+  /** ZXZ rotation sequence (see [[Mat3.rotateZXZ(a:Double,b:Double,c:Double)*]]), stored in the given matrix. */
+  def rotateZXZ(a: Double, b: Double, c: Double, result: Mat3) {
+    val ca = math.cos(a); val sa = math.sin(a)
+    val cb = math.cos(b); val sb = math.sin(b)
+    val cc = math.cos(c); val sc = math.sin(c)
+    result.m00 = ca*cc - cb*sa*sc;     result.m01 = cc*sa + ca*cb*sc;  result.m02 = sb*sc
+    result.m10 = -(cb*cc*sa) - ca*sc;  result.m11 = ca*cb*cc - sa*sc;  result.m12 = cc*sb
+    result.m20 = sa*sb;                result.m21 = -(ca*sb);          result.m22 = cb
+  }
+
+  /**
+   * Rotation sequence R_X(a) . R_Z(b) . R_X(c), computed directly from the angles without creating the intermediate
+   * rotation matrices. This is the form of the equinox based nutation matrix.
+   *
+   * @param a Angle of the last  rotation around the X axis [rad].
+   * @param b Angle of the rotation around the Z axis [rad].
+   * @param c Angle of the first rotation around the X axis [rad].
+   * @return Rotation matrix of the sequence.
+   */
+  def rotateXZX(a: Double, b: Double, c: Double): Mat3 = {
+    val result = Mat3()
+    rotateXZX(a, b, c, result)
+    result
+  }
+
+  /** Rotation sequence R_X(a) . R_Z(b) . R_X(c), stored in the given matrix. */
+  def rotateXZX(a: Double, b: Double, c: Double, result: Mat3) {
+    rotateX(c, result)
+    result.preRotateZ(b).preRotateX(a)
+  }
+
+  /**
+   * Rotation sequence R_X(a) . R_Z(b) . R_X(c) . R_Z(d), computed directly from the angles without creating the
+   * intermediate rotation matrices. This is the form of the Fukushima-Williams and the IAU 2006 precession matrices.
+   *
+   * @param a Angle of the last  rotation around the X axis [rad].
+   * @param b Angle of the last  rotation around the Z axis [rad].
+   * @param c Angle of the first rotation around the X axis [rad].
+   * @param d Angle of the first rotation around the Z axis [rad].
+   * @return Rotation matrix of the sequence.
+   */
+  def rotateXZXZ(a: Double, b: Double, c: Double, d: Double): Mat3 = {
+    val result = Mat3()
+    rotateXZXZ(a, b, c, d, result)
+    result
+  }
+
+  /** Rotation sequence R_X(a) . R_Z(b) . R_X(c) . R_Z(d), stored in the given matrix. */
+  def rotateXZXZ(a: Double, b: Double, c: Double, d: Double, result: Mat3) {
+    rotateZ(d, result)
+    result.preRotateX(c).preRotateZ(b).preRotateX(a)
+  }
+
+  /**
+   * Rotation sequence R_Z(a) . R_Y(b) . R_Z(c), computed directly from the angles without creating the intermediate
+   * rotation matrices. This is the form of the CIO based celestial to intermediate matrix.
+   *
+   * @param a Angle of the last  rotation around the Z axis [rad].
+   * @param b Angle of the rotation around the Y axis [rad].
+   * @param c Angle of the first rotation around the Z axis [rad].
+   * @return Rotation matrix of the sequence.
+   */
+  def rotateZYZ(a: Double, b: Double, c: Double): Mat3 = {
+    val result = Mat3()
+    rotateZYZ(a, b, c, result)
+    result
+  }
+
+  /** Rotation sequence R_Z(a) . R_Y(b) . R_Z(c), stored in the given matrix. */
+  def rotateZYZ(a: Double, b: Double, c: Double, result: Mat3) {
+    rotateZ(c, result)
+    result.preRotateY(b).preRotateZ(a)
+  }
+
+  /**
+   * Rotation sequence R_X(a) . R_Y(b) . R_Z(c), computed directly from the angles without creating the intermediate
+   * rotation matrices. This is the form of the polar motion matrix.
+   *
+   * @param a Angle of the last  rotation around the X axis [rad].
+   * @param b Angle of the rotation around the Y axis [rad].
+   * @param c Angle of the first rotation around the Z axis [rad].
+   * @return Rotation matrix of the sequence.
+   */
+  def rotateXYZ(a: Double, b: Double, c: Double): Mat3 = {
+    val result = Mat3()
+    rotateXYZ(a, b, c, result)
+    result
+  }
+
+  /** Rotation sequence R_X(a) . R_Y(b) . R_Z(c), stored in the given matrix. */
+  def rotateXYZ(a: Double, b: Double, c: Double, result: Mat3) {
+    rotateZ(c, result)
+    result.preRotateY(b).preRotateX(a)
+  }
+
   /**
    * Create a rotation matrix from a rotation in axis/angle format.
    * <p>
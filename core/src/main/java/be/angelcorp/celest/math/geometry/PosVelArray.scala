@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.math.geometry
+
+import be.angelcorp.celest.frameGraph.ReferenceFrameTransform
+
+/**
+ * A sequence of Cartesian states (position and velocity), stored in two primitive arrays.
+ * <p>
+ * This is the compact equivalent of a sequence of [[be.angelcorp.celest.state.PosVel]] instances; each state takes
+ * 48 bytes instead of three objects with their headers and references. The states carry no frame or epoch, see
+ * [[be.angelcorp.celest.trajectory.DiscreteTrajectory]] and [[be.angelcorp.celest.frameGraph.StateSeries]] for the
+ * conversions from and to time tagged states.
+ * </p>
+ *
+ * @param positions  Positions of the states [m].
+ * @param velocities Velocities of the states [m/s].
+ *
+ * @author Simon Billemont
+ */
+class PosVelArray(val positions: Vec3Array, val velocities: Vec3Array) {
+  require(positions.size == velocities.size, "Expected a velocity for each position")
+
+  /** Create an array of states at the origin and at rest. */
+  def this(size: Int) = this(new Vec3Array(size), new Vec3Array(size))
+
+  /** Number of states in the array. */
+  def size = positions.size
+
+  /** Position of state i [m]. */
+  def position(i: Int) = positions(i)
+
+  /** Velocity of state i [m/s]. */
+  def velocity(i: Int) = velocities(i)
+
+  /** Replace state i. */
+  def update(i: Int, position: Vec3, velocity: Vec3) {
+    positions(i) = position
+    velocities(i) = velocity
+  }
+
+  /** A copy of this array. */
+  def copy = new PosVelArray(positions.copy, velocities.copy)
+
+  /**
+   * Transform all the states to another frame, using a single transform (valid at the epoch of all the states).
+   *
+   * @param transform Transform to apply to all the states.
+   * @param result    Array in which to store the transformed states (may be this array).
+   */
+  def transform(transform: ReferenceFrameTransform[_, _], result: PosVelArray) {
+    require(result.size == size, s"Expected an array of $size states, but was ${result.size}")
+    transform.transformPosVel(positions.data, velocities.data, result.positions.data, result.velocities.data)
+  }
+
+  /** Radial distance of each state, result(i) = |position(i)|. */
+  def radius(result: Array[Double]) {
+    positions.norm(result)
+  }
+
+  /** Specific angular momentum of each state, result(i) = position(i) x velocity(i). */
+  def angularMomentum(result: Vec3Array) {
+    positions.cross(velocities, result)
+  }
+
+  override def toString = s"PosVelArray($size states)"
+
+}
+
+object PosVelArray {
+
+  /** Create an array containing copies of the given positions and velocities. */
+  def apply(states: Seq[(Vec3, Vec3)]): PosVelArray =
+    new PosVelArray(Vec3Array(states.map(_._1)), Vec3Array(states.map(_._2)))
+
+  /** Wrap existing packed position and velocity arrays, without copying them. */
+  def wrap(positions: Array[Double], velocities: Array[Double]) =
+    new PosVelArray(new Vec3Array(positions), new Vec3Array(velocities))
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.math.geometry
+
+import be.angelcorp.celest.math.rotation.Quaternion
+
+/**
+ * A sequence of 3D vectors, stored in a single primitive array.
+ * <p>
+ * The vectors are stored consecutively in the array; `{ x_0, y_0, z_0, x_1, y_1, z_1, ... }`, which is the same
+ * layout as used by the bulk methods of [[be.angelcorp.celest.frameGraph.ReferenceFrameTransform]]. Compared to a
+ * sequence of [[be.angelcorp.celest.math.geometry.Vec3]] instances, there are no object headers or references per
+ * vector, and the bulk operations below run over contiguous memory.
+ * </p>
+ * <p>
+ * All the bulk operations store their result in a given array (which may be this array, or one of the operands), so
+ * that no intermediate arrays need to be created.
+ * </p>
+ *
+ * @param data Packed vector components.
+ *
+ * @author Simon Billemont
+ */
+class Vec3Array(val data: Array[Double]) {
+  require(data.length % 3 == 0, "Expected 3 components for each vector")
+
+  /** Create an array of zero vectors. */
+  def this(size: Int) = this(new Array[Double](3 * size))
+
+  /** Number of vectors in the array. */
+  def size = data.length / 3
+
+  /** First component of vector i. */
+  def x(i: Int) = data(3 * i)
+
+  /** Second component of vector i. */
+  def y(i: Int) = data(3 * i + 1)
+
+  /** Third component of vector i. */
+  def z(i: Int) = data(3 * i + 2)
+
+  /** Vector i, as a new [[be.angelcorp.celest.math.geometry.Vec3]]. */
+  def apply(i: Int) = Vec3(data(3 * i), data(3 * i + 1), data(3 * i + 2))
+
+  /** Copy vector i into the given vector. */
+  def get(i: Int, result: Vec3) {
+    result.x = data(3 * i)
+    result.y = data(3 * i + 1)
+    result.z = data(3 * i + 2)
+  }
+
+  /** Replace vector i. */
+  def update(i: Int, v: Vec3) {
+    set(i, v.x, v.y, v.z)
+  }
+
+  /** Replace vector i by the given components. */
+  def set(i: Int, x: Double, y: Double, z: Double) {
+    data(3 * i) = x
+    data(3 * i + 1) = y
+    data(3 * i + 2) = z
+  }
+
+  /** A copy of this array. */
+  def copy = new Vec3Array(data.clone())
+
+  /** All the vectors as separate [[be.angelcorp.celest.math.geometry.Vec3]] instances. */
+  def toVectors: IndexedSeq[Vec3] = (0 until size).map(apply)
+
+  /** Element-wise sum of this and another array, result(i) = this(i) + other(i). */
+  def add(other: Vec3Array, result: Vec3Array) {
+    checkSize(other, result)
+    val a = data; val b = other.data; val r = result.data
+    var k = 0
+    while (k < a.length) {
+      r(k) = a(k) + b(k)
+      k += 1
+    }
+  }
+
+  /** Element-wise difference of this and another array, result(i) = this(i) - other(i). */
+  def subtract(other: Vec3Array, result: Vec3Array) {
+    checkSize(other, result)
+    val a = data; val b = other.data; val r = result.data
+    var k = 0
+    while (k < a.length) {
+      r(k) = a(k) - b(k)
+      k += 1
+    }
+  }
+
+  /** Scaled vectors, result(i) = s * this(i). */
+  def scale(s: Double, result: Vec3Array) {
+    checkSize(result)
+    val a = data; val r = result.data
+    var k = 0
+    while (k < a.length) {
+      r(k) = s * a(k)
+      k += 1
+    }
+  }
+
+  /** Add a scaled array to this array in place, this(i) += s * other(i). */
+  def addScaled(s: Double, other: Vec3Array) {
+    checkSize(other)
+    val a = data; val b = other.data
+    var k = 0
+    while (k < a.length) {
+      a(k) += s * b(k)
+      k += 1
+    }
+  }
+
+  /** In place element-wise sum, this(i) += other(i). */
+  def +=(other: Vec3Array) {
+    add(other, this)
+  }
+
+  /** In place element-wise difference, this(i) -= other(i). */
+  def -=(other: Vec3Array) {
+    subtract(other, this)
+  }
+
+  /** In place scaling, this(i) *= s. */
+  def *=(s: Double) {
+    scale(s, this)
+  }
+
+  /** Element-wise dot products, result(i) = this(i) . other(i). */
+  def dot(other: Vec3Array, result: Array[Double]) {
+    checkSize(other)
+    require(result.length == size, "Expected one result for each vector")
+    val a = data; val b = other.data
+    var i = 0
+    while (i < result.length) {
+      val k = 3 * i
+      result(i) = a(k) * b(k) + a(k + 1) * b(k + 1) + a(k + 2) * b(k + 2)
+      i += 1
+    }
+  }
+
+  /** Element-wise cross products, result(i) = this(i) x other(i). */
+  def cross(other: Vec3Array, result: Vec3Array) {
+    checkSize(other, result)
+    val a = data; val b = other.data; val r = result.data
+    var k = 0
+    while (k < a.length) {
+      val x = a(k + 1) * b(k + 2) - b(k + 1) * a(k + 2)
+      val y = a(k + 2) * b(k) - b(k + 2) * a(k)
+      val z = a(k) * b(k + 1) - b(k) * a(k + 1)
+      r(k) = x
+      r(k + 1) = y
+      r(k + 2) = z
+      k += 3
+    }
+  }
+
+  /** Norm of each vector, result(i) = |this(i)|. */
+  def norm(result: Array[Double]) {
+    require(result.length == size, "Expected one result for each vector")
+    val a = data
+    var i = 0
+    while (i < result.length) {
+      val k = 3 * i
+      result(i) = math.sqrt(a(k) * a(k) + a(k + 1) * a(k + 1) + a(k + 2) * a(k + 2))
+      i += 1
+    }
+  }
+
+  /** Norm of each vector, in a new array. */
+  def norms = {
+    val result = new Array[Double](size)
+    norm(result)
+    result
+  }
+
+  /** Matrix vector product of each vector, result(i) = m . this(i). */
+  def multiply(m: Mat3, result: Vec3Array) {
+    checkSize(result)
+    val a = data; val r = result.data
+    val m00 = m.m00; val m01 = m.m01; val m02 = m.m02
+    val m10 = m.m10; val m11 = m.m11; val m12 = m.m12
+    val m20 = m.m20; val m21 = m.m21; val m22 = m.m22
+    var k = 0
+    while (k < a.length) {
+      val x = a(k); val y = a(k + 1); val z = a(k + 2)
+      r(k) = m00 * x + m01 * y + m02 * z
+      r(k + 1) = m10 * x + m11 * y + m12 * z
+      r(k + 2) = m20 * x + m21 * y + m22 * z
+      k += 3
+    }
+  }
+
+  /** Rotate each vector by a quaternion, result(i) = q.applyTo(this(i)). */
+  def rotate(q: Quaternion, result: Vec3Array) {
+    checkSize(result)
+    val a = data; val r = result.data
+    val q0 = q.q0; val q1 = q.q1; val q2 = q.q2; val q3 = q.q3
+    var k = 0
+    while (k < a.length) {
+      val x = a(k); val y = a(k + 1); val z = a(k + 2)
+      val s = q1 * x + q2 * y + q3 * z
+      r(k) = 2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x
+      r(k + 1) = 2 * (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y
+      r(k + 2) = 2 * (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z
+      k += 3
+    }
+  }
+
+  private def checkSize(arrays: Vec3Array*) {
+    for (other <- arrays)
+      require(other.data.length == data.length, s"Expected arrays of $size vectors, but was ${other.size}")
+  }
+
+  override def toString = s"Vec3Array($size vectors)"
+
+}
+
+object Vec3Array {
+
+  /** Create an array containing copies of the given vectors. */
+  def apply(vectors: Seq[Vec3]): Vec3Array = {
+    val result = new Vec3Array(vectors.size)
+    for ((v, i) <- vectors.zipWithIndex)
+      result(i) = v
+    result
+  }
+
+  /** Create an array of zero vectors. */
+  def zeros(size: Int) = new Vec3Array(size)
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.physics.atmosphere
+
+/**
+ * A density profile of an atmosphere that decays exponentially between a set of reference altitudes, tabulated on a
+ * fine and uniform altitude grid.
+ * <p>
+ * For each node of the grid, the density and the local scale height are stored. Between the nodes, the density is
+ * evaluated using a third order Taylor expansion of the exponential decay from the node below:
+ * $$ \rho(h) = \rho_i e^{-x} \approx \rho_i \left( 1 - x + \frac{x^2}{2} - \frac{x^3}{6} \right) \qquad x = \frac{h - h_i}{H_i} $$
+ * Evaluating the density therefore requires a single table lookup, and no exponential function. With a grid step of a
+ * fraction of the smallest scale height, the relative error of the expansion is in the order of x<sup>4</sup>/24.
+ * Outside of the grid, the exponential decay of the first or last node is extrapolated exactly.
+ * </p>
+ *
+ * @param minAltitude        Altitude of the first node [m].
+ * @param step               Altitude between two nodes [m].
+ * @param density            Density at each node [kg/m³].
+ * @param inverseScaleHeight Inverse of the local scale height at each node [1/m].
+ *
+ * @author Simon Billemont
+ */
+class DensityTable(val minAltitude: Double, val step: Double, val density: Array[Double], val inverseScaleHeight: Array[Double]) {
+  require(density.length >= 2, "The density table requires at least two nodes")
+  require(inverseScaleHeight.length == density.length, "Expected a scale height for each node")
+
+  /** Altitude of the last node [m]. */
+  val maxAltitude = minAltitude + (density.length - 1) * step
+
+  /**
+   * Evaluate the density of the atmosphere.
+   *
+   * @param h Altitude [m].
+   * @return The density at the given altitude [kg/m³].
+   */
+  def apply(h: Double): Double = {
+    if (h < minAltitude) {
+      density(0) * math.exp((minAltitude - h) * inverseScaleHeight(0))
+    } else if (h >= maxAltitude) {
+      val last = density.length - 1
+      density(last) * math.exp((maxAltitude - h) * inverseScaleHeight(last))
+    } else {
+      val i = ((h - minAltitude) / step).toInt
+      val x = (h - minAltitude - i * step) * inverseScaleHeight(i)
+      density(i) * (1 - x * (1 - 0.5 * x * (1 - x / 3)))
+    }
+  }
+
+}
+
+object DensityTable {
+
+  /**
+   * Tabulate a piecewise exponential density profile, of which the density and scale height are known at a set of
+   * reference altitudes:
+   * $$ \rho(h) = \rho_k e^{-(h - h_k) / H_k} \qquad h_k \le h < h_{k+1} $$
+   *
+   * @param altitudes    Reference altitudes, in increasing order [m].
+   * @param densities    Density at each reference altitude [kg/m³].
+   * @param scaleHeights Scale height above each reference altitude [m].
+   * @param step         Altitude between two nodes of the table [m].
+   * @return The tabulated density profile, between the first and last reference altitude.
+   */
+  def apply(altitudes: Array[Double], densities: Array[Double], scaleHeights: Array[Double], step: Double): DensityTable = {
+    require(altitudes.length == densities.length && altitudes.length == scaleHeights.length, "Expected a density and scale height for each altitude")
+    val size = math.round((altitudes.last - altitudes.head) / step).toInt + 1
+    val density = new Array[Double](size)
+    val inverseScaleHeight = new Array[Double](size)
+    var k = 0
+    for (i <- 0 until size) {
+      val h = altitudes.head + i * step
+      while (k < altitudes.length - 1 && h >= altitudes(k + 1))
+        k += 1
+      density(i) = densities(k) * math.exp((altitudes(k) - h) / scaleHeights(k))
+      inverseScaleHeight(i) = 1.0 / scaleHeights(k)
+    }
+    new DensityTable(altitudes.head, step, density, inverseScaleHeight)
+  }
+
+  /**
+   * Tabulate a density profile that is known at a set of reference altitudes, and decays exponentially between
+   * them (the scale height of each interval follows from the densities at both ends).
+   *
+   * @param altitudes Reference altitudes, in increasing order [m].
+   * @param densities Density at each reference altitude [kg/m³].
+   * @param step      Altitude between two nodes of the table [m].
+   * @return The tabulated density profile, between the first and last reference altitude.
+   */
+  def interpolate(altitudes: Array[Double], densities: Array[Double], step: Double): DensityTable = {
+    val scaleHeights = Array.tabulate(altitudes.length)(k => {
+      val j = math.min(k, altitudes.length - 2)
+      (altitudes(j + 1) - altitudes(j)) / math.log(densities(j) / densities(j + 1))
+    })
+    apply(altitudes, densities, scaleHeights, step)
+  }
+
+}
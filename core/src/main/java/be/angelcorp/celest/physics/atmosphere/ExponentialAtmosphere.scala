@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.physics.atmosphere
+
+import be.angelcorp.celest.physics.atmosphere.RotatingAtmosphere._
+
+/**
+ * A piecewise exponential model of the Earth atmosphere, using the reference densities and scale heights of Vallado
+ * between 0 and 1000 km. Above 1000 km, the exponential decay of the last interval is extrapolated.
+ * <p>
+ * The work in this class is mainly based on:
+ * </p>
+ * <ul>
+ * <li>David A. Vallado, <b>"Fundamentals of Astrodynamics and Applications"</b>, 3rd edition, Microcosm Press, 2007,
+ * table 8-4</li>
+ * </ul>
+ *
+ * @param step       Altitude between two nodes of the density table [m].
+ * @param radius     Equatorial radius of the Earth [m].
+ * @param flattening Flattening of the Earth [-].
+ * @param ω          Angular velocity of the Earth [rad/s].
+ *
+ * @author Simon Billemont
+ */
+class ExponentialAtmosphere(step: Double = 500.0,
+                            radius: Double = earthRadius,
+                            flattening: Double = earthFlattening,
+                            ω: Double = earthRotation) extends RotatingAtmosphere(radius, flattening, ω) {
+
+  /** Tabulated density profile. */
+  val table = DensityTable(ExponentialAtmosphere.altitudes, ExponentialAtmosphere.densities, ExponentialAtmosphere.scaleHeights, step)
+
+  override def density(x: Double, y: Double, z: Double) = table(altitude(x, y, z))
+
+}
+
+object ExponentialAtmosphere {
+
+  /** Base altitude of each interval [m]. */
+  val altitudes = Array[Double](0, 25, 30, 40, 50, 60, 70, 80, 90, 100, 110, 120, 130, 140, 150, 180, 200, 250, 300,
+    350, 400, 450, 500, 600, 700, 800, 900, 1000).map(_ * 1E3)
+
+  /** Density at the base altitude of each interval [kg/m³]. */
+  val densities = Array(1.225, 3.899E-2, 1.774E-2, 3.972E-3, 1.057E-3, 3.206E-4, 8.770E-5, 1.905E-5, 3.396E-6,
+    5.297E-7, 9.661E-8, 2.438E-8, 8.484E-9, 3.845E-9, 2.070E-9, 5.464E-10, 2.789E-10, 7.248E-11, 2.418E-11,
+    9.518E-12, 3.725E-12, 1.585E-12, 6.967E-13, 1.454E-13, 3.614E-14, 1.170E-14, 5.245E-15, 3.019E-15)
+
+  /** Scale height of each interval [m]. */
+  val scaleHeights = Array(7.249, 6.349, 6.682, 7.554, 8.382, 7.714, 6.549, 5.799, 5.382, 5.877, 7.263, 9.473, 12.636,
+    16.149, 22.523, 29.740, 37.105, 45.546, 53.628, 53.298, 58.515, 60.828, 63.822, 71.835, 88.667, 124.64, 181.05,
+    268.00).map(_ * 1E3)
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.physics.atmosphere
+
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.physics.atmosphere.RotatingAtmosphere._
+
+/**
+ * The Harris-Priester model of the Earth atmosphere, between 100 and 1000 km. The density is zero above 1000 km, and
+ * extrapolated exponentially below 100 km.
+ * <p>
+ * The model accounts for the diurnal density bulge, which lags the sub-solar point by 30&deg; in right ascension:
+ * $$ \rho = \rho_{min}(h) + (\rho_{max}(h) - \rho_{min}(h)) \cos^n \frac{\psi}{2} $$
+ * where &psi; is the angle between the position and the apex of the bulge. The minimum and maximum densities are
+ * tabulated for a mean solar activity. The exponent n is 2 for low inclination orbits, up to 6 for polar orbits.
+ * </p>
+ * <p>
+ * The apex of the bulge follows from the direction of the Sun. The direction used by
+ * [[be.angelcorp.celest.physics.atmosphere.IAtmosphere#computeDensity]] is the sun vector of this atmosphere, which
+ * can be updated in place; alternatively the direction of the Sun can be given explicitly, see
+ * [[be.angelcorp.celest.physics.atmosphere.HarrisPriesterAtmosphere#density(double, double, double, double, double, double)]].
+ * </p>
+ * <p>
+ * The work in this class is mainly based on:
+ * </p>
+ * <ul>
+ * <li>Oliver Montenbruck and Eberhard Gill, <b>"Satellite Orbits: Models, Methods and Applications"</b>, Springer,
+ * 2000, section 3.5.2 and table 3.8</li>
+ * </ul>
+ *
+ * @param sun        Direction of the Sun, in the frame of the positions (need not be normalized).
+ * @param n          Exponent of the diurnal variation [-].
+ * @param step       Altitude between two nodes of the density tables [m].
+ * @param radius     Equatorial radius of the Earth [m].
+ * @param flattening Flattening of the Earth [-].
+ * @param ω          Angular velocity of the Earth [rad/s].
+ *
+ * @author Simon Billemont
+ */
+class HarrisPriesterAtmosphere(val sun: Vec3,
+                               val n: Int = 2,
+                               step: Double = 500.0,
+                               radius: Double = earthRadius,
+                               flattening: Double = earthFlattening,
+                               ω: Double = earthRotation) extends RotatingAtmosphere(radius, flattening, ω) {
+  require(n >= 1, "The exponent of the diurnal variation must be positive")
+
+  /** Tabulated antapex (minimum) density profile. */
+  val minimum = DensityTable.interpolate(HarrisPriesterAtmosphere.altitudes, HarrisPriesterAtmosphere.minimumDensities, step)
+  /** Tabulated apex (maximum) density profile. */
+  val maximum = DensityTable.interpolate(HarrisPriesterAtmosphere.altitudes, HarrisPriesterAtmosphere.maximumDensities, step)
+
+  private val cosLag = math.cos(HarrisPriesterAtmosphere.lag)
+  private val sinLag = math.sin(HarrisPriesterAtmosphere.lag)
+
+  override def density(x: Double, y: Double, z: Double) = density(x, y, z, sun.x, sun.y, sun.z)
+
+  /**
+   * Compute the density of the atmosphere at a point, for a given direction of the Sun.
+   *
+   * @param x  X coordinate of the point [m].
+   * @param y  Y coordinate of the point [m].
+   * @param z  Z coordinate of the point [m].
+   * @param sx X component of the direction of the Sun.
+   * @param sy Y component of the direction of the Sun.
+   * @param sz Z component of the direction of the Sun.
+   * @return Atmospheric density [kg/m³].
+   */
+  def density(x: Double, y: Double, z: Double, sx: Double, sy: Double, sz: Double): Double = {
+    val h = altitude(x, y, z)
+    if (h > minimum.maxAltitude)
+      0.0
+    else {
+      // Apex of the bulge; the direction of the Sun rotated by the lag around the z axis
+      val bx = cosLag * sx - sinLag * sy
+      val by = sinLag * sx + cosLag * sy
+      val cosψ = (bx * x + by * y + sz * z) / math.sqrt((sx * sx + sy * sy + sz * sz) * (x * x + y * y + z * z))
+      // cos²(ψ/2) = (1 + cos ψ) / 2
+      val c2 = 0.5 * (1 + cosψ)
+      val variation = if (n % 2 == 0) {
+        var result = 1.0
+        var k = 0
+        while (k < n / 2) {
+          result *= c2
+          k += 1
+        }
+        result
+      } else math.pow(c2, 0.5 * n)
+
+      val ρmin = minimum(h)
+      ρmin + (maximum(h) - ρmin) * variation
+    }
+  }
+
+}
+
+object HarrisPriesterAtmosphere {
+
+  /** Lag of the apex of the diurnal bulge behind the Sun, in right ascension [rad]. */
+  val lag = math.toRadians(30.0)
+
+  /** Reference altitudes of the density tables [m]. */
+  val altitudes = Array[Double](100, 120, 130, 140, 150, 160, 170, 180, 190, 200, 210, 220, 230, 240, 250, 260, 270,
+    280, 290, 300, 320, 340, 360, 380, 400, 420, 440, 460, 480, 500, 520, 540, 560, 580, 600, 620, 640, 660, 680, 700,
+    720, 740, 760, 780, 800, 840, 880, 920, 960, 1000).map(_ * 1E3)
+
+  /** Minimum (antapex) density at each reference altitude [kg/m³]. */
+  val minimumDensities = Array(497400.0, 24900.0, 8377.0, 3899.0, 2122.0, 1263.0, 800.8, 528.3, 361.7, 255.7, 183.9,
+    134.1, 99.49, 74.88, 57.09, 44.03, 34.30, 26.97, 21.39, 17.08, 10.99, 7.214, 4.824, 3.274, 2.249, 1.558, 1.091,
+    0.7701, 0.5474, 0.3916, 0.2819, 0.2042, 0.1488, 0.1092, 0.08070, 0.06012, 0.04519, 0.03430, 0.02632, 0.02043,
+    0.01607, 0.01281, 0.01036, 0.008496, 0.007069, 0.004680, 0.003200, 0.002210, 0.001560, 0.001150).map(_ * 1E-12)
+
+  /** Maximum (apex) density at each reference altitude [kg/m³]. */
+  val maximumDensities = Array(497400.0, 24900.0, 8710.0, 4059.0, 2215.0, 1344.0, 875.8, 601.0, 429.7, 316.2, 239.6,
+    185.3, 145.5, 115.7, 93.08, 75.55, 61.82, 50.95, 42.26, 35.26, 25.11, 18.19, 13.37, 9.955, 7.492, 5.684, 4.355,
+    3.362, 2.612, 2.042, 1.605, 1.267, 1.005, 0.7997, 0.6390, 0.5123, 0.4121, 0.3325, 0.2691, 0.2185, 0.1779, 0.1452,
+    0.1190, 0.09776, 0.08059, 0.05741, 0.04210, 0.03130, 0.02360, 0.01810).map(_ * 1E-12)
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.physics.atmosphere
+
+import be.angelcorp.celest.math.geometry.Vec3
+
+/**
+ * An atmosphere that co-rotates with its (oblate) central body, around the z axis of the frame of the positions.
+ * <p>
+ * The altitude of a point is computed above an ellipsoid with the given equatorial radius and flattening, using the
+ * first order approximation of its polar radius at the geocentric latitude &phi; of the point:
+ * $$ h \approx |\vec{r}| - R (1 - f \sin^2 \phi) $$
+ * which is accurate to about 10 m in the altitude for the Earth. All the evaluations work on scalar coordinates, so
+ * [[be.angelcorp.celest.physics.atmosphere.RotatingAtmosphere#density(double, double, double)]] and
+ * [[be.angelcorp.celest.physics.atmosphere.RotatingAtmosphere#computeV(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]]
+ * do not allocate any memory.
+ * </p>
+ *
+ * @param radius     Equatorial radius of the central body [m].
+ * @param flattening Flattening of the central body [-].
+ * @param ω          Angular velocity of the central body around the z axis [rad/s].
+ *
+ * @author Simon Billemont
+ */
+abstract class RotatingAtmosphere(val radius: Double, val flattening: Double, val ω: Double) extends IAtmosphere {
+
+  /**
+   * Approximate altitude of a point above the central body.
+   *
+   * @param x X coordinate of the point [m].
+   * @param y Y coordinate of the point [m].
+   * @param z Z coordinate of the point [m].
+   * @return Altitude of the point [m].
+   */
+  def altitude(x: Double, y: Double, z: Double): Double = {
+    val r2 = x * x + y * y + z * z
+    val r = math.sqrt(r2)
+    r - radius * (1 - flattening * z * z / r2)
+  }
+
+  /**
+   * Compute the density of the atmosphere at a point.
+   *
+   * @param x X coordinate of the point [m].
+   * @param y Y coordinate of the point [m].
+   * @param z Z coordinate of the point [m].
+   * @return Atmospheric density [kg/m³].
+   */
+  def density(x: Double, y: Double, z: Double): Double
+
+  override def computeDensity(r: Vec3) = density(r.x, r.y, r.z)
+
+  override def computeV(r: Vec3) = {
+    val result = Vec3.zero
+    computeV(r, result)
+    result
+  }
+
+  /**
+   * Compute the velocity of the co-rotating atmosphere at a point, &omega; &times; r.
+   *
+   * @param r      Position of the point [m].
+   * @param result Vector in which to store the velocity of the atmosphere (may be r) [m/s].
+   */
+  def computeV(r: Vec3, result: Vec3) {
+    val x = r.x
+    result.x = -ω * r.y
+    result.y = ω * x
+    result.z = 0.0
+  }
+
+}
+
+object RotatingAtmosphere {
+
+  /** Equatorial radius of the Earth (WGS84) [m]. */
+  val earthRadius = 6378137.0
+
+  /** Flattening of the Earth (WGS84) [-]. */
+  val earthFlattening = 1 / 298.257223563
+
+  /** Angular velocity of the Earth [rad/s]. */
+  val earthRotation = 7.292115E-5
+
+}
@@ -30,4 +30,26 @@ class CumulativePotential(val potentials: List[GravitationalPotential]) extends
   override def apply(point: Vec3) =
     potentials.foldLeft(Vec3.zero)((sum, p) => sum + p(point))
 
+  /** Scratch gravity gradient of a single potential, one per thread. */
+  private val term = new ThreadLocal[Array[Double]] {
+    override def initialValue() = new Array[Double](9)
+  }
+
+  override def gradient(point: Vec3, result: Array[Double]) {
+    java.util.Arrays.fill(result, 0, 9, 0.0)
+    val g = term.get()
+    var remaining = potentials
+    while (remaining.nonEmpty) {
+      remaining.head.gradient(point, g)
+      var i = 0
+      while (i < 9) {
+        result(i) += g(i)
+        i += 1
+      }
+      remaining = remaining.tail
+    }
+  }
+
+  override def analyticGradient = potentials.forall(_.analyticGradient)
+
 }
@@ -48,4 +48,47 @@ trait GravitationalPotential {
    */
   def apply(point: Vec3): Vec3
 
+  /**
+   * Evaluate the gravitational potential at a given point, and store the resulting acceleration in the given vector.
+   * <p>
+   * Implementations can override this method to evaluate the acceleration without allocating any memory.
+   * </p>
+   *
+   * @param point  Point relative to the center of mass of the body being evaluated [m].
+   * @param result Vector in which the local acceleration for a unit mass at the given point is stored [m/s²].
+   */
+  def apply(point: Vec3, result: Vec3) {
+    result.copyOf(apply(point))
+  }
+
+  /**
+   * Evaluate the gravity gradient at a given point; the partial derivatives of the acceleration with respect to the
+   * position of the point, stored row by row:
+   * $$ G_{3i+j} = \frac{\partial a_i}{\partial r_j} $$
+   * <p>
+   * By default, the gradient is computed with central differences of the acceleration, using a step of 10<sup>-6</sup>
+   * times the distance to the center of mass. Implementations can override this method to evaluate the gradient
+   * analytically, in which case they should also override [[GravitationalPotential#analyticGradient]].
+   * </p>
+   *
+   * @param point  Point relative to the center of mass of the body being evaluated [m].
+   * @param result Array in which the nine elements of the gravity gradient are stored [1/s²].
+   */
+  def gradient(point: Vec3, result: Array[Double]) {
+    val h = 1E-6 * math.max(point.norm, 1.0)
+    for (j <- 0 until 3) {
+      val forward = apply(Vec3(point.x + (if (j == 0) h else 0), point.y + (if (j == 1) h else 0), point.z + (if (j == 2) h else 0)))
+      val backward = apply(Vec3(point.x - (if (j == 0) h else 0), point.y - (if (j == 1) h else 0), point.z - (if (j == 2) h else 0)))
+      result(j) = (forward.x - backward.x) / (2 * h)
+      result(3 + j) = (forward.y - backward.y) / (2 * h)
+      result(6 + j) = (forward.z - backward.z) / (2 * h)
+    }
+  }
+
+  /**
+   * Indicates if [[GravitationalPotential#gradient]] is evaluated analytically, rather than with finite differences of
+   * the acceleration.
+   */
+  def analyticGradient: Boolean = false
+
 }
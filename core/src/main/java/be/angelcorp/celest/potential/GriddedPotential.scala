@@ -0,0 +1,433 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.potential
+
+import java.nio.channels.FileChannel
+import java.nio.channels.FileChannel.MapMode
+import java.nio.file.StandardOpenOption._
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.nio.{ByteBuffer, ByteOrder, DoubleBuffer}
+import java.util.concurrent.{ForkJoinPool, ForkJoinTask, RecursiveAction}
+
+import be.angelcorp.celest.math.geometry.Vec3
+import org.slf4j.LoggerFactory
+
+import scala.util.Random
+
+/**
+ * A [[be.angelcorp.celest.potential.GravitationalPotential]] that interpolates the accelerations of another
+ * (expensive) potential, precomputed on a spherical grid over an altitude band.
+ * <p>
+ * The grid has equidistant nodes in radius, latitude (including the poles) and longitude. Only the non-central part
+ * of the acceleration is stored on the grid, \( \vec{a} + \mu \vec{r} / r^3 \); the central term is evaluated
+ * analytically, so the interpolated part is small and smooth. The components of the stored acceleration (in the
+ * frame of the exact potential) are interpolated using a tricubic Lagrange interpolation over the 4x4x4 surrounding
+ * nodes. Points outside of the altitude band are evaluated using the exact potential.
+ * </p>
+ * <p>
+ * When building the grid, the interpolation is compared against the exact potential on a set of random points in the
+ * altitude band; the largest difference is reported as [[GriddedPotential#maxError]].
+ * </p>
+ * <p>
+ * The grid (and its description) is stored in a single buffer, which can be memory-mapped from a file. This allows
+ * building the grid only once, and sharing it (through the page cache of the operating system) between all the
+ * processes that use it:
+ * </p>
+ * <pre>
+ * val grid = GriddedPotential.cached(Paths.get("egm2008_70x70_leo.grid"), egm2008, μ, 6.6E6, 7.4E6, 41, 361, 720)
+ * </pre>
+ *
+ * @param potential Exact potential, used for the points outside the altitude band.
+ * @param buffer    Buffer containing the description of the grid and its nodes.
+ *
+ * @author Simon Billemont
+ */
+class GriddedPotential private(val potential: GravitationalPotential, buffer: ByteBuffer) extends GravitationalPotential {
+  import GriddedPotential._
+
+  private val header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+  require(header.getInt(0) == magic, "Not a gravity grid")
+  require(header.getInt(4) == version, s"Unsupported gravity grid version ${header.getInt(4)}")
+
+  /** Number of nodes in radius. */
+  val radialNodes = header.getInt(8)
+  /** Number of nodes in latitude, including both poles. */
+  val latitudeNodes = header.getInt(12)
+  /** Number of nodes in longitude. */
+  val longitudeNodes = header.getInt(16)
+  /** Inner radius of the altitude band [m]. */
+  val minRadius = header.getDouble(24)
+  /** Outer radius of the altitude band [m]. */
+  val maxRadius = header.getDouble(32)
+  /** Gravitational parameter of the analytical central term [m³/s²]. */
+  val μ = header.getDouble(40)
+
+  /** Largest difference between the interpolated and the exact acceleration, found when building the grid [m/s²]. */
+  def maxError = header.getDouble(48)
+
+  private val Δr = (maxRadius - minRadius) / (radialNodes - 1)
+  private val Δφ = math.Pi / (latitudeNodes - 1)
+  private val Δλ = 2 * math.Pi / longitudeNodes
+
+  /** Acceleration components at each node, ((i * latitudeNodes + j) * longitudeNodes + k) * 3 + component. */
+  private val data: DoubleBuffer = {
+    val b = buffer.duplicate()
+    b.position(headerSize)
+    b.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+  }
+
+  /** Scratch buffers for the interpolation weights (followed by their derivatives), one set per thread. */
+  private val workspace = new ThreadLocal[(Array[Double], Array[Int])] {
+    override def initialValue() = (new Array[Double](24), new Array[Int](12))
+  }
+
+  override def apply(point: Vec3) = {
+    val result = Vec3.zero
+    apply(point, result)
+    result
+  }
+
+  override def apply(point: Vec3, result: Vec3) {
+    val r2 = point.normSq
+    val r = math.sqrt(r2)
+    if (r < minRadius || r > maxRadius) {
+      potential(point, result)
+    } else {
+      val φ = math.atan2(point.z, math.hypot(point.x, point.y))
+      var λ = math.atan2(point.y, point.x)
+      if (λ < 0) λ += 2 * math.Pi
+
+      val buffers = workspace.get()
+      val w = buffers._1
+      val index = buffers._2
+      stencil((r - minRadius) / Δr, radialNodes, periodic = false, w, index, 0)
+      stencil((φ + math.Pi / 2) / Δφ, latitudeNodes, periodic = false, w, index, 4)
+      stencil(λ / Δλ, longitudeNodes, periodic = true, w, index, 8)
+
+      var ax = 0.0
+      var ay = 0.0
+      var az = 0.0
+      var i = 0
+      while (i < 4) {
+        var j = 4
+        while (j < 8) {
+          val wij = w(i) * w(j)
+          val row = (index(i) * latitudeNodes + index(j)) * longitudeNodes
+          var k = 8
+          while (k < 12) {
+            val wijk = wij * w(k)
+            val n = 3 * (row + index(k))
+            ax += wijk * data.get(n)
+            ay += wijk * data.get(n + 1)
+            az += wijk * data.get(n + 2)
+            k += 1
+          }
+          j += 1
+        }
+        i += 1
+      }
+
+      val f = -μ / (r2 * r)
+      result.x = ax + f * point.x
+      result.y = ay + f * point.y
+      result.z = az + f * point.z
+    }
+  }
+
+  /**
+   * Evaluate the gravity gradient of the interpolated acceleration, by differentiating the Lagrange interpolation
+   * analytically; the central term is differentiated exactly. Note that the interpolated gradient is (an order) less
+   * accurate than the interpolated acceleration. Points outside of the altitude band use the gradient of the exact
+   * potential.
+   */
+  override def gradient(point: Vec3, result: Array[Double]) {
+    val r2 = point.normSq
+    val r = math.sqrt(r2)
+    if (r < minRadius || r > maxRadius) {
+      potential.gradient(point, result)
+    } else {
+      val ρ2 = point.x * point.x + point.y * point.y
+      val ρ = math.sqrt(ρ2)
+      val φ = math.atan2(point.z, ρ)
+      var λ = math.atan2(point.y, point.x)
+      if (λ < 0) λ += 2 * math.Pi
+
+      val buffers = workspace.get()
+      val w = buffers._1
+      val index = buffers._2
+      stencil((r - minRadius) / Δr, radialNodes, periodic = false, w, index, 0)
+      stencil((φ + math.Pi / 2) / Δφ, latitudeNodes, periodic = false, w, index, 4)
+      stencil(λ / Δλ, longitudeNodes, periodic = true, w, index, 8)
+
+      // Partial derivatives of the interpolated components with respect to the grid coordinates (r, φ, λ)
+      var ar = 0.0; var aφ = 0.0; var aλ = 0.0
+      var br = 0.0; var bφ = 0.0; var bλ = 0.0
+      var cr = 0.0; var cφ = 0.0; var cλ = 0.0
+      var i = 0
+      while (i < 4) {
+        var j = 4
+        while (j < 8) {
+          val row = (index(i) * latitudeNodes + index(j)) * longitudeNodes
+          var k = 8
+          while (k < 12) {
+            val wr = w(12 + i) * w(j) * w(k)
+            val wφ = w(i) * w(12 + j) * w(k)
+            val wλ = w(i) * w(j) * w(12 + k)
+            val n = 3 * (row + index(k))
+            val dx = data.get(n)
+            val dy = data.get(n + 1)
+            val dz = data.get(n + 2)
+            ar += wr * dx; aφ += wφ * dx; aλ += wλ * dx
+            br += wr * dy; bφ += wφ * dy; bλ += wλ * dy
+            cr += wr * dz; cφ += wφ * dz; cλ += wλ * dz
+            k += 1
+          }
+          j += 1
+        }
+        i += 1
+      }
+
+      // Partial derivatives of the grid coordinates with respect to x, y and z; the longitude terms vanish on the axis
+      val rx = point.x / (r * Δr)
+      val ry = point.y / (r * Δr)
+      val rz = point.z / (r * Δr)
+      val φx = if (ρ > 0) -point.x * point.z / (r2 * ρ * Δφ) else 0.0
+      val φy = if (ρ > 0) -point.y * point.z / (r2 * ρ * Δφ) else 0.0
+      val φz = ρ / (r2 * Δφ)
+      val λx = if (ρ > 0) -point.y / (ρ2 * Δλ) else 0.0
+      val λy = if (ρ > 0) point.x / (ρ2 * Δλ) else 0.0
+
+      PointMassPotential.gradient(μ, point.x, point.y, point.z, result)
+      result(0) += ar * rx + aφ * φx + aλ * λx
+      result(1) += ar * ry + aφ * φy + aλ * λy
+      result(2) += ar * rz + aφ * φz
+      result(3) += br * rx + bφ * φx + bλ * λx
+      result(4) += br * ry + bφ * φy + bλ * λy
+      result(5) += br * rz + bφ * φz
+      result(6) += cr * rx + cφ * φx + cλ * λx
+      result(7) += cr * ry + cφ * φy + cλ * λy
+      result(8) += cr * rz + cφ * φz
+    }
+  }
+
+  /** The interpolated gradient is analytic; outside the altitude band it is that of the exact potential. */
+  override def analyticGradient = potential.analyticGradient
+
+  /**
+   * Compute the Lagrange interpolation weights and node indices of the four nodes surrounding a coordinate.
+   * The derivatives of the weights with respect to the coordinate are stored 12 elements after the weights.
+   *
+   * @param u        Coordinate, expressed in fractional node indices.
+   * @param nodes    Number of nodes along the coordinate.
+   * @param periodic True if node `nodes` coincides with node 0.
+   * @param w        Array in which the weights and their derivatives are stored.
+   * @param index    Array in which the node indices are stored.
+   * @param offset   Offset in the arrays of the first node.
+   */
+  private def stencil(u: Double, nodes: Int, periodic: Boolean, w: Array[Double], index: Array[Int], offset: Int) {
+    var base = math.floor(u).toInt - 1
+    if (!periodic)
+      base = math.max(0, math.min(base, nodes - 4))
+    val t = u - base
+    val t1 = t - 1
+    val t2 = t - 2
+    val t3 = t - 3
+    w(offset) = -t1 * t2 * t3 / 6
+    w(offset + 1) = t * t2 * t3 / 2
+    w(offset + 2) = -t * t1 * t3 / 2
+    w(offset + 3) = t * t1 * t2 / 6
+    w(12 + offset) = -(t2 * t3 + t1 * t3 + t1 * t2) / 6
+    w(12 + offset + 1) = (t2 * t3 + t * t3 + t * t2) / 2
+    w(12 + offset + 2) = -(t1 * t3 + t * t3 + t * t1) / 2
+    w(12 + offset + 3) = (t1 * t2 + t * t2 + t * t1) / 6
+    var n = 0
+    while (n < 4) {
+      val i = base + n
+      index(offset + n) = if (periodic) ((i % nodes) + nodes) % nodes else i
+      n += 1
+    }
+  }
+
+  /** Position of a grid node. */
+  private def node(i: Int, j: Int, k: Int) = {
+    val r = minRadius + i * Δr
+    val φ = -math.Pi / 2 + j * Δφ
+    val λ = k * Δλ
+    Vec3(r * math.cos(φ) * math.cos(λ), r * math.cos(φ) * math.sin(λ), r * math.sin(φ))
+  }
+
+  /** Evaluate the exact potential on all the nodes of the grid. */
+  private def build(pool: ForkJoinPool, validationPoints: Int) {
+    val rows = radialNodes * latitudeNodes
+    pool.invoke(new RecursiveAction {
+      override def compute() = fill(0, rows)
+
+      def fill(start: Int, end: Int): Unit =
+        if (end - start <= 8) {
+          val a = Vec3.zero
+          for (row <- start until end; k <- 0 until longitudeNodes) {
+            val p = node(row / latitudeNodes, row % latitudeNodes, k)
+            potential(p, a)
+            val f = μ / math.pow(p.norm, 3)
+            val n = 3 * (row * longitudeNodes + k)
+            data.put(n, a.x + f * p.x)
+            data.put(n + 1, a.y + f * p.y)
+            data.put(n + 2, a.z + f * p.z)
+          }
+        } else {
+          val middle = (start + end) >>> 1
+          ForkJoinTask.invokeAll(new RecursiveAction {
+            override def compute() = fill(start, middle)
+          }, new RecursiveAction {
+            override def compute() = fill(middle, end)
+          })
+        }
+    })
+
+    // Compare the interpolation against the exact potential
+    val random = new Random(42)
+    var error = 0.0
+    for (n <- 0 until validationPoints) {
+      val r = minRadius + random.nextDouble() * (maxRadius - minRadius)
+      val φ = math.asin(2 * random.nextDouble() - 1)
+      val λ = 2 * math.Pi * random.nextDouble()
+      val p = Vec3(r * math.cos(φ) * math.cos(λ), r * math.cos(φ) * math.sin(λ), r * math.sin(φ))
+      error = math.max(error, (apply(p) - potential(p)).norm)
+    }
+    header.putDouble(48, error)
+  }
+
+  override def toString =
+    s"GriddedPotential($potential, $radialNodes x $latitudeNodes x $longitudeNodes nodes in [$minRadius, $maxRadius] m)"
+
+}
+
+object GriddedPotential {
+  private val logger = LoggerFactory.getLogger(getClass)
+
+  private val magic = 0x43475244 // "CGRD"
+  private val version = 1
+  private val headerSize = 64
+
+  /**
+   * Build a grid in memory.
+   *
+   * @param potential        Exact potential to interpolate.
+   * @param μ                Gravitational parameter of the central term, which is evaluated analytically [m³/s²].
+   * @param minRadius        Inner radius of the altitude band [m].
+   * @param maxRadius        Outer radius of the altitude band [m].
+   * @param radialNodes      Number of nodes in radius (at least 4).
+   * @param latitudeNodes    Number of nodes in latitude, including both poles (at least 4).
+   * @param longitudeNodes   Number of nodes in longitude (at least 4).
+   * @param validationPoints Number of random points on which the interpolation error is estimated.
+   * @param pool             Fork-join pool on which the exact potential is evaluated.
+   * @return The grid interpolating the given potential.
+   */
+  def apply(potential: GravitationalPotential, μ: Double, minRadius: Double, maxRadius: Double,
+            radialNodes: Int, latitudeNodes: Int, longitudeNodes: Int,
+            validationPoints: Int = 10000, pool: ForkJoinPool = ForkJoinPool.commonPool()): GriddedPotential = {
+    val buffer = ByteBuffer.allocateDirect(bytes(radialNodes, latitudeNodes, longitudeNodes))
+    create(buffer, potential, μ, minRadius, maxRadius, radialNodes, latitudeNodes, longitudeNodes, validationPoints, pool)
+  }
+
+  /**
+   * Load a grid from a file, or build it and store it in the file when the file does not exist or contains a different
+   * grid. The file is memory-mapped; it is not read into the heap.
+   * <p>
+   * Note that the file does not identify the exact potential; it is the responsibility of the caller to use a
+   * different file for each potential.
+   * </p>
+   *
+   * @param path             File containing the grid.
+   * @param potential        Exact potential to interpolate.
+   * @param μ                Gravitational parameter of the central term, which is evaluated analytically [m³/s²].
+   * @param minRadius        Inner radius of the altitude band [m].
+   * @param maxRadius        Outer radius of the altitude band [m].
+   * @param radialNodes      Number of nodes in radius (at least 4).
+   * @param latitudeNodes    Number of nodes in latitude, including both poles (at least 4).
+   * @param longitudeNodes   Number of nodes in longitude (at least 4).
+   * @param validationPoints Number of random points on which the interpolation error is estimated.
+   * @param pool             Fork-join pool on which the exact potential is evaluated.
+   * @return The grid interpolating the given potential.
+   */
+  def cached(path: Path, potential: GravitationalPotential, μ: Double, minRadius: Double, maxRadius: Double,
+             radialNodes: Int, latitudeNodes: Int, longitudeNodes: Int,
+             validationPoints: Int = 10000, pool: ForkJoinPool = ForkJoinPool.commonPool()): GriddedPotential = {
+    if (Files.exists(path)) {
+      val grid = load(path, potential)
+      if (grid.radialNodes == radialNodes && grid.latitudeNodes == latitudeNodes && grid.longitudeNodes == longitudeNodes &&
+        grid.minRadius == minRadius && grid.maxRadius == maxRadius && grid.μ == μ)
+        return grid
+      logger.info(s"Gravity grid $path does not match the requested grid, rebuilding it")
+    }
+
+    // Build the grid in a temporary file, and move it in place when it is complete
+    val temporary = Files.createTempFile(path.toAbsolutePath.getParent, path.getFileName.toString, ".tmp")
+    val channel = FileChannel.open(temporary, READ, WRITE)
+    try {
+      val buffer = channel.map(MapMode.READ_WRITE, 0, bytes(radialNodes, latitudeNodes, longitudeNodes))
+      create(buffer, potential, μ, minRadius, maxRadius, radialNodes, latitudeNodes, longitudeNodes, validationPoints, pool)
+      buffer.force()
+    } finally channel.close()
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    logger.info(s"Stored gravity grid $path")
+
+    load(path, potential)
+  }
+
+  /**
+   * Load a grid from a file. The file is memory-mapped; it is not read into the heap.
+   *
+   * @param path      File containing the grid.
+   * @param potential Exact potential that was interpolated, used for the points outside the altitude band.
+   * @return The grid stored in the file.
+   */
+  def load(path: Path, potential: GravitationalPotential): GriddedPotential = {
+    val channel = FileChannel.open(path, READ)
+    try new GriddedPotential(potential, channel.map(MapMode.READ_ONLY, 0, channel.size()))
+    finally channel.close()
+  }
+
+  /** Size of a grid in bytes. */
+  private def bytes(radialNodes: Int, latitudeNodes: Int, longitudeNodes: Int) = {
+    val size = headerSize + 24L * radialNodes * latitudeNodes * longitudeNodes
+    require(size <= Int.MaxValue, s"A gravity grid of $size bytes is too large to be mapped in memory")
+    size.toInt
+  }
+
+  /** Write the header of the grid to the buffer, and evaluate all of its nodes. */
+  private def create(buffer: ByteBuffer, potential: GravitationalPotential, μ: Double, minRadius: Double, maxRadius: Double,
+                     radialNodes: Int, latitudeNodes: Int, longitudeNodes: Int,
+                     validationPoints: Int, pool: ForkJoinPool) = {
+    require(radialNodes >= 4 && latitudeNodes >= 4 && longitudeNodes >= 4, "A gravity grid needs at least 4 nodes in each direction")
+    require(minRadius < maxRadius, s"Invalid altitude band [$minRadius, $maxRadius]")
+    val header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+    header.putInt(0, magic)
+    header.putInt(4, version)
+    header.putInt(8, radialNodes)
+    header.putInt(12, latitudeNodes)
+    header.putInt(16, longitudeNodes)
+    header.putDouble(24, minRadius)
+    header.putDouble(32, maxRadius)
+    header.putDouble(40, μ)
+    header.putDouble(48, Double.NaN)
+
+    val grid = new GriddedPotential(potential, buffer)
+    grid.build(pool, validationPoints)
+    grid
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.potential
+
+import be.angelcorp.celest.math.functions.NormalizedLegendre
+import be.angelcorp.celest.resources.Resource
+
+import scala.collection.mutable
+import scala.io.Source
+
+/**
+ * Reads the spherical harmonics coefficients of a gravity field model in the ICGEM format (as distributed by the
+ * International Centre for Global Earth Models, for example EGM96, EGM2008 or the GGM models).
+ * <p>
+ * Only the static part of the model is read; the `gfc` lines and the reference values of the `gfct` lines. The time
+ * variable terms (`trnd`, `asin` and `acos` lines) are ignored.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+object ICGEMLoader {
+
+  /**
+   * Parse the content of an ICGEM (.gfc) file.
+   *
+   * @param content   Content of the file.
+   * @param maxDegree Maximum degree of the coefficients to retain; higher degree coefficients are skipped.
+   * @return The (fully normalized) coefficients of the model.
+   */
+  def parse(content: Source, maxDegree: Int = Int.MaxValue): SphericalHarmonicsCoefficients = {
+    val header = mutable.Map[String, String]()
+    val lines = content.getLines()
+
+    // Read the header, up to the end_of_head keyword
+    var inHeader = true
+    while (inHeader && lines.hasNext) {
+      val fields = lines.next().trim.split("""\s+""")
+      if (fields(0) == "end_of_head")
+        inHeader = false
+      else if (fields.length >= 2)
+        header(fields(0)) = fields(1)
+    }
+    if (inHeader)
+      throw new IllegalArgumentException("Invalid ICGEM file, no end_of_head keyword found")
+
+    def keyword(key: String) =
+      header.getOrElse(key, throw new IllegalArgumentException(s"Invalid ICGEM file, missing the $key keyword"))
+
+    val name = header.getOrElse("modelname", "unknown")
+    val μ = number(keyword("earth_gravity_constant"))
+    val radius = number(keyword("radius"))
+    val degree = math.min(keyword("max_degree").toInt, maxDegree)
+    val normalized = header.getOrElse("norm", "fully_normalized") != "unnormalized"
+
+    val size = NormalizedLegendre.index(degree, degree) + 1
+    val C = new Array[Double](size)
+    val S = new Array[Double](size)
+    for (line <- lines) {
+      val fields = line.trim.split("""\s+""")
+      if (fields(0) == "gfc" || fields(0) == "gfct") {
+        val n = fields(1).toInt
+        val m = fields(2).toInt
+        if (n <= degree) {
+          val k = NormalizedLegendre.index(n, m)
+          val f = if (normalized) 1.0 else NormalizedLegendre.normalization(n, m)
+          C(k) = number(fields(3)) / f
+          S(k) = number(fields(4)) / f
+        }
+      }
+    }
+
+    new SphericalHarmonicsCoefficients(name, μ, radius, degree, C, S)
+  }
+
+  /**
+   * Load the coefficients of the gravity model in an ICGEM (.gfc) file.
+   *
+   * @param resource  Resource containing the ICGEM file.
+   * @param maxDegree Maximum degree of the coefficients to retain.
+   * @return The (fully normalized) coefficients of the model.
+   */
+  def load(resource: Resource, maxDegree: Int = Int.MaxValue): SphericalHarmonicsCoefficients = {
+    val source = resource.openSource()
+    try parse(source, maxDegree) finally source.close()
+  }
+
+  /** Parse a number, which may use the Fortran D exponent notation. */
+  private def number(text: String) =
+    text.replace('D', 'E').replace('d', 'e').toDouble
+
+}
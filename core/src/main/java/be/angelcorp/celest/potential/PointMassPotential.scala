@@ -34,4 +34,39 @@ class PointMassPotential[F <: ReferenceSystem](val body: Satellite[F]) extends G
   override def apply(point: Vec3) =
     -point * (body.μ / pow(point.norm, 3))
 
+  override def gradient(point: Vec3, result: Array[Double]) {
+    PointMassPotential.gradient(body.μ, point.x, point.y, point.z, result)
+  }
+
+  override def analyticGradient = true
+
+}
+
+object PointMassPotential {
+
+  /**
+   * Evaluate the gravity gradient of a point mass, stored row by row:
+   * $$ G = -\frac{\mu}{r^3} \left( I - 3 \frac{\vec{r} \vec{r}^T}{r^2} \right) $$
+   *
+   * @param μ      Gravitational parameter of the point mass [m³/s²].
+   * @param x      X coordinate of the point relative to the point mass [m].
+   * @param y      Y coordinate of the point relative to the point mass [m].
+   * @param z      Z coordinate of the point relative to the point mass [m].
+   * @param result Array in which the nine elements of the gravity gradient are stored [1/s²].
+   */
+  def gradient(μ: Double, x: Double, y: Double, z: Double, result: Array[Double]) {
+    val r2 = x * x + y * y + z * z
+    val f = -μ / (r2 * math.sqrt(r2))
+    val g = -3 * f / r2
+    result(0) = f + g * x * x
+    result(1) = g * x * y
+    result(2) = g * x * z
+    result(3) = result(1)
+    result(4) = f + g * y * y
+    result(5) = g * y * z
+    result(6) = result(2)
+    result(7) = result(5)
+    result(8) = f + g * z * z
+  }
+
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.potential
+
+import be.angelcorp.celest.math.functions.NormalizedLegendre
+
+/**
+ * The fully normalized Stokes coefficients of a spherical harmonics expansion of a gravity field:
+ * <p>
+ * $$ U = \frac{\mu}{r} \sum_{n=0}^{N} \left( \frac{R}{r} \right)^n \sum_{m=0}^{n} \bar{P}_{n,m}(\sin \phi)
+ * \left( \bar{C}_{n,m} \cos m \lambda + \bar{S}_{n,m} \sin m \lambda \right) $$
+ * </p>
+ * <p>
+ * The coefficients are stored in triangular arrays, where the coefficient of degree n and order m is stored at
+ * [[be.angelcorp.celest.math.functions.NormalizedLegendre#index]](n, m).
+ * </p>
+ *
+ * @param name   Name of the gravity model.
+ * @param μ      Gravitational parameter of the model [m³/s²].
+ * @param radius Reference radius of the model [m].
+ * @param degree Maximum degree (and order) of the coefficients.
+ * @param C      Fully normalized cosine coefficients \( \bar{C}_{n,m} \).
+ * @param S      Fully normalized sine coefficients \( \bar{S}_{n,m} \).
+ *
+ * @author Simon Billemont
+ */
+class SphericalHarmonicsCoefficients(val name: String, val μ: Double, val radius: Double, val degree: Int,
+                                     val C: Array[Double], val S: Array[Double]) {
+  require(C.length == NormalizedLegendre.index(degree, degree) + 1, s"Expected ${NormalizedLegendre.index(degree, degree) + 1} C coefficients for degree $degree")
+  require(S.length == C.length, s"Expected ${C.length} S coefficients for degree $degree")
+
+  /** Cosine coefficient of degree n and order m. */
+  def Cnm(n: Int, m: Int): Double = C(NormalizedLegendre.index(n, m))
+
+  /** Sine coefficient of degree n and order m. */
+  def Snm(n: Int, m: Int): Double = S(NormalizedLegendre.index(n, m))
+
+  /**
+   * Truncate the expansion to a lower degree and order.
+   *
+   * @param degree Maximum degree of the truncated expansion.
+   * @param order  Maximum order of the truncated expansion (the coefficients of a higher order are set to zero).
+   * @return The truncated expansion.
+   */
+  def truncate(degree: Int, order: Int = Int.MaxValue) = {
+    require(degree <= this.degree, s"Cannot truncate a model of degree ${this.degree} to degree $degree")
+    val size = NormalizedLegendre.index(degree, degree) + 1
+    val c = new Array[Double](size)
+    val s = new Array[Double](size)
+    for (n <- 0 to degree; m <- 0 to math.min(n, order)) {
+      val k = NormalizedLegendre.index(n, m)
+      c(k) = C(k)
+      s(k) = S(k)
+    }
+    new SphericalHarmonicsCoefficients(name, μ, radius, degree, c, s)
+  }
+
+  override def toString = s"SphericalHarmonicsCoefficients($name, $degree x $degree)"
+
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.potential
+
+import be.angelcorp.celest.math.functions.NormalizedLegendre.index
+import be.angelcorp.celest.math.geometry.Vec3
+
+/**
+ * The gravitational acceleration of a non-spherical body, described by a spherical harmonics expansion of its
+ * gravitational potential.
+ * <p>
+ * The acceleration is computed using the (fully normalized) recursion of Cunningham; the expansion is written in terms
+ * of the functions
+ * $$ \bar{V}_{n,m} + i \bar{W}_{n,m} = \left( \frac{R}{r} \right)^{n+1} \bar{P}_{n,m}(\sin \phi) e^{i m \lambda} $$
+ * which are evaluated using recursions in the Cartesian coordinates of the point. Contrary to the evaluation in
+ * spherical coordinates, this has no singularity at the poles and needs no trigonometric functions. The recursion
+ * coefficients and the normalization factors of the partial derivatives are computed once, when constructing the
+ * potential, and the intermediate values are stored in a scratch buffer of each thread. As a result, evaluating the
+ * acceleration using [[SphericalHarmonicsPotential#apply(be.angelcorp.celest.math.geometry.Vec3, be.angelcorp.celest.math.geometry.Vec3)]]
+ * does not allocate any memory. The same holds for the (analytic) gravity gradient, which is evaluated with the
+ * recursion extended by one degree and order.
+ * </p>
+ * <p>
+ * Note that the point must be expressed in the body-fixed frame of the gravity model (for example the ITRS for an
+ * Earth gravity model), and the resulting acceleration is also expressed in that frame. The central term (C<sub>00</sub>)
+ * is part of the expansion, so this potential includes the point mass acceleration of the body.
+ * </p>
+ * <p>
+ * The work in this class is mainly based on:
+ * </p>
+ * <ul>
+ * <li>Oliver Montenbruck and Eberhard Gill, <b>"Satellite Orbits: Models, Methods and Applications"</b>, Springer,
+ * 2000, section 3.2.4 and 3.2.5</li>
+ * </ul>
+ *
+ * @param coefficients Coefficients of the gravity model.
+ * @param degree       Maximum degree of the expansion to evaluate.
+ * @param order        Maximum order of the expansion to evaluate.
+ *
+ * @author Simon Billemont
+ */
+class SphericalHarmonicsPotential(val coefficients: SphericalHarmonicsCoefficients, val degree: Int, val order: Int)
+  extends GravitationalPotential {
+  require(degree <= coefficients.degree, s"The model ${coefficients.name} has no coefficients of degree $degree")
+  require(order <= degree, s"The order ($order) of the expansion must not exceed the degree ($degree)")
+
+  /**
+   * Evaluate the complete expansion of a gravity model.
+   *
+   * @param coefficients Coefficients of the gravity model.
+   */
+  def this(coefficients: SphericalHarmonicsCoefficients) = this(coefficients, coefficients.degree, coefficients.degree)
+
+  private val μ = coefficients.μ
+  private val R = coefficients.radius
+
+  /** Coefficients of the truncated expansion. */
+  private val truncated = coefficients.truncate(degree, order)
+  private val C = truncated.C
+  private val S = truncated.S
+
+  /** Number of V and W terms; up to degree and order + 2, for the gravity gradient. */
+  private val size = index(degree + 2, degree + 2) + 1
+  /** Number of terms in the expansions of the acceleration components; up to degree and order + 1. */
+  private val expansionSize = index(degree + 1, degree + 1) + 1
+
+  /** Recursion coefficients of the sectoral terms. */
+  private val sectoral = Array.tabulate(degree + 3)(m =>
+    if (m == 0) 0.0 else if (m == 1) math.sqrt(3.0) else math.sqrt((2.0 * m + 1.0) / (2.0 * m)))
+  /** Column recursion coefficients of the V and W terms. */
+  private val a = new Array[Double](size)
+  private val b = new Array[Double](size)
+  for (n <- 0 to degree + 2; m <- 0 until n) {
+    val k = index(n, m)
+    val (nd, md) = (n.toDouble, m.toDouble)
+    a(k) = math.sqrt((2 * nd - 1) * (2 * nd + 1) / ((nd - md) * (nd + md)))
+    if (n > m + 1)
+      b(k) = math.sqrt((2 * nd + 1) * (nd + md - 1) * (nd - md - 1) / ((nd - md) * (nd + md) * (2 * nd - 3)))
+  }
+
+  /** Normalization factors of the partial derivatives, with respect to V_{n+1,m+1}, V_{n+1,m} and V_{n+1,m-1}. */
+  private val k1 = new Array[Double](expansionSize)
+  private val k0 = new Array[Double](expansionSize)
+  private val km = new Array[Double](expansionSize)
+  for (n <- 0 to degree + 1; m <- 0 to n) {
+    val k = index(n, m)
+    val (nd, md) = (n.toDouble, m.toDouble)
+    val q = (2 * nd + 1) / (2 * nd + 3)
+    k1(k) = math.sqrt((if (m == 0) 0.5 else 1.0) * q * (nd + md + 1) * (nd + md + 2))
+    k0(k) = (nd - md + 1) * math.sqrt(q * (nd + md + 1) / (nd - md + 1))
+    km(k) = if (m == 0) 0.0 else math.sqrt((if (m == 1) 2.0 else 1.0) * q * (nd - md + 1) * (nd - md + 2))
+  }
+
+  /** Scratch buffers of a single thread. */
+  private class Workspace {
+    /** V and W terms. */
+    val v = new Array[Double](size)
+    val w = new Array[Double](size)
+    /** Partial derivatives of the expansion, without the scale factor. */
+    val derivatives = new Array[Double](3)
+    /** Coefficients of the expansions of the x, y and z acceleration components. */
+    val c = Array.ofDim[Double](3, expansionSize)
+    val s = Array.ofDim[Double](3, expansionSize)
+  }
+
+  private val workspace = new ThreadLocal[Workspace] {
+    override def initialValue() = new Workspace
+  }
+
+  override def apply(point: Vec3) = {
+    val result = Vec3.zero
+    apply(point, result)
+    result
+  }
+
+  override def apply(point: Vec3, result: Vec3) {
+    val buffers = workspace.get()
+    val d = buffers.derivatives
+    harmonics(point, degree + 1, order + 1, buffers.v, buffers.w)
+    sum(C, S, degree, order, buffers.v, buffers.w, d, 0)
+
+    val f = μ / (R * R)
+    result.x = f * d(0)
+    result.y = f * d(1)
+    result.z = f * d(2)
+  }
+
+  /**
+   * Evaluate the gravity gradient analytically. Each component of the acceleration is itself an expansion in the
+   * V<sub>n+1,m</sub> and W<sub>n+1,m</sub> terms, so the partial derivatives of these expansions follow from the same
+   * recursion as the acceleration, using the terms up to degree and order + 2.
+   */
+  override def gradient(point: Vec3, result: Array[Double]) {
+    val buffers = workspace.get()
+    harmonics(point, degree + 2, order + 2, buffers.v, buffers.w)
+    expand(buffers.c, buffers.s)
+    var i = 0
+    while (i < 3) {
+      sum(buffers.c(i), buffers.s(i), degree + 1, order + 1, buffers.v, buffers.w, result, 3 * i)
+      i += 1
+    }
+
+    val f = μ / (R * R * R)
+    i = 0
+    while (i < 9) {
+      result(i) *= f
+      i += 1
+    }
+  }
+
+  override def analyticGradient = true
+
+  /** Compute the V_{n,m} and W_{n,m} terms at a point, up to the given degree and order. */
+  private def harmonics(point: Vec3, nMax: Int, mMax: Int, v: Array[Double], w: Array[Double]) {
+    val r2 = point.normSq
+    val ρ = R * R / r2
+    val x0 = R * point.x / r2
+    val y0 = R * point.y / r2
+    val z0 = R * point.z / r2
+
+    v(0) = R / math.sqrt(r2)
+    w(0) = 0.0
+    var m = 0
+    while (m <= mMax) {
+      var k = index(m, m)
+      if (m > 0) {
+        val kp = index(m - 1, m - 1)
+        v(k) = sectoral(m) * (x0 * v(kp) - y0 * w(kp))
+        w(k) = sectoral(m) * (x0 * w(kp) + y0 * v(kp))
+      }
+      var n = m + 1
+      while (n <= nMax) {
+        // index(n - 1, m) and index(n - 2, m)
+        val kn1 = k
+        val kn2 = k - n + 1
+        k += n
+        if (n == m + 1) {
+          v(k) = a(k) * z0 * v(kn1)
+          w(k) = a(k) * z0 * w(kn1)
+        } else {
+          v(k) = a(k) * z0 * v(kn1) - b(k) * ρ * v(kn2)
+          w(k) = a(k) * z0 * w(kn1) - b(k) * ρ * w(kn2)
+        }
+        n += 1
+      }
+      m += 1
+    }
+  }
+
+  /**
+   * Compute the partial derivatives (times R) of the expansion &Sigma; c<sub>n,m</sub> V<sub>n,m</sub> + s<sub>n,m</sub>
+   * W<sub>n,m</sub> with respect to x, y and z, and store them in result(offset) to result(offset + 2).
+   */
+  private def sum(c: Array[Double], s: Array[Double], nMax: Int, mMax: Int, v: Array[Double], w: Array[Double],
+                  result: Array[Double], offset: Int) {
+    // Sum the partial derivatives, starting with the smallest terms
+    var dx = 0.0
+    var dy = 0.0
+    var dz = 0.0
+    var n = nMax
+    while (n >= 0) {
+      var m = math.min(n, mMax)
+      while (m >= 0) {
+        val k = index(n, m)
+        val ck = c(k)
+        val sk = s(k)
+        val p = index(n + 1, m + 1)
+        val o = p - 1
+        if (m == 0) {
+          dx -= ck * k1(k) * v(p)
+          dy -= ck * k1(k) * w(p)
+        } else {
+          val q = o - 1
+          dx += 0.5 * (k1(k) * (-ck * v(p) - sk * w(p)) + km(k) * (ck * v(q) + sk * w(q)))
+          dy += 0.5 * (k1(k) * (-ck * w(p) + sk * v(p)) + km(k) * (-ck * w(q) + sk * v(q)))
+        }
+        dz += k0(k) * (-ck * v(o) - sk * w(o))
+        m -= 1
+      }
+      n -= 1
+    }
+    result(offset) = dx
+    result(offset + 1) = dy
+    result(offset + 2) = dz
+  }
+
+  /**
+   * Write the partial derivatives (times R) of the truncated expansion as expansions in the V_{n+1,m} and W_{n+1,m}
+   * terms; these are the same linear combinations that are summed in
+   * [[SphericalHarmonicsPotential#sum]].
+   */
+  private def expand(c: Array[Array[Double]], s: Array[Array[Double]]) {
+    val cx = c(0)
+    val sx = s(0)
+    val cy = c(1)
+    val sy = s(1)
+    val cz = c(2)
+    val sz = s(2)
+    var i = 0
+    while (i < 3) {
+      java.util.Arrays.fill(c(i), 0.0)
+      java.util.Arrays.fill(s(i), 0.0)
+      i += 1
+    }
+
+    var n = 0
+    while (n <= degree) {
+      var m = 0
+      while (m <= math.min(n, order)) {
+        val k = index(n, m)
+        val ck = C(k)
+        val sk = S(k)
+        val p = index(n + 1, m + 1)
+        val o = p - 1
+        if (m == 0) {
+          cx(p) -= k1(k) * ck
+          sy(p) -= k1(k) * ck
+        } else {
+          val q = o - 1
+          val f1 = 0.5 * k1(k)
+          val fm = 0.5 * km(k)
+          cx(p) -= f1 * ck
+          sx(p) -= f1 * sk
+          cx(q) += fm * ck
+          sx(q) += fm * sk
+          cy(p) += f1 * sk
+          sy(p) -= f1 * ck
+          cy(q) += fm * sk
+          sy(q) -= fm * ck
+        }
+        cz(o) -= k0(k) * ck
+        sz(o) -= k0(k) * sk
+        m += 1
+      }
+      n += 1
+    }
+  }
+
+  override def toString = s"SphericalHarmonicsPotential(${coefficients.name}, $degree x $order)"
+
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import java.util.concurrent.{ForkJoinPool, ForkJoinTask, RecursiveAction}
+
+import be.angelcorp.celest.math.geometry.PosVelArray
+import be.angelcorp.celest.time.Epoch
+import org.apache.commons.math3.ode.FirstOrderIntegrator
+import org.apache.commons.math3.ode.sampling.{StepHandler, StepInterpolator}
+
+/**
+ * Propagates an ensemble of independent states (for example a constellation, or the dispersed copies of a single
+ * satellite) over the same time span, in parallel on a fork-join pool.
+ * <p>
+ * The states of all the members are packed consecutively in a single array; member i occupies the elements
+ * [i * dimension, (i + 1) * dimension[. Commons-math integrators are stateful, so each worker thread creates its own
+ * integrator using the integrator factory. The state equations on the other hand are shared by all the threads, and
+ * must therefore be thread-safe. This is the case for the allocation free models in celest, which keep their scratch
+ * buffers per thread, and for the data sources they depend on: a
+ * [[be.angelcorp.celest.frameGraph.FrameGraphSnapshot]] and a [[be.angelcorp.celest.trajectory.DenseTrajectory]] are
+ * immutable, and the records of a JPL ephemeris are kept in a concurrent cache.
+ * </p>
+ *
+ * @param integratorFactory Creates a new integrator for each worker thread.
+ * @param equations         State equations of every member of the ensemble.
+ * @param pool              Fork-join pool on which the members are propagated.
+ * @param threshold         Maximum number of members that are propagated sequentially within a single fork-join task.
+ *
+ * @author Simon Billemont
+ */
+class EnsemblePropagator(val integratorFactory: () => FirstOrderIntegrator,
+                         val equations: StateEquations,
+                         val pool: ForkJoinPool = ForkJoinPool.commonPool(),
+                         val threshold: Int = 1) {
+
+  /** Propagator, sampler and state buffer of a single worker thread. */
+  private class Workspace {
+    val propagator = new StatePropagator(integratorFactory(), equations)
+    val sampler = new Sampler
+    val y = new Array[Double](equations.dimension)
+    propagator.integrator.addStepHandler(sampler)
+  }
+
+  private val workspace = new ThreadLocal[Workspace] {
+    override def initialValue() = new Workspace
+  }
+
+  /**
+   * Propagate all the members of the ensemble, and sample their states at the given times.
+   * <p>
+   * The state of member i at times(j) is stored in the result at index (i * times.length + j) * dimension. Each
+   * member is integrated once, up to the last sample time, and the states at the other sample times are obtained
+   * from the dense output of the integrator. The steps are therefore the same as those of a single propagation to the
+   * last sample time. When an event stops the propagation of a member early, its samples after the stop are NaN.
+   * </p>
+   *
+   * @param t0     Epoch of the initial states.
+   * @param y0     Packed initial states of all the members.
+   * @param times  Times at which to sample the states, since t0 and in the direction of the integration [s].
+   * @param result Array in which to store the packed samples of all the members.
+   */
+  def propagate(t0: Epoch, y0: Array[Double], times: Array[Double], result: Array[Double]) {
+    val dimension = equations.dimension
+    require(y0.length % dimension == 0, s"Expected $dimension state variables for each member")
+    val members = y0.length / dimension
+    require(result.length == members * times.length * dimension, s"Expected ${members * times.length * dimension} elements in the result")
+    pool.invoke(new PropagationTask(t0, y0, times, result, 0, members))
+  }
+
+  /**
+   * Propagate all the members of the ensemble.
+   *
+   * @param t0 Epoch of the initial states.
+   * @param t  Target epoch.
+   * @param y0 Packed initial states of all the members.
+   * @return The packed states of all the members at the target epoch.
+   */
+  def propagate(t0: Epoch, t: Epoch, y0: Array[Double]): Array[Double] = {
+    val result = new Array[Double](y0.length)
+    propagate(t0, y0, Array(t.relativeToS(t0)), result)
+    result
+  }
+
+  /**
+   * Propagate the Cartesian states of an ensemble of point masses.
+   *
+   * @param t0     Epoch of the initial states.
+   * @param t      Target epoch.
+   * @param states Initial states of all the members.
+   * @return The states of all the members at the target epoch.
+   */
+  def propagate(t0: Epoch, t: Epoch, states: PosVelArray): PosVelArray = {
+    require(equations.dimension == 6, s"Cannot propagate a PosVelArray with ${equations.dimension} state equations")
+    val p = states.positions.data
+    val v = states.velocities.data
+    val y0 = new Array[Double](6 * states.size)
+    for (i <- 0 until states.size) {
+      System.arraycopy(p, 3 * i, y0, 6 * i, 3)
+      System.arraycopy(v, 3 * i, y0, 6 * i + 3, 3)
+    }
+    val y = propagate(t0, t, y0)
+    val result = new PosVelArray(states.size)
+    for (i <- 0 until states.size) {
+      System.arraycopy(y, 6 * i, result.positions.data, 3 * i, 3)
+      System.arraycopy(y, 6 * i + 3, result.velocities.data, 3 * i, 3)
+    }
+    result
+  }
+
+  /**
+   * Step handler that copies the states at the sample times before the last sample time into the result, using the
+   * dense output of the integrator.
+   */
+  private class Sampler extends StepHandler {
+    /** Sample times of the current propagation [s]. */
+    var times: Array[Double] = null
+    /** Packed samples of all the members. */
+    var result: Array[Double] = null
+    /** Index in the result of the first sample of the current member. */
+    var offset = 0
+    /** Index of the next sample time. */
+    var next = 0
+
+    override def init(t0: Double, y0: Array[Double], t: Double) {}
+
+    override def handleStep(interpolator: StepInterpolator, isLast: Boolean) {
+      val last = times(times.length - 1)
+      val t1 = interpolator.getCurrentTime
+      val forward = interpolator.isForward
+      while (next < times.length && times(next) != last && (if (forward) times(next) <= t1 else times(next) >= t1)) {
+        interpolator.setInterpolatedTime(times(next))
+        val y = interpolator.getInterpolatedState
+        System.arraycopy(y, 0, result, offset + next * y.length, y.length)
+        next += 1
+      }
+    }
+  }
+
+  /** Fork-join task that propagates the members in the range [start, end[. */
+  private class PropagationTask(t0: Epoch, y0: Array[Double], times: Array[Double], result: Array[Double],
+                                start: Int, end: Int) extends RecursiveAction {
+
+    override def compute() {
+      if (end - start <= threshold) {
+        val buffers = workspace.get()
+        val propagator = buffers.propagator
+        val sampler = buffers.sampler
+        val y = buffers.y
+        val dimension = y.length
+        val last = if (times.length == 0) 0.0 else times(times.length - 1)
+        sampler.times = times
+        sampler.result = result
+        var i = start
+        while (i < end) {
+          System.arraycopy(y0, i * dimension, y, 0, dimension)
+          sampler.offset = i * times.length * dimension
+
+          // The samples at the initial time are the initial state
+          var j = 0
+          while (j < times.length && times(j) == 0.0) {
+            System.arraycopy(y, 0, result, sampler.offset + j * dimension, dimension)
+            j += 1
+          }
+          sampler.next = j
+
+          // The samples at the last time are the final state, the others are filled in by the sampler
+          if (j < times.length) {
+            val stop = propagator.integrate(t0, y, last, y)
+            // The integrator may end its last step up to 1 ulp away from the target, only an event stops it earlier
+            val completed = math.abs(stop - last) <= math.ulp(last)
+            j = sampler.next
+            while (j < times.length) {
+              if (completed)
+                System.arraycopy(y, 0, result, sampler.offset + j * dimension, dimension)
+              else
+                java.util.Arrays.fill(result, sampler.offset + j * dimension, sampler.offset + (j + 1) * dimension, Double.NaN)
+              j += 1
+            }
+          }
+          i += 1
+        }
+      } else {
+        val middle = (start + end) >>> 1
+        ForkJoinTask.invokeAll(
+          new PropagationTask(t0, y0, times, result, start, middle),
+          new PropagationTask(t0, y0, times, result, middle, end)
+        )
+      }
+    }
+
+  }
+
+}
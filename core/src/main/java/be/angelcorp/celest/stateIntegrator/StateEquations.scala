@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import be.angelcorp.celest.time.Epoch
+
+/**
+ * A set of first order differential equations, that operate directly on the primitive state vector:
+ * <p>
+ * $$ \dot{y} = f(t_0, t, y) $$
+ * </p>
+ * <p>
+ * Contrary to [[be.angelcorp.celest.state.IStateEquation]], the state and its derivatives are not wrapped in state
+ * objects, and the time is expressed in SI seconds from a reference epoch t<sub>0</sub>, instead of an
+ * [[be.angelcorp.celest.time.Epoch]]. Implementations should not allocate memory when computing the derivatives;
+ * these are evaluated many times during each integration step.
+ * </p>
+ *
+ * @author Simon Billemont
+ */
+trait StateEquations {
+
+  /**
+   * Number of state variables, this is the length of the state vector y and its derivatives.
+   */
+  def dimension: Int
+
+  /**
+   * Compute the derivatives of the state vector.
+   *
+   * @param t0   Reference epoch of the integration.
+   * @param t    Time of the state since the reference epoch [s].
+   * @param y    State vector at t (must not be modified).
+   * @param yDot Array in which to store the derivatives of the state vector at t.
+   */
+  def derivatives(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double])
+
+}
+
+/**
+ * State equations of a point mass in a Cartesian state vector: { x, y, z, &#7819;, &#7823;, &#380; }.
+ *
+ * @author Simon Billemont
+ */
+trait CartesianStateEquations extends StateEquations {
+
+  override def dimension = 6
+
+  /**
+   * Compute the acceleration of the point mass.
+   *
+   * @param t0     Reference epoch of the integration.
+   * @param t      Time of the state since the reference epoch [s].
+   * @param y      Cartesian state vector at t; { x, y, z, &#7819;, &#7823;, &#380; } [m, m/s].
+   * @param yDot   Derivatives of the state vector, in which to store the acceleration at the indices 3 to 5 [m/s²].
+   */
+  def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double])
+
+  override def derivatives(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+    yDot(0) = y(3)
+    yDot(1) = y(4)
+    yDot(2) = y(5)
+    acceleration(t0, t, y, yDot)
+  }
+
+}
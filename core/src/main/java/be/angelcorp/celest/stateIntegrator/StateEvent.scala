@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import be.angelcorp.celest.time.Epoch
+import org.apache.commons.math3.ode.events.EventHandler.Action
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * An event that occurs during the propagation of a primitive state vector, when the switching function g changes
+ * sign.
+ * <p>
+ * The integrator evaluates the switching function at the end of each step (and at least every maxCheckInterval
+ * seconds). When its sign changed, the exact time of the event is located using the dense output of the integrator,
+ * and [[be.angelcorp.celest.stateIntegrator.StateEvent#eventOccurred]] decides how the propagation continues. This
+ * allows the propagation to stop on the event, or to modify the state vector (for example to apply an impulsive
+ * maneuver).
+ * </p>
+ *
+ * @see [[be.angelcorp.celest.stateIntegrator.StatePropagator#addEvent]]
+ * @author Simon Billemont
+ */
+trait StateEvent {
+
+  /**
+   * Switching function of the event; the event occurs when this function changes sign.
+   *
+   * @param t0 Reference epoch of the integration.
+   * @param t  Time of the state since the reference epoch [s].
+   * @param y  State vector at t (must not be modified).
+   * @return Value of the switching function.
+   */
+  def g(t0: Epoch, t: Double, y: Array[Double]): Double
+
+  /**
+   * Handle the occurrence of the event.
+   *
+   * @param t0         Reference epoch of the integration.
+   * @param t          Time of the event since the reference epoch [s].
+   * @param y          State vector at the event (must not be modified).
+   * @param increasing True when the switching function changes from negative to positive.
+   * @return How to continue the integration; continue, stop, reset the state or reset the derivatives.
+   */
+  def eventOccurred(t0: Epoch, t: Double, y: Array[Double], increasing: Boolean): Action = Action.CONTINUE
+
+  /**
+   * Modify the state vector at the event, when [[be.angelcorp.celest.stateIntegrator.StateEvent#eventOccurred]]
+   * returned Action.RESET_STATE.
+   *
+   * @param t0 Reference epoch of the integration.
+   * @param t  Time of the event since the reference epoch [s].
+   * @param y  State vector at the event, which is modified in place.
+   */
+  def resetState(t0: Epoch, t: Double, y: Array[Double]) {}
+
+}
+
+/**
+ * A [[be.angelcorp.celest.stateIntegrator.StateEvent]] that records all of its occurrences.
+ *
+ * @param action Action to perform when the event occurs.
+ *
+ * @author Simon Billemont
+ */
+abstract class RecordedEvent(val action: Action = Action.CONTINUE) extends StateEvent {
+
+  /** Time of each occurrence, since the reference epoch of the integration [s]. */
+  val times = ArrayBuffer[Double]()
+  /** State vector at each occurrence. */
+  val states = ArrayBuffer[Array[Double]]()
+  /** Direction of the sign change of the switching function at each occurrence. */
+  val increasing = ArrayBuffer[Boolean]()
+
+  override def eventOccurred(t0: Epoch, t: Double, y: Array[Double], increasing: Boolean) = {
+    this.times += t
+    this.states += y.clone()
+    this.increasing += increasing
+    action
+  }
+
+  /** Forget all the recorded occurrences. */
+  def clear() {
+    times.clear()
+    states.clear()
+    increasing.clear()
+  }
+
+}
+
+/**
+ * Common events of a Cartesian state vector { x, y, z, &#7819;, &#7823;, &#380;, ... }.
+ *
+ * @author Simon Billemont
+ */
+object StateEvents {
+
+  /**
+   * Crossing of the equatorial (xy) plane of the frame; increasing at the ascending node.
+   *
+   * @param action Action to perform when the event occurs.
+   */
+  def nodeCrossing(action: Action = Action.CONTINUE) = new RecordedEvent(action) {
+    override def g(t0: Epoch, t: Double, y: Array[Double]) = y(2)
+  }
+
+  /**
+   * Passage through an apsis, the radial velocity changes sign; increasing at periapsis.
+   *
+   * @param action Action to perform when the event occurs.
+   */
+  def apsis(action: Action = Action.CONTINUE) = new RecordedEvent(action) {
+    override def g(t0: Epoch, t: Double, y: Array[Double]) = y(0) * y(3) + y(1) * y(4) + y(2) * y(5)
+  }
+
+  /**
+   * Crossing of a sphere around the origin of the frame; increasing when moving outwards.
+   *
+   * @param radius Radius of the sphere [m].
+   * @param action Action to perform when the event occurs.
+   */
+  def radius(radius: Double, action: Action = Action.CONTINUE) = new RecordedEvent(action) {
+    override def g(t0: Epoch, t: Double, y: Array[Double]) = math.sqrt(y(0) * y(0) + y(1) * y(1) + y(2) * y(2)) - radius
+  }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.time.Epoch
+import be.angelcorp.celest.trajectory.DenseTrajectory
+import org.apache.commons.math3.ode.events.EventHandler
+import org.apache.commons.math3.ode.{FirstOrderDifferentialEquations, FirstOrderIntegrator}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Propagates a primitive state vector using a commons-math integrator.
+ * <p>
+ * This is the allocation free counterpart of [[be.angelcorp.celest.stateIntegrator.CommonsMathPropagator]]; the
+ * [[be.angelcorp.celest.stateIntegrator.StateEquations]] are evaluated directly on the arrays of the integrator. The
+ * independent variable of the integrator is the time in SI seconds since the initial epoch, so the step sizes and
+ * tolerances of the integrator must also be expressed in seconds.
+ * </p>
+ * <p>
+ * [[be.angelcorp.celest.stateIntegrator.StateEvent]]s can be attached to the propagator, these are located during
+ * the integration and can stop the propagation or modify the state. The events are only registered on the integrator
+ * for the duration of each integration, together with the reference epoch of that integration. Commons-math cannot
+ * remove a single event handler, so the propagator owns the event handlers of its integrator: an integration with
+ * events is refused when event handlers were registered on the integrator directly.
+ * </p>
+ *
+ * @param integrator Integrator used to solve the state equations.
+ * @param equations  State equations to integrate.
+ *
+ * @author Simon Billemont
+ */
+class StatePropagator(val integrator: FirstOrderIntegrator, val equations: StateEquations) {
+
+  /** Attached events, and the settings with which they are located. */
+  private val events = ArrayBuffer[(StateEvent, Double, Double, Int)]()
+
+  /**
+   * Attach an event to the propagator, it is detected during all the following integrations.
+   *
+   * @param event            Event to detect.
+   * @param maxCheckInterval Maximum time between two evaluations of the switching function [s].
+   * @param convergence      Convergence threshold of the time of the event [s].
+   * @param maxIterations    Maximum number of iterations to locate the event.
+   */
+  def addEvent(event: StateEvent, maxCheckInterval: Double = 60.0, convergence: Double = 1E-6, maxIterations: Int = 100) {
+    events += ((event, maxCheckInterval, convergence, maxIterations))
+  }
+
+  /** Detach all the events from the propagator. */
+  def clearEvents() {
+    events.clear()
+  }
+
+  /**
+   * Wrap an event in the commons-math interface.
+   *
+   * @param event Event to wrap.
+   * @param t0    Reference epoch of the time variable t [s].
+   * @return The commons-math event handler.
+   */
+  private def eventHandler(event: StateEvent, t0: Epoch): EventHandler = new EventHandler {
+    override def init(t: Double, y0: Array[Double], tEnd: Double) {}
+
+    override def g(t: Double, y: Array[Double]) = event.g(t0, t, y)
+
+    override def eventOccurred(t: Double, y: Array[Double], increasing: Boolean) = event.eventOccurred(t0, t, y, increasing)
+
+    override def resetState(t: Double, y: Array[Double]) {
+      event.resetState(t0, t, y)
+    }
+  }
+
+  /**
+   * Wrap the state equations in the commons-math interface.
+   *
+   * @param t0 Reference epoch of the time variable t [s].
+   * @return The commons-math differential equations.
+   */
+  def differentialEquations(t0: Epoch): FirstOrderDifferentialEquations = new FirstOrderDifferentialEquations {
+    override def computeDerivatives(t: Double, y: Array[Double], yDot: Array[Double]) {
+      equations.derivatives(t0, t, y, yDot)
+    }
+
+    override def getDimension = equations.dimension
+  }
+
+  /**
+   * Integrate the state equations.
+   *
+   * @param t0 Epoch of the initial state.
+   * @param y0 Initial state vector.
+   * @param t  Target time, since t0 [s].
+   * @param y  Array in which to store the state vector at the end of the integration (may be y0).
+   * @return The time of the final state, since t0 [s]. This may differ from t if the integration was stopped by an event.
+   */
+  def integrate(t0: Epoch, y0: Array[Double], t: Double, y: Array[Double]): Double = {
+    if (events.isEmpty)
+      integrator.integrate(differentialEquations(t0), 0.0, y0, t, y)
+    else {
+      require(integrator.getEventHandlers.isEmpty,
+        "The integrator has event handlers that were not attached with addEvent, these would be removed by the propagation")
+      for ((event, maxCheckInterval, convergence, maxIterations) <- events)
+        integrator.addEventHandler(eventHandler(event, t0), maxCheckInterval, convergence, maxIterations)
+      try {
+        integrator.integrate(differentialEquations(t0), 0.0, y0, t, y)
+      } finally {
+        integrator.clearEventHandlers()
+      }
+    }
+  }
+
+  /**
+   * Integrate the state equations.
+   *
+   * @param t0 Epoch of the initial state.
+   * @param t  Target epoch.
+   * @param y0 Initial state vector.
+   * @return The state vector at the target epoch.
+   */
+  def integrate(t0: Epoch, t: Epoch, y0: Array[Double]): Array[Double] = {
+    val y = new Array[Double](equations.dimension)
+    integrate(t0, y0, t.relativeToS(t0), y)
+    y
+  }
+
+  /**
+   * Integrate the Cartesian state of a point mass.
+   *
+   * @param t0 Epoch of the initial state.
+   * @param t  Target epoch.
+   * @param y0 Initial state.
+   * @return The state at the target epoch, in the same frame as the initial state.
+   */
+  def integrate[F <: ReferenceSystem](t0: Epoch, t: Epoch, y0: PosVel[F]): PosVel[F] = {
+    require(equations.dimension == 6, s"Cannot propagate a PosVel with ${equations.dimension} state equations")
+    val y = Array(y0.position.x, y0.position.y, y0.position.z, y0.velocity.x, y0.velocity.y, y0.velocity.z)
+    integrate(t0, y, t.relativeToS(t0), y)
+    PosVel(y, y0.frame)
+  }
+
+  /**
+   * Propagate the Cartesian state of a point mass, and record the trajectory that it follows. The resulting trajectory
+   * can be evaluated at any epoch between t0 and t, without repeating the propagation. When t equals t0, the
+   * trajectory consists of the single initial node.
+   *
+   * @param t0       Epoch of the initial state.
+   * @param t        Final epoch of the trajectory.
+   * @param y0       Initial state.
+   * @param substeps Number of trajectory segments to create for each integration step.
+   * @return The trajectory between t0 and t, in the same frame as the initial state.
+   */
+  def propagate[F <: ReferenceSystem](t0: Epoch, t: Epoch, y0: PosVel[F], substeps: Int = 1): DenseTrajectory[F] = {
+    require(equations.dimension >= 6, s"Cannot propagate a PosVel with ${equations.dimension} state equations")
+    val y = new Array[Double](equations.dimension)
+    y(0) = y0.position.x
+    y(1) = y0.position.y
+    y(2) = y0.position.z
+    y(3) = y0.velocity.x
+    y(4) = y0.velocity.y
+    y(5) = y0.velocity.z
+
+    val span = t.relativeToS(t0)
+    if (span == 0.0) {
+      // The integrator rejects an empty interval, the trajectory is the initial state and its acceleration
+      val yDot = new Array[Double](equations.dimension)
+      equations.derivatives(t0, 0.0, y, yDot)
+      val nodes = new Array[Double](9)
+      System.arraycopy(y, 0, nodes, 0, 6)
+      System.arraycopy(yDot, 3, nodes, 6, 3)
+      new DenseTrajectory(t0, Array(0.0), nodes, y0.frame)
+    } else {
+      val recorder = new DenseTrajectory.Recorder(t0, y0.frame, substeps)
+      val handlers = integrator.getStepHandlers.asScala.toList
+      integrator.addStepHandler(recorder)
+      try {
+        integrate(t0, y, span, y)
+      } finally {
+        integrator.clearStepHandlers()
+        handlers.foreach(integrator.addStepHandler)
+      }
+      recorder.trajectory
+    }
+  }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.trajectory
+
+import java.util
+
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.time.Epoch
+import org.apache.commons.math3.ode.sampling.{StepHandler, StepInterpolator}
+
+/**
+ * A continuous trajectory, that interpolates the Cartesian states at a set of nodes.
+ * <p>
+ * At each node, the position, velocity and acceleration are known. Between two nodes, the position is interpolated
+ * using the quintic Hermite polynomial that matches these values at both nodes, and the velocity is the derivative of
+ * that polynomial. As a result, the position, velocity and acceleration are continuous over the entire trajectory.
+ * </p>
+ * <p>
+ * The nodes are stored in primitive arrays and the segment containing an epoch is found using a binary search, so
+ * evaluating the trajectory takes O(log n) time for n nodes. A DenseTrajectory is usually created by propagating a
+ * state with a [[be.angelcorp.celest.trajectory.DenseTrajectory.Recorder]] attached to the integrator, see
+ * [[be.angelcorp.celest.stateIntegrator.StatePropagator#propagate]].
+ * </p>
+ * <p>
+ * A trajectory with a single node only covers the epoch of that node, for example after a propagation over a zero
+ * time span.
+ * </p>
+ * <p>
+ * Two consecutive nodes at the same time represent a discontinuity of the state, for example an impulsive maneuver.
+ * At that time the state of the second node is used, so the trajectory is continuous from the right.
+ * </p>
+ *
+ * @param epoch Reference epoch of the nodes.
+ * @param times Time of each node since the reference epoch, in increasing order [s].
+ * @param nodes Packed position, velocity and acceleration at each node; { x, y, z, &#7819;, &#7823;, &#380;, &#7821;, &#255;, z&#776; } [m, m/s, m/s²].
+ * @param frame Frame in which the states are expressed.
+ *
+ * @author Simon Billemont
+ */
+class DenseTrajectory[F <: ReferenceSystem](val epoch: Epoch, val times: Array[Double], val nodes: Array[Double], val frame: F)
+  extends Trajectory[F] {
+  require(times.length >= 1, "A dense trajectory requires at least one node")
+  require(nodes.length == 9 * times.length, s"Expected ${9 * times.length} values for ${times.length} nodes")
+
+  /** Number of nodes in the trajectory. */
+  def size = times.length
+
+  /** First epoch covered by the trajectory. */
+  def startEpoch = epoch.addS(times(0))
+
+  /** Last epoch covered by the trajectory. */
+  def endEpoch = epoch.addS(times(times.length - 1))
+
+  override def apply(t: Epoch): PosVel[F] = {
+    val position = Vec3.zero
+    val velocity = Vec3.zero
+    apply(t.relativeToS(epoch), position, velocity)
+    new PosVel(position, velocity, frame)
+  }
+
+  /**
+   * Interpolate the state of the trajectory, without allocating any memory.
+   *
+   * @param t        Time since the reference epoch of the trajectory [s].
+   * @param position Vector in which to store the position [m].
+   * @param velocity Vector in which to store the velocity [m/s].
+   */
+  def apply(t: Double, position: Vec3, velocity: Vec3) {
+    val i = segment(t)
+    if (times.length == 1) {
+      position.x = nodes(0)
+      position.y = nodes(1)
+      position.z = nodes(2)
+      velocity.x = nodes(3)
+      velocity.y = nodes(4)
+      velocity.z = nodes(5)
+    } else
+      interpolate(i, t, position, velocity)
+  }
+
+  /** Evaluate the Hermite polynomial of segment i at time t. */
+  private def interpolate(i: Int, t: Double, position: Vec3, velocity: Vec3) {
+    val h = times(i + 1) - times(i)
+    val s = (t - times(i)) / h
+    val s2 = s * s
+    val s3 = s2 * s
+    val s4 = s3 * s
+    val s5 = s4 * s
+
+    // Quintic Hermite basis functions (scaled by h and h²) and their derivatives
+    val p0 = 1 - 10 * s3 + 15 * s4 - 6 * s5
+    val v0 = h * (s - 6 * s3 + 8 * s4 - 3 * s5)
+    val a0 = h * h * (0.5 * s2 - 1.5 * s3 + 1.5 * s4 - 0.5 * s5)
+    val p1 = 1 - p0
+    val v1 = h * (-4 * s3 + 7 * s4 - 3 * s5)
+    val a1 = h * h * (0.5 * s3 - s4 + 0.5 * s5)
+    val dp0 = (-30 * s2 + 60 * s3 - 30 * s4) / h
+    val dv0 = 1 - 18 * s2 + 32 * s3 - 15 * s4
+    val da0 = h * (s - 4.5 * s2 + 6 * s3 - 2.5 * s4)
+    val dp1 = -dp0
+    val dv1 = -12 * s2 + 28 * s3 - 15 * s4
+    val da1 = h * (1.5 * s2 - 4 * s3 + 2.5 * s4)
+
+    val k0 = 9 * i
+    val k1 = k0 + 9
+    position.x = p0 * nodes(k0) + v0 * nodes(k0 + 3) + a0 * nodes(k0 + 6) + p1 * nodes(k1) + v1 * nodes(k1 + 3) + a1 * nodes(k1 + 6)
+    position.y = p0 * nodes(k0 + 1) + v0 * nodes(k0 + 4) + a0 * nodes(k0 + 7) + p1 * nodes(k1 + 1) + v1 * nodes(k1 + 4) + a1 * nodes(k1 + 7)
+    position.z = p0 * nodes(k0 + 2) + v0 * nodes(k0 + 5) + a0 * nodes(k0 + 8) + p1 * nodes(k1 + 2) + v1 * nodes(k1 + 5) + a1 * nodes(k1 + 8)
+    velocity.x = dp0 * nodes(k0) + dv0 * nodes(k0 + 3) + da0 * nodes(k0 + 6) + dp1 * nodes(k1) + dv1 * nodes(k1 + 3) + da1 * nodes(k1 + 6)
+    velocity.y = dp0 * nodes(k0 + 1) + dv0 * nodes(k0 + 4) + da0 * nodes(k0 + 7) + dp1 * nodes(k1 + 1) + dv1 * nodes(k1 + 4) + da1 * nodes(k1 + 7)
+    velocity.z = dp0 * nodes(k0 + 2) + dv0 * nodes(k0 + 5) + da0 * nodes(k0 + 8) + dp1 * nodes(k1 + 2) + dv1 * nodes(k1 + 5) + da1 * nodes(k1 + 8)
+  }
+
+  /**
+   * Find the segment that contains a specific time.
+   *
+   * @param t Time since the reference epoch of the trajectory [s].
+   * @return Index of the first node of the segment containing t (0 for a trajectory with a single node). At a
+   *         discontinuity, this is the segment starting at the second node.
+   */
+  def segment(t: Double): Int = {
+    if (t < times(0) || t > times(times.length - 1))
+      throw new ArithmeticException(s"The time $t s since $epoch is outside the trajectory [${times(0)}, ${times(times.length - 1)}]")
+    var i = util.Arrays.binarySearch(times, t)
+    if (i >= 0) {
+      // Use the last of the nodes at this time, unless it ends the trajectory
+      while (i < times.length - 2 && times(i + 1) == t)
+        i += 1
+    } else
+      i = -i - 2
+    math.max(0, math.min(i, times.length - 2))
+  }
+
+}
+
+object DenseTrajectory {
+
+  /**
+   * A step handler that records the nodes of a [[be.angelcorp.celest.trajectory.DenseTrajectory]] during the
+   * integration of a Cartesian state { x, y, z, &#7819;, &#7823;, &#380;, ... } (any additional state variables are
+   * ignored).
+   * <p>
+   * A node is recorded at the end of each step, and at the (equidistant) intermediate points of the step if substeps
+   * is larger than one. The states at the intermediate points are obtained using the dense output of the integrator,
+   * which is usually much more accurate than the Hermite interpolation between two steps.
+   * </p>
+   * <p>
+   * When an event resets the state (for example an impulsive maneuver), the next step starts at the time of the last
+   * node with a different state. The new state is then recorded as a second node at the same time, so the trajectory
+   * does not interpolate across the discontinuity.
+   * </p>
+   *
+   * @param epoch    Epoch from which the independent variable of the integration is counted [s].
+   * @param frame    Frame in which the integrated states are expressed.
+   * @param substeps Number of segments to create for each integration step.
+   */
+  class Recorder[F <: ReferenceSystem](val epoch: Epoch, val frame: F, val substeps: Int = 1) extends StepHandler {
+    require(substeps >= 1, "At least one segment must be created for each step")
+
+    private var times = new Array[Double](64)
+    private var nodes = new Array[Double](9 * 64)
+    private var size = 0
+
+    override def init(t0: Double, y0: Array[Double], t: Double) {
+      size = 0
+    }
+
+    override def handleStep(interpolator: StepInterpolator, isLast: Boolean) {
+      val t0 = interpolator.getPreviousTime
+      val t1 = interpolator.getCurrentTime
+      if (size == 0 || (t0 == times(size - 1) && discontinuous(interpolator, t0)))
+        record(interpolator, t0)
+      var k = 1
+      while (k < substeps) {
+        record(interpolator, t0 + k * (t1 - t0) / substeps)
+        k += 1
+      }
+      record(interpolator, t1)
+    }
+
+    /** Check if the state at the start of a step differs from the state of the last node. */
+    private def discontinuous(interpolator: StepInterpolator, t: Double) = {
+      interpolator.setInterpolatedTime(t)
+      val y = interpolator.getInterpolatedState
+      val k = 9 * (size - 1)
+      var different = false
+      var i = 0
+      while (i < 6 && !different) {
+        val node = nodes(k + i)
+        different = math.abs(y(i) - node) > 1E-12 * math.max(math.abs(y(i)), math.abs(node))
+        i += 1
+      }
+      different
+    }
+
+    private def record(interpolator: StepInterpolator, t: Double) {
+      if (size == times.length) {
+        times = util.Arrays.copyOf(times, 2 * size)
+        nodes = util.Arrays.copyOf(nodes, 18 * size)
+      }
+      interpolator.setInterpolatedTime(t)
+      val y = interpolator.getInterpolatedState
+      val yDot = interpolator.getInterpolatedDerivatives
+      val k = 9 * size
+      times(size) = t
+      System.arraycopy(y, 0, nodes, k, 6)
+      System.arraycopy(yDot, 3, nodes, k + 6, 3)
+      size += 1
+    }
+
+    /**
+     * Create a trajectory from the recorded nodes. For a backward integration, the nodes are reversed into
+     * chronological order.
+     *
+     * @return The trajectory through all the recorded nodes.
+     */
+    def trajectory: DenseTrajectory[F] = {
+      val t = util.Arrays.copyOf(times, size)
+      val n = util.Arrays.copyOf(nodes, 9 * size)
+      if (size > 1 && t(0) > t(size - 1)) {
+        for (i <- 0 until size / 2) {
+          val j = size - 1 - i
+          val ti = t(i)
+          t(i) = t(j)
+          t(j) = ti
+          for (k <- 0 until 9) {
+            val nk = n(9 * i + k)
+            n(9 * i + k) = n(9 * j + k)
+            n(9 * j + k) = nk
+          }
+        }
+      }
+      new DenseTrajectory(epoch, t, n, frame)
+    }
+
+  }
+
+}
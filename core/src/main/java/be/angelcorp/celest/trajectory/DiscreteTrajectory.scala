@@ -16,8 +16,11 @@
 package be.angelcorp.celest.trajectory
 
 import be.angelcorp.celest.time.Epoch
-import be.angelcorp.celest.state.Orbit
+import be.angelcorp.celest.state.{Orbit, PosVel}
 import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.math.geometry.PosVelArray
+
+import scala.collection.JavaConverters._
 
 /**
  * Create a trajectory based on a set of known states at known epochs. Then upon evaluation, the state
@@ -44,4 +47,40 @@ class DiscreteTrajectory[F <: ReferenceSystem](val states: java.util.TreeMap[Epo
       entry.getValue
   }
 
+  /**
+   * Convert all the states to Cartesian states, stored in primitive arrays.
+   *
+   * @return The epochs of the states (in chronological order) and the corresponding Cartesian states.
+   */
+  def toPosVelArray: (Array[Epoch], PosVelArray) = {
+    val epochs = new Array[Epoch](states.size())
+    val result = new PosVelArray(states.size())
+    for ((entry, i) <- states.entrySet().asScala.zipWithIndex) {
+      val state = entry.getValue.toPosVel
+      epochs(i) = entry.getKey
+      result.update(i, state.position, state.velocity)
+    }
+    (epochs, result)
+  }
+
+}
+
+object DiscreteTrajectory {
+
+  /**
+   * Create a trajectory from Cartesian states stored in primitive arrays.
+   *
+   * @param epochs Epoch of each state.
+   * @param states Cartesian state at each epoch.
+   * @param frame  Frame in which the states are expressed.
+   * @return A trajectory containing all the given states.
+   */
+  def apply[F <: ReferenceSystem](epochs: Seq[Epoch], states: PosVelArray, frame: F) = {
+    require(epochs.size == states.size, "Expected a state for each epoch")
+    val trajectory = new DiscreteTrajectory[F]()
+    for ((epoch, i) <- epochs.zipWithIndex)
+      trajectory.states.put(epoch, new PosVel(states.position(i), states.velocity(i), frame))
+    trajectory
+  }
+
 }
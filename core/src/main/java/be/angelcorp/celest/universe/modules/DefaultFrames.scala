@@ -14,7 +14,26 @@ import be.angelcorp.celest.frameGraph.frames.transforms._
 import be.angelcorp.celest.universe.Universe
 import be.angelcorp.celest.data.eop.EarthOrientationData
 
-class DefaultFrames extends ScalaModule {
+/**
+ * Default bindings for the reference frames and the transformations between them.
+ * <p>
+ * Both the equinox based (GCRS, EME2000, MOD, ERS, TIRS, ITRS) and the CIO based (GCRS, CIRS, TIRS, ITRS)
+ * transformations between the celestial and terrestrial frames are bound. The CIO based transforms are attached with
+ * a larger weight (see [[be.angelcorp.celest.universe.modules.DefaultFrames#cioRouteWeight]]), so the default route
+ * between the GCRS and TIRS remains the equinox based route. The CIO based route is an alternative that is selected
+ * with a [[be.angelcorp.celest.frameGraph.RoutingPolicy]], for example RoutingPolicy.Fastest.
+ * </p>
+ * <p>
+ * The polar motion between the TIRS and ITRS is shared by both routes, and includes the TIO locator s' (IERS
+ * Conventions 2010, eq. 5.3), as the CIO based route requires. This also applies to the equinox based route, where the
+ * TIO locator was previously neglected. Since s' is about -47 µas per century, this changes the positions of the
+ * equinox based route by less than a millimetre near the surface of the Earth for the current epochs.
+ * </p>
+ *
+ * @param nutationAccuracy Accuracy tier of the IAU2000 nutation series, and of the CIP series of the CIO based
+ *                         transformations.
+ */
+class DefaultFrames(nutationAccuracy: NutationAccuracy = NutationAccuracy.Full) extends ScalaModule {
 
   /**
    * Create the bindings that bind the reference systems to their correct frame implementations
@@ -22,6 +41,7 @@ class DefaultFrames extends ScalaModule {
   def configureSystems() {
     bind[ITRS].to[ITRF2000].in[Singleton]
     bind[TIRS].to[TIRF].in[Singleton]
+    bind[CIRS].to[CIRF].in[Singleton]
     bind[ERS].to[ERF].in[Singleton]
     bind[MOD].to[MODFrame].in[Singleton]
     bind[EME2000].to[EME2000Frame].in[Singleton]
@@ -33,12 +53,15 @@ class DefaultFrames extends ScalaModule {
    * Create the bindings for the reference frame graph transformations
    */
   def configureTransformations() {
+    bind[NutationAccuracy].toInstance(nutationAccuracy)
     bind[PolarMotion[TIRS, ITRS]].toProvider[PolarMotionProvider].in[Singleton]
     bind[EarthRotationGAST[TIRS, ERS]].toProvider[EarthRotationGASTProvider].in[Singleton]
     bind[IAU2000Nutation[MOD, ERS]].toProvider[IAU2000NutationProvider].in[Singleton]
     bind[IAU2006Precession[MOD, EME2000]].toProvider[IAU2006PrecessionProvider].in[Singleton]
     bind[J2000FrameBias[EME2000, GCRS]].toProvider[J2000FrameBiasProvider].in[Singleton]
     bind[SolarSystemBodyOffset[ICRS, GCRS]].toProvider[EarthOffsetProvider].in[Singleton]
+    bind[EarthRotationERA[CIRS, TIRS]].toProvider[EarthRotationERAProvider].in[Singleton]
+    bind[IAU2006CelestialPole[GCRS, CIRS]].toProvider[IAU2006CelestialPoleProvider].in[Singleton]
   }
 
   def configure() {
@@ -58,7 +81,26 @@ class PolarMotionProvider extends Provider[PolarMotion[TIRS, ITRS]] {
   @Inject var itrs: ITRS = null
   @Inject var tirs: TIRS = null
 
-  def get = new PolarMotion(tirs, itrs, eop.cip)
+  def get = new PolarMotion(tirs, itrs, eop.cip, tioLocator = true)
+}
+
+class EarthRotationERAProvider extends Provider[EarthRotationERA[CIRS, TIRS]] {
+  @Inject implicit var universe: Universe = null
+  @Inject var eop: EarthOrientationData = null
+  @Inject var cirs: CIRS = null
+  @Inject var tirs: TIRS = null
+
+  def get = new EarthRotationERA(cirs, tirs, eop.lod)
+}
+
+class IAU2006CelestialPoleProvider extends Provider[IAU2006CelestialPole[GCRS, CIRS]] {
+  @Inject implicit var universe: Universe = null
+  @Inject var eop: EarthOrientationData = null
+  @Inject var gcrs: GCRS = null
+  @Inject var cirs: CIRS = null
+  @Inject var accuracy: NutationAccuracy = null
+
+  def get = new IAU2006CelestialPole(gcrs, cirs, IAU2006CIPSeries.IERS2010(accuracy), eop.cipOffset)
 }
 
 class EarthRotationGASTProvider extends Provider[EarthRotationGAST[TIRS, ERS]] {
@@ -75,8 +117,9 @@ class IAU2000NutationProvider extends Provider[IAU2000Nutation[MOD, ERS]] {
   @Inject implicit var universe: Universe = null
   @Inject implicit var ers: ERS = null
   @Inject implicit var mod: MOD = null
+  @Inject var accuracy: NutationAccuracy = null
 
-  def get() = new IAU2000Nutation(mod, ers, IAU2000NutationLoader.IERS2010)
+  def get() = new IAU2000Nutation(mod, ers, IAU2000NutationLoader.IERS2010, accuracy = accuracy)
 }
 
 class IAU2006PrecessionProvider extends Provider[IAU2006Precession[MOD, EME2000]] {
@@ -126,13 +169,39 @@ class GuiceReferenceFrameGraphProvider extends Provider[ReferenceFrameGraphImpl]
     val frames = transformations.map(t => List(t.fromFrame, t.toFrame)).flatten
     frames.foreach(graph.addVertex)
 
-    // Now add all the transformations between the frames
+    // Now add all the transformations between the frames, with the weight of the transform in the default routing
     transformations.foreach(t => {
+      val weight = DefaultFrames.routeWeight(t)
+      val inverse = t.inverse
       graph.addEdge(t.fromFrame, t.toFrame, t)
-      graph.addEdge(t.toFrame, t.fromFrame, t.inverse)
+      graph.addEdge(t.toFrame, t.fromFrame, inverse)
+      graph.setEdgeWeight(t, weight)
+      graph.setEdgeWeight(inverse, weight)
     })
 
     new ReferenceFrameGraphImpl(graph)
   }
 
 }
+
+object DefaultFrames {
+
+  /**
+   * Weight of the CIO based transforms in the frame graph. Two of these exceed the four transforms of the equinox
+   * based route between the GCRS and TIRS, so the default (shortest) route does not take the CIO based route.
+   */
+  val cioRouteWeight = 3.0
+
+  /**
+   * Weight of a transform in the default routing of the frame graph.
+   *
+   * @param transform Transform attached to the frame graph.
+   * @return [[be.angelcorp.celest.universe.modules.DefaultFrames#cioRouteWeight]] for the CIO based transforms, 1
+   *         otherwise.
+   */
+  def routeWeight(transform: ReferenceFrameTransformFactory[_, _]): Double = transform match {
+    case _: IAU2006CelestialPole[_, _] | _: EarthRotationERA[_, _] => cioRouteWeight
+    case _ => 1.0
+  }
+
+}
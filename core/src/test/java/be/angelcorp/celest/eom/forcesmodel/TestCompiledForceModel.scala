@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.body.CelestialBody
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.physics.quantities.ObjectForce
+import be.angelcorp.celest.potential.GravitationalPotential
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestCompiledForceModel extends FlatSpec with Matchers with CelestTest {
+
+  val μ = 3.986004415E14
+
+  val pointMass = new GravitationalPotential {
+    override def apply(point: Vec3) = -point * (μ / math.pow(point.norm, 3))
+
+    override def toString = "PointMass"
+  }
+
+  val y = Array(7E6, -1E6, 2E5, 1E3, 7E3, 5E2)
+
+  def accelerationOf(model: CompiledForceModel) = {
+    val yDot = Array.fill(6)(Double.NaN)
+    model.derivatives(null, 0.0, y, yDot)
+    yDot
+  }
+
+  "CompiledForceModel" should "sum the accelerations of all the models" in {
+    val thrust = Vec3(1E-3, -2E-3, 3E-3)
+    val model = new CompiledForceModel(AccelerationModel.potential(pointMass), AccelerationModel.constant(thrust))
+    val yDot = accelerationOf(model)
+
+    yDot.take(3) should be(y.drop(3))
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(pointMass(Vec3(y(0), y(1), y(2))) + thrust +- 1E-15)
+    model.profile.map(_.calls) should be(Seq(0L, 0L))
+  }
+
+  it should "profile the evaluations of each model" in {
+    val model = new CompiledForceModel(Array(AccelerationModel.potential(pointMass), AccelerationModel.constant(Vec3.zero)), true)
+    for (i <- 0 until 10) accelerationOf(model)
+
+    val profile = model.profile
+    profile.map(_.name) should be(Seq("PointMass", "ConstantAcceleration(0.0, 0.0, 0.0)"))
+    profile.map(_.calls) should be(Seq(10L, 10L))
+    profile.forall(_.nanos >= 0) should be(true)
+    model.report.lines.size should be(3)
+
+    model.resetProfile()
+    model.profile.map(_.calls) should be(Seq(0L, 0L))
+  }
+
+  it should "be compiled from the forces of a ForceModel" in {
+    val body = new CelestialBody {
+      override def μ = 0.0
+
+      override def mass = 2.0
+    }
+    val forceModel = new ForceModel(body, new ObjectForce(body, Vec3(2, 4, 6)), new ObjectForce(body, Vec3(-1, 0, 1)))
+    val model = forceModel.compile(false)
+    forceModel.addForce(new ObjectForce(body, Vec3(100, 100, 100)))
+
+    val yDot = accelerationOf(model)
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(Vec3(0.5, 2, 3.5))
+  }
+
+  it should "use the current value of the compiled forces" in {
+    var bodyMass = 2.0
+    val body = new CelestialBody {
+      override def μ = 0.0
+
+      override def mass = bodyMass
+    }
+    val force = new ObjectForce(body, Vec3(2, 4, 6))
+    val model = new ForceModel(body, force).compile(false)
+
+    force.setForce(Vec3(-4, 0, 8))
+    val yDot = accelerationOf(model)
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(Vec3(-2, 0, 4))
+
+    bodyMass = 4.0
+    val yDot2 = accelerationOf(model)
+    Vec3(yDot2(3), yDot2(4), yDot2(5)) should be(Vec3(-1, 0, 2))
+  }
+
+}
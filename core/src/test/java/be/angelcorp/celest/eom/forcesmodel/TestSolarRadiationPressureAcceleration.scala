@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.constants.EarthConstants
+import be.angelcorp.celest.ephemeris.jplEphemeris._
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.physics.Units
+import be.angelcorp.celest.unit.{CelestTest, FixedEphemeris, FixedEphemerisTest}
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestSolarRadiationPressureAcceleration extends FlatSpec with Matchers with CelestTest with FixedEphemerisTest {
+
+  val sun = FixedEphemeris.sun
+  val moon = FixedEphemeris.moon
+  val R = EarthConstants.radiusEquatorial
+
+  /** Point behind the Earth (away from the Sun), at an offset perpendicular to the shadow axis */
+  def behindEarth(distance: Double, offset: Double) = {
+    val axis = -sun.normalized
+    val n = axis.cross(Vec3(0, 0, 1)).normalized
+    axis * distance + n * offset
+  }
+
+  def fraction(shadow: ShadowFunction, r: Vec3) =
+    shadow(r.x, r.y, r.z, sun.x, sun.y, sun.z, 0, 0, 0, R)
+
+  "ShadowFunction.cylindrical" should "only shadow points behind the occulting body, within its radius" in {
+    fraction(ShadowFunction.cylindrical, -behindEarth(7E6, 0)) should be(1.0)
+    fraction(ShadowFunction.cylindrical, behindEarth(7E6, 0)) should be(0.0)
+    fraction(ShadowFunction.cylindrical, behindEarth(7E6, 0.99 * R)) should be(0.0)
+    fraction(ShadowFunction.cylindrical, behindEarth(7E6, 1.01 * R)) should be(1.0)
+    fraction(ShadowFunction.cylindrical, behindEarth(4.2E7, 0.5 * R)) should be(0.0)
+  }
+
+  "ShadowFunction.conical" should "have a full sunlight, penumbra and umbra region" in {
+    fraction(ShadowFunction.conical, -behindEarth(7E6, 0)) should be(1.0)
+    fraction(ShadowFunction.conical, behindEarth(7E6, 0)) should be(0.0)
+    fraction(ShadowFunction.conical, behindEarth(7E6, 1.1 * R)) should be(1.0)
+
+    // Crossing the edge of the shadow of the Earth at GEO distance
+    val samples = (-300 to 300).map(i => fraction(ShadowFunction.conical, behindEarth(4.2E7, R + i * 1E3)))
+    samples.head should be(0.0)
+    samples.last should be(1.0)
+    samples.exists(ν => ν > 0.1 && ν < 0.9) should be(true)
+    all(samples) should (be >= 0.0 and be <= 1.0)
+    samples.sliding(2).foreach(pair => pair(1) should be >= pair(0))
+  }
+
+  it should "reduce to the cylindrical shadow for a point-like Sun" in {
+    val point = new ConicalShadow(1.0)
+    for (offset <- Seq(0.0, 0.5, 0.98, 1.02, 2.0); distance <- Seq(7E6, 4.2E7)) {
+      val r = behindEarth(distance, offset * R)
+      fraction(point, r) should be(fraction(ShadowFunction.cylindrical, r))
+    }
+  }
+
+  it should "model an annular eclipse by a small occulting body" in {
+    // A body with half the apparent radius of the Sun, centered on the solar disk
+    val a = math.asin(6.955E8 / sun.norm)
+    val r = Vec3(0, 0, 0)
+    val o = sun.normalized * 1E6
+    val ν = ShadowFunction.conical(r.x, r.y, r.z, sun.x, sun.y, sun.z, o.x, o.y, o.z, 1E6 * math.tan(a / 2))
+    ν should be(0.75 +- 1E-4)
+  }
+
+  "SolarRadiationPressureAcceleration" should "push the body away from the Sun in full sunlight" in {
+    val positions = new BodyPositions(new FixedEphemeris, Earth(), IndexedSeq(Sun(), Moon()))
+    val srp = SolarRadiationPressureAcceleration.earthMoon(positions, 1.3, 20.0, 1500.0)
+    val model = new CompiledForceModel(srp)
+
+    val r = -behindEarth(4.2E7, 0)
+    val y = Array(r.x, r.y, r.z, 0, 0, 0)
+    val yDot = new Array[Double](6)
+    model.derivatives(epoch, 0.0, y, yDot)
+
+    val d = r - sun
+    val expected = d.normalized * (4.56E-6 * 1.3 * 20.0 / 1500.0 * math.pow(Units.AU / d.norm, 2))
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(expected +- 1E-12 * expected.norm)
+  }
+
+  it should "vanish in the shadow of the Earth and the Moon" in {
+    val positions = new BodyPositions(new FixedEphemeris, Earth(), IndexedSeq(Sun(), Moon()))
+    val model = new CompiledForceModel(SolarRadiationPressureAcceleration.earthMoon(positions, 1.3, 20.0, 1500.0))
+    val behindMoon = moon + (moon - sun).normalized * 1E6
+    for (r <- Seq(behindEarth(4.2E7, 0), behindMoon)) {
+      val y = Array(r.x, r.y, r.z, 0, 0, 0)
+      val yDot = new Array[Double](6)
+      model.derivatives(epoch, 0.0, y, yDot)
+      Vec3(yDot(3), yDot(4), yDot(5)) should be(Vec3(0, 0, 0))
+    }
+  }
+
+  it should "share the ephemeris lookups with the third body perturbations" in {
+    val ephemeris = new FixedEphemeris
+    val positions = new BodyPositions(ephemeris, Earth(), IndexedSeq(Sun(), Moon()))
+    val model = new CompiledForceModel(new ThirdBodyAcceleration(positions, Sun(), 1.32712440018E20),
+      new ThirdBodyAcceleration(positions, Moon(), 4.9028E12),
+      SolarRadiationPressureAcceleration.earthMoon(positions, 1.3, 20.0, 1500.0))
+    val y = Array(4.2E7, 0, 0, 0, 3.07E3, 0)
+    val yDot = new Array[Double](6)
+
+    model.derivatives(epoch, 10.0, y, yDot)
+    ephemeris.lookups should be(3)
+    model.derivatives(epoch, 10.0, y, yDot)
+    ephemeris.lookups should be(3)
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.ephemeris.jplEphemeris._
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.unit.{CelestTest, FixedEphemeris, FixedEphemerisTest}
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestThirdBodyAcceleration extends FlatSpec with Matchers with CelestTest with FixedEphemerisTest {
+
+  val μSun = 1.32712440018E20
+  val μMoon = 4.9028E12
+
+  /** The perturbation, evaluated directly as the difference of two accelerations */
+  def direct(μ: Double, r: Vec3, s: Vec3) =
+    (s - r) * (μ / math.pow((s - r).norm, 3)) - s * (μ / math.pow(s.norm, 3))
+
+  "ThirdBodyAcceleration" should "match the direct evaluation of the perturbation" in {
+    val ephemeris = new FixedEphemeris
+    val positions = new BodyPositions(ephemeris, Earth(), IndexedSeq(Sun(), Moon()))
+    val model = new CompiledForceModel(new ThirdBodyAcceleration(positions, Sun(), μSun), new ThirdBodyAcceleration(positions, Moon(), μMoon))
+
+    val sun = FixedEphemeris.sun
+    val moon = FixedEphemeris.moon
+    for (r <- Seq(Vec3(7E6, 0, 0), Vec3(-3E7, 2E7, 1E6), Vec3(1E8, 1.5E8, -5E7))) {
+      val y = Array(r.x, r.y, r.z, 0, 0, 0)
+      val yDot = new Array[Double](6)
+      model.derivatives(epoch, 0.0, y, yDot)
+      val expected = direct(μSun, r, sun) + direct(μMoon, r, moon)
+      Vec3(yDot(3), yDot(4), yDot(5)) should be(expected +- 1E-8 * expected.norm)
+    }
+  }
+
+  it should "look up all the bodies once per epoch" in {
+    val ephemeris = new FixedEphemeris
+    val positions = new BodyPositions(ephemeris, Earth(), IndexedSeq(Sun(), Moon()))
+    val model = new CompiledForceModel(new ThirdBodyAcceleration(positions, Sun(), μSun), new ThirdBodyAcceleration(positions, Moon(), μMoon))
+    val y = Array(7E6, 0, 0, 0, 7.5E3, 0)
+    val yDot = new Array[Double](6)
+
+    model.derivatives(epoch, 10.0, y, yDot)
+    ephemeris.lookups should be(3)
+    model.derivatives(epoch, 10.0, y, yDot)
+    ephemeris.lookups should be(3)
+    model.derivatives(epoch, 20.0, y, yDot)
+    ephemeris.lookups should be(6)
+  }
+
+  it should "remain accurate for a distant perturber" in {
+    val positions = new BodyPositions(new FixedEphemeris, Earth(), IndexedSeq(Sun()))
+    val model = new CompiledForceModel(new ThirdBodyAcceleration(positions, Sun(), μSun))
+    val r = Vec3(1, 2, -1)
+    val yDot = new Array[Double](6)
+    model.derivatives(epoch, 0.0, Array(r.x, r.y, r.z, 0, 0, 0), yDot)
+
+    // Tidal acceleration to first order: μ / s³ (3 (ŝ·r) ŝ - r)
+    val s = Vec3(-1.4E11, 5E10, -2E10)
+    val ŝ = s.normalized
+    val tidal = (ŝ * (3 * (ŝ dot r)) - r) * (μSun / math.pow(s.norm, 3))
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(tidal +- 1E-9 * tidal.norm)
+  }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.eom.forcesmodel
+
+import be.angelcorp.celest.ephemeris.jplEphemeris._
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.potential.{GravitationalPotential, PointMassPotential}
+import be.angelcorp.celest.stateIntegrator.StatePropagator
+import be.angelcorp.celest.time.Epoch
+import be.angelcorp.celest.unit.{CelestTest, FixedEphemeris, FixedEphemerisTest}
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestVariationalEquations extends FlatSpec with Matchers with CelestTest with FixedEphemerisTest {
+
+  val μ = 3.986004415E14
+  val a = 7E6
+  val n = math.sqrt(μ / (a * a * a))
+
+  def integrator = new DormandPrince853Integrator(1E-3, 1E3, 1E-6, 1E-12)
+
+  /** The partial derivatives of a model, computed with central differences of its acceleration */
+  def numericalPartials(model: AccelerationModel, y: Array[Double]) = {
+    val partials = new Array[Double](18)
+    for (j <- 0 until 6) {
+      val h = if (j < 3) 1.0 else 1E-3
+      val forward = y.clone()
+      val backward = y.clone()
+      forward(j) += h
+      backward(j) -= h
+      val aForward = new Array[Double](6)
+      val aBackward = new Array[Double](6)
+      model.accumulate(epoch, 0.0, forward, aForward)
+      model.accumulate(epoch, 0.0, backward, aBackward)
+      for (i <- 0 until 3)
+        partials(6 * i + j) = (aForward(3 + i) - aBackward(3 + i)) / (2 * h)
+    }
+    partials
+  }
+
+  def analyticPartials(model: AccelerationPartials, y: Array[Double]) = {
+    val partials = new Array[Double](18)
+    model.accumulatePartials(epoch, 0.0, y, new Array[Double](6), partials)
+    partials
+  }
+
+  "PointMassPotential" should "match the numerical gravity gradient" in {
+    val point = Vec3(5E6, -4E6, 2E6)
+    val analytic = new Array[Double](9)
+    PointMassPotential.gradient(μ, point.x, point.y, point.z, analytic)
+
+    val numerical = new Array[Double](9)
+    val potential = new GravitationalPotential {
+      override def apply(point: Vec3) = -point * (μ / math.pow(point.norm, 3))
+    }
+    potential.gradient(point, numerical)
+
+    val scale = analytic.map(math.abs(_)).max
+    for (i <- 0 until 9)
+      numerical(i) should be(analytic(i) +- 1E-6 * scale)
+  }
+
+  "AccelerationPartials" should "match the numerical partials of the point mass, potential and third body models" in {
+    val positions = new BodyPositions(new FixedEphemeris, Earth(), IndexedSeq(Sun()))
+    val potential = AccelerationModel.potential(new GravitationalPotential {
+      override def apply(point: Vec3) = -point * (μ / math.pow(point.norm, 3))
+      override def gradient(point: Vec3, result: Array[Double]) {
+        PointMassPotential.gradient(μ, point.x, point.y, point.z, result)
+      }
+      override def analyticGradient = true
+    })
+    potential.isInstanceOf[AccelerationPartials] should be(true)
+    val y = Array(5E6, -4E6, 2E6, 1E3, 6E3, -2E3)
+    for (model <- Seq(AccelerationModel.pointMass(μ), potential.asInstanceOf[AccelerationPartials],
+                      new ThirdBodyAcceleration(positions, Sun(), 1.32712440018E20))) {
+      val analytic = analyticPartials(model, y)
+      val numerical = numericalPartials(model, y)
+      val scale = analytic.map(math.abs(_)).max
+      for (i <- 0 until 18)
+        analytic(i) should be(numerical(i) +- 1E-6 * scale)
+    }
+  }
+
+  it should "not be supplied for potentials without an analytic gravity gradient" in {
+    val potential = AccelerationModel.potential(new GravitationalPotential {
+      override def apply(point: Vec3) = -point * (μ / math.pow(point.norm, 3))
+    })
+    potential.isInstanceOf[AccelerationPartials] should be(false)
+    new VariationalEquations(new CompiledForceModel(potential)).numerical should be(IndexedSeq(potential))
+  }
+
+  "VariationalEquations" should "match the transition matrix of finite differences of full propagations" in {
+    val model = new CompiledForceModel(AccelerationModel.pointMass(μ), AccelerationModel.constant(Vec3(1E-6, -2E-6, 5E-7)))
+    val equations = new VariationalEquations(model)
+    equations.numerical should be(empty)
+
+    val y0 = Array(a, 0, 0, 0, 1.01 * a * n, 300.0)
+    val t = 3000.0
+    val y = new Array[Double](42)
+    new StatePropagator(integrator, equations).integrate(epoch, VariationalEquations.initialState(y0), t, y)
+    val stm = VariationalEquations.transitionMatrix(y)
+
+    val propagator = new StatePropagator(integrator, model)
+    for (j <- 0 until 6) {
+      val h = if (j < 3) 1.0 else 1E-3
+      val forward = y0.clone()
+      val backward = y0.clone()
+      forward(j) += h
+      backward(j) -= h
+      val yForward = new Array[Double](6)
+      val yBackward = new Array[Double](6)
+      propagator.integrate(epoch, forward, t, yForward)
+      propagator.integrate(epoch, backward, t, yBackward)
+
+      val column = stm.getColumnVector(j)
+      for (i <- 0 until 6)
+        column.getEntry(i) should be((yForward(i) - yBackward(i)) / (2 * h) +- 1E-5 * column.getNorm)
+    }
+  }
+
+  it should "propagate the same state as the force model" in {
+    val model = new CompiledForceModel(AccelerationModel.pointMass(μ))
+    val y0 = Array(a, 0, 0, 0, a * n, 0)
+    val y = new Array[Double](42)
+    val yState = new Array[Double](6)
+    new StatePropagator(integrator, new VariationalEquations(model)).integrate(epoch, VariationalEquations.initialState(y0), 2000.0, y)
+    new StatePropagator(integrator, model).integrate(epoch, y0, 2000.0, yState)
+    for (i <- 0 until 6)
+      y(i) should be(yState(i) +- 1E-3)
+  }
+
+  it should "differentiate models without analytic partials numerically" in {
+    // A linear drag, a = -k v, of which the transition matrix is known in closed form
+    val k = 1E-3
+    val drag = new AccelerationModel {
+      override def accumulate(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+        yDot(3) -= k * y(3)
+        yDot(4) -= k * y(4)
+        yDot(5) -= k * y(5)
+      }
+    }
+    val equations = new VariationalEquations(new CompiledForceModel(drag))
+    equations.numerical should be(IndexedSeq(drag))
+
+    val t = 1000.0
+    val y = new Array[Double](42)
+    val accurate = new DormandPrince853Integrator(1E-3, 1E2, 1E-10, 1E-12)
+    new StatePropagator(accurate, equations).integrate(epoch, VariationalEquations.initialState(Array(a, 0, 0, 0, 7.5E3, 100.0)), t, y)
+    val stm = VariationalEquations.transitionMatrix(y)
+
+    val decay = math.exp(-k * t)
+    for (i <- 0 until 3; j <- 0 until 3) {
+      val δ = if (i == j) 1.0 else 0.0
+      stm.getEntry(i, j) should be(δ +- 1E-8)
+      stm.getEntry(i, 3 + j) should be(δ * (1 - decay) / k +- 1E-6)
+      stm.getEntry(3 + i, j) should be(0.0 +- 1E-8)
+      stm.getEntry(3 + i, 3 + j) should be(δ * decay +- 1E-8)
+    }
+  }
+
+}
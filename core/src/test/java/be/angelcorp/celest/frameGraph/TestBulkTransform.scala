@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import be.angelcorp.celest.frameGraph.transformations.{KinematicTransformation, TransformationParameters}
+import be.angelcorp.celest.math.geometry.{Mat3, Vec3}
+import be.angelcorp.celest.math.rotation.RotationMatrix
+import be.angelcorp.celest.time.JulianDate
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+/**
+ * Checks that the packed array transformations of [[be.angelcorp.celest.frameGraph.ReferenceFrameTransform]] produce
+ * the same results as the single vector versions.
+ */
+class TestBulkTransform extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+  val parameters = new TransformationParameters(epoch,
+    Vec3(1E3, -2E3, 5E2), Vec3(1, 2, -3), Vec3(1E-3, 2E-3, 3E-3),
+    new RotationMatrix(Mat3.rotateZ(0.3) dot Mat3.rotateX(-0.2)), Vec3(1E-5, -2E-5, 7.29E-5), Vec3(1E-9, 2E-9, -3E-9))
+
+  val transform = new KinematicTransformation[ReferenceSystem, ReferenceSystem](null, epoch, parameters)
+
+  val states = for (i <- 0 until 10) yield (Vec3.random() * 7E6, Vec3.random() * 7E3, Vec3.random() * 10)
+
+  def pack(vectors: Seq[Vec3]) = vectors.flatMap(v => Seq(v.x, v.y, v.z)).toArray
+
+  def unpack(array: Array[Double], i: Int) = Vec3(array(3 * i), array(3 * i + 1), array(3 * i + 2))
+
+  "KinematicTransformation" should "transform packed positions identically to single positions" in {
+    val positions = pack(states.map(_._1))
+    val result = new Array[Double](positions.length)
+    transform.transformPos(positions, result)
+
+    for ((state, i) <- states.zipWithIndex)
+      unpack(result, i) should be(transform.transformPos(state._1) +- 1E-6)
+  }
+
+  it should "transform packed positions, velocities and accelerations identically to single states" in {
+    val positions = pack(states.map(_._1))
+    val velocities = pack(states.map(_._2))
+    val accelerations = pack(states.map(_._3))
+    // Transform in place
+    transform.transformPosVelAcc(positions, velocities, accelerations, positions, velocities, accelerations)
+
+    for ((state, i) <- states.zipWithIndex) {
+      val (p, v, a) = transform.transformPosVelAcc(state._1, state._2, state._3)
+      unpack(positions, i) should be(p +- 1E-6)
+      unpack(velocities, i) should be(v +- 1E-9)
+      unpack(accelerations, i) should be(a +- 1E-12)
+    }
+  }
+
+  it should "transform states into result vectors identically to the packed arrays" in {
+    val positions = pack(states.map(_._1))
+    val velocities = pack(states.map(_._2))
+    val accelerations = pack(states.map(_._3))
+    transform.transformPosVelAcc(positions, velocities, accelerations, positions, velocities, accelerations)
+
+    for ((state, i) <- states.zipWithIndex) {
+      // Transform copies of the state in place
+      val (p, v, a) = (Vec3(state._1), Vec3(state._2), Vec3(state._3))
+      transform.transformPosVelAcc(p, v, a, p, v, a)
+      p should be(unpack(positions, i) +- 1E-6)
+      v should be(unpack(velocities, i) +- 1E-9)
+      a should be(unpack(accelerations, i) +- 1E-12)
+
+      val (p2, v2) = (Vec3.zero, Vec3.zero)
+      transform.transformPosVel(state._1, state._2, p2, v2)
+      p2 should be(unpack(positions, i) +- 1E-6)
+      v2 should be(unpack(velocities, i) +- 1E-9)
+    }
+  }
+
+  "CompositeFrameTransform" should "transform packed positions and velocities identically to single states" in {
+    val composite = new CompositeFrameTransform[ReferenceSystem, ReferenceSystem, ReferenceSystem](null, epoch, transform, transform)
+
+    val positions = pack(states.map(_._1))
+    val velocities = pack(states.map(_._2))
+    val resultPosition = new Array[Double](positions.length)
+    val resultVelocity = new Array[Double](velocities.length)
+    composite.transformPosVel(positions, velocities, resultPosition, resultVelocity)
+
+    for ((state, i) <- states.zipWithIndex) {
+      val (p, v) = composite.transformPosVel(state._1, state._2)
+      unpack(resultPosition, i) should be(p +- 1E-6)
+      unpack(resultVelocity, i) should be(v +- 1E-9)
+    }
+  }
+
+  it should "transform states into result vectors identically to single states" in {
+    val composite = new CompositeFrameTransform[ReferenceSystem, ReferenceSystem, ReferenceSystem](null, epoch, transform, transform)
+
+    for (state <- states) {
+      val (p, v, a) = composite.transformPosVelAcc(state._1, state._2, state._3)
+      val (rp, rv, ra) = (Vec3.zero, Vec3.zero, Vec3.zero)
+      composite.transformPosVelAcc(state._1, state._2, state._3, rp, rv, ra)
+      rp should be(p +- 1E-6)
+      rv should be(v +- 1E-9)
+      ra should be(a +- 1E-12)
+
+      composite.transformPos(state._1, rp)
+      rp should be(p +- 1E-6)
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Callable, Executors, TimeUnit}
+
+import be.angelcorp.celest.frameGraph.transformations.{ConstantRotationTransformFactory, TranslationalTransformFactory}
+import be.angelcorp.celest.math.geometry.{Mat3, Vec3}
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+class TestCachedTransformFactory extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  /** Translates by the epoch jd along the x-axis, and counts the number of evaluations */
+  class CountingTranslation extends TranslationalTransformFactory[ReferenceSystem, ReferenceSystem] {
+    val evaluations = new AtomicInteger()
+    def translation(epoch: Epoch) = {
+      evaluations.incrementAndGet()
+      Vec3(epoch.jd, 0, 0)
+    }
+    def cost(epoch: Epoch) = 50.0
+    def fromFrame: ReferenceSystem = null
+    def toFrame: ReferenceSystem = null
+  }
+
+  "CachedTransformFactory" should "compute the transform of an epoch only once" in {
+    val factory = new CountingTranslation
+    val cached = CachedTransformFactory(factory)
+
+    val epoch = new JulianDate(5)
+    cached.cost(epoch) should be(50.0)
+    val transform = cached.transform(epoch)
+    cached.transform(new JulianDate(5)) should be theSameInstanceAs transform
+    cached.cost(epoch) should be(50.0)
+
+    transform.transformPos(Vec3.zero) should be(Vec3(5, 0, 0) +- 1E-12)
+    factory.evaluations.get() should be(1)
+    cached.statistics.hitCount() should be(1)
+    cached.statistics.missCount() should be(1)
+  }
+
+  it should "evict the transforms when it is full" in {
+    val factory = new CountingTranslation
+    val cached = CachedTransformFactory(factory, capacity = 10)
+
+    for (i <- 0 until 100)
+      cached.transform(new JulianDate(i))
+
+    cached.size should be <= 10L
+    cached.statistics.evictionCount() should be >= 90L
+
+    cached.clear()
+    cached.size should be(0L)
+  }
+
+  it should "produce the inverse transforms using a cached inverse factory" in {
+    val factory = new CountingTranslation
+    val cached = CachedTransformFactory(factory)
+
+    cached.inverse.inverse should be theSameInstanceAs cached
+    cached.inverse.transform(new JulianDate(3)).transformPos(Vec3.zero) should be(Vec3(-3, 0, 0) +- 1E-12)
+    cached.inverse.transform(new JulianDate(3))
+    cached.transform(new JulianDate(3)).transformPos(Vec3.zero) should be(Vec3(3, 0, 0) +- 1E-12)
+    factory.evaluations.get() should be(1)
+  }
+
+  it should "invert a cached rotation without evaluating the rotation again" in {
+    val evaluations = new AtomicInteger()
+    val factory = new ConstantRotationTransformFactory[ReferenceSystem, ReferenceSystem] {
+      def rotationMatrix(epoch: Epoch) = {
+        evaluations.incrementAndGet()
+        Mat3.rotateZ(0.3) dot Mat3.rotateX(-0.2)
+      }
+      def cost(epoch: Epoch) = 50.0
+      def fromFrame: ReferenceSystem = null
+      def toFrame: ReferenceSystem = null
+    }
+    val cached = CachedTransformFactory(factory)
+
+    val epoch = new JulianDate(3)
+    val vector = Vec3(7E6, -2E6, 1E6)
+    val rotated = cached.transform(epoch).transformPos(vector)
+    (rotated - vector).norm should be > 1E5
+    cached.inverse.transform(epoch).transformPos(rotated) should be(vector +- 1E-6)
+    cached.transform(epoch).inverse.transformPos(rotated) should be(vector +- 1E-6)
+    evaluations.get() should be(1)
+  }
+
+  it should "share the transforms between concurrent callers" in {
+    val factory = new CountingTranslation
+    val cached = CachedTransformFactory(factory)
+
+    val pool = Executors.newFixedThreadPool(8)
+    val tasks = for (satellite <- 0 until 200) yield new Callable[Vec3] {
+      def call() = {
+        var result = Vec3.zero
+        for (i <- 0 until 20)
+          result = cached.transform(new JulianDate(i)).transformPos(result)
+        result
+      }
+    }
+    val results = pool.invokeAll(tasks.asJava).asScala.map(_.get())
+    pool.shutdown()
+    pool.awaitTermination(1, TimeUnit.MINUTES)
+
+    results.foreach(_ should be(Vec3((0 until 20).sum, 0, 0) +- 1E-9))
+    factory.evaluations.get() should be(20)
+  }
+
+}
@@ -75,4 +75,28 @@ class TestEarthRotation extends FlatSpec with ShouldMatchers with CelestTest {
     sofaMatrix should be rotation (R +- arcSecond(1E-3))
   }
 
+  it should "evaluate the nutation series only once per epoch when combined with the nutation transform" in {
+    val epoch = new JulianDate(2013,  4, 27, 12, 33, 18.1938271, TT)
+    val mockLOD = new ExcessLengthOfDay {
+      def lod(epoch: Epoch) = 0.0
+    }
+
+    var evaluations = 0
+    val nutation = new IAU2000Nutation(null, null, IAU2000NutationLoader.MHB2000_2000B, false) {
+      override def nutationParameters(t: Double, fundamental: (Double, Double, Double, Double, Double),
+                                      planetary: (Double, Double, Double, Double, Double, Double, Double, Double, Double)) = {
+        evaluations += 1
+        super.nutationParameters(t, fundamental, planetary)
+      }
+    }
+    val transformer = new EarthRotationGAST(null, null, nutation, mockLOD)
+
+    nutation.transform(epoch)
+    transformer.transform(epoch)
+    evaluations should be(1)
+
+    transformer.transform(epoch.addS(1.0))
+    evaluations should be(2)
+  }
+
 }
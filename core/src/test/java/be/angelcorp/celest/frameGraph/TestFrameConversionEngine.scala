@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import be.angelcorp.celest.frameGraph.transformations.TranslationalTransformFactory
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.trajectory.DiscreteTrajectory
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestFrameConversionEngine extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  /** Translation that depends on the epoch, and counts how many times it was evaluated */
+  class CountingTranslation extends TranslationalTransformFactory[ReferenceSystem, ReferenceSystem] {
+    val evaluations = new AtomicInteger()
+    def translation(epoch: Epoch) = {
+      evaluations.incrementAndGet()
+      Vec3(epoch.jd, 0, 0)
+    }
+    def cost(epoch: Epoch) = 0.0
+    def fromFrame: ReferenceSystem = null
+    def toFrame: ReferenceSystem = null
+  }
+
+  "FrameConversionEngine" should "convert all the states of a DiscreteTrajectory" in {
+    val factory = new CountingTranslation
+    val engine = new FrameConversionEngine(factory)
+
+    val trajectory = new DiscreteTrajectory[ReferenceSystem]()
+    for (i <- 0 until 100)
+      trajectory.states.put(new JulianDate(i), PosVel[ReferenceSystem](i, 2 * i, 3 * i, 1, 2, 3, null))
+
+    val series = engine.convert(trajectory)
+
+    series.size should be(100)
+    for (i <- 0 until 100) {
+      series.epochs(i).jd should be(i.toDouble)
+      series.position(i) should be(Vec3(2 * i, 2 * i, 3 * i) +- 1E-12)
+      series.velocity(i) should be(Vec3(1, 2, 3) +- 1E-12)
+    }
+    factory.evaluations.get() should be(100)
+  }
+
+  it should "create only a single transform for repeated epochs" in {
+    val factory = new CountingTranslation
+    val engine = new FrameConversionEngine(factory)
+
+    val epochs = Array.tabulate[Epoch](60)(i => new JulianDate(i % 3))
+    val positions = new Array[Double](3 * epochs.length)
+    val velocities = new Array[Double](3 * epochs.length)
+
+    val series = engine.convert(epochs, positions, velocities)
+
+    for (i <- 0 until epochs.length)
+      series.position(i) should be(Vec3(i % 3, 0, 0) +- 1E-12)
+    factory.evaluations.get() should be(3)
+  }
+
+}
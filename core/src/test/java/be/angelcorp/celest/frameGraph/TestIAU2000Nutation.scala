@@ -16,6 +16,8 @@
 
 package be.angelcorp.celest.frameGraph
 
+import java.nio.file.Files
+
 import be.angelcorp.celest.frameGraph.frames.transforms._
 import be.angelcorp.celest.math.geometry.Mat3
 import be.angelcorp.celest.time.JulianDate
@@ -68,4 +70,66 @@ class TestIAU2000Nutation extends FlatSpec with Matchers with CelestTest {
     transform.M should be rotation (sofaRotation +- arcSecond(1E-3))
   }
 
+  "IAU2000NutationSeries" should "match the term by term evaluation of the series" in {
+    val coefficients = IAU2000NutationLoader.MHB2000_2000A
+    val directSeries = new IAU2000NutationSeries(coefficients, recurrence = false)
+    val recurrenceSeries = new IAU2000NutationSeries(coefficients, recurrence = true)
+
+    for (t <- Seq(-1.0, -0.1, 0.0, 0.13, 0.5, 1.0)) {
+      val (dψ, dε) = coefficients.foldLeft((0.0, 0.0))((nut, entry) => {
+        val (δΔψ, δΔε) = entry.nutationContribution(t)
+        (nut._1 + δΔψ, nut._2 + δΔε)
+      })
+
+      val (dψ1, dε1) = directSeries.evaluate(t)
+      dψ1 should be(dψ +- 1E-9)
+      dε1 should be(dε +- 1E-9)
+
+      val (dψ2, dε2) = recurrenceSeries.evaluate(t)
+      dψ2 should be(dψ +- 1E-9)
+      dε2 should be(dε +- 1E-9)
+    }
+  }
+
+  "IAU2000Nutation" should "stay within the error budget of a truncated accuracy tier" in {
+    val epoch = new JulianDate(2013,  4, 27, 12, 33, 18.1938271, TT)
+
+    val coefficients = IAU2000NutationLoader.MHB2000_2000A
+    val full = new IAU2000Nutation(null, null, coefficients, false)
+    val truncated = new IAU2000Nutation(null, null, coefficients, false, NutationAccuracy.Milliarcsecond)
+
+    full.errorBudget.droppedTerms should be(0)
+    truncated.errorBudget.droppedTerms should be > 0
+    truncated.errorBudget.maxLongitude should be > 0.0
+
+    val (δψ, δε) = full.nutationParameters(epoch)
+    val (δψ1, δε1) = truncated.nutationParameters(epoch)
+    δψ1 should be(δψ +- truncated.errorBudget.maxLongitude)
+    δε1 should be(δε +- truncated.errorBudget.maxObliquity)
+  }
+
+  "IAU2000NutationCache" should "restore the parsed nutation tables" in {
+    val coefficients = IAU2000NutationLoader.MHB2000_2000B
+    val file = Files.createTempDirectory("nutation").resolve("MHB2000_2000B.bin")
+
+    var parsed = 0
+    def load(checksum: Long) = IAU2000NutationCache.load(file, checksum) {
+      parsed += 1
+      coefficients
+    }
+
+    load(42) should be theSameInstanceAs coefficients
+    val cached = load(42)
+    parsed should be(1)
+    cached.size should be(coefficients.size)
+    for ((c, e) <- cached zip coefficients) {
+      IAU2000NutationSeries.multipliers(c) should be(IAU2000NutationSeries.multipliers(e))
+      Seq(c.ls, c.lst, c.lc, c.lct, c.os, c.ost, c.oc, c.oct) should be(Seq(e.ls, e.lst, e.lc, e.lct, e.os, e.ost, e.oc, e.oct))
+    }
+
+    // A different source checksum invalidates the cache
+    load(43)
+    parsed should be(2)
+  }
+
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import be.angelcorp.celest.data.eop.PoleProvider
+import be.angelcorp.celest.frameGraph.frames.transforms.{IAU2006CIPSeries, IAU2006CelestialPole}
+import be.angelcorp.celest.math.geometry.Mat3
+import be.angelcorp.celest.physics.Units._
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestIAU2006CelestialPole extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  /**
+   * Same test case as TestSofaCelestialPoleTransform in celest-sofa, based on "A Demonstration of SOFA's Earth
+   * Orientation Routines" by Catherine Hohenkerk (HM Nautical Almanac Office, UK).
+   */
+  "IAU2006CelestialPole" should "produce the same GCRS to CIRS matrix as sofa" in {
+    val cipOffset = new PoleProvider {
+      override def polarCoordinatesOn(epoch: Epoch) = (arcSeconds(-0.2e-6), arcSeconds(-0.1e-6))
+    }
+
+    val epoch = new JulianDate(2456550.5 + 0.72994425925925921, TT)
+    val factory = new IAU2006CelestialPole(null, null, IAU2006CIPSeries.IERS2010(), cipOffset)
+
+    val sofaRotation = Mat3(
+      +0.999999083339440, -0.000000009906291, -0.001354001580088,
+      +0.000000055780499, +0.999999999426057, +0.000033880431031,
+      +0.001354001578976, -0.000033880475501, +0.999999082765498
+    )
+
+    factory.rotationMatrix(epoch) should be rotation (sofaRotation +- arcSeconds(1E-4))
+  }
+
+}
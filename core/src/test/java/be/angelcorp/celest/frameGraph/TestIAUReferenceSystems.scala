@@ -96,4 +96,46 @@ class TestIAUReferenceSystems extends FlatSpec with Matchers {
     pvMOD_corr.velocity.z should be(5.531790562E3 +- 1E-3)
   }
 
+  it should "keep the equinox based transformations as the default route between the GCRS and TIRS" in {
+    implicit val universe = makeUniverse(new EarthOrientationDataEntry(2004, 4, 6, 53101, arcSeconds(-0.140682), arcSeconds(0.333309), -0.439962, 0.001556, arcSeconds(-0.000199), arcSeconds(-0.000252)))
+    val framegraph = universe.instance[ReferenceFrameGraph].asInstanceOf[ReferenceFrameGraphImpl]
+    val gcrs = universe.instance[GCRS]
+    val tirs = universe.instance[TIRS]
+    val ers = universe.instance[ERS]
+    val cirs = universe.instance[CIRS]
+
+    val frames = framegraph.findPath(_ == gcrs, _ == tirs).get.flatMap(t => Seq(t.fromFrame, t.toFrame))
+    frames should contain(ers)
+    frames should not contain cirs
+  }
+
+  it should "use the CIO based transformations between the ITRS and GCRS when selected" in {
+    implicit val universe = makeUniverse(new EarthOrientationDataEntry(2004, 4, 6, 53101, arcSeconds(-0.140682), arcSeconds(0.333309), -0.439962, 0.001556, arcSeconds(-0.000199), arcSeconds(-0.000252)))
+    val epoch = new JulianDate(2453101.82815474550, TT)
+    val framegraph = universe.instance[ReferenceFrameGraph]
+
+    val itrf = universe.instance[ITRS]
+    val pv = new PosVel(
+      Vec3(-1033.4793830E3, 7901.2952754E3, 6380.3565958E3),
+      Vec3(-3.225636520E3, -2.872451450E3, 5.531924446E3),
+      itrf
+    )
+
+    val pvCIRS = framegraph.getTransform(itrf, universe.instance[CIRS], epoch).get.transform(pv).toPosVel
+    pvCIRS.position.x should be(5100.0184047E3 +- 1E-2)
+    pvCIRS.position.y should be(6122.7863648E3 +- 1E-2)
+    pvCIRS.position.z should be(6380.3445327E3 +- 1E-2)
+    pvCIRS.velocity.x should be(-4.745380330E3 +- 1E-3)
+    pvCIRS.velocity.y should be(0.790341453E3 +- 1E-3)
+    pvCIRS.velocity.z should be(5.531931288E3 +- 1E-3)
+
+    val pvGCRS = framegraph.getTransform(itrf, universe.instance[GCRS], epoch, RoutingPolicy.Fastest).get.transform(pv).toPosVel
+    pvGCRS.position.x should be(5102.5089579E3 +- 1E-2)
+    pvGCRS.position.y should be(6123.0114007E3 +- 1E-2)
+    pvGCRS.position.z should be(6378.1369282E3 +- 1E-2)
+    pvGCRS.velocity.x should be(-4.743220157E3 +- 1E-3)
+    pvGCRS.velocity.y should be(0.790536497E3 +- 1E-3)
+    pvGCRS.velocity.z should be(5.533755727E3 +- 1E-3)
+  }
+
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger, AtomicReference}
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+
+import be.angelcorp.celest.frameGraph.transformations.TranslationalTransformFactory
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestReferenceFrameGraphConcurrency extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  /** Translation of 1m along the x-axis */
+  class UnitTranslation(val fromFrame: ReferenceSystem, val toFrame: ReferenceSystem) extends TranslationalTransformFactory[ReferenceSystem, ReferenceSystem] {
+    def translation(epoch: Epoch) = Vec3(1, 0, 0)
+    def cost(epoch: Epoch) = 0.0
+  }
+
+  val epoch = new JulianDate(2456550.5)
+
+  "ReferenceFrameGraphImpl" should "not modify snapshots that are already published" in {
+    val graph = ReferenceFrameGraphImpl()
+    val f0 = new NamedReferenceFrame("f0")
+    val f1 = new NamedReferenceFrame("f1")
+    graph.attachFrame(f0)
+    val before = graph.snapshot
+
+    graph.attachFrame(f1)
+    graph.attachTransform(f0, f1, new UnitTranslation(f0, f1))
+
+    before.frames should be(Vector(f0))
+    before.transforms should be(empty)
+    before.path(f0, f1) should be(None)
+    graph.snapshot.path(f0, f1).map(_.size) should be(Some(1))
+  }
+
+  it should "provide consistent transforms while frames are attached concurrently" in {
+    val graph = ReferenceFrameGraphImpl()
+    val n = 200
+    val frames = (0 to n).map(i => new NamedReferenceFrame(s"f$i"))
+    graph.attachFrame(frames(0))
+
+    val readers = 4
+    val pool = Executors.newFixedThreadPool(readers + 1)
+    val start = new CountDownLatch(1)
+    val done = new AtomicBoolean(false)
+    val failure = new AtomicReference[Throwable]()
+    val resolved = new AtomicInteger()
+
+    // Writer: extends the chain f0 -> f1 -> ... -> fn one frame at a time
+    pool.submit(new Runnable {
+      def run() {
+        start.await()
+        for (i <- 1 to n) {
+          graph.attachFrame(frames(i))
+          graph.attachTransform(frames(i - 1), frames(i), new UnitTranslation(frames(i - 1), frames(i)))
+        }
+        done.set(true)
+      }
+    })
+
+    // Readers: every path that is found must be complete, translating k meter for frame k
+    for (r <- 0 until readers) pool.submit(new Runnable {
+      def run() {
+        val random = new scala.util.Random(r)
+        start.await()
+        try {
+          while (!done.get()) {
+            val k = 1 + random.nextInt(n)
+            graph.getTransform(frames(0), frames(k), epoch) match {
+              case Some(transform) =>
+                transform.transformPos(Vec3.zero).x should be(k.toDouble +- 1E-9)
+                resolved.incrementAndGet()
+              case None =>
+            }
+            graph.getReferenceFrames.size should be >= 1
+          }
+        } catch {
+          case e: Throwable => failure.compareAndSet(null, e)
+        }
+      }
+    })
+
+    start.countDown()
+    pool.shutdown()
+    pool.awaitTermination(1, TimeUnit.MINUTES) should be(true)
+
+    if (failure.get() != null) throw failure.get()
+    graph.getReferenceFrames.size should be(n + 1)
+    graph.getTransform(frames(0), frames(n), epoch).get.transformPos(Vec3.zero).x should be(n.toDouble +- 1E-9)
+  }
+
+  it should "reuse the resolved transform factory of a snapshot" in {
+    val graph = ReferenceFrameGraphImpl()
+    val f0 = new NamedReferenceFrame("f0")
+    val f1 = new NamedReferenceFrame("f1")
+    val f2 = new NamedReferenceFrame("f2")
+    Seq(f0, f1, f2).foreach(graph.attachFrame)
+    graph.attachTransform(f0, f1, new UnitTranslation(f0, f1))
+    graph.attachTransform(f1, f2, new UnitTranslation(f1, f2))
+
+    val factory = graph.getTransformFactory(f0, f2).get
+    graph.getTransformFactory(f0, f2).get should be theSameInstanceAs factory
+  }
+
+}
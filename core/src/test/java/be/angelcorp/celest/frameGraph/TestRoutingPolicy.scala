@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.frameGraph
+
+import be.angelcorp.celest.frameGraph.RoutingPolicy._
+import be.angelcorp.celest.frameGraph.transformations.TranslationalTransformFactory
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestRoutingPolicy extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  /** Translation with a fixed cost and error, the x offset identifies the transform */
+  class Model(val fromFrame: ReferenceSystem, val toFrame: ReferenceSystem, id: Double, c: Double, e: Double)
+    extends TranslationalTransformFactory[ReferenceSystem, ReferenceSystem] with TransformAccuracy {
+    def translation(epoch: Epoch) = Vec3(id, 0, 0)
+    def cost(epoch: Epoch) = c
+    def error(epoch: Epoch) = e
+  }
+
+  val epoch = new JulianDate(2456550.5)
+
+  val a = new NamedReferenceFrame("A")
+  val b = new NamedReferenceFrame("B")
+  val c = new NamedReferenceFrame("C")
+
+  /**
+   * A => B directly using a fast truncated model (1), a slow exact model (10) or an intermediate route over C
+   * (100 + 1000).
+   */
+  def graph = {
+    val graph = ReferenceFrameGraphImpl()
+    Seq(a, b, c).foreach(graph.attachFrame)
+    graph.attachTransform(a, b, new Model(a, b, 1, 10, 1E-3))
+    graph.attachTransform(a, b, new Model(a, b, 10, 1000, 0))
+    graph.attachTransform(a, c, new Model(a, c, 100, 50, 1E-7))
+    graph.attachTransform(c, b, new Model(c, b, 1000, 50, 1E-7))
+    graph
+  }
+
+  def route(policy: RoutingPolicy) =
+    graph.getTransform(a, b, epoch, policy).map(_.transformPos(Vec3.zero).x)
+
+  "RoutingPolicy" should "keep the first attached transform by default" in {
+    graph.getTransform(a, b, epoch).map(_.transformPos(Vec3.zero).x) should be(Some(1.0))
+    route(FewestTransforms) should be(Some(1.0))
+  }
+
+  it should "select the cheapest route" in {
+    route(Fastest) should be(Some(1.0))
+  }
+
+  it should "select the most accurate route" in {
+    route(MostAccurate) should be(Some(10.0))
+  }
+
+  it should "select the cheapest route within the requested accuracy" in {
+    route(FastestWithin(1E-2)) should be(Some(1.0))
+    route(FastestWithin(1E-6)) should be(Some(1100.0))
+    route(FastestWithin(0.0)) should be(Some(10.0))
+  }
+
+  it should "use the accuracy of the inverse transforms" in {
+    val g = graph
+    g.attachTransform(b, a, new Model(a, b, 1, 10, 1E-3).inverse)
+    g.getTransform(b, a, epoch, FastestWithin(1E-4)) should be(None)
+    g.getTransform(b, a, epoch, FastestWithin(1E-2)).map(_.transformPos(Vec3.zero).x) should be(Some(-1.0))
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.math.functions
+
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestNormalizedLegendre extends FlatSpec with Matchers with CelestTest {
+
+  val latitudes = Seq(-math.Pi / 2, -1.2, -0.3, 0.0, 0.1, 0.7, 1.5, 1.5707, math.Pi / 2)
+
+  "NormalizedLegendre" should "match the closed form expressions of the low degree functions" in {
+    val legendre = new NormalizedLegendre(3)
+    val p = legendre.newArray
+    for (φ <- latitudes) {
+      legendre.compute(φ, p)
+      val (t, u) = (math.sin(φ), math.cos(φ))
+      p(legendre.index(0, 0)) should be(1.0 +- 1E-15)
+      p(legendre.index(1, 0)) should be(math.sqrt(3) * t +- 1E-15)
+      p(legendre.index(1, 1)) should be(math.sqrt(3) * u +- 1E-15)
+      p(legendre.index(2, 0)) should be(math.sqrt(5) * (3 * t * t - 1) / 2 +- 1E-15)
+      p(legendre.index(2, 1)) should be(math.sqrt(15) * t * u +- 1E-15)
+      p(legendre.index(2, 2)) should be(math.sqrt(15) / 2 * u * u +- 1E-15)
+      p(legendre.index(3, 3)) should be(math.sqrt(35.0 / 8) * u * u * u +- 1E-14)
+    }
+  }
+
+  it should "match the conventional associated Legendre functions" in {
+    val legendre = new NormalizedLegendre(20)
+    val p = legendre.newArray
+    for (φ <- latitudes; t = math.sin(φ)) {
+      legendre.compute(φ, p)
+      for (n <- 0 to 20; m <- 0 to n) {
+        // LegendreUtils includes the Condon-Shortley phase
+        val expected = NormalizedLegendre.normalization(n, m) * LegendreUtils.legendreP(n, m, t) * (if (m % 2 == 0) 1 else -1)
+        p(legendre.index(n, m)) should be(expected +- 1E-12)
+      }
+    }
+  }
+
+  it should "compute the derivatives with respect to the latitude" in {
+    val legendre = new NormalizedLegendre(60)
+    val (p, dp) = (legendre.newArray, legendre.newArray)
+    val (p1, p2) = (legendre.newArray, legendre.newArray)
+    val h = 1E-6
+    for (φ <- Seq(-1.2, -0.3, 0.0, 0.1, 0.7, 1.5)) {
+      legendre.compute(math.sin(φ), math.cos(φ), p, dp)
+      legendre.compute(φ + h, p1)
+      legendre.compute(φ - h, p2)
+      for (k <- 0 until legendre.size)
+        dp(k) should be((p1(k) - p2(k)) / (2 * h) +- 1E-5 * (1 + math.abs(dp(k))))
+    }
+
+    // At the poles, only the zonal terms (and the derivative of the m = 1 terms) are nonzero
+    legendre.compute(1.0, 0.0, p, dp)
+    dp(legendre.index(1, 1)) should be(-math.sqrt(3) +- 1E-14)
+    dp(legendre.index(5, 5)) should be(0.0)
+  }
+
+  it should "remain stable at high degree" in {
+    // Addition theorem; the sum of the squares of the functions of a single degree is 2n + 1
+    val legendre = new NormalizedLegendre(2700)
+    val p = legendre.newArray
+    for (φ <- latitudes) {
+      legendre.compute(φ, p)
+      for (n <- Seq(10, 360, 2160, 2700)) {
+        val sum = (0 to n).map(m => p(legendre.index(n, m))).map(x => x * x).sum
+        sum / (2 * n + 1) should be(1.0 +- 1E-8)
+      }
+    }
+  }
+
+  "LegendreUtils" should "evaluate the associated Legendre functions of any order" in {
+    LegendreUtils.legendreP(3, 2, 0.5) should be(15 * 0.5 * (1 - 0.25) +- 1E-14)
+    LegendreUtils.legendreP(4, 0.3) should be((35 * math.pow(0.3, 4) - 30 * 0.09 + 3) / 8 +- 1E-14)
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.math.geometry
+
+/**
+ * Micro-benchmark of the fused rotation sequences of [[be.angelcorp.celest.math.geometry.Mat3]], compared to the
+ * product of the elementary rotation matrices. Run with `test:runMain be.angelcorp.celest.math.geometry.Mat3RotationBenchmark`.
+ *
+ * @author Simon Billemont
+ */
+object Mat3RotationBenchmark extends App {
+
+  val iterations = 2000000
+  val angles = Array.tabulate(1024)(i => math.sin(i) * math.Pi)
+
+  /** Run a kernel for all iterations, and return the time per call [ns] */
+  def time(name: String)(kernel: (Double, Double, Double, Double) => Double) = {
+    var sink = 0.0
+    // Warm-up, so that the kernel is compiled
+    for (i <- 0 until iterations)
+      sink += kernel(angles(i & 1023), angles((i + 1) & 1023), angles((i + 2) & 1023), angles((i + 3) & 1023))
+
+    val start = System.nanoTime()
+    for (i <- 0 until iterations)
+      sink += kernel(angles(i & 1023), angles((i + 1) & 1023), angles((i + 2) & 1023), angles((i + 3) & 1023))
+    val ns = (System.nanoTime() - start).toDouble / iterations
+    println(f"$name%-40s $ns%8.1f ns/op (checksum $sink%.3e)")
+    ns
+  }
+
+  val buffer = Mat3.zero()
+
+  time("R_X . R_Z . R_X . R_Z (dot)") { (a, b, c, d) =>
+    (Mat3.rotateX(a) dot Mat3.rotateZ(b) dot Mat3.rotateX(c) dot Mat3.rotateZ(d)).m00
+  }
+  time("rotateXZXZ") { (a, b, c, d) =>
+    Mat3.rotateXZXZ(a, b, c, d).m00
+  }
+  time("rotateXZXZ (result buffer)") { (a, b, c, d) =>
+    Mat3.rotateXZXZ(a, b, c, d, buffer)
+    buffer.m00
+  }
+
+  time("R_X . R_Z . R_X (dot)") { (a, b, c, d) =>
+    (Mat3.rotateX(a) dot Mat3.rotateZ(b) dot Mat3.rotateX(c)).m00
+  }
+  time("rotateXZX (result buffer)") { (a, b, c, d) =>
+    Mat3.rotateXZX(a, b, c, buffer)
+    buffer.m00
+  }
+
+  time("R_Z . R_Y . R_Z (dot)") { (a, b, c, d) =>
+    (Mat3.rotateZ(a) dot Mat3.rotateY(b) dot Mat3.rotateZ(c)).m00
+  }
+  time("rotateZYZ (result buffer)") { (a, b, c, d) =>
+    Mat3.rotateZYZ(a, b, c, buffer)
+    buffer.m00
+  }
+
+}
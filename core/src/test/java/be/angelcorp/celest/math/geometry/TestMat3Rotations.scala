@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.math.geometry
+
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.util.Random
+
+class TestMat3Rotations extends FlatSpec with Matchers with CelestTest {
+
+  val random = new Random(42)
+
+  /** Sets of random angles in [-pi, pi] */
+  def angles(n: Int) = Seq.fill(100)(Seq.fill(n)((random.nextDouble() * 2 - 1) * math.Pi))
+
+  def entries(m: Mat3) = Seq(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12, m.m20, m.m21, m.m22)
+
+  "Mat3" should "rotate a matrix in place around the principal axes" in {
+    for (Seq(a, b) <- angles(2)) {
+      val m = Mat3.rotateZXZ(b, a, b)
+      Mat3(m).preRotateX(a) should be rotation ((Mat3.rotateX(a) dot m) +- 1E-14)
+      Mat3(m).preRotateY(a) should be rotation ((Mat3.rotateY(a) dot m) +- 1E-14)
+      Mat3(m).preRotateZ(a) should be rotation ((Mat3.rotateZ(a) dot m) +- 1E-14)
+    }
+  }
+
+  it should "build the fused rotation sequences" in {
+    for (Seq(a, b, c, d) <- angles(4)) {
+      Mat3.rotateXZX(a, b, c) should be rotation ((Mat3.rotateX(a) dot Mat3.rotateZ(b) dot Mat3.rotateX(c)) +- 1E-14)
+      Mat3.rotateZYZ(a, b, c) should be rotation ((Mat3.rotateZ(a) dot Mat3.rotateY(b) dot Mat3.rotateZ(c)) +- 1E-14)
+      Mat3.rotateXYZ(a, b, c) should be rotation ((Mat3.rotateX(a) dot Mat3.rotateY(b) dot Mat3.rotateZ(c)) +- 1E-14)
+      Mat3.rotateXZXZ(a, b, c, d) should be rotation
+        ((Mat3.rotateX(a) dot Mat3.rotateZ(b) dot Mat3.rotateX(c) dot Mat3.rotateZ(d)) +- 1E-14)
+    }
+  }
+
+  it should "store the rotations in a result matrix" in {
+    val result = Mat3.zero()
+    for (Seq(a, b, c, d) <- angles(4)) {
+      Mat3.rotateX(a, result)
+      entries(result) should be(entries(Mat3.rotateX(a)))
+      Mat3.rotateY(a, result)
+      entries(result) should be(entries(Mat3.rotateY(a)))
+      Mat3.rotateZ(a, result)
+      entries(result) should be(entries(Mat3.rotateZ(a)))
+      Mat3.rotateZXZ(a, b, c, result)
+      entries(result) should be(entries(Mat3.rotateZXZ(a, b, c)))
+      Mat3.rotateXZXZ(a, b, c, d, result)
+      entries(result) should be(entries(Mat3.rotateXZXZ(a, b, c, d)))
+    }
+  }
+
+}
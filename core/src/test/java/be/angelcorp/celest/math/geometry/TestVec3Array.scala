@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.math.geometry
+
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.frameGraph.transformations.TranslationalTransformFactory
+import be.angelcorp.celest.math.rotation.Quaternion
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.trajectory.DiscreteTrajectory
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.util.Random
+
+class TestVec3Array extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val random = new Random(42)
+
+  def vectors(n: Int) = Seq.fill(n)(Vec3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()))
+
+  val a = vectors(50)
+  val b = vectors(50)
+
+  "Vec3Array" should "store and retrieve vectors" in {
+    val array = Vec3Array(a)
+    array.size should be(50)
+    array.toVectors should be(a)
+
+    val v = Vec3.zero
+    array.get(7, v)
+    v should be(a(7))
+    array.set(7, 1, 2, 3)
+    array(7) should be(Vec3(1, 2, 3))
+  }
+
+  it should "compute the element-wise arithmetic" in {
+    val va = Vec3Array(a)
+    val vb = Vec3Array(b)
+    val result = new Vec3Array(50)
+
+    va.add(vb, result)
+    for (i <- 0 until 50) result(i) should be((a(i) + b(i)) +- 1E-15)
+    va.subtract(vb, result)
+    for (i <- 0 until 50) result(i) should be((a(i) - b(i)) +- 1E-15)
+    va.scale(3, result)
+    for (i <- 0 until 50) result(i) should be((a(i) * 3) +- 1E-15)
+
+    result += va
+    for (i <- 0 until 50) result(i) should be((a(i) * 4) +- 1E-15)
+    result.addScaled(-2, vb)
+    for (i <- 0 until 50) result(i) should be((a(i) * 4 - b(i) * 2) +- 1E-14)
+  }
+
+  it should "compute the element-wise products" in {
+    val va = Vec3Array(a)
+    val vb = Vec3Array(b)
+
+    val dots = new Array[Double](50)
+    va.dot(vb, dots)
+    for (i <- 0 until 50) dots(i) should be(a(i).dot(b(i)) +- 1E-15)
+
+    val norms = va.norms
+    for (i <- 0 until 50) norms(i) should be(a(i).norm +- 1E-15)
+
+    // In place, the operand is overwritten while it is being read
+    va.cross(vb, va)
+    for (i <- 0 until 50) va(i) should be(a(i).cross(b(i)) +- 1E-15)
+  }
+
+  it should "rotate all the vectors" in {
+    val m = Mat3.rotateZXZ(0.1, 0.2, 0.3)
+    val va = Vec3Array(a)
+    va.multiply(m, va)
+    for (i <- 0 until 50) va(i) should be((m dot a(i)) +- 1E-14)
+
+    // Quaternion.applyTo rounds to single precision
+    val q = Quaternion(Vec3(1, 2, 3).normalized, 0.4)
+    val vq = new Vec3Array(50)
+    Vec3Array(a).rotate(q, vq)
+    for (i <- 0 until 50) vq(i) should be(q.applyTo(a(i)) +- 1E-6)
+  }
+
+  "PosVelArray" should "transform all the states" in {
+    val translation = new TranslationalTransformFactory[ReferenceSystem, ReferenceSystem] {
+      def translation(epoch: Epoch) = Vec3(1, 2, 3)
+      def cost(epoch: Epoch) = 1.0
+      def fromFrame: ReferenceSystem = null
+      def toFrame: ReferenceSystem = null
+    }
+    val states = PosVelArray(a zip b)
+    states.transform(translation.transform(new JulianDate(0)), states)
+    for (i <- 0 until 50) {
+      states.position(i) should be((a(i) + Vec3(1, 2, 3)) +- 1E-15)
+      states.velocity(i) should be(b(i) +- 1E-15)
+    }
+  }
+
+  it should "convert from and to a DiscreteTrajectory" in {
+    val epochs = (0 until 50).map(i => new JulianDate(2456550.5 + i))
+    val states = PosVelArray(a zip b)
+    val trajectory = DiscreteTrajectory(epochs, states, null: ReferenceSystem)
+    trajectory(new JulianDate(2456560.7)).toPosVel.position should be(a(10))
+
+    val (epochs2, states2) = trajectory.toPosVelArray
+    epochs2.toSeq should be(epochs)
+    states2.positions.data should be(states.positions.data)
+    states2.velocities.data should be(states.velocities.data)
+  }
+
+}
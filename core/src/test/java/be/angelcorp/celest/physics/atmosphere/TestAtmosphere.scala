@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.physics.atmosphere
+
+import be.angelcorp.celest.eom.forcesmodel.DragAcceleration
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.physics.atmosphere.RotatingAtmosphere._
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestAtmosphere extends FlatSpec with Matchers with CelestTest {
+
+  /** Point above the equator at a given altitude */
+  def equatorial(h: Double) = Vec3(earthRadius + h, 0, 0)
+
+  /** Exact piecewise exponential profile of Vallado */
+  def vallado(h: Double) = {
+    val k = ExponentialAtmosphere.altitudes.lastIndexWhere(_ <= h)
+    ExponentialAtmosphere.densities(k) * math.exp((ExponentialAtmosphere.altitudes(k) - h) / ExponentialAtmosphere.scaleHeights(k))
+  }
+
+  "ExponentialAtmosphere" should "reproduce the piecewise exponential profile" in {
+    val atmosphere = new ExponentialAtmosphere()
+    for (h <- ExponentialAtmosphere.altitudes)
+      atmosphere.computeDensity(equatorial(h)) should be(vallado(h) +- 1E-12 * vallado(h))
+    for (h <- 0.0 until 1E6 by 1234.5)
+      atmosphere.computeDensity(equatorial(h)) should be(vallado(h) +- 1E-5 * vallado(h))
+
+    // Extrapolated above the table
+    val h = 1.2E6
+    atmosphere.computeDensity(equatorial(h)) should be(3.019E-15 * math.exp(-2E5 / 268E3) +- 1E-12 * 3.019E-15)
+  }
+
+  it should "use the altitude above the oblate Earth" in {
+    val atmosphere = new ExponentialAtmosphere()
+    val polarRadius = earthRadius * (1 - earthFlattening)
+    atmosphere.altitude(0, 0, polarRadius + 4E5) should be(4E5 +- 1E-6)
+    atmosphere.computeDensity(Vec3(0, 0, -polarRadius - 4E5)) should be(vallado(4E5) +- 1E-5 * vallado(4E5))
+  }
+
+  it should "co-rotate with the Earth" in {
+    val atmosphere = new ExponentialAtmosphere()
+    val r = Vec3(7E6, -2E6, 1E6)
+    atmosphere.computeV(r) should be(Vec3(0, 0, earthRotation) cross r)
+    atmosphere.computeV(r, r)
+    r should be(Vec3(2E6 * earthRotation, 7E6 * earthRotation, 0))
+  }
+
+  "HarrisPriesterAtmosphere" should "model the diurnal bulge" in {
+    val sun = Vec3(1, 0, 0)
+    val atmosphere = new HarrisPriesterAtmosphere(sun)
+    val r = earthRadius + 4E5
+    val apex = Vec3(r * math.cos(HarrisPriesterAtmosphere.lag), r * math.sin(HarrisPriesterAtmosphere.lag), 0)
+
+    atmosphere.computeDensity(apex) should be(7.492E-12 +- 1E-5 * 7.492E-12)
+    atmosphere.computeDensity(-apex) should be(2.249E-12 +- 1E-5 * 2.249E-12)
+    atmosphere.computeDensity(Vec3(0, 0, earthRadius * (1 - earthFlattening) + 4E5)) should be((2.249E-12 + 7.492E-12) / 2 +- 1E-5 * 7.492E-12)
+    atmosphere.density(apex.x, apex.y, apex.z, 0, -1, 0) should be < 7.492E-12
+
+    // The sun vector is used by reference
+    sun.x = -1
+    atmosphere.computeDensity(-apex) should be(7.492E-12 +- 1E-5 * 7.492E-12)
+    atmosphere.computeDensity(equatorial(1.1E6)) should be(0.0)
+  }
+
+  it should "interpolate exponentially between the reference altitudes" in {
+    val atmosphere = new HarrisPriesterAtmosphere(Vec3(1, 0, 0), n = 6)
+    val r = Vec3(0, -(earthRadius + 4.1E5), 0)
+    val expected = math.sqrt(2.249E-12 * 1.558E-12)
+    // The apex of the bulge is along +y
+    val antapex = atmosphere.density(r.x, r.y, r.z, math.cos(math.Pi / 2 - HarrisPriesterAtmosphere.lag), math.sin(math.Pi / 2 - HarrisPriesterAtmosphere.lag), 0)
+    antapex should be(expected +- 1E-5 * expected)
+  }
+
+  "DragAcceleration" should "oppose the velocity relative to the atmosphere" in {
+    val atmosphere = new ExponentialAtmosphere()
+    val drag = new DragAcceleration(atmosphere, 2.2, 4.0, 500.0)
+    val r = equatorial(4E5)
+    val v = Vec3(0, 7.67E3, 0)
+    val yDot = new Array[Double](6)
+    drag.accumulate(null, 0, Array(r.x, r.y, r.z, v.x, v.y, v.z), yDot)
+
+    val vr = v - atmosphere.computeV(r)
+    val expected = vr * (-0.5 * 2.2 * 4.0 / 500.0 * atmosphere.computeDensity(r) * vr.norm)
+    Vec3(yDot(3), yDot(4), yDot(5)) should be(expected +- 1E-6 * expected.norm)
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.potential
+
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicLong
+
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.util.Random
+
+class TestGriddedPotential extends FlatSpec with Matchers with CelestTest {
+
+  val μ = 3.986004415E14
+  val R = 6378136.3
+  val J2 = 1.08262668E-3
+
+  /** Analytical J2 acceleration, which counts the number of evaluations */
+  class J2Potential extends GravitationalPotential {
+    val evaluations = new AtomicLong()
+    override def apply(point: Vec3) = {
+      evaluations.incrementAndGet()
+      val r = point.norm
+      val k = 1.5 * J2 * math.pow(R / r, 2)
+      val z2 = math.pow(point.z / r, 2)
+      val f = -μ / math.pow(r, 3)
+      Vec3(f * point.x * (1 + k * (1 - 5 * z2)), f * point.y * (1 + k * (1 - 5 * z2)), f * point.z * (1 + k * (3 - 5 * z2)))
+    }
+  }
+
+  def band(random: Random) = {
+    val r = 6.7E6 + random.nextDouble() * 4E5
+    val φ = math.asin(2 * random.nextDouble() - 1)
+    val λ = 2 * math.Pi * random.nextDouble()
+    Vec3(r * math.cos(φ) * math.cos(λ), r * math.cos(φ) * math.sin(λ), r * math.sin(φ))
+  }
+
+  "GriddedPotential" should "interpolate the exact potential within the reported error" in {
+    val exact = new J2Potential
+    val grid = GriddedPotential(exact, μ, 6.7E6, 7.1E6, 9, 91, 180)
+    grid.maxError should (be > 0.0 and be < 1E-7)
+
+    val random = new Random(7)
+    for (i <- 0 until 1000; point = band(random))
+      grid(point) should be(exact(point) +- 1E-7)
+
+    // On and around the poles
+    for (point <- Seq(Vec3(0, 0, 6.9E6), Vec3(1, 2, -6.9E6), Vec3(0, 0, 7.1E6)))
+      grid(point) should be(exact(point) +- 1E-7)
+  }
+
+  it should "use the exact potential outside the altitude band" in {
+    val exact = new J2Potential
+    val grid = GriddedPotential(exact, μ, 6.7E6, 7.1E6, 4, 10, 10, validationPoints = 0)
+    for (point <- Seq(Vec3(6.5E6, 0, 0), Vec3(0, -4E7, 1E3)))
+      grid(point) should be(exact(point))
+  }
+
+  it should "differentiate the interpolated acceleration analytically" in {
+    val exact = new J2Potential
+    val grid = GriddedPotential(exact, μ, 6.7E6, 7.1E6, 9, 91, 180, validationPoints = 0)
+    val h = 1.0
+    val random = new Random(11)
+    for (i <- 0 until 100; point = band(random)) {
+      val analytic = new Array[Double](9)
+      grid.gradient(point, analytic)
+      val reference = new Array[Double](9)
+      exact.gradient(point, reference)
+
+      val scale = analytic.map(math.abs(_)).max
+      for (j <- 0 until 3) {
+        val step = Vec3(if (j == 0) h else 0, if (j == 1) h else 0, if (j == 2) h else 0)
+        val difference = (grid(point + step) - grid(point - step)) / (2 * h)
+        analytic(j) should be(difference.x +- 1E-6 * scale)
+        analytic(3 + j) should be(difference.y +- 1E-6 * scale)
+        analytic(6 + j) should be(difference.z +- 1E-6 * scale)
+      }
+      for (k <- 0 until 9)
+        analytic(k) should be(reference(k) +- 1E-3 * scale)
+    }
+  }
+
+  it should "store the grid in a file, and load it from that file" in {
+    val directory = Files.createTempDirectory("celest")
+    val path = directory.resolve("j2.grid")
+    try {
+      val exact = new J2Potential
+      val grid = GriddedPotential.cached(path, exact, μ, 6.7E6, 7.1E6, 5, 19, 36)
+      val built = exact.evaluations.get()
+      built should be > 0L
+
+      val loaded = GriddedPotential.cached(path, exact, μ, 6.7E6, 7.1E6, 5, 19, 36)
+      exact.evaluations.get() should be(built)
+      loaded.maxError should be(grid.maxError)
+
+      val random = new Random(7)
+      for (i <- 0 until 100; point = band(random))
+        loaded(point) should be(grid(point))
+
+      // A different grid replaces the stored grid
+      val other = GriddedPotential.cached(path, exact, μ, 6.7E6, 7.2E6, 5, 19, 36)
+      exact.evaluations.get() should be > built
+      other.maxRadius should be(7.2E6)
+    } finally {
+      Files.deleteIfExists(path)
+      Files.delete(directory)
+    }
+  }
+
+}
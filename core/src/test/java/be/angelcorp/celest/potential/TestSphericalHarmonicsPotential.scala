@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.angelcorp.celest.potential
+
+import be.angelcorp.celest.math.functions.NormalizedLegendre
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.unit.CelestTest
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.io.Source
+import scala.util.Random
+
+class TestSphericalHarmonicsPotential extends FlatSpec with Matchers with CelestTest {
+
+  val μ = 3.986004415E14
+  val R = 6378136.3
+
+  val icgem =
+    """product_type              gravity_field
+      |modelname                 TEST
+      |earth_gravity_constant    0.3986004415E+15
+      |radius                    0.63781363E+07
+      |max_degree                3
+      |errors                    formal
+      |norm                      fully_normalized
+      |
+      |key    L    M         C                  S                  sigma C      sigma S
+      |end_of_head ==========================================================================
+      |gfc    0    0    1.000000000000D+00  0.000000000000D+00  0.0000D+00  0.0000D+00
+      |gfc    2    0   -0.484165371736D-03  0.000000000000D+00  0.3561D-10  0.0000D+00
+      |gfc    2    1   -0.186987635955D-09  0.119528012031D-08  0.1000D-29  0.1000D-29
+      |gfc    2    2    0.243914352398D-05 -0.140016683654D-05  0.5373D-10  0.5439D-10
+      |gfc    3    0    0.957254173792D-06  0.000000000000D+00  0.1809D-10  0.0000D+00
+      |gfc    3    3    0.721072657057D-06  0.141435626958D-05  0.1000D-29  0.1000D-29
+      |""".stripMargin
+
+  def coefficients(degree: Int)(f: (Int, Int) => (Double, Double)) = {
+    val size = NormalizedLegendre.index(degree, degree) + 1
+    val (c, s) = (new Array[Double](size), new Array[Double](size))
+    for (n <- 0 to degree; m <- 0 to n) {
+      val k = NormalizedLegendre.index(n, m)
+      val cs = f(n, m)
+      c(k) = cs._1
+      s(k) = cs._2
+    }
+    new SphericalHarmonicsCoefficients("test", μ, R, degree, c, s)
+  }
+
+  /** Potential evaluated in spherical coordinates */
+  def potential(model: SphericalHarmonicsCoefficients, point: Vec3) = {
+    val legendre = new NormalizedLegendre(model.degree)
+    val p = legendre.newArray
+    val r = point.norm
+    legendre.compute(point.z / r, math.hypot(point.x, point.y) / r, p)
+    val λ = math.atan2(point.y, point.x)
+    var sum = 0.0
+    for (n <- 0 to model.degree; m <- 0 to n)
+      sum += math.pow(R / r, n) * p(legendre.index(n, m)) * (model.Cnm(n, m) * math.cos(m * λ) + model.Snm(n, m) * math.sin(m * λ))
+    model.μ / r * sum
+  }
+
+  val points = Seq(Vec3(4E6, -3E6, 5E6), Vec3(7E6, 1, -2), Vec3(1E3, -2E3, 7E6), Vec3(-2E7, 3E7, -1E7))
+
+  "ICGEMLoader" should "read the coefficients of an ICGEM file" in {
+    val model = ICGEMLoader.parse(Source.fromString(icgem))
+    model.name should be("TEST")
+    model.μ should be(μ)
+    model.radius should be(R)
+    model.degree should be(3)
+    model.Cnm(2, 0) should be(-0.484165371736E-03)
+    model.Snm(2, 2) should be(-0.140016683654E-05)
+    model.Cnm(3, 1) should be(0.0)
+
+    val truncated = ICGEMLoader.parse(Source.fromString(icgem), maxDegree = 2)
+    truncated.degree should be(2)
+    truncated.Cnm(2, 2) should be(0.243914352398E-05)
+  }
+
+  "SphericalHarmonicsPotential" should "reduce to a point mass for the central term" in {
+    val potential = new SphericalHarmonicsPotential(coefficients(5)((n, m) => (if (n == 0) 1.0 else 0.0, 0.0)))
+    for (point <- points)
+      potential(point) should be((-point * (μ / math.pow(point.norm, 3))) +- 1E-14 * μ / point.normSq)
+  }
+
+  it should "match the analytic J2 acceleration" in {
+    val J2 = 1.08262668E-3
+    val potential = new SphericalHarmonicsPotential(coefficients(2)((n, m) =>
+      (if (n == 0) 1.0 else if (n == 2 && m == 0) -J2 / math.sqrt(5) else 0.0, 0.0)))
+    for (point <- points) {
+      val r = point.norm
+      val k = 1.5 * J2 * math.pow(R / r, 2)
+      val z2 = math.pow(point.z / r, 2)
+      val f = -μ / math.pow(r, 3)
+      val expected = Vec3(f * point.x * (1 + k * (1 - 5 * z2)), f * point.y * (1 + k * (1 - 5 * z2)), f * point.z * (1 + k * (3 - 5 * z2)))
+      potential(point) should be(expected +- 1E-13 * μ / point.normSq)
+    }
+  }
+
+  it should "be the gradient of the potential" in {
+    val random = new Random(42)
+    val model = coefficients(12)((n, m) => (random.nextGaussian() * 1E-2, if (m == 0) 0.0 else random.nextGaussian() * 1E-2))
+    val h = 1.0
+    for (order <- Seq(12, 9); point <- points) {
+      val truncated = model.truncate(12, order)
+      val field = new SphericalHarmonicsPotential(model, 12, order)
+      val gradient = Vec3(
+        potential(truncated, point + Vec3(h, 0, 0)) - potential(truncated, point - Vec3(h, 0, 0)),
+        potential(truncated, point + Vec3(0, h, 0)) - potential(truncated, point - Vec3(0, h, 0)),
+        potential(truncated, point + Vec3(0, 0, h)) - potential(truncated, point - Vec3(0, 0, h))) / (2 * h)
+      field(point) should be(gradient +- 1E-7)
+    }
+  }
+
+  it should "match the numerical gravity gradient" in {
+    val random = new Random(42)
+    val model = coefficients(12)((n, m) => (random.nextGaussian() * 1E-2, if (m == 0) 0.0 else random.nextGaussian() * 1E-2))
+    val h = 1.0
+    for (order <- Seq(12, 9); point <- points) {
+      val field = new SphericalHarmonicsPotential(model, 12, order)
+      field.analyticGradient should be(true)
+      val analytic = new Array[Double](9)
+      field.gradient(point, analytic)
+
+      val scale = analytic.map(math.abs(_)).max
+      for (j <- 0 until 3) {
+        val step = Vec3(if (j == 0) h else 0, if (j == 1) h else 0, if (j == 2) h else 0)
+        val difference = (field(point + step) - field(point - step)) / (2 * h)
+        analytic(j) should be(difference.x +- 1E-6 * scale)
+        analytic(3 + j) should be(difference.y +- 1E-6 * scale)
+        analytic(6 + j) should be(difference.z +- 1E-6 * scale)
+      }
+    }
+  }
+
+  it should "store the acceleration in a result vector" in {
+    val potential = new SphericalHarmonicsPotential(ICGEMLoader.parse(Source.fromString(icgem)))
+    val result = Vec3.zero
+    for (point <- points) {
+      potential(point, result)
+      result should be(potential(point))
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import java.util.concurrent.ForkJoinPool
+
+import be.angelcorp.celest.math.geometry.{PosVelArray, Vec3}
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.util.Random
+
+class TestEnsemblePropagator extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val μ = 3.986004415E14
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+  val equations = new CartesianStateEquations {
+    override def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val r2 = y(0) * y(0) + y(1) * y(1) + y(2) * y(2)
+      val f = -μ / (r2 * math.sqrt(r2))
+      yDot(3) = f * y(0)
+      yDot(4) = f * y(1)
+      yDot(5) = f * y(2)
+    }
+  }
+
+  def integrator() = new DormandPrince853Integrator(1E-3, 1E3, 1E-6, 1E-12)
+
+  /** Dispersed copies of a circular orbit */
+  val y0 = {
+    val random = new Random(11)
+    val v = math.sqrt(μ / 7E6)
+    Array.tabulate(64 * 6)(k => (k % 6) match {
+      case 0 => 7E6 + random.nextGaussian() * 1E3
+      case 4 => v + random.nextGaussian()
+      case _ => random.nextGaussian() * 1E2
+    })
+  }
+
+  val pool = new ForkJoinPool(4)
+
+  "EnsemblePropagator" should "propagate each member identically to a single propagation" in {
+    val ensemble = new EnsemblePropagator(integrator, equations, pool)
+    val t = epoch + 0.5
+    val y = ensemble.propagate(epoch, t, y0)
+
+    val single = new StatePropagator(integrator(), equations)
+    for (i <- 0 until y0.length / 6)
+      y.slice(6 * i, 6 * i + 6) should be(single.integrate(epoch, t, y0.slice(6 * i, 6 * i + 6)))
+  }
+
+  it should "sample the states of each member" in {
+    val ensemble = new EnsemblePropagator(integrator, equations, pool, threshold = 3)
+    val times = Array(0.0, 600.0, 1200.0, 3600.0)
+    val result = new Array[Double](y0.length * times.length)
+    ensemble.propagate(epoch, y0, times, result)
+
+    val single = new StatePropagator(integrator(), equations)
+    for (i <- 0 until y0.length / 6; j <- times.indices) {
+      val k = (i * times.length + j) * 6
+      val expected = new Array[Double](6)
+      single.integrate(epoch, y0.slice(6 * i, 6 * i + 6), times(j), expected)
+      Vec3(result(k), result(k + 1), result(k + 2)) should be(Vec3(expected(0), expected(1), expected(2)) +- 1E-2)
+      Vec3(result(k + 3), result(k + 4), result(k + 5)) should be(Vec3(expected(3), expected(4), expected(5)) +- 1E-5)
+    }
+
+    // A single integration per member, so the last samples are those of a single propagation to the last time
+    for (i <- 0 until y0.length / 6) {
+      val k = (i * times.length + times.length - 1) * 6
+      val expected = new Array[Double](6)
+      single.integrate(epoch, y0.slice(6 * i, 6 * i + 6), times.last, expected)
+      result.slice(k, k + 6) should be(expected)
+      result.slice(i * times.length * 6, i * times.length * 6 + 6) should be(y0.slice(6 * i, 6 * i + 6))
+    }
+  }
+
+  it should "propagate packed Cartesian states" in {
+    val ensemble = new EnsemblePropagator(integrator, equations, pool)
+    val states = PosVelArray(Seq((Vec3(7E6, 0, 0), Vec3(0, 7.5E3, 0)), (Vec3(0, 8E6, 0), Vec3(-7E3, 0, 1E3))))
+    val t = epoch + 0.1
+    val result = ensemble.propagate(epoch, t, states)
+
+    val single = new StatePropagator(integrator(), equations)
+    for (i <- 0 until states.size) {
+      val expected = single.integrate(epoch, t, Array(states.position(i).x, states.position(i).y, states.position(i).z,
+        states.velocity(i).x, states.velocity(i).y, states.velocity(i).z))
+      result.position(i) should be(Vec3(expected(0), expected(1), expected(2)))
+      result.velocity(i) should be(Vec3(expected(3), expected(4), expected(5)))
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.apache.commons.math3.ode.events.EventHandler
+import org.apache.commons.math3.ode.events.EventHandler.Action
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestStateEvent extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val μ = 3.986004415E14
+  val a = 8E6
+  val e = 0.125
+  val i = math.toRadians(30)
+  val n = math.sqrt(μ / (a * a * a))
+  val period = 2 * math.Pi / n
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+  val equations = new CartesianStateEquations {
+    override def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val r2 = y(0) * y(0) + y(1) * y(1) + y(2) * y(2)
+      val f = -μ / (r2 * math.sqrt(r2))
+      yDot(3) = f * y(0)
+      yDot(4) = f * y(1)
+      yDot(5) = f * y(2)
+    }
+  }
+
+  def propagator = new StatePropagator(new DormandPrince853Integrator(1E-3, 1E3, 1E-6, 1E-12), equations)
+
+  /** State at a true anomaly, on an orbit with its periapsis above the equator ({0, cos i, sin i}) */
+  def state(ν: Double) = {
+    val p = a * (1 - e * e)
+    val r = p / (1 + e * math.cos(ν))
+    val v = math.sqrt(μ / p)
+    val (rp, rq) = (r * math.cos(ν), r * math.sin(ν))
+    val (vp, vq) = (-v * math.sin(ν), v * (e + math.cos(ν)))
+    Array(-rq, rp * math.cos(i), rp * math.sin(i), -vq, vp * math.cos(i), vp * math.sin(i))
+  }
+
+  /** Time since periapsis at a true anomaly */
+  def time(ν: Double) = {
+    val E = 2 * math.atan2(math.sqrt(1 - e) * math.sin(ν / 2), math.sqrt(1 + e) * math.cos(ν / 2))
+    val M = E - e * math.sin(E)
+    (if (M < 0) M + 2 * math.Pi else M) / n
+  }
+
+  val ν0 = math.toRadians(30)
+
+  "StatePropagator" should "locate the nodes and apsides of an orbit" in {
+    val nodes = StateEvents.nodeCrossing()
+    val apsides = StateEvents.apsis()
+    val propagator = this.propagator
+    propagator.addEvent(nodes)
+    propagator.addEvent(apsides)
+    val y = new Array[Double](6)
+    propagator.integrate(epoch, state(ν0), period, y) should be(period +- 1E-9)
+
+    nodes.times.size should be(2)
+    nodes.times(0) should be(time(math.Pi / 2) - time(ν0) +- 1E-3)
+    nodes.increasing(0) should be(false)
+    nodes.times(1) should be(time(3 * math.Pi / 2) - time(ν0) +- 1E-3)
+    nodes.increasing(1) should be(true)
+    nodes.states(1)(2) should be(0.0 +- 1E-3)
+
+    apsides.times.size should be(2)
+    apsides.times(0) should be(period / 2 - time(ν0) +- 1E-3)
+    apsides.increasing(0) should be(false)
+    apsides.times(1) should be(period - time(ν0) +- 1E-3)
+    apsides.increasing(1) should be(true)
+  }
+
+  it should "stop the propagation on an event" in {
+    val propagator = this.propagator
+    propagator.addEvent(StateEvents.radius(a, Action.STOP))
+    val y = new Array[Double](6)
+    val ν = math.acos(-e)
+    propagator.integrate(epoch, state(ν0), period, y) should be(time(ν) - time(ν0) +- 1E-3)
+    math.sqrt(y(0) * y(0) + y(1) * y(1) + y(2) * y(2)) should be(a +- 1E-3)
+  }
+
+  it should "apply an impulsive maneuver on an event" in {
+    val propagator = this.propagator
+    val burn = new RecordedEvent(Action.RESET_STATE) {
+      override def g(t0: Epoch, t: Double, y: Array[Double]) = math.sqrt(y(0) * y(0) + y(1) * y(1) + y(2) * y(2)) - a
+
+      override def resetState(t0: Epoch, t: Double, y: Array[Double]) {
+        for (k <- 3 until 6) y(k) *= 1.1
+      }
+    }
+    propagator.addEvent(burn)
+    val y = new Array[Double](6)
+    propagator.integrate(epoch, state(ν0), period / 2, y)
+
+    def energy(y: Array[Double]) =
+      (y(3) * y(3) + y(4) * y(4) + y(5) * y(5)) / 2 - μ / math.sqrt(y(0) * y(0) + y(1) * y(1) + y(2) * y(2))
+    val maneuvered = burn.states(0).clone()
+    for (k <- 3 until 6) maneuvered(k) *= 1.1
+
+    burn.times.size should be(1)
+    energy(y) should be(energy(maneuvered) +- 1E-8 * math.abs(energy(maneuvered)))
+    energy(y) should be > energy(state(ν0))
+  }
+
+  it should "pass the epoch of each integration to its events, and detach them" in {
+    val propagator = this.propagator
+    val later = epoch + 1
+    val epochs = scala.collection.mutable.ArrayBuffer[Epoch]()
+    val nodes = new RecordedEvent() {
+      override def g(t0: Epoch, t: Double, y: Array[Double]) = {
+        epochs += t0
+        y(2)
+      }
+    }
+    propagator.addEvent(nodes)
+    val y = new Array[Double](6)
+    propagator.integrate(epoch, state(ν0), period / 2, y)
+    propagator.integrate(later, state(ν0), period / 2, y)
+    epochs.forall(t0 => (t0 eq epoch) || (t0 eq later)) should be(true)
+    epochs.exists(_ eq later) should be(true)
+    nodes.times.size should be(2)
+
+    propagator.clearEvents()
+    propagator.integrate(epoch, state(ν0), period, y)
+    nodes.times.size should be(2)
+    propagator.integrator.getEventHandlers should be('empty)
+  }
+
+  it should "refuse to remove event handlers that were registered on the integrator directly" in {
+    val propagator = this.propagator
+    val foreign = new EventHandler {
+      override def init(t0: Double, y0: Array[Double], t: Double) {}
+
+      override def g(t: Double, y: Array[Double]) = y(2)
+
+      override def eventOccurred(t: Double, y: Array[Double], increasing: Boolean) = Action.CONTINUE
+
+      override def resetState(t: Double, y: Array[Double]) {}
+    }
+    propagator.integrator.addEventHandler(foreign, 60.0, 1E-6, 100)
+    propagator.addEvent(StateEvents.apsis())
+    val y = new Array[Double](6)
+    intercept[IllegalArgumentException] {
+      propagator.integrate(epoch, state(ν0), period, y)
+    }
+    propagator.integrator.getEventHandlers.size should be(1)
+  }
+
+}
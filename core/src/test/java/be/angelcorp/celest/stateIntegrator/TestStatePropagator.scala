@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.stateIntegrator
+
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator
+import org.scalatest.{FlatSpec, Matchers}
+
+class TestStatePropagator extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val μ = 3.986004415E14
+  val a = 7E6
+  val n = math.sqrt(μ / (a * a * a))
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+  class TwoBody extends CartesianStateEquations {
+    var epochs = Set[Epoch]()
+    override def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      epochs += t0
+      val r2 = y(0) * y(0) + y(1) * y(1) + y(2) * y(2)
+      val f = -μ / (r2 * math.sqrt(r2))
+      yDot(3) = f * y(0)
+      yDot(4) = f * y(1)
+      yDot(5) = f * y(2)
+    }
+  }
+
+  def integrator = new DormandPrince853Integrator(1E-3, 1E3, 1E-6, 1E-9)
+
+  "StatePropagator" should "propagate a circular orbit in seconds from the initial epoch" in {
+    val equations = new TwoBody
+    val propagator = new StatePropagator(integrator, equations)
+    val t = 4000.0
+    val y = new Array[Double](6)
+    propagator.integrate(epoch, Array(a, 0, 0, 0, a * n, 0), t, y) should be(t +- 1E-9)
+
+    Vec3(y(0), y(1), y(2)) should be(Vec3(a * math.cos(n * t), a * math.sin(n * t), 0) +- 1E-3)
+    Vec3(y(3), y(4), y(5)) should be(Vec3(-a * n * math.sin(n * t), a * n * math.cos(n * t), 0) +- 1E-6)
+    equations.epochs should be(Set(epoch))
+  }
+
+  it should "propagate a state between two epochs" in {
+    val propagator = new StatePropagator(integrator, new TwoBody)
+    val y0 = PosVel[ReferenceSystem](0, a, 0, -a * n, 0, 0, null)
+    val t1 = epoch.addS(2 * math.Pi / n)
+    val y = propagator.integrate(epoch, t1, y0)
+
+    // The target epoch is only accurate to the resolution of the julian date
+    val t = t1.relativeToS(epoch)
+    y.position should be(Vec3(-a * math.sin(n * t), a * math.cos(n * t), 0) +- 1E-2)
+    y.velocity should be(Vec3(-a * n * math.cos(n * t), -a * n * math.sin(n * t), 0) +- 1E-5)
+    propagator.integrate(epoch, t1, Array(0, a, 0, -a * n, 0, 0)) should be(
+      Array(y.position.x, y.position.y, y.position.z, y.velocity.x, y.velocity.y, y.velocity.z))
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.trajectory
+
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.stateIntegrator.{CartesianStateEquations, RecordedEvent, StatePropagator}
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.unit.CelestTest
+import be.angelcorp.celest.universe.DefaultUniverse
+import org.apache.commons.math3.ode.events.EventHandler.Action
+import org.apache.commons.math3.ode.nonstiff.DormandPrince853Integrator
+import org.scalatest.{FlatSpec, Matchers}
+
+import scala.util.Random
+
+class TestDenseTrajectory extends FlatSpec with Matchers with CelestTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val μ = 3.986004415E14
+  val a = 7E6
+  val n = math.sqrt(μ / (a * a * a))
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+  val equations = new CartesianStateEquations {
+    override def acceleration(t0: Epoch, t: Double, y: Array[Double], yDot: Array[Double]) {
+      val r2 = y(0) * y(0) + y(1) * y(1) + y(2) * y(2)
+      val f = -μ / (r2 * math.sqrt(r2))
+      yDot(3) = f * y(0)
+      yDot(4) = f * y(1)
+      yDot(5) = f * y(2)
+    }
+  }
+
+  val propagator = new StatePropagator(new DormandPrince853Integrator(1E-3, 300, 1E-6, 1E-12), equations)
+
+  val y0 = PosVel[ReferenceSystem](a, 0, 0, 0, a * n, 0, null)
+
+  def position(t: Double) = Vec3(a * math.cos(n * t), a * math.sin(n * t), 0)
+
+  def velocity(t: Double) = Vec3(-a * n * math.sin(n * t), a * n * math.cos(n * t), 0)
+
+  "DenseTrajectory" should "interpolate the propagated states" in {
+    val trajectory = propagator.propagate(epoch, epoch + 1, y0, substeps = 4)
+    trajectory.times.head should be(0.0)
+    trajectory.times.last should be(epoch.add(1).relativeToS(epoch))
+
+    val p = Vec3.zero
+    val v = Vec3.zero
+    val random = new Random(3)
+    for (i <- 0 until 1000; t = random.nextDouble() * trajectory.times.last) {
+      trajectory(t, p, v)
+      p should be(position(t) +- 1E-2)
+      v should be(velocity(t) +- 1E-5)
+    }
+
+    val state = trajectory(epoch + 0.25)
+    val t = (epoch + 0.25).relativeToS(epoch)
+    state.position should be(position(t) +- 1E-2)
+    state.velocity should be(velocity(t) +- 1E-5)
+  }
+
+  it should "reproduce the nodes exactly" in {
+    val trajectory = propagator.propagate(epoch, epoch + 0.1, y0)
+    val p = Vec3.zero
+    val v = Vec3.zero
+    for (i <- 0 until trajectory.size) {
+      trajectory(trajectory.times(i), p, v)
+      p should be(Vec3(trajectory.nodes(9 * i), trajectory.nodes(9 * i + 1), trajectory.nodes(9 * i + 2)))
+      v should be(Vec3(trajectory.nodes(9 * i + 3), trajectory.nodes(9 * i + 4), trajectory.nodes(9 * i + 5)) +- 1E-12)
+    }
+  }
+
+  it should "order the nodes of a backward propagation chronologically" in {
+    val trajectory = propagator.propagate(epoch, epoch - 0.1, y0, substeps = 2)
+    trajectory.times.last should be(0.0)
+    trajectory.times.sliding(2).forall(t => t(0) < t(1)) should be(true)
+
+    val t = -4000.0
+    val p = Vec3.zero
+    val v = Vec3.zero
+    trajectory(t, p, v)
+    p should be(position(t) +- 1E-2)
+    v should be(velocity(t) +- 1E-5)
+  }
+
+  it should "keep the state discontinuity of an impulsive maneuver" in {
+    val propagator = new StatePropagator(new DormandPrince853Integrator(1E-3, 300, 1E-6, 1E-12), equations)
+    val burn = new RecordedEvent(Action.RESET_STATE) {
+      override def g(t0: Epoch, t: Double, y: Array[Double]) = t - 1000.0
+
+      override def resetState(t0: Epoch, t: Double, y: Array[Double]) {
+        y(4) += 100.0
+      }
+    }
+    propagator.addEvent(burn)
+    val trajectory = propagator.propagate(epoch, epoch.addS(3000), y0, substeps = 2)
+
+    burn.times.size should be(1)
+    val tBurn = burn.times(0)
+    trajectory.times.count(_ == tBurn) should be(2)
+
+    // Direct propagation after the maneuver
+    val direct = new StatePropagator(new DormandPrince853Integrator(1E-3, 300, 1E-6, 1E-12), equations)
+    val yBurn = burn.states(0).clone()
+    yBurn(4) += 100.0
+
+    val p = Vec3.zero
+    val v = Vec3.zero
+    for (t <- Seq(0.0, 500.0, 999.0, tBurn)) {
+      trajectory(t, p, v)
+      val expected = if (t == tBurn) Vec3(yBurn(3), yBurn(4), yBurn(5)) else velocity(t)
+      p should be(position(t) +- 1E-2)
+      v should be(expected +- 1E-5)
+    }
+    for (t <- Seq(1001.0, 1500.0, 2500.0, 3000.0)) {
+      val y = new Array[Double](6)
+      direct.integrate(epoch, yBurn, t - tBurn, y)
+      trajectory(t, p, v)
+      p should be(Vec3(y(0), y(1), y(2)) +- 1E-2)
+      v should be(Vec3(y(3), y(4), y(5)) +- 1E-5)
+    }
+  }
+
+  it should "contain only the initial state for a propagation over a zero time span" in {
+    val trajectory = propagator.propagate(epoch, epoch, y0)
+    trajectory.size should be(1)
+    trajectory.startEpoch should be(epoch)
+    trajectory.endEpoch should be(epoch)
+
+    val state = trajectory(epoch)
+    state.position should be(y0.position)
+    state.velocity should be(y0.velocity)
+    trajectory.nodes(6) should be(-μ / (a * a) +- 1E-12)
+    intercept[ArithmeticException] {
+      trajectory(epoch + 0.01)
+    }
+  }
+
+  it should "fail outside the propagated interval" in {
+    val trajectory = propagator.propagate(epoch, epoch + 0.1, y0)
+    intercept[ArithmeticException] {
+      trajectory(epoch - 0.01)
+    }
+    intercept[ArithmeticException] {
+      trajectory(epoch + 0.11)
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2013 Simon Billemont <simon@angelcorp.be>
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0
+ * (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/NOSL3.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.angelcorp.celest.unit
+
+import be.angelcorp.celest.ephemeris.jplEphemeris._
+import be.angelcorp.celest.frameGraph.ReferenceSystem
+import be.angelcorp.celest.math.geometry.Vec3
+import be.angelcorp.celest.state.PosVel
+import be.angelcorp.celest.time.{Epoch, JulianDate}
+import be.angelcorp.celest.time.timeStandard.TimeStandards.TT
+import be.angelcorp.celest.universe.DefaultUniverse
+
+/**
+ * Ephemeris with the Sun, Earth and Moon in fixed positions, which counts the number of lookups.
+ */
+class FixedEphemeris extends JplEphemeris[ReferenceSystem] {
+  var lookups = 0
+  def frame: ReferenceSystem = null
+  def records: Iterator[DataRecord] = Iterator.empty
+  def getRecord(index: Int): DataRecord = throw new UnsupportedOperationException
+  def metadata: Metadata = null
+  override def interpolateState(epoch: Epoch, body: JDEBody): PosVel[ReferenceSystem] = {
+    lookups += 1
+    body match {
+      case Sun() => PosVel[ReferenceSystem](0, 0, 0, 0, 0, 0, null)
+      case Earth() => PosVel[ReferenceSystem](1.4E11, -5E10, 2E10, 0, 0, 0, null)
+      case MoonGEO() => PosVel[ReferenceSystem](3E8, 2E8, -1E8, 0, 0, 0, null)
+    }
+  }
+}
+
+object FixedEphemeris {
+
+  /** Position of the Sun relative to the Earth [m]. */
+  val sun = Vec3(-1.4E11, 5E10, -2E10)
+
+  /** Position of the Moon relative to the Earth [m]. */
+  val moon = Vec3(3E8, 2E8, -1E8)
+
+}
+
+/**
+ * Universe and epoch shared by the tests of the models that use a [[be.angelcorp.celest.unit.FixedEphemeris]].
+ */
+trait FixedEphemerisTest {
+
+  implicit val universe = new DefaultUniverse
+
+  val epoch = new JulianDate(2013, 4, 27, 12, 33, 18.1938271, TT)
+
+}